@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+
+/**
+ * Fixtures shared by the benchmarks: an in-memory HSQLDB database and JDBC objects backed by arrays, so that
+ * mapping code can be measured without a driver in the way.
+ */
+public final class BenchmarkData {
+
+  public static final String DRIVER = "org.hsqldb.jdbcDriver";
+  public static final String USERNAME = "sa";
+  public static final String PASSWORD = "";
+
+  public static final String[] USER_COLUMNS = { "ID", "NAME", "EMAIL", "AGE" };
+  public static final int[] USER_COLUMN_TYPES = { Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.INTEGER };
+
+  private BenchmarkData() {
+    // Prevent Instantiation
+  }
+
+  public static String url(String database) {
+    return "jdbc:hsqldb:mem:" + database;
+  }
+
+  /**
+   * Creates the users table of the given in-memory database and fills it with {@code rows} users.
+   */
+  public static UnpooledDataSource createUserDatabase(String database, int rows) throws SQLException {
+    UnpooledDataSource dataSource = new UnpooledDataSource(DRIVER, url(database), USERNAME, PASSWORD);
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table users if exists");
+      statement.execute("create table users (id int primary key, name varchar(32), email varchar(64), age int)");
+      for (int i = 1; i <= rows; i++) {
+        statement.execute("insert into users values (" + i + ", 'user" + i + "', 'user" + i + "@example.com', " + (20 + i % 50) + ")");
+      }
+    }
+    return dataSource;
+  }
+
+  public static Object[][] userRows(int rows) {
+    Object[][] data = new Object[rows][];
+    for (int i = 0; i < rows; i++) {
+      data[i] = new Object[] { i + 1, "user" + (i + 1), "user" + (i + 1) + "@example.com", 20 + (i + 1) % 50 };
+    }
+    return data;
+  }
+
+  /**
+   * Creates a forward only result set over {@code rows}, returned by a statement that has no further results.
+   */
+  public static Statement createStatement(String[] columns, int[] types, Object[][] rows) {
+    ResultSet resultSet = proxy(ResultSet.class, new ArrayResultSet(columns, types, rows));
+    DatabaseMetaData databaseMetaData = proxy(DatabaseMetaData.class, (proxy, method, args) -> defaultValue(method));
+    Connection connection = proxy(Connection.class, (proxy, method, args) ->
+        "getMetaData".equals(method.getName()) ? databaseMetaData : defaultValue(method));
+    return proxy(Statement.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getResultSet":
+          return resultSet;
+        case "getConnection":
+          return connection;
+        case "getUpdateCount":
+          return -1;
+        default:
+          return defaultValue(method);
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[] { type }, handler);
+  }
+
+  private static Object defaultValue(Method method) {
+    Class<?> returnType = method.getReturnType();
+    if (returnType == boolean.class) {
+      return false;
+    } else if (returnType == int.class) {
+      return 0;
+    } else if (returnType == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  private static class ArrayResultSet implements InvocationHandler {
+    private final String[] columns;
+    private final Object[][] rows;
+    private final ResultSetMetaData metaData;
+    private int row = -1;
+    private boolean wasNull;
+    private boolean closed;
+
+    ArrayResultSet(String[] columns, int[] types, Object[][] rows) {
+      this.columns = columns;
+      this.rows = rows;
+      this.metaData = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getColumnCount":
+            return columns.length;
+          case "getColumnLabel":
+          case "getColumnName":
+            return columns[(Integer) args[0] - 1];
+          case "getColumnType":
+            return types[(Integer) args[0] - 1];
+          case "getColumnClassName":
+            return types[(Integer) args[0] - 1] == Types.INTEGER ? Integer.class.getName() : String.class.getName();
+          default:
+            return defaultValue(method);
+        }
+      });
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "next":
+          return ++row < rows.length;
+        case "getMetaData":
+          return metaData;
+        case "getType":
+          return ResultSet.TYPE_FORWARD_ONLY;
+        case "wasNull":
+          return wasNull;
+        case "close":
+          closed = true;
+          return null;
+        case "isClosed":
+          return closed;
+        case "getObject":
+          return value(args[0]);
+        case "getString":
+          Object string = value(args[0]);
+          return string == null ? null : string.toString();
+        case "getInt":
+          Object number = value(args[0]);
+          return number == null ? 0 : ((Number) number).intValue();
+        case "getLong":
+          Object longNumber = value(args[0]);
+          return longNumber == null ? 0L : ((Number) longNumber).longValue();
+        default:
+          return defaultValue(method);
+      }
+    }
+
+    private Object value(Object column) {
+      int index = column instanceof Integer ? (Integer) column - 1 : indexOf((String) column);
+      Object value = rows[row][index];
+      wasNull = value == null;
+      return value;
+    }
+
+    private int indexOf(String column) {
+      for (int i = 0; i < columns.length; i++) {
+        if (columns[i].equalsIgnoreCase(column)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Unknown column " + column);
+    }
+  }
+
+}
@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.binding;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmark.BenchmarkData;
+import org.apache.ibatis.benchmark.User;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures mapper method calls, both the {@code MapperProxy.invoke} dispatch alone (against a session that returns
+ * canned results) and complete statements against an in-memory HSQLDB database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperProxyBenchmark {
+
+  private static final int ROWS = 100;
+
+  private UserMapper dispatchMapper;
+  private SqlSession sqlSession;
+  private UserMapper mapper;
+  private int id;
+
+  @Setup
+  public void setup() throws SQLException {
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(),
+        new PooledDataSource(BenchmarkData.createUserDatabase("mapperproxy", ROWS))));
+    configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    configuration.addMapper(UserMapper.class);
+
+    User user = new User();
+    SqlSession cannedSession = (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { SqlSession.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getConfiguration":
+              return configuration;
+            case "selectOne":
+              return user;
+            case "selectList":
+              return Collections.singletonList(user);
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+    dispatchMapper = configuration.getMapper(UserMapper.class, cannedSession);
+
+    SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    sqlSession = sqlSessionFactory.openSession();
+    mapper = sqlSession.getMapper(UserMapper.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public User dispatchSelectOne() {
+    return dispatchMapper.selectById(nextId());
+  }
+
+  @Benchmark
+  public List<User> dispatchSelectList() {
+    return dispatchMapper.selectByAge(20, 30);
+  }
+
+  @Benchmark
+  public User selectOne() {
+    return mapper.selectById(nextId());
+  }
+
+  @Benchmark
+  public List<User> selectList() {
+    return mapper.selectByAge(20, 30);
+  }
+
+  private int nextId() {
+    id = id % ROWS + 1;
+    return id;
+  }
+
+}
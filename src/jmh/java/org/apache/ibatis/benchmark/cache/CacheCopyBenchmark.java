@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.cache;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.CopyingCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a read/write cache hit on a list of rows, when the copy is made by Java serialization, by the binary
+ * serializer or by deep copying.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheCopyBenchmark {
+
+  @Param({ "java", "binary", "copy" })
+  private String copy;
+
+  @Param({ "10", "1000" })
+  private int rows;
+
+  private Cache cache;
+
+  @Setup
+  public void setup() {
+    PerpetualCache base = new PerpetualCache("benchmark");
+    if ("copy".equals(copy)) {
+      cache = new CopyingCache(base);
+    } else if ("binary".equals(copy)) {
+      cache = new SerializedCache(base, new BinaryCacheSerializer());
+    } else {
+      cache = new SerializedCache(base);
+    }
+    List<Row> list = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      Row row = new Row();
+      row.setId(i);
+      row.setName("row " + i);
+      row.setEmail("row" + i + "@example.com");
+      row.setBalance(BigDecimal.valueOf(i, 2));
+      row.setCreated(LocalDateTime.of(2020, 1, 1, 0, 0).plusMinutes(i));
+      list.add(row);
+    }
+    cache.putObject("rows", list);
+  }
+
+  @Benchmark
+  public Object hit() {
+    return cache.getObject("rows");
+  }
+
+  public static class Row implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Integer id;
+    private String name;
+    private String email;
+    private BigDecimal balance;
+    private LocalDateTime created;
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+
+    public void setEmail(String email) {
+      this.email = email;
+    }
+
+    public BigDecimal getBalance() {
+      return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+      this.balance = balance;
+    }
+
+    public LocalDateTime getCreated() {
+      return created;
+    }
+
+    public void setCreated(LocalDateTime created) {
+      this.created = created;
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the list based {@link LegacyCacheKey} with {@link CacheKey} for the two places keys are built on hot
+ * paths: the query key of {@code BaseExecutor.createCacheKey} and the row key lookups of nested result maps.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheKeyBenchmark {
+
+  private static final String STATEMENT_ID = "org.apache.ibatis.domain.blog.mappers.BlogMapper.selectBlogsByAuthor";
+  private static final String SQL = "select * from blog where author_id = ? and title like ? and state = ?";
+  private static final String ENVIRONMENT_ID = "development";
+  private static final String RESULT_MAP_ID = "org.apache.ibatis.domain.blog.mappers.BlogMapper.blogResult";
+  private static final int ROWS = 64;
+
+  private Object[] parameters;
+  private Map<LegacyCacheKey, Object> legacyRows;
+  private Map<CacheKey, Object> rows;
+  private final CacheKey probe = new CacheKey();
+  private int row;
+
+  @Setup
+  public void setup() {
+    parameters = new Object[] { 101, "%mybatis%", "ACTIVE" };
+    legacyRows = new HashMap<>();
+    rows = new HashMap<>();
+    for (int i = 0; i < ROWS; i++) {
+      legacyRows.put(legacyRowKey(i), i);
+      rows.put(rowKey(new CacheKey(), i), i);
+    }
+  }
+
+  @Benchmark
+  public LegacyCacheKey legacyQueryKey() {
+    LegacyCacheKey cacheKey = new LegacyCacheKey();
+    cacheKey.update(STATEMENT_ID);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(SQL);
+    for (Object parameter : parameters) {
+      cacheKey.update(parameter);
+    }
+    cacheKey.update(ENVIRONMENT_ID);
+    return cacheKey;
+  }
+
+  @Benchmark
+  public CacheKey queryKey() {
+    CacheKey cacheKey = new CacheKey(5 + parameters.length);
+    cacheKey.update(STATEMENT_ID);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(SQL);
+    for (Object parameter : parameters) {
+      cacheKey.update(parameter);
+    }
+    cacheKey.update(ENVIRONMENT_ID);
+    return cacheKey;
+  }
+
+  @Benchmark
+  public boolean legacyQueryKeyEquals() {
+    return legacyQueryKey().equals(legacyQueryKey());
+  }
+
+  @Benchmark
+  public boolean queryKeyEquals() {
+    return queryKey().equals(queryKey());
+  }
+
+  @Benchmark
+  public Object legacyRowKeyLookup() {
+    return legacyRows.get(legacyRowKey(nextRow()));
+  }
+
+  @Benchmark
+  public Object rowKeyLookup() {
+    return rows.get(rowKey(new CacheKey(), nextRow()));
+  }
+
+  @Benchmark
+  public Object probeRowKeyLookup() {
+    return rows.get(rowKey(probe, nextRow()));
+  }
+
+  private int nextRow() {
+    row = (row + 1) % ROWS;
+    return row;
+  }
+
+  private static LegacyCacheKey legacyRowKey(int id) {
+    LegacyCacheKey cacheKey = new LegacyCacheKey();
+    cacheKey.update(RESULT_MAP_ID);
+    cacheKey.update("id");
+    cacheKey.update(id);
+    return cacheKey;
+  }
+
+  private static CacheKey rowKey(CacheKey cacheKey, int id) {
+    cacheKey.reset();
+    cacheKey.update(RESULT_MAP_ID);
+    cacheKey.update("id");
+    cacheKey.update(id);
+    return cacheKey;
+  }
+
+}
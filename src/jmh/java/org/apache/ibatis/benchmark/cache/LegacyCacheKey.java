@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Copy of the list based {@link org.apache.ibatis.cache.CacheKey} shipped up to 3.5.4, kept as the baseline of
+ * {@link CacheKeyBenchmark}.
+ */
+public class LegacyCacheKey implements Cloneable {
+
+  private static final int DEFAULT_MULTIPLIER = 37;
+  private static final int DEFAULT_HASHCODE = 17;
+
+  private final int multiplier;
+  private int hashcode;
+  private long checksum;
+  private int count;
+  private List<Object> updateList;
+
+  public LegacyCacheKey() {
+    this.hashcode = DEFAULT_HASHCODE;
+    this.multiplier = DEFAULT_MULTIPLIER;
+    this.count = 0;
+    this.updateList = new ArrayList<>();
+  }
+
+  public int getUpdateCount() {
+    return updateList.size();
+  }
+
+  public void update(Object object) {
+    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
+
+    count++;
+    checksum += baseHashCode;
+    baseHashCode *= count;
+
+    hashcode = multiplier * hashcode + baseHashCode;
+
+    updateList.add(object);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof LegacyCacheKey)) {
+      return false;
+    }
+
+    final LegacyCacheKey cacheKey = (LegacyCacheKey) object;
+
+    if (hashcode != cacheKey.hashcode) {
+      return false;
+    }
+    if (checksum != cacheKey.checksum) {
+      return false;
+    }
+    if (count != cacheKey.count) {
+      return false;
+    }
+
+    for (int i = 0; i < updateList.size(); i++) {
+      Object thisObject = updateList.get(i);
+      Object thatObject = cacheKey.updateList.get(i);
+      if (!ArrayUtil.equals(thisObject, thatObject)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashcode;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner returnValue = new StringJoiner(":");
+    returnValue.add(String.valueOf(hashcode));
+    returnValue.add(String.valueOf(checksum));
+    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    return returnValue.toString();
+  }
+
+  @Override
+  public LegacyCacheKey clone() throws CloneNotSupportedException {
+    LegacyCacheKey clonedCacheKey = (LegacyCacheKey) super.clone();
+    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    return clonedCacheKey;
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of a second level cache built by {@link CacheBuilder} with the default LRU + synchronized stack and
+ * with {@link ConcurrentCache}, for 1 to 64 threads doing 90% reads and 10% writes over a key space twice as large
+ * as the cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecondLevelCacheBenchmark {
+
+  private static final int CACHE_SIZE = 1024;
+  private static final int KEYS = CACHE_SIZE * 2;
+
+  @Param({ "lru", "concurrent" })
+  private String cacheType;
+
+  private Cache cache;
+  private CacheKey[] keys;
+
+  @Setup
+  public void setup() {
+    CacheBuilder builder = new CacheBuilder("benchmark").addDecorator(LruCache.class).size(CACHE_SIZE);
+    builder.implementation("concurrent".equals(cacheType) ? ConcurrentCache.class : PerpetualCache.class);
+    cache = builder.build();
+    keys = new CacheKey[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      CacheKey key = new CacheKey();
+      key.update("org.apache.ibatis.benchmark.UserMapper.selectUser");
+      key.update(i);
+      keys[i] = key;
+      if (i < CACHE_SIZE) {
+        cache.putObject(key, i);
+      }
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object access1Thread() {
+    return access();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object access4Threads() {
+    return access();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Object access16Threads() {
+    return access();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public Object access64Threads() {
+    return access();
+  }
+
+  private Object access() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int index = random.nextInt(KEYS);
+    CacheKey key = keys[index];
+    if (random.nextInt(10) == 0) {
+      cache.putObject(key, index);
+      return key;
+    }
+    return cache.getObject(key);
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmark.BenchmarkData;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Borrow latency of {@link PooledDataSource} and {@link ConcurrentPooledDataSource} when 8, 64 and 256 threads
+ * compete for a pool of 20 connections, each thread holding its connection for a short amount of work.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionPoolContentionBenchmark {
+
+  private static final int POOL_SIZE = 20;
+
+  @Param({ "pooled", "concurrent" })
+  private String pool;
+
+  @Param({ "100" })
+  private long workTokens;
+
+  private PooledDataSource dataSource;
+
+  @Setup
+  public void setup() throws SQLException {
+    UnpooledDataSource unpooled = BenchmarkData.createUserDatabase("poolcontention", 0);
+    dataSource = "concurrent".equals(pool) ? new ConcurrentPooledDataSource(unpooled) : new PooledDataSource(unpooled);
+    dataSource.setPoolMaximumActiveConnections(POOL_SIZE);
+    dataSource.setPoolMaximumIdleConnections(POOL_SIZE);
+  }
+
+  @TearDown
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void borrow8Threads() throws SQLException {
+    borrow();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void borrow64Threads() throws SQLException {
+    borrow();
+  }
+
+  @Benchmark
+  @Threads(256)
+  public void borrow256Threads() throws SQLException {
+    borrow();
+  }
+
+  private void borrow() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      Blackhole.consumeCPU(workTokens);
+    }
+  }
+
+}
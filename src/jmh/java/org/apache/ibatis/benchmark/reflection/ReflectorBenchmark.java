@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.reflection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmark.User;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Reflector} creation for a small bean and for a class with many properties, and the cached lookup
+ * of {@link DefaultReflectorFactory}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReflectorBenchmark {
+
+  private ReflectorFactory reflectorFactory;
+
+  @Setup
+  public void setup() {
+    reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.findForClass(User.class);
+  }
+
+  @Benchmark
+  public Reflector createForBean() {
+    return new Reflector(User.class);
+  }
+
+  @Benchmark
+  public Reflector createForLargeClass() {
+    return new Reflector(Configuration.class);
+  }
+
+  @Benchmark
+  public Reflector findCached() {
+    return reflectorFactory.findForClass(User.class);
+  }
+
+}
@@ -0,0 +1,97 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.resultset;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmark.BenchmarkData;
+import org.apache.ibatis.benchmark.User;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps an array backed result set with {@link DefaultResultSetHandler}, using either explicit property mappings or
+ * auto-mapping, with and without compiled row mapping.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultSetHandlerBenchmark {
+
+  @Param({ "1", "100" })
+  private int rows;
+
+  @Param({ "explicit", "auto" })
+  private String mapping;
+
+  @Param({ "false", "true" })
+  private boolean compiledRowMapping;
+
+  private MappedStatement mappedStatement;
+  private Object[][] data;
+
+  @Setup
+  public void setup() {
+    Configuration configuration = new Configuration();
+    configuration.setCompiledRowMappingEnabled(compiledRowMapping);
+    TypeHandlerRegistry registry = configuration.getTypeHandlerRegistry();
+    List<ResultMapping> resultMappings = new ArrayList<>();
+    if ("explicit".equals(mapping)) {
+      resultMappings.add(new ResultMapping.Builder(configuration, "id", "ID", registry.getTypeHandler(Integer.class)).build());
+      resultMappings.add(new ResultMapping.Builder(configuration, "name", "NAME", registry.getTypeHandler(String.class)).build());
+      resultMappings.add(new ResultMapping.Builder(configuration, "email", "EMAIL", registry.getTypeHandler(String.class)).build());
+      resultMappings.add(new ResultMapping.Builder(configuration, "age", "AGE", registry.getTypeHandler(Integer.class)).build());
+    }
+    ResultMap resultMap = new ResultMap.Builder(configuration, "userResult", User.class, resultMappings).build();
+    mappedStatement = new MappedStatement.Builder(configuration, "selectUsers",
+        new StaticSqlSource(configuration, "select * from users"), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(resultMap)).build();
+    data = BenchmarkData.userRows(rows);
+  }
+
+  @Benchmark
+  public List<Object> handleResultSets() throws SQLException {
+    DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, mappedStatement, null, null, null, RowBounds.DEFAULT);
+    return resultSetHandler.handleResultSets(
+        BenchmarkData.createStatement(BenchmarkData.USER_COLUMNS, BenchmarkData.USER_COLUMN_TYPES, data));
+  }
+
+}
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark.scripting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code DynamicSqlSource.getBoundSql} for large {@code IN} lists built by a {@code <foreach>}, inside and
+ * outside of a {@code <where>}. Run with {@code -Djmh.args="-prof gc"}: {@code gc.alloc.rate.norm} is the number of
+ * bytes allocated per {@code getBoundSql}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ForEachBenchmark {
+
+  private static final String IN_LIST = "<script>"
+      + "select id, name from users where id in"
+      + "<foreach item=\"id\" collection=\"ids\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>"
+      + "</script>";
+
+  private static final String TRIMMED_IN_LIST = "<script>"
+      + "select id, name from users"
+      + "<where>"
+      + "<if test=\"ids != null and ids.size() > 0\">"
+      + "and id in <foreach item=\"id\" collection=\"ids\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>"
+      + "</if>"
+      + "</where>"
+      + "</script>";
+
+  @Param({ "100", "1000", "10000" })
+  private int ids;
+
+  private SqlSource inList;
+  private SqlSource trimmedInList;
+  private Map<String, Object> parameter;
+
+  @Setup
+  public void setup() {
+    Configuration configuration = new Configuration();
+    XMLLanguageDriver driver = new XMLLanguageDriver();
+    inList = driver.createSqlSource(configuration, IN_LIST, Map.class);
+    trimmedInList = driver.createSqlSource(configuration, TRIMMED_IN_LIST, Map.class);
+    List<Integer> idList = new ArrayList<>();
+    for (int i = 0; i < ids; i++) {
+      idList.add(i);
+    }
+    parameter = new HashMap<>();
+    parameter.put("ids", idList);
+  }
+
+  @Benchmark
+  public BoundSql inList() {
+    return inList.getBoundSql(parameter);
+  }
+
+  @Benchmark
+  public BoundSql trimmedInList() {
+    return trimmedInList.getBoundSql(parameter);
+  }
+
+}
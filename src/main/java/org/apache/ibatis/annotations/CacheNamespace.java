@@ -22,8 +22,12 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 
 /**
  * The annotation that specify to use cache on namespace(e.g. mapper interface).
@@ -92,6 +96,97 @@ public @interface CacheNamespace {
    */
   boolean blocking() default false;
 
+  /**
+   * Returns the maximum estimated number of bytes retained by the cache. The default is no weight bound.
+   *
+   * @return the maximum weight in bytes, or {@code 0} for no weight bound
+   * @since 3.5.5
+   */
+  long maxWeight() default 0;
+
+  /**
+   * Returns the weigher type used to estimate the weight of the entries when a maximum weight is set.
+   *
+   * @return the weigher type
+   * @since 3.5.5
+   */
+  Class<? extends Weigher> weigher() default DefaultWeigher.class;
+
+  /**
+   * Returns the serializer type used to copy the values of a read/write cache.
+   *
+   * @return the serializer type
+   * @since 3.5.5
+   */
+  Class<? extends CacheSerializer> serializer() default JavaCacheSerializer.class;
+
+  /**
+   * Returns the size from which the serialized values of a read/write cache are compressed.
+   *
+   * @return the threshold in bytes, or {@code 0} for no compression
+   * @since 3.5.5
+   */
+  int compressionThreshold() default 0;
+
+  /**
+   * Returns whether a read/write cache deep copies its values instead of serializing them.
+   *
+   * @return {@code true} if values are deep copied; {@code false} if they are serialized
+   * @since 3.5.5
+   */
+  boolean deepCopy() default false;
+
+  /**
+   * Returns whether concurrent misses on an entry wait for the first one to fill it. Takes precedence over
+   * {@link #blocking()}.
+   *
+   * @return {@code true} if misses are coalesced; {@code false} if otherwise
+   * @since 3.5.5
+   */
+  boolean coalesce() default false;
+
+  /**
+   * Returns how old the previous value of an entry can be to be served to coalesced misses while it is filled again.
+   * Only applies to read only caches.
+   *
+   * @return the maximum staleness in milliseconds, or {@code 0} to never serve previous values
+   * @since 3.5.5
+   */
+  long staleWhileRevalidate() default 0;
+
+  /**
+   * Returns how long each entry lives after it was put. Unlike {@link #flushInterval()}, entries expire one by one.
+   *
+   * @return the time to live in milliseconds, or {@code 0} for entries that do not expire on their own
+   * @since 3.5.5
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Returns by how much the time to live of each entry randomly varies.
+   *
+   * @return the jitter as a fraction of the time to live, e.g. {@code 0.1} for plus or minus 10%
+   * @since 3.5.5
+   */
+  double ttlJitter() default 0;
+
+  /**
+   * Returns how long before it expires an entry that is read is refreshed in the background, by running its query
+   * again. Requires a time to live.
+   *
+   * @return the refresh window in milliseconds, or {@code 0} to never refresh entries
+   * @since 3.5.5
+   */
+  long refreshAhead() default 0;
+
+  /**
+   * Returns whether expired entries are served when their query fails. Requires a time to live.
+   *
+   * @return {@code true} if expired entries are served on error; {@code false} if otherwise
+   * @since 3.5.5
+   */
+  boolean serveStaleOnError() default false;
+
   /**
    * Returns property values for a implementation object.
    *
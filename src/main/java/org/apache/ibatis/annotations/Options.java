@@ -99,6 +99,24 @@ public @interface Options {
    */
   int timeout() default -1;
 
+  /**
+   * Returns the number of parameter sets after which the statement is flushed when executed in batch.
+   *
+   * @return the batch size
+   * @since 3.5.5
+   */
+  int batchSize() default -1;
+
+  /**
+   * Returns the tables the statement reads, if it is a select, or writes otherwise, when second level cache entries
+   * are invalidated by table. If empty, tables are inferred from the SQL.
+   *
+   * @return comma separated table names
+   * @since 3.5.5
+   * @see org.apache.ibatis.session.CacheInvalidation#TABLE
+   */
+  String tables() default "";
+
   /**
    * Returns whether use the generated keys feature supported by JDBC 3.0
    *
@@ -23,11 +23,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.jdbc.SQL;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
@@ -39,6 +43,8 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
 
 /**
  * //mynote: MapperMethod 中封装了 Mapper 接口中对应方法的信息，以及对应 SQL 语句的信息。读者
@@ -64,6 +70,13 @@ public class MapperMethod {
    * @return
    */
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      return executeAsync(sqlSession, args);
+    }
+    return doExecute(sqlSession, args);
+  }
+
+  private Object doExecute(SqlSession sqlSession, Object[] args) {
         Object result;
         switch (command.getType()) {//根据 SQL 语句的类型调用 SqlSession 对应的方法
           case INSERT: {
@@ -122,6 +135,46 @@ public class MapperMethod {
         return result;
   }
 
+  /**
+   * Runs the statement on {@link Configuration#getAsyncExecutor()} within a new {@link SqlSession}, opened with the
+   * settings of the caller's session. The session belongs to the task, so the statement never joins the caller's
+   * transaction: it is committed when the statement succeeds and rolled back when the session is closed after a
+   * failure.
+   */
+  private CompletableFuture<Object> executeAsync(SqlSession callerSession, Object[] args) {
+    final ErrorContext callerContext = ErrorContext.instance().copy();
+    final Supplier<Object> task = () -> {
+      // worker threads are reused, so carry on with the caller's context and restore their own afterwards
+      final ErrorContext workerContext = ErrorContext.replace(callerContext);
+      try (SqlSession sqlSession = openAsyncSession(callerSession)) {
+        Object result = doExecute(sqlSession, args);
+        sqlSession.commit();
+        return result;
+      } finally {
+        ErrorContext.replace(workerContext);
+      }
+    };
+    return CompletableFuture.supplyAsync(task, callerSession.getConfiguration().getAsyncExecutor());
+  }
+
+  private SqlSession openAsyncSession(SqlSession callerSession) {
+    SqlSession sqlSession = null;
+    if (callerSession instanceof DefaultSqlSession) {
+      sqlSession = ((DefaultSqlSession) callerSession).openSibling();
+    } else if (callerSession instanceof SqlSessionFactory) {
+      sqlSession = ((SqlSessionFactory) callerSession).openSession();
+    }
+    if (sqlSession == null) {
+      SqlSessionFactory sqlSessionFactory = callerSession.getConfiguration().getAsyncSqlSessionFactory();
+      if (sqlSessionFactory == null) {
+        throw new BindingException("Mapper method '" + command.getName() + "' cannot open a session of its own from "
+            + callerSession.getClass().getName() + ". Set one with Configuration.setAsyncSqlSessionFactory().");
+      }
+      sqlSession = sqlSessionFactory.openSession();
+    }
+    return sqlSession;
+  }
+
   /**
    * SqISession 中的 insert（）等方法返回的是 int 值，
    * rowCountResult（）方法会将该 int 值转换成 Mapper 接口中对应方法的返回值
@@ -352,6 +405,7 @@ public class MapperMethod {
     private final boolean returnsVoid;
     private final boolean returnsCursor;
     private final boolean returnsOptional;
+    private final boolean returnsFuture;
     private final Class<?> returnType;
     private final String mapKey;
     private final Integer resultHandlerIndex;
@@ -369,18 +423,29 @@ public class MapperMethod {
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       //解析方法的返回值类型，前面已经介绍过 TypeParameterResolver 的实现，这里不再赞述
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      // CompletableFuture<T> 和 CompletionStage<T> 按 T 处理，语句在 Configuration.asyncExecutor 上异步执行
+      this.returnsFuture = CompletableFuture.class.equals(method.getReturnType())
+        || CompletionStage.class.equals(method.getReturnType());
+      if (returnsFuture) {
+        resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+          ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
-      this.mapKey = getMapKey(method);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+          + "' cannot return a Cursor asynchronously because its session is closed once the statement completes.");
+      }
+      this.mapKey = getMapKey(method, returnsFuture ? this.returnType : method.getReturnType());
       this.returnsMap = this.mapKey != null;
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
       this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
@@ -443,6 +508,18 @@ public class MapperMethod {
       return returnsOptional;
     }
 
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture} or
+     * {@code java.util.concurrent.CompletionStage}. In that case {@link #getReturnType()} returns the type of the
+     * future's value.
+     *
+     * @return return {@code true}, if the method is executed asynchronously
+     * @since 3.5.5
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
       final Class<?>[] argTypes = method.getParameterTypes();
@@ -462,9 +539,9 @@ public class MapperMethod {
       return mapKey;
     }
 
-    private String getMapKey(Method method) {
+    private String getMapKey(Method method, Class<?> returnType) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.BroadcastingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
@@ -128,16 +129,38 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
-    Cache cache = new CacheBuilder(currentNamespace)
+    return useNewCache(new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
         .addDecorator(valueOrDefault(evictionClass, LruCache.class))
         .clearInterval(flushInterval)
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
-        .properties(props)
+        .properties(props));
+  }
+
+  /**
+   * Builds the cache of the current namespace.
+   *
+   * @param cacheBuilder
+   *          the builder, holding the options of the cache element or annotation; the query refresher and the
+   *          statistics of the configuration are set by this method
+   * @return the cache
+   * @since 3.5.5
+   */
+  public Cache useNewCache(CacheBuilder cacheBuilder) {
+    final boolean refreshed = cacheBuilder.isRefreshedAhead();
+    Cache cache = cacheBuilder
+        .refresher(refreshed ? configuration.getQueryRefresher() : null)
+        .statistics(configuration.isCacheStatisticsEnabled() ? configuration.getCacheStatistics().register(currentNamespace) : null)
         .build();
+    if (configuration.getInvalidationBus() != null) {
+      cache = new BroadcastingCache(cache, configuration.getInvalidationBus());
+    }
     configuration.addCache(cache);
+    if (refreshed) {
+      configuration.getQueryRefresher().enable(cache.getId());
+    }
     currentCache = cache;
     return cache;
   }
@@ -261,7 +284,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String keyColumn,
       String databaseId,
       LanguageDriver lang,
-      String resultSets) {
+      String resultSets,
+      Integer batchSize,
+      String tables) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -274,6 +299,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .resource(resource)
         .fetchSize(fetchSize)
         .timeout(timeout)
+        .batchSize(batchSize)
+        .tables(tables)
         .statementType(statementType)
         .keyGenerator(keyGenerator)
         .keyProperty(keyProperty)
@@ -298,6 +325,30 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return statement;
   }
 
+  public MappedStatement addMappedStatement(String id, SqlSource sqlSource, StatementType statementType,
+      SqlCommandType sqlCommandType, Integer fetchSize, Integer timeout, String parameterMap, Class<?> parameterType,
+      String resultMap, Class<?> resultType, ResultSetType resultSetType, boolean flushCache, boolean useCache,
+      boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty, String keyColumn, String databaseId,
+      LanguageDriver lang, String resultSets, Integer batchSize) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, batchSize, null);
+  }
+
+  public MappedStatement addMappedStatement(String id, SqlSource sqlSource, StatementType statementType,
+      SqlCommandType sqlCommandType, Integer fetchSize, Integer timeout, String parameterMap, Class<?> parameterType,
+      String resultMap, Class<?> resultType, ResultSetType resultSetType, boolean flushCache, boolean useCache,
+      boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty, String keyColumn, String databaseId,
+      LanguageDriver lang, String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null);
+  }
+
   /**
    * Backward compatibility signature 'addMappedStatement'.
    *
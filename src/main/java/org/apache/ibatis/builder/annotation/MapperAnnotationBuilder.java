@@ -34,6 +34,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -71,6 +73,7 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.FetchType;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -196,7 +199,25 @@ public class MapperAnnotationBuilder {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
       Properties props = convertToProperties(cacheDomain.properties());
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      assistant.useNewCache(new CacheBuilder(assistant.getCurrentNamespace())
+          .implementation(cacheDomain.implementation())
+          .addDecorator(cacheDomain.eviction())
+          .clearInterval(flushInterval)
+          .size(size)
+          .readWrite(cacheDomain.readWrite())
+          .blocking(cacheDomain.blocking())
+          .maxWeight(cacheDomain.maxWeight() == 0 ? null : cacheDomain.maxWeight())
+          .weigher(cacheDomain.weigher())
+          .serializer(cacheDomain.serializer())
+          .compressionThreshold(cacheDomain.compressionThreshold() == 0 ? null : cacheDomain.compressionThreshold())
+          .deepCopy(cacheDomain.deepCopy())
+          .coalesce(cacheDomain.coalesce())
+          .staleWhileRevalidate(cacheDomain.staleWhileRevalidate() == 0 ? null : cacheDomain.staleWhileRevalidate())
+          .timeToLive(cacheDomain.timeToLive() == 0 ? null : cacheDomain.timeToLive())
+          .ttlJitter(cacheDomain.ttlJitter() == 0 ? null : cacheDomain.ttlJitter())
+          .refreshAhead(cacheDomain.refreshAhead() == 0 ? null : cacheDomain.refreshAhead())
+          .serveStaleOnError(cacheDomain.serveStaleOnError())
+          .properties(props));
     }
   }
 
@@ -311,6 +332,7 @@ public class MapperAnnotationBuilder {
       final String mappedStatementId = type.getName() + "." + method.getName();
       Integer fetchSize = null;
       Integer timeout = null;
+      Integer batchSize = null;
       StatementType statementType = StatementType.PREPARED;
       ResultSetType resultSetType = configuration.getDefaultResultSetType();
       SqlCommandType sqlCommandType = getSqlCommandType(method);
@@ -347,6 +369,7 @@ public class MapperAnnotationBuilder {
         useCache = options.useCache();
         fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
         timeout = options.timeout() > -1 ? options.timeout() : null;
+        batchSize = options.batchSize() > 0 ? options.batchSize() : null;
         statementType = options.statementType();
         if (options.resultSetType() != ResultSetType.DEFAULT) {
           resultSetType = options.resultSetType();
@@ -387,7 +410,9 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          batchSize,
+          options != null ? nullOrEmpty(options.tables()) : null);
     }
   }
 
@@ -419,13 +444,21 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    if (CompletableFuture.class.equals(returnType) || CompletionStage.class.equals(returnType)) {
+      // the statement maps the value of the future
+      resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+          ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      // like the return type of a synchronous method, which the branches below refine
+      returnType = resolvedReturnType instanceof ParameterizedType
+          ? (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType() : Object.class;
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
         returnType = returnType.getComponentType();
       }
       // gcode issue #508
-      if (void.class.equals(returnType)) {
+      if (void.class.equals(returnType) || Void.class.equals(returnType)) {
         ResultType rt = method.getAnnotation(ResultType.class);
         if (rt != null) {
           returnType = rt.value();
@@ -34,8 +34,11 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
@@ -231,8 +234,28 @@ public class XMLMapperBuilder extends BaseBuilder {
       Integer size = context.getIntAttribute("size");
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
       boolean blocking = context.getBooleanAttribute("blocking", false);
+      Class<? extends Weigher> weigherClass = resolveClass(context.getStringAttribute("weigher"));
+      Class<? extends CacheSerializer> serializerClass = resolveClass(context.getStringAttribute("serializer"));
       Properties props = context.getChildrenAsProperties();
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(new CacheBuilder(builderAssistant.getCurrentNamespace())
+          .implementation(typeClass)
+          .addDecorator(evictionClass)
+          .clearInterval(flushInterval)
+          .size(size)
+          .readWrite(readWrite)
+          .blocking(blocking)
+          .maxWeight(context.getLongAttribute("maxWeight"))
+          .weigher(weigherClass)
+          .serializer(serializerClass)
+          .compressionThreshold(context.getIntAttribute("compressionThreshold"))
+          .deepCopy(context.getBooleanAttribute("deepCopy", false))
+          .coalesce(context.getBooleanAttribute("coalesce", false))
+          .staleWhileRevalidate(context.getLongAttribute("staleWhileRevalidate"))
+          .timeToLive(context.getLongAttribute("timeToLive"))
+          .ttlJitter(context.getDoubleAttribute("ttlJitter"))
+          .refreshAhead(context.getLongAttribute("refreshAhead"))
+          .serveStaleOnError(context.getBooleanAttribute("serveStaleOnError", false))
+          .properties(props));
     }
   }
 
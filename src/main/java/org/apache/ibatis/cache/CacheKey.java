@@ -15,8 +15,13 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringJoiner;
 
@@ -29,6 +34,15 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final long serialVersionUID = 1146682552656046210L;
 
+  // keep the serialized form of the list based implementation
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("multiplier", int.class),
+      new ObjectStreamField("hashcode", int.class),
+      new ObjectStreamField("checksum", long.class),
+      new ObjectStreamField("count", int.class),
+      new ObjectStreamField("updateList", List.class)
+  };
+
   public static final CacheKey NULL_CACHE_KEY = new CacheKey() {
 
     @Override
@@ -36,51 +50,133 @@ public class CacheKey implements Cloneable, Serializable {
       throw new CacheException("Not allowed to update a null cache key instance.");
     }
 
+    @Override
+    public void update(int value) {
+      throw new CacheException("Not allowed to update a null cache key instance.");
+    }
+
+    @Override
+    public void update(long value) {
+      throw new CacheException("Not allowed to update a null cache key instance.");
+    }
+
     @Override
     public void updateAll(Object[] objects) {
       throw new CacheException("Not allowed to update a null cache key instance.");
     }
+
+    @Override
+    public void reset() {
+      throw new CacheException("Not allowed to reset a null cache key instance.");
+    }
   };
 
   private static final int DEFAULT_MULTIPLIER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final Object[] EMPTY_UPDATES = {};
+
+  // placeholders in updateList for values held in primitiveValues
+  private static final Object INT_VALUE = new Object();
+  private static final Object LONG_VALUE = new Object();
 
-  private final int multiplier;
   private int hashcode;
   private long checksum;
   private int count;
-  // 8/21/2017 - Sonarlint flags this as needing to be marked transient. While true if content is not serializable, this
-  // is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
+  private long[] primitiveValues;
+  private String toStringValue;
 
   public CacheKey() {
     this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLIER;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = EMPTY_UPDATES;
   }
 
-  public CacheKey(Object[] objects) {
+  /**
+   * Creates an empty key sized for the given number of updates.
+   *
+   * @param expectedUpdateCount
+   *          the number of updates the key is expected to receive
+   * @since 3.5.5
+   */
+  public CacheKey(int expectedUpdateCount) {
     this();
+    this.updateList = expectedUpdateCount > 0 ? new Object[expectedUpdateCount] : EMPTY_UPDATES;
+  }
+
+  public CacheKey(Object[] objects) {
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
-
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
+    ensureCapacity();
+    updateList[count] = object;
+    updateHashCode(baseHashCode);
+  }
 
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
+  /**
+   * Same as {@code update(Integer.valueOf(value))} without boxing the value.
+   *
+   * @param value
+   *          the value
+   * @since 3.5.5
+   */
+  public void update(int value) {
+    updatePrimitive(INT_VALUE, value, Integer.hashCode(value));
+  }
 
-    hashcode = multiplier * hashcode + baseHashCode;
+  /**
+   * Same as {@code update(Long.valueOf(value))} without boxing the value.
+   *
+   * @param value
+   *          the value
+   * @since 3.5.5
+   */
+  public void update(long value) {
+    updatePrimitive(LONG_VALUE, value, Long.hashCode(value));
+  }
+
+  /**
+   * Same as {@code update(Byte.valueOf(value))}. Declared so that a {@code byte} is not widened to {@code int} and
+   * keeps matching keys updated with a {@link Byte}.
+   *
+   * @param value
+   *          the value
+   * @since 3.5.5
+   */
+  public void update(byte value) {
+    update((Object) value);
+  }
 
-    updateList.add(object);
+  /**
+   * Same as {@code update(Short.valueOf(value))}. Declared so that a {@code short} is not widened to {@code int} and
+   * keeps matching keys updated with a {@link Short}.
+   *
+   * @param value
+   *          the value
+   * @since 3.5.5
+   */
+  public void update(short value) {
+    update((Object) value);
+  }
 
+  /**
+   * Same as {@code update(Character.valueOf(value))}. Declared so that a {@code char} is not widened to {@code int}
+   * and keeps matching keys updated with a {@link Character}.
+   *
+   * @param value
+   *          the value
+   * @since 3.5.5
+   */
+  public void update(char value) {
+    update((Object) value);
   }
 
   public void updateAll(Object[] objects) {
@@ -89,6 +185,59 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  /**
+   * Clears all updates so that the instance can be reused as a lookup key.
+   * A key must not be reset while it is held by a map.
+   *
+   * @since 3.5.5
+   */
+  public void reset() {
+    Arrays.fill(updateList, 0, count, null);
+    hashcode = DEFAULT_HASHCODE;
+    checksum = 0;
+    count = 0;
+    toStringValue = null;
+  }
+
+  private void updatePrimitive(Object placeholder, long value, int baseHashCode) {
+    ensureCapacity();
+    if (primitiveValues == null) {
+      primitiveValues = new long[updateList.length];
+    }
+    updateList[count] = placeholder;
+    primitiveValues[count] = value;
+    updateHashCode(baseHashCode);
+  }
+
+  private void updateHashCode(int baseHashCode) {
+    count++;
+    checksum += baseHashCode;
+    baseHashCode *= count;
+
+    hashcode = DEFAULT_MULTIPLIER * hashcode + baseHashCode;
+    toStringValue = null;
+  }
+
+  private void ensureCapacity() {
+    if (count == updateList.length) {
+      final int capacity = Math.max(DEFAULT_CAPACITY, updateList.length * 2);
+      updateList = Arrays.copyOf(updateList, capacity);
+      if (primitiveValues != null) {
+        primitiveValues = Arrays.copyOf(primitiveValues, capacity);
+      }
+    }
+  }
+
+  private Object getUpdate(int index) {
+    final Object object = updateList[index];
+    if (object == INT_VALUE) {
+      return (int) primitiveValues[index];
+    } else if (object == LONG_VALUE) {
+      return primitiveValues[index];
+    }
+    return object;
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -110,10 +259,14 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject == thatObject && (thisObject == INT_VALUE || thisObject == LONG_VALUE)) {
+        if (primitiveValues[i] != cacheKey.primitiveValues[i]) {
+          return false;
+        }
+      } else if (!ArrayUtil.equals(getUpdate(i), cacheKey.getUpdate(i))) {
         return false;
       }
     }
@@ -127,18 +280,49 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public String toString() {
-    StringJoiner returnValue = new StringJoiner(":");
-    returnValue.add(String.valueOf(hashcode));
-    returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
-    return returnValue.toString();
+    if (toStringValue == null) {
+      StringJoiner returnValue = new StringJoiner(":");
+      returnValue.add(String.valueOf(hashcode));
+      returnValue.add(String.valueOf(checksum));
+      for (int i = 0; i < count; i++) {
+        returnValue.add(ArrayUtil.toString(getUpdate(i)));
+      }
+      toStringValue = returnValue.toString();
+    }
+    return toStringValue;
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateList = updateList.clone();
+    if (primitiveValues != null) {
+      clonedCacheKey.primitiveValues = primitiveValues.clone();
+    }
     return clonedCacheKey;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    final List<Object> updates = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      updates.add(getUpdate(i));
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("multiplier", DEFAULT_MULTIPLIER);
+    fields.put("hashcode", hashcode);
+    fields.put("checksum", checksum);
+    fields.put("count", count);
+    fields.put("updateList", updates);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    hashcode = fields.get("hashcode", DEFAULT_HASHCODE);
+    checksum = fields.get("checksum", 0L);
+    final List<?> updates = (List<?>) fields.get("updateList", null);
+    updateList = updates == null || updates.isEmpty() ? EMPTY_UPDATES : updates.toArray();
+    count = updates == null ? 0 : updates.size();
+  }
+
 }
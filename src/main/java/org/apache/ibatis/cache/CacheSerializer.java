@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Turns cached values into bytes and back for read/write caches, so that every cache hit returns a copy.
+ *
+ * @since 3.5.5
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ */
+public interface CacheSerializer {
+
+  /**
+   * Serializes a value.
+   *
+   * @param value
+   *          the value, may be {@code null}
+   * @return the serialized form
+   * @throws CacheException
+   *           if the value cannot be serialized
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * Deserializes a value written by {@link #serialize(Object)} of the same serializer.
+   *
+   * @param bytes
+   *          the serialized form
+   * @return a new copy of the value
+   * @throws CacheException
+   *           if the value cannot be deserialized
+   */
+  Object deserialize(byte[] bytes);
+
+}
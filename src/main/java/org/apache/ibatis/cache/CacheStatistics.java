@@ -0,0 +1,189 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the requests, puts, evictions and loads of a second level cache. Counters are only incremented, never
+ * formatted, so that recording is cheap; they can be read at any time, e.g. by a metrics backend polling
+ * {@link CacheStatisticsRegistry}.
+ *
+ * @since 3.5.5
+ * @see org.apache.ibatis.cache.decorators.StatisticsCache
+ */
+public class CacheStatistics implements EvictionListener {
+
+  private final String id;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder removals = new LongAdder();
+  private final LongAdder clears = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadTime = new LongAdder();
+  private volatile Cache cache;
+  private volatile LongSupplier weight;
+
+  public CacheStatistics(String id) {
+    this.id = id;
+  }
+
+  /**
+   * Sets the cache whose entries are counted and how to get its weight.
+   *
+   * @param cache
+   *          the cache
+   * @param weight
+   *          the number of bytes retained by the cache, or {@code null} if it does not track its weight
+   */
+  public void bind(Cache cache, LongSupplier weight) {
+    this.cache = cache;
+    this.weight = weight;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void recordHit() {
+    hits.increment();
+  }
+
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public void recordPut() {
+    puts.increment();
+  }
+
+  public void recordRemoval() {
+    removals.increment();
+  }
+
+  public void recordClear() {
+    clears.increment();
+  }
+
+  /**
+   * Records the time taken by the query that loaded an entry after a miss.
+   *
+   * @param nanos
+   *          the time in nanoseconds
+   */
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadTime.add(nanos);
+  }
+
+  @Override
+  public void onEviction(Object key) {
+    evictions.increment();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getRequestCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  /**
+   * Returns the ratio of requests that found an entry.
+   *
+   * @return the hit ratio, {@code 0} if there was no request
+   */
+  public double getHitRatio() {
+    long hitCount = getHitCount();
+    long requestCount = hitCount + getMissCount();
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+  }
+
+  public long getPutCount() {
+    return puts.sum();
+  }
+
+  public long getRemovalCount() {
+    return removals.sum();
+  }
+
+  public long getClearCount() {
+    return clears.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  /**
+   * Returns the time taken by all the queries that loaded entries.
+   *
+   * @return the total time in nanoseconds
+   */
+  public long getTotalLoadTime() {
+    return loadTime.sum();
+  }
+
+  /**
+   * Returns the average time taken by the queries that loaded entries.
+   *
+   * @return the average time in nanoseconds, {@code 0} if there was no load
+   */
+  public double getAverageLoadTime() {
+    long loadCount = getLoadCount();
+    return loadCount == 0 ? 0 : (double) getTotalLoadTime() / loadCount;
+  }
+
+  /**
+   * Returns the number of entries in the cache.
+   *
+   * @return the size, {@code 0} if the cache is not bound yet
+   */
+  public int getSize() {
+    Cache current = cache;
+    return current == null ? 0 : current.getSize();
+  }
+
+  /**
+   * Returns the estimated number of bytes retained by the cache.
+   *
+   * @return the weight, {@code -1} if the cache does not track its weight
+   */
+  public long getWeight() {
+    LongSupplier current = weight;
+    return current == null ? -1 : current.getAsLong();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics{id=" + id + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", puts="
+        + getPutCount() + ", removals=" + getRemovalCount() + ", clears=" + getClearCount() + ", evictions="
+        + getEvictionCount() + ", loads=" + getLoadCount() + ", totalLoadTime=" + getTotalLoadTime() + "}";
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds the {@link CacheStatistics} of the second level caches of a configuration, when the
+ * {@code cacheStatisticsEnabled} setting is on.
+ * <p>
+ * The statistics can be polled, or bound to a metrics backend with a listener that registers a gauge per counter for
+ * each cache, as caches are built.
+ *
+ * @since 3.5.5
+ */
+public class CacheStatisticsRegistry {
+
+  private final Map<String, CacheStatistics> statistics = new ConcurrentHashMap<>();
+  private final List<Consumer<CacheStatistics>> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates the statistics of a cache, replacing any previous ones.
+   *
+   * @param cacheId
+   *          the id of the cache
+   * @return the statistics
+   */
+  public CacheStatistics register(String cacheId) {
+    CacheStatistics cacheStatistics = new CacheStatistics(cacheId);
+    statistics.put(cacheId, cacheStatistics);
+    for (Consumer<CacheStatistics> listener : listeners) {
+      listener.accept(cacheStatistics);
+    }
+    return cacheStatistics;
+  }
+
+  /**
+   * Gets the statistics of a cache.
+   *
+   * @param cacheId
+   *          the id of the cache
+   * @return the statistics, or {@code null} if the cache has none
+   */
+  public CacheStatistics getStatistics(String cacheId) {
+    return statistics.get(cacheId);
+  }
+
+  public Collection<CacheStatistics> getAll() {
+    return Collections.unmodifiableList(new ArrayList<>(statistics.values()));
+  }
+
+  /**
+   * Adds a listener notified of the statistics of every cache, those already registered included.
+   *
+   * @param listener
+   *          the listener
+   */
+  public void addListener(Consumer<CacheStatistics> listener) {
+    listeners.add(listener);
+    for (CacheStatistics cacheStatistics : statistics.values()) {
+      listener.accept(cacheStatistics);
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Weigher} that estimates the weight of the values MyBatis puts into a second level cache.
+ * <p>
+ * The serialized form stored by read/write caches is weighed by its length. A result list is weighed by its row
+ * count times the estimated size of its first row, rows being expected to be of the same type. The size of a row is
+ * estimated from the fields of its class, each reference field being assumed to point to a small object such as a
+ * {@code String} or a boxed number.
+ *
+ * @since 3.5.5
+ */
+public class DefaultWeigher implements Weigher {
+
+  protected static final long OBJECT_HEADER = 16;
+  protected static final long REFERENCE = 8;
+  protected static final long SMALL_OBJECT = 32;
+
+  private final Map<Class<?>, Long> shallowSizes = new ConcurrentHashMap<>();
+
+  @Override
+  public long weigh(Object key, Object value) {
+    return weighKey(key) + weighValue(value);
+  }
+
+  protected long weighKey(Object key) {
+    if (key instanceof CacheKey) {
+      return OBJECT_HEADER + ((CacheKey) key).getUpdateCount() * (REFERENCE + SMALL_OBJECT);
+    }
+    return weighRow(key);
+  }
+
+  protected long weighValue(Object value) {
+    if (value instanceof Collection) {
+      Collection<?> rows = (Collection<?>) value;
+      long weight = OBJECT_HEADER + rows.size() * REFERENCE;
+      Iterator<?> iterator = rows.iterator();
+      if (iterator.hasNext()) {
+        weight += rows.size() * weighRow(iterator.next());
+      }
+      return weight;
+    }
+    return weighRow(value);
+  }
+
+  protected long weighRow(Object row) {
+    if (row == null) {
+      return 0;
+    } else if (row instanceof byte[]) {
+      return OBJECT_HEADER + ((byte[]) row).length;
+    } else if (row instanceof CharSequence) {
+      return OBJECT_HEADER + SMALL_OBJECT + ((CharSequence) row).length() * 2L;
+    } else if (row instanceof Map) {
+      return OBJECT_HEADER + ((Map<?, ?>) row).size() * (OBJECT_HEADER + 3 * REFERENCE + 2 * SMALL_OBJECT);
+    }
+    return shallowSizes.computeIfAbsent(row.getClass(), DefaultWeigher::estimateSize);
+  }
+
+  private static long estimateSize(Class<?> type) {
+    if (type.isArray()) {
+      return OBJECT_HEADER + SMALL_OBJECT;
+    }
+    long size = OBJECT_HEADER;
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        Class<?> fieldType = field.getType();
+        if (fieldType == long.class || fieldType == double.class) {
+          size += 8;
+        } else if (fieldType == int.class || fieldType == float.class) {
+          size += 4;
+        } else if (fieldType == short.class || fieldType == char.class) {
+          size += 2;
+        } else if (fieldType == byte.class || fieldType == boolean.class) {
+          size += 1;
+        } else {
+          size += REFERENCE + SMALL_OBJECT;
+        }
+      }
+    }
+    return size;
+  }
+
+}
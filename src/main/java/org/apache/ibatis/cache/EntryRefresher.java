@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Loads the value of a cache entry again before it expires, so that it is replaced without ever being missed.
+ *
+ * @since 3.5.5
+ * @see org.apache.ibatis.cache.decorators.ScheduledCache
+ */
+public interface EntryRefresher {
+
+  /**
+   * Starts loading the value of an entry again. The new value is expected to be put into the cache asynchronously;
+   * nothing happens if the refresher does not know how to load the entry.
+   *
+   * @param cacheId
+   *          the id of the cache that holds the entry
+   * @param key
+   *          the key of the entry
+   */
+  void refresh(String cacheId, Object key);
+
+  /**
+   * Notifies that an entry has left the cache, so that whatever was kept to load it again can be released.
+   *
+   * @param cacheId
+   *          the id of the cache that held the entry
+   * @param key
+   *          the key of the entry
+   */
+  void forget(String cacheId, Object key);
+
+  /**
+   * Notifies that all the entries have left the cache, when it is flushed.
+   *
+   * @param cacheId
+   *          the id of the cache
+   */
+  void forgetAll(String cacheId);
+
+}
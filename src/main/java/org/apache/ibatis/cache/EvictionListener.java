@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Notified when a cache drops an entry to make room for others, or because the garbage collector reclaimed it, as
+ * opposed to an entry removed or cleared on request.
+ * <p>
+ * {@link org.apache.ibatis.mapping.CacheBuilder} sets the listener of every cache and decorator it builds that has an
+ * {@code evictionListener} property.
+ *
+ * @since 3.5.5
+ */
+public interface EvictionListener {
+
+  /**
+   * Called after an entry was evicted, while the cache may still hold its locks: it must return quickly.
+   *
+   * @param key
+   *          the key of the entry
+   */
+  void onEviction(Object key);
+
+}
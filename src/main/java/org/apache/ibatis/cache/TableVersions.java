@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the tables that second level cache entries are read from.
+ * <p>
+ * Rather than looking up and removing the entries read from a table when it is written, the version of the table is
+ * appended to the key of the entries read from it, and incremented when a write to the table commits. Entries read
+ * before the write can no longer be found and are left to the eviction policy of their cache. This works across
+ * namespaces and with any cache implementation, and an entry read concurrently with a write is never put under a key
+ * that is valid after the write.
+ *
+ * @since 3.5.5
+ */
+public class TableVersions {
+
+  private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+  private final AtomicLong epoch = new AtomicLong();
+  private final AtomicLong writes = new AtomicLong();
+
+  /**
+   * Appends the current versions of the given tables to a key.
+   *
+   * @param key
+   *          the key
+   * @param tables
+   *          the tables the entry is read from, or {@code null} if they are unknown, in which case any write
+   *          invalidates the entry
+   */
+  public void appendTo(CacheKey key, Collection<String> tables) {
+    key.update(epoch.get());
+    if (tables == null) {
+      key.update(writes.get());
+      return;
+    }
+    for (String table : tables) {
+      AtomicLong version = versions.get(table);
+      key.update(version == null ? 0L : version.get());
+    }
+  }
+
+  /**
+   * Invalidates the entries read from the given tables.
+   *
+   * @param tables
+   *          the tables written, or {@code null} if they are unknown, in which case all entries are invalidated
+   */
+  public void invalidate(Collection<String> tables) {
+    if (tables == null) {
+      invalidateAll();
+      return;
+    }
+    for (String table : tables) {
+      versions.computeIfAbsent(table, k -> new AtomicLong()).incrementAndGet();
+    }
+    writes.incrementAndGet();
+  }
+
+  public void invalidateAll() {
+    epoch.incrementAndGet();
+  }
+
+  public long getVersion(String table) {
+    AtomicLong version = versions.get(table);
+    return version == null ? 0L : version.get();
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Estimates how many bytes a cache entry retains, for caches that are bounded by weight instead of entry count.
+ *
+ * @since 3.5.5
+ * @see org.apache.ibatis.cache.decorators.WeightedCache
+ */
+public interface Weigher {
+
+  /**
+   * Returns the estimated number of bytes retained by an entry.
+   *
+   * @param key
+   *          the key of the entry
+   * @param value
+   *          the value of the entry, a {@code byte[]} when the cache is read/write
+   * @return the estimated weight, never negative
+   */
+  long weigh(Object key, Object value);
+
+}
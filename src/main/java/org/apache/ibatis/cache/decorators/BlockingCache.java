@@ -67,7 +67,8 @@ public class BlockingCache implements Cache {
   public Object getObject(Object key) {
     acquireLock(key);
     Object value = delegate.getObject(key);
-    if (value != null) {
+    if (value != null || isHeldTwice(key)) {
+      // a thread missing a key it is already responsible for, e.g. to read a stale value, keeps a single hold
       releaseLock(key);
     }
     return value;
@@ -105,6 +106,11 @@ public class BlockingCache implements Cache {
     }
   }
 
+  private boolean isHeldTwice(Object key) {
+    ReentrantLock lock = locks.get(key);
+    return lock != null && lock.getHoldCount() > 1;
+  }
+
   private void releaseLock(Object key) {
     ReentrantLock lock = locks.get(key);
     if (lock.isHeldByCurrentThread()) {
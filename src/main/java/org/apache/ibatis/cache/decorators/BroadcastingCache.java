@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.InvalidationBus;
+
+/**
+ * Reports the clears and removals of the delegate to an {@link InvalidationBus}, so that the other nodes sharing the
+ * bus drop the same entries.
+ *
+ * @since 3.5.5
+ */
+public class BroadcastingCache implements Cache {
+
+  private final Cache delegate;
+  private final InvalidationBus bus;
+
+  public BroadcastingCache(Cache delegate, InvalidationBus bus) {
+    this.delegate = delegate;
+    this.bus = bus;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object removed = delegate.removeObject(key);
+    // a null result is either a miss or the release of a lock, which the other nodes do not need to know about
+    if (removed != null) {
+      bus.removed(getId(), key);
+    }
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    bus.cleared(getId());
+  }
+
+  /**
+   * Clears the delegate without reporting it, to apply an invalidation received from another node.
+   */
+  public void clearLocally() {
+    delegate.clear();
+  }
+
+  /**
+   * Removes an entry from the delegate without reporting it, to apply an invalidation received from another node.
+   *
+   * @param key
+   *          the key
+   */
+  public void removeLocally(Object key) {
+    delegate.removeObject(key);
+  }
+
+  public Cache getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
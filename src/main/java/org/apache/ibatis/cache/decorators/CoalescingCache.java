@@ -0,0 +1,245 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Request coalescing decorator, an alternative to {@link BlockingCache}.
+ * <p>
+ * The first thread that misses a key becomes responsible for it: it runs the query and the value is put when its
+ * session commits, or the key is released when it rolls back, as {@link TransactionalCache} does for every miss.
+ * Other threads missing the same key in the meantime wait for that outcome instead of querying the database, then
+ * read the cache again. The pending entry is removed as soon as the outcome is known, so nothing is left behind
+ * per key.
+ * <p>
+ * When a timeout is set, a thread that waited that long queries the database itself. When a maximum staleness is set,
+ * waiting threads are served the value previously put for the key, if it was put less than that many milliseconds
+ * ago and the key was neither removed nor the cache flushed since, while the first thread refreshes it. So previous
+ * values are only served for entries the delegate dropped by itself, on eviction or expiry. As that previous value is
+ * not copied, the maximum staleness is only meant for read only caches.
+ *
+ * @since 3.5.5
+ */
+public class CoalescingCache implements Cache {
+
+  private static final int MAX_STALE_ENTRIES = 1024;
+
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+  private final ReentrantLock staleLock = new ReentrantLock();
+  private final Map<Object, StaleValue> staleValues = new LinkedHashMap<Object, StaleValue>(16, .75F, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, StaleValue> eldest) {
+      return size() > MAX_STALE_ENTRIES;
+    }
+  };
+  private long timeout;
+  private long maxStaleness;
+
+  public CoalescingCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    try {
+      delegate.putObject(key, value);
+      if (value != null && maxStaleness > 0) {
+        staleLock.lock();
+        try {
+          staleValues.put(key, new StaleValue(value));
+        } finally {
+          staleLock.unlock();
+        }
+      }
+    } finally {
+      release(key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    while (true) {
+      Object value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+      Flight flight = flights.putIfAbsent(key, new Flight());
+      if (flight == null || flight.owner == Thread.currentThread()) {
+        // this thread has to fill the entry
+        return null;
+      }
+      Object stale = getStaleValue(key);
+      if (stale != null) {
+        return stale;
+      }
+      if (!flight.await(timeout, key)) {
+        // query the database rather than waiting any longer
+        return null;
+      }
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // despite of its name, this method is called only to release pending entries
+    release(key);
+    removeStaleValue(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    clearStaleValues();
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets how long a thread waits for another one to fill an entry before querying the database itself.
+   *
+   * @param timeout
+   *          the timeout in milliseconds, {@code 0} to wait until the entry is filled
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public long getMaxStaleness() {
+    return maxStaleness;
+  }
+
+  /**
+   * Sets how old a previous value can be to be served while another thread fills the entry again.
+   *
+   * @param maxStaleness
+   *          the maximum staleness in milliseconds, {@code 0} to never serve previous values
+   */
+  public void setMaxStaleness(long maxStaleness) {
+    this.maxStaleness = maxStaleness;
+    if (maxStaleness <= 0) {
+      clearStaleValues();
+    }
+  }
+
+  /**
+   * Returns the number of entries currently being filled by a thread.
+   *
+   * @return the number of pending entries
+   */
+  public int getPendingCount() {
+    return flights.size();
+  }
+
+  private Object getStaleValue(Object key) {
+    if (maxStaleness <= 0) {
+      return null;
+    }
+    staleLock.lock();
+    try {
+      StaleValue stale = staleValues.get(key);
+      if (stale == null) {
+        return null;
+      }
+      Object value = stale.value.get();
+      if (value == null || System.currentTimeMillis() - stale.putTime > maxStaleness) {
+        staleValues.remove(key);
+        return null;
+      }
+      return value;
+    } finally {
+      staleLock.unlock();
+    }
+  }
+
+  private void removeStaleValue(Object key) {
+    staleLock.lock();
+    try {
+      staleValues.remove(key);
+    } finally {
+      staleLock.unlock();
+    }
+  }
+
+  private void clearStaleValues() {
+    staleLock.lock();
+    try {
+      staleValues.clear();
+    } finally {
+      staleLock.unlock();
+    }
+  }
+
+  private void release(Object key) {
+    Flight flight = flights.get(key);
+    if (flight != null && flight.owner == Thread.currentThread() && flights.remove(key, flight)) {
+      flight.done.countDown();
+    }
+  }
+
+  private class Flight {
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    boolean await(long timeout, Object key) {
+      try {
+        if (timeout > 0) {
+          return done.await(timeout, TimeUnit.MILLISECONDS);
+        }
+        done.await();
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Got interrupted while waiting for key " + key + " at the cache " + getId(), e);
+      }
+    }
+  }
+
+  private static class StaleValue {
+    private final SoftReference<Object> value;
+    private final long putTime = System.currentTimeMillis();
+
+    StaleValue(Object value) {
+      this.value = new SoftReference<>(value);
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.Serializable;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.property.DeepCopier;
+
+/**
+ * Read/write cache decorator that hands out deep copies made by a {@link DeepCopier}, an alternative to
+ * {@link SerializedCache} that avoids serializing the values. Values that cannot be copied property by property are
+ * copied by Java serialization.
+ *
+ * @since 3.5.5
+ */
+public class CopyingCache implements Cache {
+
+  private final Cache delegate;
+  private final DeepCopier copier;
+
+  public CopyingCache(Cache delegate) {
+    this.delegate = delegate;
+    JavaCacheSerializer serializer = new JavaCacheSerializer();
+    this.copier = new DeepCopier(new DefaultReflectorFactory(),
+        value -> serializer.deserialize(serializer.serialize(value)));
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    if (object == null || object instanceof Serializable) {
+      delegate.putObject(key, copy(object));
+    } else {
+      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object object = delegate.getObject(key);
+    return object == null ? null : copy(object);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private Object copy(Object object) {
+    try {
+      return copier.copy(object);
+    } catch (ReflectionException e) {
+      throw new CacheException("Error copying object.  Cause: " + e, e);
+    }
+  }
+
+}
@@ -20,6 +20,9 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
 /**
+ * Logs the hit ratio of the cache at debug level. The counters are not synchronized, so the ratio is approximate when
+ * the cache is used without a {@link SynchronizedCache}, as for caches that are safe for concurrent use.
+ *
  * @author Clinton Begin
  */
 public class LoggingCache implements Cache {
@@ -15,29 +15,131 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EntryRefresher;
 
 /**
+ * Expires the cache content over time.
+ * <p>
+ * By default the whole cache is cleared every clear interval. When a time to live is set, each entry expires on its
+ * own instead, that time after it was put, give or take a random jitter so that entries put together do not expire
+ * together. An {@link EntryRefresher} may then be asked to load an entry again when it is read shortly before it
+ * expires, so that frequently read entries are replaced without being missed. When stale entries are served on error,
+ * expired entries are kept for one more time to live and {@link #readStale(Supplier)} can read them back, typically
+ * because the database could not be queried.
+ *
  * @author Clinton Begin
  */
 public class ScheduledCache implements Cache {
 
+  private static final ThreadLocal<Boolean> STALE_READS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
   private final Cache delegate;
   protected long clearInterval;
-  protected long lastClear;
+  protected volatile long lastClear;
+  protected long timeToLive;
+  protected double ttlJitter;
+  protected long refreshAhead;
+  protected boolean serveStaleOnError;
+  private EntryRefresher refresher;
+  private final Map<Object, Expiry> expiries = new ConcurrentHashMap<>();
+  private volatile long lastSweep;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
     this.clearInterval = TimeUnit.HOURS.toMillis(1);
     this.lastClear = System.currentTimeMillis();
+    this.lastSweep = lastClear;
   }
 
   public void setClearInterval(long clearInterval) {
     this.clearInterval = clearInterval;
   }
 
+  /**
+   * Makes each entry expire the given number of milliseconds after it was put.
+   *
+   * @param timeToLive
+   *          the time to live in milliseconds, {@code 0} to only clear the cache every clear interval
+   * @since 3.5.5
+   */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * Sets by how much the time to live of each entry randomly varies, as a fraction of the time to live.
+   *
+   * @param ttlJitter
+   *          the jitter between {@code 0} and {@code 1}; {@code 0.1} makes entries live 90% to 110% of the time to live
+   * @since 3.5.5
+   */
+  public void setTtlJitter(double ttlJitter) {
+    this.ttlJitter = Math.max(0, Math.min(1, ttlJitter));
+  }
+
+  /**
+   * Asks the refresher to load an entry again when it is read less than the given number of milliseconds before it
+   * expires. Each entry is refreshed at most once per time it is put.
+   *
+   * @param refreshAhead
+   *          the refresh window in milliseconds, {@code 0} to never refresh entries
+   * @since 3.5.5
+   */
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  /**
+   * Keeps expired entries for one more time to live, to be read by {@link #readStale(Supplier)}.
+   *
+   * @param serveStaleOnError
+   *          whether expired entries are kept
+   * @since 3.5.5
+   */
+  public void setServeStaleOnError(boolean serveStaleOnError) {
+    this.serveStaleOnError = serveStaleOnError;
+  }
+
+  /**
+   * @param refresher
+   *          the refresher that loads entries again before they expire, or {@code null}
+   * @since 3.5.5
+   */
+  public void setRefresher(EntryRefresher refresher) {
+    this.refresher = refresher;
+  }
+
+  /**
+   * Runs a read during which the expired entries kept by the scheduled caches of the current thread are returned as
+   * if they had not expired.
+   *
+   * @param <T>
+   *          the type of the value read
+   * @param read
+   *          the read, usually a call to {@link Cache#getObject(Object)}
+   * @return the value read
+   * @since 3.5.5
+   */
+  public static <T> T readStale(Supplier<T> read) {
+    if (STALE_READS.get()) {
+      return read.get();
+    }
+    STALE_READS.set(Boolean.TRUE);
+    try {
+      return read.get();
+    } finally {
+      STALE_READS.remove();
+    }
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -52,23 +154,77 @@ public class ScheduledCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     clearWhenStale();
+    if (timeToLive <= 0) {
+      delegate.putObject(key, object);
+      return;
+    }
+    if (object == null && serveStaleOnError && expiries.containsKey(key)) {
+      // a released miss, the entry kept is still worth serving if the database fails
+      return;
+    }
     delegate.putObject(key, object);
+    final long now = System.currentTimeMillis();
+    if (object == null) {
+      forget(key);
+    } else {
+      expiries.put(key, new Expiry(now + nextTimeToLive()));
+    }
+    sweepWhenDue(now);
   }
 
   @Override
   public Object getObject(Object key) {
-    return clearWhenStale() ? null : delegate.getObject(key);
+    if (clearWhenStale()) {
+      return null;
+    }
+    Expiry expiry;
+    if (timeToLive <= 0 || (expiry = expiries.get(key)) == null) {
+      return delegate.getObject(key);
+    }
+    final long now = System.currentTimeMillis();
+    if (expiry.isExpired(now)) {
+      if (STALE_READS.get()) {
+        return delegate.getObject(key);
+      }
+      if (!serveStaleOnError) {
+        expire(key, expiry);
+      }
+      return null;
+    }
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      // evicted by the cache underneath
+      if (expiries.remove(key, expiry) && refresher != null) {
+        refresher.forget(getId(), key);
+      }
+    } else if (refreshAhead > 0 && refresher != null && now >= expiry.expiresAt - refreshAhead
+        && expiry.startRefresh()) {
+      refresher.refresh(getId(), key);
+    }
+    return value;
   }
 
   @Override
   public Object removeObject(Object key) {
     clearWhenStale();
+    if (timeToLive > 0) {
+      Expiry expiry = expiries.get(key);
+      if (serveStaleOnError && expiry != null && expiry.isExpired(System.currentTimeMillis())) {
+        // a released miss, see putObject
+        return null;
+      }
+      forget(key);
+    }
     return delegate.removeObject(key);
   }
 
   @Override
   public void clear() {
     lastClear = System.currentTimeMillis();
+    if (refresher != null) {
+      refresher.forgetAll(getId());
+    }
+    expiries.clear();
     delegate.clear();
   }
 
@@ -90,4 +246,58 @@ public class ScheduledCache implements Cache {
     return false;
   }
 
+  private long nextTimeToLive() {
+    final double spread = timeToLive * ttlJitter;
+    if (spread < 1) {
+      return timeToLive;
+    }
+    return Math.max(1, timeToLive + (long) ThreadLocalRandom.current().nextDouble(-spread, spread));
+  }
+
+  private void forget(Object key) {
+    if (expiries.remove(key) != null && refresher != null) {
+      refresher.forget(getId(), key);
+    }
+  }
+
+  private void expire(Object key, Expiry expiry) {
+    if (expiries.remove(key, expiry)) {
+      delegate.removeObject(key);
+      if (refresher != null) {
+        refresher.forget(getId(), key);
+      }
+    }
+  }
+
+  private void sweepWhenDue(long now) {
+    // expired entries that are never read again would otherwise stay until evicted
+    if (now - lastSweep < timeToLive) {
+      return;
+    }
+    lastSweep = now;
+    final long retention = serveStaleOnError ? timeToLive : 0;
+    for (Map.Entry<Object, Expiry> entry : expiries.entrySet()) {
+      if (entry.getValue().isExpired(now - retention)) {
+        expire(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static class Expiry {
+    private final long expiresAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Expiry(long expiresAt) {
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+
+    boolean startRefresh() {
+      return refreshing.compareAndSet(false, true);
+    }
+  }
+
 }
@@ -19,8 +19,10 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
 
 /**
  * Soft Reference cache decorator
@@ -30,9 +32,11 @@ import org.apache.ibatis.cache.Cache;
  */
 public class SoftCache implements Cache {
   private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  private final ReentrantLock hardLinksLock = new ReentrantLock();
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
+  private EvictionListener evictionListener;
 
   public SoftCache(Cache delegate) {
     this.delegate = delegate;
@@ -56,6 +60,17 @@ public class SoftCache implements Cache {
     this.numberOfHardLinks = size;
   }
 
+  /**
+   * Sets the listener notified of the entries evicted once reclaimed by the garbage collector.
+   *
+   * @param evictionListener
+   *          the listener, or {@code null}
+   * @since 3.5.5
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     removeGarbageCollectedItems();
@@ -71,13 +86,19 @@ public class SoftCache implements Cache {
       result = softReference.get();
       if (result == null) {
         delegate.removeObject(key);
+        if (evictionListener != null) {
+          evictionListener.onEviction(key);
+        }
       } else {
         // See #586 (and #335) modifications need more than a read lock
-        synchronized (hardLinksToAvoidGarbageCollection) {
+        hardLinksLock.lock();
+        try {
           hardLinksToAvoidGarbageCollection.addFirst(result);
           if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
             hardLinksToAvoidGarbageCollection.removeLast();
           }
+        } finally {
+          hardLinksLock.unlock();
         }
       }
     }
@@ -92,8 +113,11 @@ public class SoftCache implements Cache {
 
   @Override
   public void clear() {
-    synchronized (hardLinksToAvoidGarbageCollection) {
+    hardLinksLock.lock();
+    try {
       hardLinksToAvoidGarbageCollection.clear();
+    } finally {
+      hardLinksLock.unlock();
     }
     removeGarbageCollectedItems();
     delegate.clear();
@@ -102,7 +126,9 @@ public class SoftCache implements Cache {
   private void removeGarbageCollectedItems() {
     SoftEntry sv;
     while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+      if (delegate.removeObject(sv.key) != null && evictionListener != null) {
+        evictionListener.onEviction(sv.key);
+      }
     }
   }
 
@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatistics;
+
+/**
+ * Records the hits, misses, puts, removals and clears of the delegate in a {@link CacheStatistics}.
+ *
+ * @since 3.5.5
+ */
+public class StatisticsCache implements Cache {
+
+  private final Cache delegate;
+  private final CacheStatistics statistics;
+
+  public StatisticsCache(Cache delegate, CacheStatistics statistics) {
+    this.delegate = delegate;
+    this.statistics = statistics;
+  }
+
+  public CacheStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    statistics.recordPut();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      statistics.recordMiss();
+    } else {
+      statistics.recordHit();
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object removed = delegate.removeObject(key);
+    if (removed != null) {
+      statistics.recordRemoval();
+    }
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    statistics.recordClear();
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
@@ -21,6 +21,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
 
 /**
  * Weak Reference cache decorator.
@@ -33,6 +34,7 @@ public class WeakCache implements Cache {
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
+  private EvictionListener evictionListener;
 
   public WeakCache(Cache delegate) {
     this.delegate = delegate;
@@ -56,6 +58,17 @@ public class WeakCache implements Cache {
     this.numberOfHardLinks = size;
   }
 
+  /**
+   * Sets the listener notified of the entries evicted once reclaimed by the garbage collector.
+   *
+   * @param evictionListener
+   *          the listener, or {@code null}
+   * @since 3.5.5
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     removeGarbageCollectedItems();
@@ -71,6 +84,9 @@ public class WeakCache implements Cache {
       result = weakReference.get();
       if (result == null) {
         delegate.removeObject(key);
+        if (evictionListener != null) {
+          evictionListener.onEviction(key);
+        }
       } else {
         hardLinksToAvoidGarbageCollection.addFirst(result);
         if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
@@ -97,7 +113,9 @@ public class WeakCache implements Cache {
   private void removeGarbageCollectedItems() {
     WeakEntry sv;
     while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+      if (delegate.removeObject(sv.key) != null && evictionListener != null) {
+        evictionListener.onEviction(sv.key);
+      }
     }
   }
 
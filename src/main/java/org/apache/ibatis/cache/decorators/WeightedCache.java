@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Weight bounded cache decorator. Evicts the least recently used entries until the estimated weight of the cache,
+ * as computed by a {@link Weigher}, fits in the maximum weight. An entry heavier than the maximum weight is not
+ * cached at all.
+ *
+ * @since 3.5.5
+ */
+public class WeightedCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(WeightedCache.class);
+
+  private final Cache delegate;
+  private final LinkedHashMap<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private Weigher weigher = new DefaultWeigher();
+  private long maxWeight = 64L * 1024 * 1024;
+  private long weight;
+  private EvictionListener evictionListener;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public void setMaxWeight(long maxWeight) {
+    this.maxWeight = maxWeight;
+    evict();
+  }
+
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Sets the listener notified of the entries evicted to keep the weight.
+   *
+   * @param evictionListener
+   *          the listener, or {@code null}
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  /**
+   * Returns the estimated number of bytes currently retained by the cache.
+   *
+   * @return the current weight
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long entryWeight = weigher.weigh(key, value);
+    if (entryWeight > maxWeight) {
+      // caching it would flush every other entry first, only drop the value it replaces
+      removeObject(key);
+      return;
+    }
+    delegate.putObject(key, value);
+    Long previous = weights.put(key, entryWeight);
+    weight += previous == null ? entryWeight : entryWeight - previous;
+    evict();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      forget(key);
+    } else {
+      weights.get(key); // touch
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    forget(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    weights.clear();
+    weight = 0;
+  }
+
+  private void forget(Object key) {
+    Long removed = weights.remove(key);
+    if (removed != null) {
+      weight -= removed;
+    }
+  }
+
+  private void evict() {
+    if (weight <= maxWeight) {
+      return;
+    }
+    int evicted = 0;
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      weight -= eldest.getValue();
+      delegate.removeObject(eldest.getKey());
+      if (evictionListener != null) {
+        evictionListener.onEviction(eldest.getKey());
+      }
+      evicted++;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Weight [" + getId() + "]: " + weight + " of " + maxWeight + " bytes after evicting " + evicted
+          + " entries");
+    }
+  }
+
+}
@@ -0,0 +1,281 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.EvictionListener;
+
+/**
+ * A bounded cache that is safe for concurrent use, so {@link org.apache.ibatis.mapping.CacheBuilder} does not wrap it
+ * in a {@link org.apache.ibatis.cache.decorators.SynchronizedCache}.
+ * <p>
+ * Entries are held in a {@link ConcurrentHashMap}, so reads never lock. Writes lock one of several segments chosen by
+ * the hash of the key. When a segment exceeds its share of the size, it evicts the least recently read of a few
+ * randomly sampled entries, which approximates LRU without maintaining a recency list.
+ *
+ * @since 3.5.5
+ */
+public class ConcurrentCache implements Cache {
+
+  private static final int DEFAULT_SIZE = 1024;
+  private static final int SAMPLE_SIZE = 5;
+  private static final int MAX_SEGMENTS = 64;
+  private static final int MIN_SEGMENT_CAPACITY = 16;
+
+  private final String id;
+  private final ConcurrentHashMap<Object, Entry> map = new ConcurrentHashMap<>();
+  private volatile Segment[] segments;
+  private int size;
+  private volatile EvictionListener evictionListener;
+
+  public ConcurrentCache(String id) {
+    this.id = id;
+    setSize(DEFAULT_SIZE);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the maximum number of entries and clears the cache.
+   *
+   * @param size
+   *          the maximum number of entries
+   */
+  public void setSize(int size) {
+    if (size <= 0) {
+      throw new CacheException("Cache size must be positive but was " + size);
+    }
+    int segmentCount = 1;
+    int processors = Runtime.getRuntime().availableProcessors();
+    while (segmentCount < MAX_SEGMENTS && segmentCount < processors * 2
+        && (segmentCount << 1) * MIN_SEGMENT_CAPACITY <= size) {
+      segmentCount <<= 1;
+    }
+    int segmentCapacity = (size + segmentCount - 1) / segmentCount;
+    Segment[] newSegments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      newSegments[i] = new Segment(segmentCapacity);
+    }
+    this.size = size;
+    this.segments = newSegments;
+    map.clear();
+  }
+
+  /**
+   * Sets the listener notified of the entries evicted to keep the size.
+   *
+   * @param evictionListener
+   *          the listener, or {@code null}
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  public int getMaxSize() {
+    return size;
+  }
+
+  @Override
+  public int getSize() {
+    return map.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    segmentFor(key).put(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Entry entry = map.get(key);
+    if (entry == null) {
+      return null;
+    }
+    // racy on purpose: a lost update only makes eviction a little less accurate
+    entry.lastAccess = System.nanoTime();
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return segmentFor(key).remove(key);
+  }
+
+  @Override
+  public void clear() {
+    Segment[] current = segments;
+    for (Segment segment : current) {
+      segment.lock.lock();
+    }
+    try {
+      map.clear();
+      for (Segment segment : current) {
+        segment.clear();
+      }
+    } finally {
+      for (Segment segment : current) {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  private Segment segmentFor(Object key) {
+    Segment[] current = segments;
+    int h = key == null ? 0 : key.hashCode();
+    h ^= h >>> 16;
+    return current[h & (current.length - 1)];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Entry {
+    private final Object key;
+    private final Object value;
+    private int slot;
+    private long lastAccess;
+
+    Entry(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+      this.lastAccess = System.nanoTime();
+    }
+  }
+
+  /**
+   * Keeps the entries of the keys that hash to it in an array, so that eviction can sample them in constant time.
+   * Every change to those keys in the shared map is made while holding the segment lock.
+   */
+  private final class Segment {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int capacity;
+    private Entry[] entries;
+    private int count;
+
+    Segment(int capacity) {
+      this.capacity = capacity;
+      this.entries = new Entry[Math.min(capacity + 1, MIN_SEGMENT_CAPACITY)];
+    }
+
+    void put(Object key, Object value) {
+      Entry entry = new Entry(key, value);
+      lock.lock();
+      try {
+        Entry old = map.put(key, entry);
+        if (old != null) {
+          entry.slot = old.slot;
+          entries[old.slot] = entry;
+          return;
+        }
+        if (count == entries.length) {
+          entries = Arrays.copyOf(entries, Math.min(entries.length * 2, capacity + 1));
+        }
+        entry.slot = count;
+        entries[count++] = entry;
+        if (count > capacity) {
+          evict();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Object remove(Object key) {
+      lock.lock();
+      try {
+        Entry entry = map.remove(key);
+        if (entry == null) {
+          return null;
+        }
+        removeSlot(entry);
+        return entry.value;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void clear() {
+      Arrays.fill(entries, 0, count, null);
+      count = 0;
+    }
+
+    private void evict() {
+      Entry victim;
+      // small segments are scanned, as sampling with replacement could miss their oldest entry
+      if (count <= SAMPLE_SIZE * 2) {
+        victim = entries[0];
+        for (int i = 1; i < count; i++) {
+          victim = older(victim, entries[i]);
+        }
+      } else {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        victim = entries[random.nextInt(count)];
+        for (int i = 1; i < SAMPLE_SIZE; i++) {
+          victim = older(victim, entries[random.nextInt(count)]);
+        }
+      }
+      map.remove(victim.key, victim);
+      removeSlot(victim);
+      EvictionListener listener = evictionListener;
+      if (listener != null) {
+        listener.onEviction(victim.key);
+      }
+    }
+
+    private Entry older(Entry a, Entry b) {
+      return b.lastAccess - a.lastAccess < 0 ? b : a;
+    }
+
+    private void removeSlot(Entry entry) {
+      int last = --count;
+      Entry moved = entries[last];
+      entries[entry.slot] = moved;
+      moved.slot = entry.slot;
+      entries[last] = null;
+    }
+  }
+
+}
@@ -0,0 +1,406 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+
+/**
+ * A cache that keeps the serialized form of its entries outside of the Java heap, in direct {@link ByteBuffer} slabs,
+ * so that large caches do not add to garbage collection pauses. Only the keys and a small index are kept on the heap.
+ * <p>
+ * Entries are appended to the current slab. When no slab has room left, the oldest slab is emptied at once, evicting
+ * every entry written to it, and is written again. Space freed by removed or replaced entries is only reclaimed when
+ * its slab is emptied; {@link #getFragmentation()} reports how much of the written space it amounts to.
+ * <p>
+ * Values written by {@link SerializedCache} are stored as they are, other values are serialized. The cache is safe
+ * for concurrent use and evicts by itself, so {@link org.apache.ibatis.mapping.CacheBuilder} neither synchronizes it
+ * nor applies eviction decorators. The direct memory limit of the JVM ({@code -XX:MaxDirectMemorySize}) must leave
+ * room for the capacity.
+ *
+ * @since 3.5.5
+ */
+public class OffHeapCache implements Cache {
+
+  private static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+  private static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+  private final String id;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<Object, Slot> index = new HashMap<>();
+  private final CacheSerializer serializer = new JavaCacheSerializer();
+  private long capacity = DEFAULT_CAPACITY;
+  private int slabSize = DEFAULT_SLAB_SIZE;
+  private Slab[] slabs;
+  private int current;
+  private long liveBytes;
+  private long evictionCount;
+  private volatile EvictionListener evictionListener;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the number of bytes of direct memory the cache may use and clears the cache.
+   *
+   * @param capacity
+   *          the capacity in bytes, rounded up to a whole number of slabs
+   */
+  public void setCapacity(long capacity) {
+    if (capacity <= 0) {
+      throw new CacheException("Cache capacity must be positive but was " + capacity);
+    }
+    lock.lock();
+    try {
+      this.capacity = capacity;
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the listener notified of the entries evicted to make room for new ones.
+   *
+   * @param evictionListener
+   *          the listener, or {@code null}
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * Sets the size of the direct buffers the capacity is divided in and clears the cache. Entries larger than a slab
+   * are not cached.
+   *
+   * @param slabSize
+   *          the slab size in bytes
+   */
+  public void setSlabSize(int slabSize) {
+    if (slabSize <= 0) {
+      throw new CacheException("Cache slab size must be positive but was " + slabSize);
+    }
+    lock.lock();
+    try {
+      this.slabSize = slabSize;
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of bytes of direct memory allocated so far. Slabs are allocated when first written.
+   *
+   * @return the allocated bytes
+   */
+  public long getAllocatedBytes() {
+    lock.lock();
+    try {
+      long allocated = 0;
+      if (slabs != null) {
+        for (Slab slab : slabs) {
+          if (slab != null) {
+            allocated += slab.buffer.capacity();
+          }
+        }
+      }
+      return allocated;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of bytes written to the slabs, including the space of removed or replaced entries.
+   *
+   * @return the used bytes
+   */
+  public long getUsedBytes() {
+    lock.lock();
+    try {
+      long used = 0;
+      if (slabs != null) {
+        for (Slab slab : slabs) {
+          if (slab != null) {
+            used += slab.buffer.position();
+          }
+        }
+      }
+      return used;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of bytes held by the entries currently in the cache.
+   *
+   * @return the live bytes
+   */
+  public long getLiveBytes() {
+    lock.lock();
+    try {
+      return liveBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the share of the used bytes that is held by removed or replaced entries and cannot be reused until its
+   * slab is emptied.
+   *
+   * @return a ratio between 0 and 1
+   */
+  public double getFragmentation() {
+    long used = getUsedBytes();
+    return used == 0 ? 0 : 1 - (double) getLiveBytes() / used;
+  }
+
+  /**
+   * Returns the number of entries evicted to make room for new ones since the cache was created.
+   *
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    lock.lock();
+    try {
+      return evictionCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      return index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    final boolean serialized = !(value instanceof byte[]);
+    final byte[] bytes = serialized ? serializer.serialize(value) : (byte[]) value;
+    lock.lock();
+    try {
+      forget(index.remove(key));
+      if (bytes.length > slabSize) {
+        return;
+      }
+      Slab slab = slabFor(bytes.length);
+      int offset = slab.buffer.position();
+      slab.buffer.put(bytes);
+      slab.keys.add(key);
+      index.put(key, new Slot(slab, offset, bytes.length, serialized));
+      liveBytes += bytes.length;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Slot slot;
+    byte[] bytes;
+    lock.lock();
+    try {
+      slot = index.get(key);
+      if (slot == null) {
+        return null;
+      }
+      bytes = slot.read();
+    } finally {
+      lock.unlock();
+    }
+    return slot.serialized ? serializer.deserialize(bytes) : bytes;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Slot slot;
+    byte[] bytes;
+    lock.lock();
+    try {
+      slot = index.remove(key);
+      if (slot == null) {
+        return null;
+      }
+      bytes = slot.read();
+      forget(slot);
+    } finally {
+      lock.unlock();
+    }
+    return slot.serialized ? serializer.deserialize(bytes) : bytes;
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      index.clear();
+      if (slabs != null) {
+        for (Slab slab : slabs) {
+          if (slab != null) {
+            slab.clear();
+          }
+        }
+      }
+      current = 0;
+      liveBytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release() {
+    index.clear();
+    slabs = null;
+    current = 0;
+    liveBytes = 0;
+  }
+
+  private void forget(Slot slot) {
+    if (slot != null) {
+      liveBytes -= slot.length;
+    }
+  }
+
+  private Slab slabFor(int length) {
+    if (slabs == null) {
+      int slabCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (capacity + slabSize - 1) / slabSize));
+      slabs = new Slab[slabCount];
+      slabs[0] = new Slab(slabSize);
+      current = 0;
+    }
+    Slab slab = slabs[current];
+    if (slab.buffer.remaining() >= length) {
+      return slab;
+    }
+    current = (current + 1) % slabs.length;
+    if (slabs[current] == null) {
+      slabs[current] = new Slab(slabSize);
+    } else {
+      evict(slabs[current]);
+    }
+    return slabs[current];
+  }
+
+  private void evict(Slab slab) {
+    for (Object key : slab.keys) {
+      Slot slot = index.get(key);
+      if (slot != null && slot.slab == slab) {
+        index.remove(key);
+        forget(slot);
+        evictionCount++;
+        if (evictionListener != null) {
+          evictionListener.onEviction(key);
+        }
+      }
+    }
+    slab.clear();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static class Slab {
+    private final ByteBuffer buffer;
+    private final List<Object> keys = new ArrayList<>();
+
+    Slab(int size) {
+      this.buffer = ByteBuffer.allocateDirect(size);
+    }
+
+    void clear() {
+      buffer.clear();
+      keys.clear();
+    }
+  }
+
+  private static class Slot {
+    private final Slab slab;
+    private final int offset;
+    private final int length;
+    private final boolean serialized;
+
+    Slot(Slab slab, int offset, int length, boolean serialized) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+      this.serialized = serialized;
+    }
+
+    byte[] read() {
+      byte[] bytes = new byte[length];
+      ByteBuffer view = slab.buffer.duplicate();
+      view.position(offset);
+      view.get(bytes);
+      return bytes;
+    }
+  }
+
+}
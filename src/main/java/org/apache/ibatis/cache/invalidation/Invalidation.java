@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The second level cache invalidations of one node, usually made by one transaction, to be applied by the other nodes.
+ * <p>
+ * Invalidations are coalesced: a cleared cache absorbs the keys removed from it, and the keys of a cache beyond
+ * {@value #MAX_KEYS_PER_CACHE} are replaced by clearing the cache.
+ *
+ * @since 3.5.5
+ */
+public final class Invalidation {
+
+  static final int MAX_KEYS_PER_CACHE = 64;
+
+  private final String source;
+  private final Set<String> clearedCaches = new LinkedHashSet<>();
+  private final Map<String, Set<Object>> removedKeys = new LinkedHashMap<>();
+  private final Set<String> tables = new LinkedHashSet<>();
+  private boolean allTables;
+
+  /**
+   * @param source
+   *          the id of the node that made the invalidations
+   */
+  public Invalidation(String source) {
+    this.source = source;
+  }
+
+  public void clear(String cacheId) {
+    clearedCaches.add(cacheId);
+    removedKeys.remove(cacheId);
+  }
+
+  public void remove(String cacheId, Object key) {
+    if (clearedCaches.contains(cacheId)) {
+      return;
+    }
+    Set<Object> keys = removedKeys.computeIfAbsent(cacheId, k -> new LinkedHashSet<>());
+    keys.add(key);
+    if (keys.size() > MAX_KEYS_PER_CACHE) {
+      clear(cacheId);
+    }
+  }
+
+  /**
+   * Invalidates the entries read from tables, when entries are invalidated by table.
+   *
+   * @param tables
+   *          the tables written, or {@code null} if they are unknown
+   */
+  public void invalidateTables(Collection<String> tables) {
+    if (tables == null) {
+      allTables = true;
+      this.tables.clear();
+    } else if (!allTables) {
+      this.tables.addAll(tables);
+    }
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public Set<String> getClearedCaches() {
+    return Collections.unmodifiableSet(clearedCaches);
+  }
+
+  public Map<String, Set<Object>> getRemovedKeys() {
+    return Collections.unmodifiableMap(removedKeys);
+  }
+
+  /**
+   * Returns the tables written.
+   *
+   * @return the tables, or {@code null} if all tables are invalidated
+   */
+  public Set<String> getTables() {
+    return allTables ? null : Collections.unmodifiableSet(tables);
+  }
+
+  public boolean isEmpty() {
+    return clearedCaches.isEmpty() && removedKeys.isEmpty() && tables.isEmpty() && !allTables;
+  }
+
+  @Override
+  public String toString() {
+    return "Invalidation{source=" + source + ", clearedCaches=" + clearedCaches + ", removedKeys=" + removedKeys
+        + ", tables=" + (allTables ? "*" : tables) + "}";
+  }
+
+}
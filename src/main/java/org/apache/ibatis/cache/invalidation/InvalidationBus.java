@@ -0,0 +1,182 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.BroadcastingCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Publishes the second level cache invalidations of this node through an {@link InvalidationTransport}, and applies
+ * those of the other nodes.
+ * <p>
+ * The caches of a configuration with a bus are wrapped in a {@link BroadcastingCache}, which reports clears and
+ * removals to the bus. Invalidations made between {@link #begin()} and {@link #end()} on a thread, which
+ * {@link org.apache.ibatis.executor.CachingExecutor} does around the commit of each transaction, are coalesced into a
+ * single message. Received invalidations are applied locally without being published again.
+ *
+ * @since 3.5.5
+ */
+public class InvalidationBus {
+
+  private static final Log log = LogFactory.getLog(InvalidationBus.class);
+
+  private final Configuration configuration;
+  private final InvalidationTransport transport;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+  public InvalidationBus(Configuration configuration, InvalidationTransport transport) {
+    this.configuration = configuration;
+    this.transport = transport;
+    transport.start(this::receive);
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  public InvalidationTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Starts coalescing the invalidations made by the current thread. Calls may be nested.
+   */
+  public void begin() {
+    Batch batch = batches.get();
+    if (batch == null) {
+      batch = new Batch(new Invalidation(nodeId));
+      batches.set(batch);
+    }
+    batch.depth++;
+  }
+
+  /**
+   * Publishes the invalidations coalesced since the outermost {@link #begin()}.
+   */
+  public void end() {
+    Batch batch = batches.get();
+    if (batch == null || --batch.depth > 0) {
+      return;
+    }
+    batches.remove();
+    publish(batch.invalidation);
+  }
+
+  public void cleared(String cacheId) {
+    Invalidation invalidation = current();
+    invalidation.clear(cacheId);
+    publishUnlessBatched(invalidation);
+  }
+
+  public void removed(String cacheId, Object key) {
+    Invalidation invalidation = current();
+    invalidation.remove(cacheId, key);
+    publishUnlessBatched(invalidation);
+  }
+
+  /**
+   * Reports that entries read from tables were invalidated.
+   *
+   * @param tables
+   *          the tables written, or {@code null} if they are unknown
+   */
+  public void tablesInvalidated(Collection<String> tables) {
+    Invalidation invalidation = current();
+    invalidation.invalidateTables(tables);
+    publishUnlessBatched(invalidation);
+  }
+
+  public void close() {
+    transport.close();
+  }
+
+  private Invalidation current() {
+    Batch batch = batches.get();
+    return batch == null ? new Invalidation(nodeId) : batch.invalidation;
+  }
+
+  private void publishUnlessBatched(Invalidation invalidation) {
+    if (batches.get() == null) {
+      publish(invalidation);
+    }
+  }
+
+  private void publish(Invalidation invalidation) {
+    if (invalidation.isEmpty()) {
+      return;
+    }
+    try {
+      transport.publish(invalidation);
+    } catch (RuntimeException e) {
+      // the local caches are already invalidated, the other nodes will catch up when their entries expire
+      log.warn("Could not publish cache invalidation. Cause: " + e);
+    }
+  }
+
+  void receive(Invalidation invalidation) {
+    if (nodeId.equals(invalidation.getSource())) {
+      return;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Applying " + invalidation);
+    }
+    for (String cacheId : invalidation.getClearedCaches()) {
+      Cache cache = findCache(cacheId);
+      if (cache instanceof BroadcastingCache) {
+        ((BroadcastingCache) cache).clearLocally();
+      } else if (cache != null) {
+        cache.clear();
+      }
+    }
+    for (Map.Entry<String, Set<Object>> entry : invalidation.getRemovedKeys().entrySet()) {
+      Cache cache = findCache(entry.getKey());
+      for (Object key : entry.getValue()) {
+        if (cache instanceof BroadcastingCache) {
+          ((BroadcastingCache) cache).removeLocally(key);
+        } else if (cache != null) {
+          cache.removeObject(key);
+        }
+      }
+    }
+    Set<String> tables = invalidation.getTables();
+    if (tables == null || !tables.isEmpty()) {
+      configuration.getTableVersions().invalidate(tables);
+    }
+  }
+
+  private Cache findCache(String cacheId) {
+    return configuration.hasCache(cacheId) ? configuration.getCache(cacheId) : null;
+  }
+
+  private static class Batch {
+    private final Invalidation invalidation;
+    private int depth;
+
+    Batch(Invalidation invalidation) {
+      this.invalidation = invalidation;
+    }
+  }
+
+}
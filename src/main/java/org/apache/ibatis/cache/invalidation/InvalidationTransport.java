@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries second level cache invalidations between the nodes of a cluster.
+ * <p>
+ * A transport may deliver an invalidation to the node that published it, which ignores it, and is not required to be
+ * reliable: nodes that miss an invalidation serve stale entries until they expire, so the caches of a cluster should
+ * still have a flush interval or a time to live.
+ *
+ * @since 3.5.5
+ * @see InvalidationBus
+ */
+public interface InvalidationTransport {
+
+  /**
+   * Starts receiving the invalidations published by the other nodes.
+   *
+   * @param receiver
+   *          the receiver of the invalidations, which may be called from any thread
+   */
+  void start(Consumer<Invalidation> receiver);
+
+  /**
+   * Sends an invalidation to the other nodes.
+   *
+   * @param invalidation
+   *          the invalidation, never empty
+   */
+  void publish(Invalidation invalidation);
+
+  /**
+   * Stops receiving invalidations and releases the resources of the transport.
+   */
+  void close();
+
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations to the other transports of the same channel within the JVM, synchronously, e.g. to test
+ * several configurations standing for several nodes.
+ *
+ * @since 3.5.5
+ */
+public class LoopbackTransport implements InvalidationTransport {
+
+  private static final Map<String, List<LoopbackTransport>> channels = new ConcurrentHashMap<>();
+
+  private final String channel;
+  private volatile Consumer<Invalidation> receiver;
+
+  public LoopbackTransport() {
+    this("default");
+  }
+
+  public LoopbackTransport(String channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void start(Consumer<Invalidation> receiver) {
+    this.receiver = receiver;
+    channels.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(this);
+  }
+
+  @Override
+  public void publish(Invalidation invalidation) {
+    List<LoopbackTransport> transports = channels.get(channel);
+    if (transports == null) {
+      return;
+    }
+    for (LoopbackTransport transport : transports) {
+      Consumer<Invalidation> target = transport.receiver;
+      if (transport != this && target != null) {
+        target.accept(invalidation);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    List<LoopbackTransport> transports = channels.get(channel);
+    if (transports != null) {
+      transports.remove(this);
+    }
+    receiver = null;
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Sends invalidations as UDP multicast datagrams, for nodes on the same network segment, e.g. to test a cluster on a
+ * single host. Datagrams may be lost, so this transport is not meant for production clusters.
+ * <p>
+ * Datagrams only carry names, so that no object is deserialized from the network: keys removed from a cache are sent
+ * as a clear of that cache.
+ *
+ * @since 3.5.5
+ */
+public class MulticastTransport implements InvalidationTransport {
+
+  private static final Log log = LogFactory.getLog(MulticastTransport.class);
+  private static final int MAGIC = 0x4d424956;
+  private static final int MAX_DATAGRAM_SIZE = 60000;
+
+  private String group = "239.255.27.1";
+  private int port = 45588;
+  private int timeToLive = 1;
+  private MulticastSocket socket;
+  private InetAddress groupAddress;
+  private Thread receiverThread;
+
+  public void setGroup(String group) {
+    this.group = group;
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * @param timeToLive
+   *          the number of hops datagrams may cross, {@code 0} to stay on the host
+   */
+  public void setTimeToLive(int timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  @Override
+  public synchronized void start(Consumer<Invalidation> receiver) {
+    try {
+      groupAddress = InetAddress.getByName(group);
+      socket = new MulticastSocket(port);
+      socket.setTimeToLive(timeToLive);
+      socket.joinGroup(new InetSocketAddress(groupAddress, port), null);
+    } catch (IOException e) {
+      throw new CacheException("Could not join multicast group " + group + ":" + port + ". Cause: " + e, e);
+    }
+    final MulticastSocket receiving = socket;
+    receiverThread = new Thread(() -> receive(receiving, receiver), "mybatis-cache-invalidation-" + port);
+    receiverThread.setDaemon(true);
+    receiverThread.start();
+  }
+
+  @Override
+  public void publish(Invalidation invalidation) {
+    List<String> caches = new ArrayList<>(invalidation.getClearedCaches());
+    caches.addAll(invalidation.getRemovedKeys().keySet());
+    Set<String> tables = invalidation.getTables();
+    send(invalidation.getSource(), caches, tables == null ? new ArrayList<>() : new ArrayList<>(tables), tables == null);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (socket != null) {
+      socket.close();
+      socket = null;
+    }
+  }
+
+  private void send(String source, List<String> caches, List<String> tables, boolean allTables) {
+    byte[] datagram = encode(source, caches, tables, allTables);
+    if (datagram.length > MAX_DATAGRAM_SIZE && caches.size() + tables.size() > 1) {
+      // split the names in two datagrams
+      int cacheHalf = caches.size() / 2;
+      int tableHalf = tables.size() / 2;
+      send(source, caches.subList(0, cacheHalf), tables.subList(0, tableHalf), allTables);
+      send(source, caches.subList(cacheHalf, caches.size()), tables.subList(tableHalf, tables.size()), false);
+      return;
+    }
+    MulticastSocket current = socket;
+    if (current == null) {
+      throw new CacheException("Multicast transport is not started.");
+    }
+    try {
+      current.send(new DatagramPacket(datagram, datagram.length, groupAddress, port));
+    } catch (IOException e) {
+      throw new CacheException("Could not send cache invalidation. Cause: " + e, e);
+    }
+  }
+
+  static byte[] encode(String source, List<String> caches, List<String> tables, boolean allTables) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeUTF(source);
+      out.writeInt(caches.size());
+      for (String cache : caches) {
+        out.writeUTF(cache);
+      }
+      out.writeBoolean(allTables);
+      out.writeInt(tables.size());
+      for (String table : tables) {
+        out.writeUTF(table);
+      }
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new CacheException("Could not encode cache invalidation. Cause: " + e, e);
+    }
+  }
+
+  static Invalidation decode(byte[] datagram, int length) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(datagram, 0, length));
+    if (in.readInt() != MAGIC) {
+      return null;
+    }
+    Invalidation invalidation = new Invalidation(in.readUTF());
+    for (int i = in.readInt(); i > 0; i--) {
+      invalidation.clear(in.readUTF());
+    }
+    boolean allTables = in.readBoolean();
+    List<String> tables = new ArrayList<>();
+    for (int i = in.readInt(); i > 0; i--) {
+      tables.add(in.readUTF());
+    }
+    invalidation.invalidateTables(allTables ? null : tables);
+    return invalidation;
+  }
+
+  private void receive(MulticastSocket receiving, Consumer<Invalidation> receiver) {
+    byte[] buffer = new byte[65536];
+    while (!receiving.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        receiving.receive(packet);
+        Invalidation invalidation = decode(packet.getData(), packet.getLength());
+        if (invalidation != null && !invalidation.isEmpty()) {
+          receiver.accept(invalidation);
+        }
+      } catch (IOException e) {
+        if (!receiving.isClosed()) {
+          log.warn("Could not receive cache invalidation. Cause: " + e);
+        }
+      } catch (RuntimeException e) {
+        log.warn("Could not apply cache invalidation. Cause: " + e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,584 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.property.BeanProperties;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * A compact binary {@link CacheSerializer} for the values MyBatis usually caches: boxed primitives, strings, numbers,
+ * dates, enums, arrays, the common JDK collections and maps, and result objects.
+ * <p>
+ * A result object is written property by property through its {@link Reflector} when its class is serializable, has a
+ * default constructor and does not customize its serialization. Shared and cyclic references between result objects,
+ * collections, maps and arrays are preserved. Any other value, lazy loading proxies included, is written with
+ * {@link JavaCacheSerializer}.
+ *
+ * @since 3.5.5
+ */
+public class BinaryCacheSerializer implements CacheSerializer {
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte BYTE = 3;
+  private static final byte SHORT = 4;
+  private static final byte INT = 5;
+  private static final byte LONG = 6;
+  private static final byte FLOAT = 7;
+  private static final byte DOUBLE = 8;
+  private static final byte CHAR = 9;
+  private static final byte STRING = 10;
+  private static final byte BIG_INTEGER = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte SQL_TIMESTAMP = 16;
+  private static final byte LOCAL_DATE = 17;
+  private static final byte LOCAL_TIME = 18;
+  private static final byte LOCAL_DATE_TIME = 19;
+  private static final byte INSTANT = 20;
+  private static final byte ENUM = 21;
+  private static final byte BYTE_ARRAY = 22;
+  private static final byte OBJECT_ARRAY = 23;
+  private static final byte ARRAY_LIST = 24;
+  private static final byte LINKED_LIST = 25;
+  private static final byte HASH_SET = 26;
+  private static final byte LINKED_HASH_SET = 27;
+  private static final byte TREE_SET = 28;
+  private static final byte HASH_MAP = 29;
+  private static final byte LINKED_HASH_MAP = 30;
+  private static final byte TREE_MAP = 31;
+  private static final byte BEAN = 32;
+  private static final byte REFERENCE = 33;
+  private static final byte JAVA = 34;
+
+  private static final BeanCodec NOT_A_BEAN = new BeanCodec(null, null, null);
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, BeanCodec> beanCodecs = new ConcurrentHashMap<>();
+  private final JavaCacheSerializer javaSerializer = new JavaCacheSerializer();
+
+  @Override
+  public byte[] serialize(Object value) {
+    PooledOutputStream out = PooledOutputStream.acquire();
+    try {
+      new Writer(out).writeObject(value);
+      return out.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    } finally {
+      out.release();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(bytes).readObject();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanCodec beanCodec(Class<?> type) {
+    return beanCodecs.computeIfAbsent(type, this::createBeanCodec);
+  }
+
+  private BeanCodec createBeanCodec(Class<?> type) {
+    if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+        || type.isArray() || !BeanProperties.isRebuildable(type)) {
+      return NOT_A_BEAN;
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    Constructor<?> constructor = BeanProperties.findDefaultConstructor(reflector);
+    List<String> names = constructor == null ? null : BeanProperties.findStateProperties(reflector);
+    if (names == null) {
+      return NOT_A_BEAN;
+    }
+    String[] sortedNames = names.toArray(new String[0]);
+    Arrays.sort(sortedNames);
+    Invoker[] getters = new Invoker[sortedNames.length];
+    Invoker[] setters = new Invoker[sortedNames.length];
+    for (int i = 0; i < sortedNames.length; i++) {
+      getters[i] = reflector.getGetInvoker(sortedNames[i]);
+      setters[i] = reflector.getSetInvoker(sortedNames[i]);
+    }
+    return new BeanCodec(constructor, getters, setters);
+  }
+
+  private static final class BeanCodec {
+    private final Constructor<?> constructor;
+    private final Invoker[] getters;
+    private final Invoker[] setters;
+
+    BeanCodec(Constructor<?> constructor, Invoker[] getters, Invoker[] setters) {
+      this.constructor = constructor;
+      this.getters = getters;
+      this.setters = setters;
+    }
+  }
+
+  private final class Writer {
+    private final PooledOutputStream out;
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    Writer(PooledOutputStream out) {
+      this.out = out;
+    }
+
+    void writeObject(Object value) throws Exception {
+      if (value == null) {
+        out.write(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        out.write(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        out.write(INT);
+        writeVarLong(zigZag((Integer) value));
+      } else if (type == Long.class) {
+        out.write(LONG);
+        writeVarLong(zigZag((Long) value));
+      } else if (type == Boolean.class) {
+        out.write((Boolean) value ? TRUE : FALSE);
+      } else if (type == Double.class) {
+        out.write(DOUBLE);
+        writeLong(Double.doubleToRawLongBits((Double) value));
+      } else if (type == Float.class) {
+        out.write(FLOAT);
+        writeVarLong(Float.floatToRawIntBits((Float) value) & 0xFFFFFFFFL);
+      } else if (type == Short.class) {
+        out.write(SHORT);
+        writeVarLong(zigZag((Short) value));
+      } else if (type == Byte.class) {
+        out.write(BYTE);
+        out.write((Byte) value);
+      } else if (type == Character.class) {
+        out.write(CHAR);
+        writeVarLong((Character) value);
+      } else if (type == BigDecimal.class) {
+        out.write(BIG_DECIMAL);
+        BigDecimal decimal = (BigDecimal) value;
+        writeVarLong(zigZag(decimal.scale()));
+        writeBytes(decimal.unscaledValue().toByteArray());
+      } else if (type == BigInteger.class) {
+        out.write(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (type == Date.class) {
+        out.write(DATE);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == java.sql.Timestamp.class) {
+        out.write(SQL_TIMESTAMP);
+        java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+        writeVarLong(zigZag(timestamp.getTime()));
+        writeVarLong(timestamp.getNanos());
+      } else if (type == java.sql.Date.class) {
+        out.write(SQL_DATE);
+        writeVarLong(zigZag(((java.sql.Date) value).getTime()));
+      } else if (type == java.sql.Time.class) {
+        out.write(SQL_TIME);
+        writeVarLong(zigZag(((java.sql.Time) value).getTime()));
+      } else if (type == LocalDate.class) {
+        out.write(LOCAL_DATE);
+        writeVarLong(zigZag(((LocalDate) value).toEpochDay()));
+      } else if (type == LocalTime.class) {
+        out.write(LOCAL_TIME);
+        writeVarLong(((LocalTime) value).toNanoOfDay());
+      } else if (type == LocalDateTime.class) {
+        out.write(LOCAL_DATE_TIME);
+        LocalDateTime dateTime = (LocalDateTime) value;
+        writeVarLong(zigZag(dateTime.toLocalDate().toEpochDay()));
+        writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+      } else if (type == Instant.class) {
+        out.write(INSTANT);
+        Instant instant = (Instant) value;
+        writeVarLong(zigZag(instant.getEpochSecond()));
+        writeVarLong(instant.getNano());
+      } else if (value instanceof Enum) {
+        out.write(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (type == byte[].class) {
+        out.write(BYTE_ARRAY);
+        writeBytes((byte[]) value);
+      } else if (!writeReference(value)) {
+        writeGraphObject(value, type);
+      }
+    }
+
+    private void writeGraphObject(Object value, Class<?> type) throws Exception {
+      if (type.isArray() && !type.getComponentType().isPrimitive()) {
+        out.write(OBJECT_ARRAY);
+        writeClass(type.getComponentType());
+        Object[] array = (Object[]) value;
+        writeVarLong(array.length);
+        for (Object element : array) {
+          writeObject(element);
+        }
+      } else if (type == ArrayList.class) {
+        writeCollection(ARRAY_LIST, (Collection<?>) value);
+      } else if (type == LinkedList.class) {
+        writeCollection(LINKED_LIST, (Collection<?>) value);
+      } else if (type == HashSet.class) {
+        writeCollection(HASH_SET, (Collection<?>) value);
+      } else if (type == LinkedHashSet.class) {
+        writeCollection(LINKED_HASH_SET, (Collection<?>) value);
+      } else if (type == TreeSet.class && ((TreeSet<?>) value).comparator() == null) {
+        writeCollection(TREE_SET, (Collection<?>) value);
+      } else if (type == HashMap.class) {
+        writeMap(HASH_MAP, (Map<?, ?>) value);
+      } else if (type == LinkedHashMap.class) {
+        writeMap(LINKED_HASH_MAP, (Map<?, ?>) value);
+      } else if (type == TreeMap.class && ((TreeMap<?, ?>) value).comparator() == null) {
+        writeMap(TREE_MAP, (Map<?, ?>) value);
+      } else {
+        BeanCodec codec = beanCodec(type);
+        if (codec == NOT_A_BEAN) {
+          out.write(JAVA);
+          writeBytes(javaSerializer.serialize(value));
+        } else {
+          out.write(BEAN);
+          writeClass(type);
+          for (Invoker getter : codec.getters) {
+            writeObject(getter.invoke(value, null));
+          }
+        }
+      }
+    }
+
+    private boolean writeReference(Object value) {
+      Integer reference = references.get(value);
+      if (reference != null) {
+        out.write(REFERENCE);
+        writeVarLong(reference);
+        return true;
+      }
+      references.put(value, references.size());
+      return false;
+    }
+
+    private void writeCollection(byte tag, Collection<?> collection) throws Exception {
+      out.write(tag);
+      writeVarLong(collection.size());
+      for (Object element : collection) {
+        writeObject(element);
+      }
+    }
+
+    private void writeMap(byte tag, Map<?, ?> map) throws Exception {
+      out.write(tag);
+      writeVarLong(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeObject(entry.getKey());
+        writeObject(entry.getValue());
+      }
+    }
+
+    private void writeClass(Class<?> type) {
+      Integer index = classes.get(type);
+      if (index != null) {
+        writeVarLong(index + 1L);
+      } else {
+        classes.put(type, classes.size());
+        writeVarLong(0);
+        writeString(type.getName());
+      }
+    }
+
+    private void writeString(String value) {
+      int length = value.length();
+      writeVarLong(length);
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          out.write(c);
+        } else if (c < 0x800) {
+          out.write(0xC0 | c >> 6);
+          out.write(0x80 | c & 0x3F);
+        } else {
+          out.write(0xE0 | c >> 12);
+          out.write(0x80 | c >> 6 & 0x3F);
+          out.write(0x80 | c & 0x3F);
+        }
+      }
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarLong(bytes.length);
+      out.write(bytes, 0, bytes.length);
+    }
+
+    private void writeLong(long value) {
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        out.write((int) (value >>> shift));
+      }
+    }
+
+    private void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        out.write((int) (value & 0x7F | 0x80));
+        value >>>= 7;
+      }
+      out.write((int) value);
+    }
+
+    private long zigZag(long value) {
+      return value << 1 ^ value >> 63;
+    }
+  }
+
+  private final class Reader {
+    private final byte[] bytes;
+    private final List<Object> references = new ArrayList<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+    private int position;
+
+    Reader(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object readObject() throws Exception {
+      byte tag = bytes[position++];
+      switch (tag) {
+        case NULL:
+          return null;
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case BYTE:
+          return bytes[position++];
+        case SHORT:
+          return (short) unZigZag(readVarLong());
+        case INT:
+          return (int) unZigZag(readVarLong());
+        case LONG:
+          return unZigZag(readVarLong());
+        case FLOAT:
+          return Float.intBitsToFloat((int) readVarLong());
+        case DOUBLE:
+          return Double.longBitsToDouble(readLong());
+        case CHAR:
+          return (char) readVarLong();
+        case STRING:
+          return readString();
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case BIG_DECIMAL:
+          int scale = (int) unZigZag(readVarLong());
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        case DATE:
+          return new Date(unZigZag(readVarLong()));
+        case SQL_DATE:
+          return new java.sql.Date(unZigZag(readVarLong()));
+        case SQL_TIME:
+          return new java.sql.Time(unZigZag(readVarLong()));
+        case SQL_TIMESTAMP:
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(unZigZag(readVarLong()));
+          timestamp.setNanos((int) readVarLong());
+          return timestamp;
+        case LOCAL_DATE:
+          return LocalDate.ofEpochDay(unZigZag(readVarLong()));
+        case LOCAL_TIME:
+          return LocalTime.ofNanoOfDay(readVarLong());
+        case LOCAL_DATE_TIME:
+          LocalDate date = LocalDate.ofEpochDay(unZigZag(readVarLong()));
+          return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong()));
+        case INSTANT:
+          long seconds = unZigZag(readVarLong());
+          return Instant.ofEpochSecond(seconds, readVarLong());
+        case ENUM:
+          Class enumType = readClass();
+          return Enum.valueOf(enumType, readString());
+        case BYTE_ARRAY:
+          return readBytes();
+        case OBJECT_ARRAY:
+          Class<?> componentType = readClass();
+          Object[] array = (Object[]) Array.newInstance(componentType, (int) readVarLong());
+          references.add(array);
+          for (int i = 0; i < array.length; i++) {
+            array[i] = readObject();
+          }
+          return array;
+        case ARRAY_LIST:
+          int size = (int) readVarLong();
+          return readElements(new ArrayList<>(size), size);
+        case LINKED_LIST:
+          return readElements(new LinkedList<>(), (int) readVarLong());
+        case HASH_SET:
+          size = (int) readVarLong();
+          return readElements(new HashSet<>(BeanProperties.hashCapacity(size)), size);
+        case LINKED_HASH_SET:
+          size = (int) readVarLong();
+          return readElements(new LinkedHashSet<>(BeanProperties.hashCapacity(size)), size);
+        case TREE_SET:
+          return readElements(new TreeSet<>(), (int) readVarLong());
+        case HASH_MAP:
+          size = (int) readVarLong();
+          return readEntries(new HashMap<>(BeanProperties.hashCapacity(size)), size);
+        case LINKED_HASH_MAP:
+          size = (int) readVarLong();
+          return readEntries(new LinkedHashMap<>(BeanProperties.hashCapacity(size)), size);
+        case TREE_MAP:
+          return readEntries(new TreeMap<>(), (int) readVarLong());
+        case BEAN:
+          return readBean();
+        case REFERENCE:
+          return references.get((int) readVarLong());
+        case JAVA:
+          Object value = javaSerializer.deserialize(readBytes());
+          references.add(value);
+          return value;
+        default:
+          throw new CacheException("Error deserializing object.  Unknown type tag " + tag + " at " + (position - 1));
+      }
+    }
+
+    private Object readBean() throws Exception {
+      Class<?> type = readClass();
+      BeanCodec codec = beanCodec(type);
+      if (codec == NOT_A_BEAN) {
+        throw new CacheException("Error deserializing object.  " + type + " cannot be read as a bean.");
+      }
+      Object bean = codec.constructor.newInstance();
+      references.add(bean);
+      for (int i = 0; i < codec.setters.length; i++) {
+        Object value = readObject();
+        if (value != null || !codec.setters[i].getType().isPrimitive()) {
+          codec.setters[i].invoke(bean, new Object[] { value });
+        }
+      }
+      return bean;
+    }
+
+    private Collection<Object> readElements(Collection<Object> collection, int size) throws Exception {
+      references.add(collection);
+      for (int i = 0; i < size; i++) {
+        collection.add(readObject());
+      }
+      return collection;
+    }
+
+    private Map<Object, Object> readEntries(Map<Object, Object> map, int size) throws Exception {
+      references.add(map);
+      for (int i = 0; i < size; i++) {
+        Object key = readObject();
+        map.put(key, readObject());
+      }
+      return map;
+    }
+
+    private Class<?> readClass() throws ClassNotFoundException {
+      int index = (int) readVarLong();
+      if (index > 0) {
+        return classes.get(index - 1);
+      }
+      Class<?> type = Resources.classForName(readString());
+      classes.add(type);
+      return type;
+    }
+
+    private String readString() {
+      int length = (int) readVarLong();
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        int b = bytes[position++] & 0xFF;
+        if (b < 0x80) {
+          chars[i] = (char) b;
+        } else if (b < 0xE0) {
+          chars[i] = (char) ((b & 0x1F) << 6 | bytes[position++] & 0x3F);
+        } else {
+          int b2 = bytes[position++] & 0x3F;
+          chars[i] = (char) ((b & 0x0F) << 12 | b2 << 6 | bytes[position++] & 0x3F);
+        }
+      }
+      return new String(chars);
+    }
+
+    private byte[] readBytes() {
+      int length = (int) readVarLong();
+      byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+      position += length;
+      return result;
+    }
+
+    private long readLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = value << 8 | bytes[position++] & 0xFF;
+      }
+      return value;
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = bytes[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    private long unZigZag(long value) {
+      return value >>> 1 ^ -(value & 1);
+    }
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+
+/**
+ * Compresses the output of another {@link CacheSerializer} when it is at least a given number of bytes long.
+ *
+ * @since 3.5.5
+ */
+public class CompressingCacheSerializer implements CacheSerializer {
+
+  private static final byte PLAIN = 0;
+  private static final byte DEFLATED = 1;
+
+  private final CacheSerializer delegate;
+  private final int threshold;
+
+  public CompressingCacheSerializer(CacheSerializer delegate, int threshold) {
+    this.delegate = delegate;
+    this.threshold = threshold;
+  }
+
+  public CacheSerializer getDelegate() {
+    return delegate;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  @Override
+  public byte[] serialize(Object value) {
+    byte[] bytes = delegate.serialize(value);
+    if (bytes.length < threshold) {
+      return plain(bytes);
+    }
+    PooledOutputStream out = PooledOutputStream.acquire();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      byte[] chunk = new byte[4096];
+      while (!deflater.finished()) {
+        int length = deflater.deflate(chunk);
+        out.write(chunk, 0, length);
+      }
+      if (out.size() + 4 >= bytes.length) {
+        return plain(bytes);
+      }
+      byte[] compressed = new byte[out.size() + 5];
+      compressed[0] = DEFLATED;
+      compressed[1] = (byte) (bytes.length >>> 24);
+      compressed[2] = (byte) (bytes.length >>> 16);
+      compressed[3] = (byte) (bytes.length >>> 8);
+      compressed[4] = (byte) bytes.length;
+      System.arraycopy(out.buffer(), 0, compressed, 5, out.size());
+      return compressed;
+    } finally {
+      deflater.end();
+      out.release();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes[0] == PLAIN) {
+      return delegate.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+    int length = (bytes[1] & 0xFF) << 24 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 8 | bytes[4] & 0xFF;
+    byte[] inflated = new byte[length];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, 5, bytes.length - 5);
+      int offset = 0;
+      while (offset < length) {
+        int read = inflater.inflate(inflated, offset, length - offset);
+        if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new CacheException("Error inflating cached object.  Unexpected end of data.");
+        }
+        offset += read;
+      }
+    } catch (DataFormatException e) {
+      throw new CacheException("Error inflating cached object.  Cause: " + e, e);
+    } finally {
+      inflater.end();
+    }
+    return delegate.deserialize(inflated);
+  }
+
+  private static byte[] plain(byte[] bytes) {
+    byte[] framed = new byte[bytes.length + 1];
+    framed[0] = PLAIN;
+    System.arraycopy(bytes, 0, framed, 1, bytes.length);
+    return framed;
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A per thread output buffer that is reused by the serializers, unless it grew larger than {@link #MAX_POOLED_SIZE}.
+ *
+ * @since 3.5.5
+ */
+class PooledOutputStream extends ByteArrayOutputStream {
+
+  static final int MAX_POOLED_SIZE = 1024 * 1024;
+
+  private static final ThreadLocal<PooledOutputStream> POOL = new ThreadLocal<>();
+
+  private PooledOutputStream() {
+    super(1024);
+  }
+
+  /**
+   * Returns the buffer of the current thread, or a new one if it is already in use, for example when serializing
+   * triggers another serialization.
+   */
+  static PooledOutputStream acquire() {
+    PooledOutputStream out = POOL.get();
+    if (out == null) {
+      return new PooledOutputStream();
+    }
+    POOL.set(null);
+    return out;
+  }
+
+  void release() {
+    if (buf.length <= MAX_POOLED_SIZE) {
+      reset();
+      POOL.set(this);
+    }
+  }
+
+  byte[] buffer() {
+    return buf;
+  }
+
+  @Override
+  public void close() {
+    // the buffer is reused
+  }
+
+}
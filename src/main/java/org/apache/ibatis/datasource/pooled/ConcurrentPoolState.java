@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a {@link ConcurrentPooledDataSource}, updated without locking.
+ *
+ * @since 3.5.5
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  protected final AtomicInteger totalConnections = new AtomicInteger();
+  protected final AtomicInteger idleCount = new AtomicInteger();
+  protected final AtomicInteger waitingThreads = new AtomicInteger();
+  protected final LongAdder requests = new LongAdder();
+  protected final LongAdder requestTime = new LongAdder();
+  protected final LongAdder checkoutTime = new LongAdder();
+  protected final LongAdder claimedOverdue = new LongAdder();
+  protected final LongAdder overdueCheckoutTime = new LongAdder();
+  protected final LongAdder waitTime = new LongAdder();
+  protected final LongAdder waits = new LongAdder();
+  protected final LongAdder badConnections = new LongAdder();
+
+  public ConcurrentPoolState(ConcurrentPooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long count = requests.sum();
+    return count == 0 ? 0 : requestTime.sum() / count;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long count = waits.sum();
+    return count == 0 ? 0 : waitTime.sum() / count;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return waits.sum();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnections.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdue.sum();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long count = claimedOverdue.sum();
+    return count == 0 ? 0 : overdueCheckoutTime.sum() / count;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long count = requests.sum();
+    return count == 0 ? 0 : checkoutTime.sum() / count;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return idleCount.get();
+  }
+
+  @Override
+  public int getWaitingThreadCount() {
+    return waitingThreads.get();
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return Math.max(0, totalConnections.get() - idleCount.get());
+  }
+
+}
@@ -0,0 +1,591 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A connection pool for highly concurrent workloads.
+ * <p>
+ * It is configured like {@link PooledDataSource} and hands out the same {@link PooledConnection} proxies, but borrows
+ * and returns connections without a pool wide lock: idle connections are claimed with a compare-and-set, a thread
+ * first tries the connections it returned last, and threads that have to wait are served in arrival order as soon
+ * as a connection is returned.
+ *
+ * @since 3.5.5
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private static final int STATE_REMOVED = -1;
+  private static final int STATE_IDLE = 0;
+  private static final int STATE_IN_USE = 1;
+  private static final int STATE_RESERVED = 2;
+
+  private static final int MAX_LOCAL_ENTRIES = 16;
+
+  // handed to a waiting thread when it may open a new connection
+  private static final PoolEntry CAPACITY_AVAILABLE = new PoolEntry(null);
+  // set by a waiting thread that stopped waiting, so that nothing is handed to it anymore
+  private static final PoolEntry CANCELLED = new PoolEntry(null);
+
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this);
+  private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<PoolEntry>> localEntries = ThreadLocal.withInitial(ArrayList::new);
+  private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private volatile int expectedConnectionTypeCode;
+
+  public ConcurrentPooledDataSource() {
+    super();
+    initConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+    initConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+    initConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+    initConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+    initConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+    initConnectionTypeCode();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return popConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public PoolState getPoolState() {
+    return state;
+  }
+
+  /**
+   * Closes all active and idle connections in the pool.
+   */
+  @Override
+  public void forceCloseAll() {
+    initConnectionTypeCode();
+    for (PoolEntry entry : entries) {
+      int previousState = entry.state.getAndSet(STATE_REMOVED);
+      if (previousState == STATE_REMOVED) {
+        continue;
+      }
+      if (previousState == STATE_IDLE) {
+        state.idleCount.decrementAndGet();
+      }
+      PooledConnection owner = entry.owner;
+      if (owner != null) {
+        owner.invalidate();
+      }
+      entries.remove(entry);
+      state.totalConnections.decrementAndGet();
+      close(entry.realConnection);
+      signalCapacity();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    final PoolEntry entry = conn instanceof EntryConnection ? ((EntryConnection) conn).entry : null;
+    if (entry == null || entry.owner != conn || !entry.state.compareAndSet(STATE_IN_USE, STATE_RESERVED)) {
+      // the connection has been claimed as overdue or the pool has been closed
+      discardReturned(conn);
+      return;
+    }
+    if (entry.owner != conn) {
+      // claimed as overdue in the meantime, the entry belongs to the new owner
+      entry.state.set(STATE_IN_USE);
+      discardReturned(conn);
+      return;
+    }
+    if (!conn.isValid()) {
+      discardReturned(conn);
+      remove(entry);
+      return;
+    }
+    final long usageTime = conn.getCheckoutTime();
+    state.checkoutTime.add(usageTime);
+    try {
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      conn.invalidate();
+      remove(entry);
+      throw e;
+    }
+    conn.invalidate();
+    if (state.idleCount.get() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+        && !isExpired(conn)) {
+      entry.lastUsedTimestamp = conn.getLastUsedTimestamp();
+      entry.lastValidatedTimestamp = conn.getLastValidatedTimestamp();
+      entry.owner = null;
+      state.idleCount.incrementAndGet();
+      entry.state.set(STATE_IDLE);
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+      List<PoolEntry> local = localEntries.get();
+      if (local.size() < MAX_LOCAL_ENTRIES) {
+        local.add(entry);
+      }
+      handOff(entry);
+    } else {
+      remove(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    fireConnectionReturned(usageTime);
+  }
+
+  @Override
+  protected void housekeep() {
+    for (PoolEntry entry : entries) {
+      PooledConnection owner = entry.owner;
+      if (owner != null && entry.state.get() == STATE_IN_USE && isLeaked(owner)) {
+        owner.setLeakReported(true);
+        reportLeak(owner);
+      }
+    }
+    int idleCount = state.idleCount.get();
+    for (PoolEntry entry : entries) {
+      if (!entry.state.compareAndSet(STATE_IDLE, STATE_RESERVED)) {
+        continue;
+      }
+      state.idleCount.decrementAndGet();
+      PooledConnection conn = checkout(entry);
+      boolean keep = true;
+      if (isExpired(conn) || (isIdleTimedOut(conn) && idleCount > poolMinimumIdleConnections)) {
+        keep = false;
+        if (log.isDebugEnabled()) {
+          log.debug("Retired idle connection " + conn.getRealHashCode() + ".");
+        }
+      } else if (poolBackgroundValidationEnabled && conn.getTimeElapsedSinceLastValidation() > poolPingConnectionsNotUsedFor) {
+        keep = validateIdleConnection(conn);
+        if (!keep) {
+          state.badConnections.increment();
+        }
+      }
+      conn.invalidate();
+      if (keep) {
+        entry.lastValidatedTimestamp = conn.getLastValidatedTimestamp();
+        entry.owner = null;
+        state.idleCount.incrementAndGet();
+        entry.state.set(STATE_IDLE);
+        handOff(entry);
+      } else {
+        idleCount--;
+        remove(entry);
+      }
+    }
+    fillIdleConnections();
+  }
+
+  private void fillIdleConnections() {
+    int total;
+    while (state.idleCount.get() < Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections)
+        && (total = state.totalConnections.get()) < poolMaximumActiveConnections) {
+      if (!state.totalConnections.compareAndSet(total, total + 1)) {
+        continue;
+      }
+      final PoolEntry entry;
+      try {
+        entry = new PoolEntry(dataSource.getConnection());
+      } catch (SQLException e) {
+        state.totalConnections.decrementAndGet();
+        signalCapacity();
+        log.warn("Could not open an idle connection: " + e.getMessage());
+        return;
+      }
+      state.idleCount.incrementAndGet();
+      entries.add(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + entry.realConnection.hashCode() + ".");
+      }
+      handOff(entry);
+    }
+  }
+
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long t = System.currentTimeMillis();
+    final long startNanos = System.nanoTime();
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      PooledConnection conn = acquire();
+      if (conn == null) {
+        if (!countedWait) {
+          state.waits.increment();
+          countedWait = true;
+        }
+        conn = await();
+        if (conn == null) {
+          continue;
+        }
+      }
+      final PoolEntry entry = ((EntryConnection) conn).entry;
+      try {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          if (poolLeakDetectionThreshold > 0) {
+            conn.setCheckoutStack(new Throwable("Connection borrowed here"));
+          }
+          state.requests.increment();
+          state.requestTime.add(System.currentTimeMillis() - t);
+          fireConnectionBorrowed(System.nanoTime() - startNanos);
+          return conn;
+        }
+      } catch (SQLException | RuntimeException e) {
+        // nobody would ever return the connection, so give its slot back
+        conn.invalidate();
+        remove(entry);
+        throw e;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+      }
+      state.badConnections.increment();
+      localBadConnectionCount++;
+      remove(entry);
+      if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+        if (log.isDebugEnabled()) {
+          log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+        throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+      }
+    }
+  }
+
+  private PooledConnection acquire() throws SQLException {
+    // connections recently returned by this thread
+    final List<PoolEntry> local = localEntries.get();
+    for (int i = local.size() - 1; i >= 0; i--) {
+      PoolEntry entry = local.remove(i);
+      if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+        return checkoutIdle(entry);
+      }
+    }
+    // any idle connection
+    for (PoolEntry entry : entries) {
+      if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+        return checkoutIdle(entry);
+      }
+    }
+    // a new connection
+    int total;
+    while ((total = state.totalConnections.get()) < poolMaximumActiveConnections) {
+      if (state.totalConnections.compareAndSet(total, total + 1)) {
+        return createConnection();
+      }
+    }
+    // an overdue connection
+    for (PoolEntry entry : entries) {
+      PooledConnection owner = entry.owner;
+      if (owner != null && entry.state.get() == STATE_IN_USE && owner.getCheckoutTime() > poolMaximumCheckoutTime
+          && entry.state.compareAndSet(STATE_IN_USE, STATE_RESERVED)) {
+        if (entry.owner != owner) {
+          // returned and borrowed again in the meantime
+          entry.state.set(STATE_IN_USE);
+          continue;
+        }
+        return claimOverdue(entry, owner);
+      }
+    }
+    return null;
+  }
+
+  private PooledConnection await() throws SQLException {
+    final Waiter waiter = new Waiter();
+    state.waitingThreads.incrementAndGet();
+    waiters.add(waiter);
+    boolean received = false;
+    try {
+      // a connection may have been returned before this thread was queued
+      PooledConnection conn = acquire();
+      if (conn != null) {
+        return conn;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+      }
+      long wt = System.currentTimeMillis();
+      PoolEntry entry = waiter.await(poolTimeToWait);
+      long waited = System.currentTimeMillis() - wt;
+      state.waitTime.add(waited);
+      if (entry == null) {
+        fireBorrowTimedOut(waited);
+        return null;
+      }
+      received = true;
+      if (entry != CAPACITY_AVAILABLE && entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+        return checkoutIdle(entry);
+      }
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("ConcurrentPooledDataSource: Interrupted while waiting for a connection.", e);
+    } finally {
+      state.waitingThreads.decrementAndGet();
+      PoolEntry unused = waiter.cancel();
+      if (unused == null) {
+        waiters.remove(waiter);
+      } else if (!received) {
+        // handed to this thread after it stopped waiting, pass it on
+        if (unused == CAPACITY_AVAILABLE) {
+          signalCapacity();
+        } else {
+          handOff(unused);
+        }
+      }
+    }
+  }
+
+  private PooledConnection checkoutIdle(PoolEntry entry) {
+    state.idleCount.decrementAndGet();
+    PooledConnection conn = checkout(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+    }
+    return conn;
+  }
+
+  private PooledConnection createConnection() throws SQLException {
+    final PoolEntry entry;
+    try {
+      entry = new PoolEntry(dataSource.getConnection());
+    } catch (SQLException | RuntimeException e) {
+      state.totalConnections.decrementAndGet();
+      signalCapacity();
+      throw e;
+    }
+    entry.state.set(STATE_IN_USE);
+    entries.add(entry);
+    PooledConnection conn = checkout(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private PooledConnection claimOverdue(PoolEntry entry, PooledConnection oldestActiveConnection) {
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    state.claimedOverdue.increment();
+    state.overdueCheckoutTime.add(longestCheckoutTime);
+    state.checkoutTime.add(longestCheckoutTime);
+    oldestActiveConnection.invalidate();
+    try {
+      if (!entry.realConnection.getAutoCommit()) {
+        entry.realConnection.rollback();
+      }
+    } catch (SQLException e) {
+      // same as PooledDataSource, the new owner finds out when validating the connection
+      log.debug("Bad connection. Could not roll back");
+    }
+    PooledConnection conn = checkout(entry);
+    entry.state.set(STATE_IN_USE);
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private PooledConnection checkout(PoolEntry entry) {
+    EntryConnection conn = new EntryConnection(entry, this);
+    conn.setCreatedTimestamp(entry.createdTimestamp);
+    conn.setLastUsedTimestamp(entry.lastUsedTimestamp);
+    conn.setLastValidatedTimestamp(entry.lastValidatedTimestamp);
+    // stamped before the owner is published, other threads would take it as overdue otherwise
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    entry.owner = conn;
+    return conn;
+  }
+
+  private void discardReturned(PooledConnection conn) {
+    if (log.isDebugEnabled()) {
+      log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+    }
+    state.badConnections.increment();
+  }
+
+  private void remove(PoolEntry entry) {
+    if (entry.state.getAndSet(STATE_REMOVED) == STATE_REMOVED) {
+      return;
+    }
+    entry.owner = null;
+    entries.remove(entry);
+    state.totalConnections.decrementAndGet();
+    close(entry.realConnection);
+    signalCapacity();
+  }
+
+  private void close(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private void handOff(PoolEntry entry) {
+    if (entry.state.get() == STATE_IDLE) {
+      offer(entry);
+    }
+  }
+
+  private void signalCapacity() {
+    if (state.totalConnections.get() < poolMaximumActiveConnections) {
+      offer(CAPACITY_AVAILABLE);
+    }
+  }
+
+  private void offer(PoolEntry entry) {
+    Waiter waiter;
+    while ((waiter = waiters.poll()) != null) {
+      if (waiter.hand(entry)) {
+        return;
+      }
+    }
+  }
+
+  private void initConnectionTypeCode() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  private int assembleConnectionTypeCode(String url, String username, String password) {
+    return ("" + url + username + password).hashCode();
+  }
+
+  private static class PoolEntry {
+    private final Connection realConnection;
+    private final AtomicInteger state = new AtomicInteger(STATE_IDLE);
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+    private volatile long lastValidatedTimestamp;
+    private volatile PooledConnection owner;
+
+    PoolEntry(Connection realConnection) {
+      this.realConnection = realConnection;
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+  }
+
+  /**
+   * A thread waiting for a connection, parked until an entry is handed to it.
+   */
+  private static class Waiter {
+    private final Thread thread = Thread.currentThread();
+    private final AtomicReference<PoolEntry> handed = new AtomicReference<>();
+
+    boolean hand(PoolEntry entry) {
+      if (handed.compareAndSet(null, entry)) {
+        LockSupport.unpark(thread);
+        return true;
+      }
+      return false;
+    }
+
+    PoolEntry await(long timeout) throws InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      PoolEntry entry;
+      while ((entry = handed.get()) == null) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        if (timeout > 0) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return null;
+          }
+          LockSupport.parkNanos(this, remaining);
+        } else {
+          LockSupport.park(this);
+        }
+      }
+      return entry;
+    }
+
+    /**
+     * Stops waiting.
+     *
+     * @return the entry handed to this thread, or {@code null} if none was
+     */
+    PoolEntry cancel() {
+      return handed.compareAndSet(null, CANCELLED) ? null : handed.get();
+    }
+  }
+
+  private static class EntryConnection extends PooledConnection {
+    private final PoolEntry entry;
+
+    EntryConnection(PoolEntry entry, ConcurrentPooledDataSource dataSource) {
+      super(entry.realConnection, dataSource);
+      this.entry = entry;
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the events of a {@link PooledDataSource}, e.g. to publish them to a metrics system.
+ * <p>
+ * Listeners are called on the thread that borrows or returns the connection, outside of any pool lock, and must
+ * therefore be fast and thread-safe. Exceptions thrown by a listener are logged and otherwise ignored.
+ *
+ * @since 3.5.5
+ * @see PooledDataSource#addPoolListener(PoolListener)
+ */
+public interface PoolListener {
+
+  /**
+   * A connection has been handed to a caller.
+   *
+   * @param borrowNanos
+   *          the time the caller spent in {@code getConnection}, in nanoseconds
+   */
+  default void connectionBorrowed(long borrowNanos) {
+  }
+
+  /**
+   * A connection has been returned to the pool.
+   *
+   * @param usageMillis
+   *          the time the connection was checked out, in milliseconds
+   */
+  default void connectionReturned(long usageMillis) {
+  }
+
+  /**
+   * A caller has waited {@code poolTimeToWait} without getting a connection and tries again.
+   *
+   * @param waitMillis
+   *          the time the caller waited, in milliseconds
+   */
+  default void borrowTimedOut(long waitMillis) {
+  }
+
+  /**
+   * A connection has been checked out for longer than {@code poolLeakDetectionThreshold}. It is reported once per
+   * checkout.
+   *
+   * @param checkoutMillis
+   *          the time the connection has been checked out, in milliseconds
+   * @param checkoutStack
+   *          the stack of the thread that borrowed the connection
+   */
+  default void leakDetected(long checkoutMillis, Throwable checkoutStack) {
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a {@link PooledDataSource}: borrow and usage time histograms, connection gauges and timeout and leak
+ * counters. Recording does not lock, so the metrics are always on.
+ *
+ * @since 3.5.5
+ * @see PooledDataSource#getPoolMetrics()
+ */
+public class PoolMetrics implements PoolListener {
+
+  private final PooledDataSource dataSource;
+  private final Histogram borrowTime = new Histogram(TimeUnit.MICROSECONDS);
+  private final Histogram usageTime = new Histogram(TimeUnit.MILLISECONDS);
+  private final LongAdder timeoutCount = new LongAdder();
+  private final LongAdder leakCount = new LongAdder();
+
+  public PoolMetrics(PooledDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void connectionBorrowed(long borrowNanos) {
+    borrowTime.record(TimeUnit.NANOSECONDS.toMicros(borrowNanos));
+  }
+
+  @Override
+  public void connectionReturned(long usageMillis) {
+    usageTime.record(usageMillis);
+  }
+
+  @Override
+  public void borrowTimedOut(long waitMillis) {
+    timeoutCount.increment();
+  }
+
+  @Override
+  public void leakDetected(long checkoutMillis, Throwable checkoutStack) {
+    leakCount.increment();
+  }
+
+  /**
+   * Gets the time callers spent in {@code getConnection}, in microseconds.
+   *
+   * @return the borrow time histogram
+   */
+  public Histogram getBorrowTime() {
+    return borrowTime;
+  }
+
+  /**
+   * Gets the time connections were checked out, in milliseconds.
+   *
+   * @return the usage time histogram
+   */
+  public Histogram getUsageTime() {
+    return usageTime;
+  }
+
+  public long getTimeoutCount() {
+    return timeoutCount.sum();
+  }
+
+  public long getLeakCount() {
+    return leakCount.sum();
+  }
+
+  public int getActiveConnectionCount() {
+    return dataSource.getPoolState().getActiveConnectionCount();
+  }
+
+  public int getIdleConnectionCount() {
+    return dataSource.getPoolState().getIdleConnectionCount();
+  }
+
+  public int getWaitingThreadCount() {
+    return dataSource.getPoolState().getWaitingThreadCount();
+  }
+
+  @Override
+  public String toString() {
+    return "PoolMetrics[active=" + getActiveConnectionCount() + ", idle=" + getIdleConnectionCount()
+        + ", waiting=" + getWaitingThreadCount() + ", timeouts=" + getTimeoutCount() + ", leaks=" + getLeakCount()
+        + ", borrowTime=" + borrowTime + ", usageTime=" + usageTime + "]";
+  }
+
+  /**
+   * A histogram with power of two buckets: bucket {@code i} counts the values in {@code [2^(i-1), 2^i)}, bucket 0
+   * counts zeros.
+   */
+  public static class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final TimeUnit unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram(TimeUnit unit) {
+      this.unit = unit;
+    }
+
+    public void record(long value) {
+      long v = Math.max(0, value);
+      buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(v));
+      count.increment();
+      sum.add(v);
+      max.accumulate(v);
+    }
+
+    public TimeUnit getUnit() {
+      return unit;
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getSum() {
+      return sum.sum();
+    }
+
+    public long getMax() {
+      return max.get();
+    }
+
+    public double getMean() {
+      long n = count.sum();
+      return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Gets an upper bound of the given percentile, i.e. the upper bound of the bucket it falls into.
+     *
+     * @param percentile
+     *          the percentile, between 0 and 100
+     * @return the upper bound of the percentile
+     */
+    public long getPercentile(double percentile) {
+      long[] counts = getBucketCounts();
+      long total = 0;
+      for (long c : counts) {
+        total += c;
+      }
+      if (total == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= Math.max(1, rank)) {
+          return Math.min(getMax(), i == 0 ? 0 : (1L << i) - 1);
+        }
+      }
+      return getMax();
+    }
+
+    public long[] getBucketCounts() {
+      long[] counts = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = buckets.get(i);
+      }
+      return counts;
+    }
+
+    @Override
+    public String toString() {
+      return "[count=" + getCount() + ", mean=" + (long) getMean() + ", p50=" + getPercentile(50) + ", p99="
+          + getPercentile(99) + ", max=" + getMax() + " " + unit.name().toLowerCase(Locale.ENGLISH) + "]";
+    }
+  }
+
+}
@@ -38,6 +38,9 @@ class PooledConnection implements InvocationHandler {
   private long checkoutTimestamp;
   private long createdTimestamp;
   private long lastUsedTimestamp;
+  private long lastValidatedTimestamp;
+  private volatile Throwable checkoutStack;
+  private volatile boolean leakReported;
   private int connectionTypeCode;
   private boolean valid;
 
@@ -159,6 +162,37 @@ class PooledConnection implements InvocationHandler {
     this.lastUsedTimestamp = lastUsedTimestamp;
   }
 
+  /**
+   * Getter for the time that the connection was last validated in the background.
+   *
+   * @return - the timestamp
+   * @since 3.5.5
+   */
+  public long getLastValidatedTimestamp() {
+    return lastValidatedTimestamp;
+  }
+
+  /**
+   * Setter for the time that the connection was last validated in the background.
+   *
+   * @param lastValidatedTimestamp
+   *          - the timestamp
+   * @since 3.5.5
+   */
+  public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+    this.lastValidatedTimestamp = lastValidatedTimestamp;
+  }
+
+  /**
+   * Getter for the time since this connection was last used or validated.
+   *
+   * @return - the time since the last use or validation
+   * @since 3.5.5
+   */
+  public long getTimeElapsedSinceLastValidation() {
+    return System.currentTimeMillis() - Math.max(lastUsedTimestamp, lastValidatedTimestamp);
+  }
+
   /**
    * Getter for the time since this connection was last used.
    *
@@ -196,6 +230,48 @@ class PooledConnection implements InvocationHandler {
     this.checkoutTimestamp = timestamp;
   }
 
+  /**
+   * Getter for the stack of the thread that checked out this connection, recorded when leak detection is enabled.
+   *
+   * @return the stack or null
+   * @since 3.5.5
+   */
+  public Throwable getCheckoutStack() {
+    return checkoutStack;
+  }
+
+  /**
+   * Setter for the stack of the thread that checked out this connection.
+   *
+   * @param checkoutStack
+   *          the stack
+   * @since 3.5.5
+   */
+  public void setCheckoutStack(Throwable checkoutStack) {
+    this.checkoutStack = checkoutStack;
+  }
+
+  /**
+   * Getter for whether this checkout has been reported as a possible leak.
+   *
+   * @return True if reported
+   * @since 3.5.5
+   */
+  public boolean isLeakReported() {
+    return leakReported;
+  }
+
+  /**
+   * Setter for whether this checkout has been reported as a possible leak.
+   *
+   * @param leakReported
+   *          True if reported
+   * @since 3.5.5
+   */
+  public void setLeakReported(boolean leakReported) {
+    this.leakReported = leakReported;
+  }
+
   /**
    * Getter for the time that this connection has been checked out.
    *
@@ -16,13 +16,22 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -40,21 +49,37 @@ public class PooledDataSource implements DataSource {
 
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
+  private static final ScheduledThreadPoolExecutor housekeeper = createHousekeeper();
+
   private final PoolState state = new PoolState(this);
+  private final PoolMetrics metrics = new PoolMetrics(this);
+  private final List<PoolListener> listeners = new CopyOnWriteArrayList<>();
 
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
-  protected int poolMaximumActiveConnections = 10;
-  protected int poolMaximumIdleConnections = 5;
-  protected int poolMaximumCheckoutTime = 20000;
-  protected int poolTimeToWait = 20000;
-  protected int poolMaximumLocalBadConnectionTolerance = 3;
-  protected String poolPingQuery = "NO PING QUERY SET";
-  protected boolean poolPingEnabled;
-  protected int poolPingConnectionsNotUsedFor;
+  // volatile because the housekeeping thread reads them without holding the state lock
+  protected volatile int poolMaximumActiveConnections = 10;
+  protected volatile int poolMaximumIdleConnections = 5;
+  protected volatile int poolMaximumCheckoutTime = 20000;
+  protected volatile int poolTimeToWait = 20000;
+  protected volatile int poolMaximumLocalBadConnectionTolerance = 3;
+  protected volatile String poolPingQuery = "NO PING QUERY SET";
+  protected volatile boolean poolPingEnabled;
+  protected volatile int poolPingConnectionsNotUsedFor;
+  protected volatile int poolHousekeepingPeriod = 30000;
+  protected volatile boolean poolBackgroundValidationEnabled;
+  protected volatile int poolMaximumLifetime;
+  protected volatile int poolIdleTimeout;
+  protected volatile int poolMinimumIdleConnections;
+  protected volatile int poolLeakDetectionThreshold;
 
   private int expectedConnectionTypeCode;
+  // idle connections taken out of the pool by the housekeeper, guarded by state
+  private int housekeepingConnectionCount;
+  // incremented by forceCloseAll so that the housekeeper drops the connections it holds, guarded by state
+  private int closeAllCount;
+  private HousekeepingTask housekeepingTask;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -254,6 +279,117 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * How often the housekeeper validates, retires and pre-fills idle connections. The housekeeper only runs when
+   * background validation, a maximum lifetime, an idle timeout or a minimum number of idle connections is set.
+   *
+   * @param milliseconds
+   *          the number of milliseconds between two housekeeping runs
+   * @since 3.5.5
+   */
+  public void setPoolHousekeepingPeriod(int milliseconds) {
+    this.poolHousekeepingPeriod = milliseconds;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * Determines if idle connections are validated by the housekeeper instead of the borrowing thread. Idle
+   * connections not used for {@link #setPoolPingConnectionsNotUsedFor(int) poolPingConnectionsNotUsedFor} are
+   * pinged in the background, so that borrowing them does not ping them again.
+   *
+   * @param poolBackgroundValidationEnabled
+   *          True if idle connections should be validated in the background
+   * @since 3.5.5
+   */
+  public void setPoolBackgroundValidationEnabled(boolean poolBackgroundValidationEnabled) {
+    this.poolBackgroundValidationEnabled = poolBackgroundValidationEnabled;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * The maximum time a connection is kept by the pool. Older connections are closed when they are idle or returned.
+   *
+   * @param milliseconds
+   *          the maximum age of a connection, 0 to keep connections forever
+   * @since 3.5.5
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * The time after which an unused idle connection is closed, as long as there are more idle connections than
+   * {@link #setPoolMinimumIdleConnections(int) poolMinimumIdleConnections}.
+   *
+   * @param milliseconds
+   *          the idle timeout, 0 to keep idle connections forever
+   * @since 3.5.5
+   */
+  public void setPoolIdleTimeout(int milliseconds) {
+    this.poolIdleTimeout = milliseconds;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * The number of idle connections the housekeeper opens in advance, within the limits of the maximum number of
+   * active and idle connections.
+   *
+   * @param poolMinimumIdleConnections
+   *          The minimum number of idle connections
+   * @since 3.5.5
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * The time a connection can be checked out before it is reported as a possible leak, together with the stack of
+   * the thread that borrowed it. Recording the stack makes borrowing more expensive, so this is meant for
+   * diagnosis.
+   *
+   * @param milliseconds
+   *          the leak detection threshold, 0 to disable leak detection
+   * @since 3.5.5
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * Adds a listener to be notified of borrowed and returned connections, timeouts and leaks.
+   *
+   * @param listener
+   *          the listener
+   * @since 3.5.5
+   */
+  public void addPoolListener(PoolListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener added with {@link #addPoolListener(PoolListener)}.
+   *
+   * @param listener
+   *          the listener
+   * @since 3.5.5
+   */
+  public void removePoolListener(PoolListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Gets the metrics of this pool.
+   *
+   * @return the pool metrics
+   * @since 3.5.5
+   */
+  public PoolMetrics getPoolMetrics() {
+    return metrics;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -324,12 +460,38 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolHousekeepingPeriod() {
+    return poolHousekeepingPeriod;
+  }
+
+  public boolean isPoolBackgroundValidationEnabled() {
+    return poolBackgroundValidationEnabled;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  public int getPoolIdleTimeout() {
+    return poolIdleTimeout;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    state.lock.lock();
+    try {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+      closeAllCount++;
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
@@ -358,6 +520,8 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+    } finally {
+      state.lock.unlock();
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -373,12 +537,15 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
-
-    synchronized (state) {
+    long usageTime = -1;
+    state.lock.lock();
+    try {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+        usageTime = conn.getCheckoutTime();
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isExpired(conn)) {
+          state.accumulatedCheckoutTime += usageTime;
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -386,13 +553,14 @@ public class PooledDataSource implements DataSource {
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
           conn.invalidate();
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          state.notifyAll();
+          state.connectionAvailable.signalAll();
         } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.accumulatedCheckoutTime += usageTime;
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -408,6 +576,11 @@ public class PooledDataSource implements DataSource {
         }
         state.badConnectionCount++;
       }
+    } finally {
+      state.lock.unlock();
+    }
+    if (usageTime >= 0) {
+      fireConnectionReturned(usageTime);
     }
   }
 
@@ -415,10 +588,13 @@ public class PooledDataSource implements DataSource {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    final long startNanos = System.nanoTime();
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      synchronized (state) {
+      long timedOutWait = -1;
+      state.lock.lock();
+      try {
         if (!state.idleConnections.isEmpty()) {
           // Pool has available connection
           conn = state.idleConnections.remove(0);
@@ -427,7 +603,7 @@ public class PooledDataSource implements DataSource {
           }
         } else {
           // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
+          if (state.activeConnections.size() + housekeepingConnectionCount < poolMaximumActiveConnections) {
             // Can create new connection
             conn = new PooledConnection(dataSource.getConnection(), this);
             if (log.isDebugEnabled()) {
@@ -461,6 +637,7 @@ public class PooledDataSource implements DataSource {
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+              conn.setLastValidatedTimestamp(oldestActiveConnection.getLastValidatedTimestamp());
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
@@ -476,8 +653,21 @@ public class PooledDataSource implements DataSource {
                   log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
                 }
                 long wt = System.currentTimeMillis();
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                state.waitingThreadCount++;
+                try {
+                  if (poolTimeToWait > 0) {
+                    state.connectionAvailable.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+                  } else {
+                    state.connectionAvailable.await();
+                  }
+                } finally {
+                  state.waitingThreadCount--;
+                }
+                long waited = System.currentTimeMillis() - wt;
+                state.accumulatedWaitTime += waited;
+                if (poolTimeToWait > 0 && waited >= poolTimeToWait) {
+                  timedOutWait = waited;
+                }
               } catch (InterruptedException e) {
                 break;
               }
@@ -493,6 +683,9 @@ public class PooledDataSource implements DataSource {
             conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
+            if (poolLeakDetectionThreshold > 0) {
+              conn.setCheckoutStack(new Throwable("Connection borrowed here"));
+            }
             state.activeConnections.add(conn);
             state.requestCount++;
             state.accumulatedRequestTime += System.currentTimeMillis() - t;
@@ -511,8 +704,12 @@ public class PooledDataSource implements DataSource {
             }
           }
         }
+      } finally {
+        state.lock.unlock();
+      }
+      if (timedOutWait >= 0) {
+        fireBorrowTimedOut(timedOutWait);
       }
-
     }
 
     if (conn == null) {
@@ -522,6 +719,7 @@ public class PooledDataSource implements DataSource {
       throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
     }
 
+    fireConnectionBorrowed(System.nanoTime() - startNanos);
     return conn;
   }
 
@@ -545,36 +743,344 @@ public class PooledDataSource implements DataSource {
     }
 
     if (result && poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
-        && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+        && conn.getTimeElapsedSinceLastValidation() > poolPingConnectionsNotUsedFor) {
+      result = executePingQuery(conn);
+    }
+    return result;
+  }
+
+  private boolean executePingQuery(PooledConnection conn) {
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+      }
+      Connection realConn = conn.getRealConnection();
+      try (Statement statement = realConn.createStatement()) {
+        statement.executeQuery(poolPingQuery).close();
+      }
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+      }
+      return true;
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
       try {
-        if (log.isDebugEnabled()) {
-          log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+        conn.getRealConnection().close();
+      } catch (Exception e2) {
+        // ignore
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Validates an idle connection on behalf of the housekeeper, regardless of when it was last used.
+   *
+   * @param conn
+   *          - the connection to check
+   * @return True if the connection is still usable
+   * @since 3.5.5
+   */
+  protected boolean validateIdleConnection(PooledConnection conn) {
+    boolean result;
+    try {
+      result = !conn.getRealConnection().isClosed();
+    } catch (SQLException e) {
+      result = false;
+    }
+    if (result && poolPingEnabled) {
+      result = executePingQuery(conn);
+    }
+    if (result) {
+      conn.setLastValidatedTimestamp(System.currentTimeMillis());
+    }
+    return result;
+  }
+
+  /**
+   * Checks if a connection has outlived the maximum lifetime.
+   *
+   * @param conn
+   *          - the connection to check
+   * @return True if the connection must be retired
+   * @since 3.5.5
+   */
+  protected boolean isExpired(PooledConnection conn) {
+    return poolMaximumLifetime > 0 && conn.getAge() > poolMaximumLifetime;
+  }
+
+  /**
+   * Checks if an idle connection has been unused for longer than the idle timeout.
+   *
+   * @param conn
+   *          - the connection to check
+   * @return True if the connection may be retired
+   * @since 3.5.5
+   */
+  protected boolean isIdleTimedOut(PooledConnection conn) {
+    return poolIdleTimeout > 0 && conn.getTimeElapsedSinceLastUse() > poolIdleTimeout;
+  }
+
+  protected boolean isHousekeepingEnabled() {
+    return poolBackgroundValidationEnabled || poolMaximumLifetime > 0 || poolIdleTimeout > 0 || poolMinimumIdleConnections > 0
+        || poolLeakDetectionThreshold > 0;
+  }
+
+  private synchronized void scheduleHousekeeping() {
+    if (housekeepingTask != null) {
+      housekeepingTask.cancel();
+      housekeepingTask = null;
+    }
+    if (isHousekeepingEnabled() && poolHousekeepingPeriod > 0) {
+      housekeepingTask = new HousekeepingTask(this);
+      housekeepingTask.future = housekeeper.scheduleWithFixedDelay(housekeepingTask, 0, poolHousekeepingPeriod, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Validates, retires and pre-fills idle connections. Runs on the housekeeping thread, but can be called directly.
+   *
+   * @since 3.5.5
+   */
+  protected void housekeep() {
+    detectLeaks();
+    final List<PooledConnection> retired = new ArrayList<>();
+    final List<PooledConnection> toValidate = new ArrayList<>();
+    final int closeAllCountAtStart;
+    state.lock.lock();
+    try {
+      closeAllCountAtStart = closeAllCount;
+      int idleCount = state.idleConnections.size();
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (isExpired(conn) || (isIdleTimedOut(conn) && idleCount > poolMinimumIdleConnections)) {
+          it.remove();
+          idleCount--;
+          retired.add(conn);
+        } else if (poolBackgroundValidationEnabled && conn.getTimeElapsedSinceLastValidation() > poolPingConnectionsNotUsedFor) {
+          it.remove();
+          toValidate.add(conn);
         }
-        Connection realConn = conn.getRealConnection();
-        try (Statement statement = realConn.createStatement()) {
-          statement.executeQuery(poolPingQuery).close();
+      }
+      housekeepingConnectionCount += toValidate.size();
+    } finally {
+      state.lock.unlock();
+    }
+    for (PooledConnection conn : retired) {
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+      if (log.isDebugEnabled()) {
+        log.debug("Retired idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    for (PooledConnection conn : toValidate) {
+      boolean valid = validateIdleConnection(conn);
+      state.lock.lock();
+      try {
+        housekeepingConnectionCount--;
+        // connections validated across a forceCloseAll may use the old settings
+        if (valid && closeAllCountAtStart == closeAllCount && state.idleConnections.size() < poolMaximumIdleConnections) {
+          state.idleConnections.add(conn);
+          state.connectionAvailable.signalAll();
+          continue;
         }
-        if (!realConn.getAutoCommit()) {
-          realConn.rollback();
+        if (!valid) {
+          state.badConnectionCount++;
         }
-        result = true;
-        if (log.isDebugEnabled()) {
-          log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+      } finally {
+        state.lock.unlock();
+      }
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+    }
+    fillIdleConnections();
+  }
+
+  private void detectLeaks() {
+    if (poolLeakDetectionThreshold <= 0) {
+      return;
+    }
+    final List<PooledConnection> leaked = new ArrayList<>();
+    state.lock.lock();
+    try {
+      for (PooledConnection conn : state.activeConnections) {
+        if (isLeaked(conn)) {
+          conn.setLeakReported(true);
+          leaked.add(conn);
         }
-      } catch (Exception e) {
-        log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-        try {
-          conn.getRealConnection().close();
-        } catch (Exception e2) {
-          // ignore
+      }
+    } finally {
+      state.lock.unlock();
+    }
+    for (PooledConnection conn : leaked) {
+      reportLeak(conn);
+    }
+  }
+
+  boolean isLeaked(PooledConnection conn) {
+    return poolLeakDetectionThreshold > 0 && conn.getCheckoutStack() != null && !conn.isLeakReported()
+        && conn.getCheckoutTime() > poolLeakDetectionThreshold;
+  }
+
+  void reportLeak(PooledConnection conn) {
+    long checkoutTime = conn.getCheckoutTime();
+    StringWriter stack = new StringWriter();
+    conn.getCheckoutStack().printStackTrace(new PrintWriter(stack));
+    log.warn("Connection " + conn.getRealHashCode() + " has been checked out for " + checkoutTime
+        + " milliseconds, it may have leaked. " + stack);
+    fireLeakDetected(checkoutTime, conn.getCheckoutStack());
+  }
+
+  void fireConnectionBorrowed(long borrowNanos) {
+    metrics.connectionBorrowed(borrowNanos);
+    for (PoolListener listener : listeners) {
+      try {
+        listener.connectionBorrowed(borrowNanos);
+      } catch (RuntimeException e) {
+        log.warn("Pool listener failed: " + e);
+      }
+    }
+  }
+
+  void fireConnectionReturned(long usageMillis) {
+    metrics.connectionReturned(usageMillis);
+    for (PoolListener listener : listeners) {
+      try {
+        listener.connectionReturned(usageMillis);
+      } catch (RuntimeException e) {
+        log.warn("Pool listener failed: " + e);
+      }
+    }
+  }
+
+  void fireBorrowTimedOut(long waitMillis) {
+    metrics.borrowTimedOut(waitMillis);
+    for (PoolListener listener : listeners) {
+      try {
+        listener.borrowTimedOut(waitMillis);
+      } catch (RuntimeException e) {
+        log.warn("Pool listener failed: " + e);
+      }
+    }
+  }
+
+  void fireLeakDetected(long checkoutMillis, Throwable checkoutStack) {
+    metrics.leakDetected(checkoutMillis, checkoutStack);
+    for (PoolListener listener : listeners) {
+      try {
+        listener.leakDetected(checkoutMillis, checkoutStack);
+      } catch (RuntimeException e) {
+        log.warn("Pool listener failed: " + e);
+      }
+    }
+  }
+
+  private void fillIdleConnections() {
+    while (true) {
+      final int closeAllCountAtStart;
+      state.lock.lock();
+      try {
+        closeAllCountAtStart = closeAllCount;
+        if (state.idleConnections.size() >= Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections)
+            || state.activeConnections.size() + state.idleConnections.size() + housekeepingConnectionCount >= poolMaximumActiveConnections) {
+          return;
         }
-        result = false;
-        if (log.isDebugEnabled()) {
-          log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+        housekeepingConnectionCount++;
+      } finally {
+        state.lock.unlock();
+      }
+      PooledConnection conn = null;
+      try {
+        conn = new PooledConnection(dataSource.getConnection(), this);
+      } catch (SQLException e) {
+        log.warn("Could not open an idle connection: " + e.getMessage());
+      }
+      final boolean stale;
+      state.lock.lock();
+      try {
+        housekeepingConnectionCount--;
+        if (conn == null) {
+          return;
+        }
+        // opened across a forceCloseAll, possibly with the old settings
+        stale = closeAllCountAtStart != closeAllCount;
+        if (!stale) {
+          conn.setConnectionTypeCode(expectedConnectionTypeCode);
+          state.idleConnections.add(conn);
+          state.connectionAvailable.signalAll();
         }
+      } finally {
+        state.lock.unlock();
+      }
+      if (stale) {
+        conn.invalidate();
+        closeQuietly(conn.getRealConnection());
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  private void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private static ScheduledThreadPoolExecutor createHousekeeper() {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
+  }
+
+  /**
+   * Does not keep the data source reachable, so that a discarded pool stops being housekept.
+   */
+  private static class HousekeepingTask implements Runnable {
+    private final WeakReference<PooledDataSource> dataSource;
+    private volatile ScheduledFuture<?> future;
+
+    HousekeepingTask(PooledDataSource dataSource) {
+      this.dataSource = new WeakReference<>(dataSource);
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource pool = dataSource.get();
+      if (pool == null) {
+        cancel();
+        return;
+      }
+      try {
+        pool.housekeep();
+      } catch (RuntimeException e) {
+        log.warn("Pool housekeeping failed: " + e.getMessage());
+      }
+    }
+
+    void cancel() {
+      ScheduledFuture<?> scheduled = future;
+      if (scheduled != null) {
+        scheduled.cancel(false);
       }
     }
-    return result;
   }
 
   /**
@@ -596,6 +1102,11 @@ public class PooledDataSource implements DataSource {
 
   @Override
   protected void finalize() throws Throwable {
+    synchronized (this) {
+      if (housekeepingTask != null) {
+        housekeepingTask.cancel();
+      }
+    }
     forceCloseAll();
     super.finalize();
   }
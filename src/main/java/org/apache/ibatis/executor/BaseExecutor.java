@@ -231,8 +231,9 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    //创建 CacheKey 对象
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    //创建 CacheKey 对象, 大小为 id、offset、limit、sql、实参以及 Environment 的 id
+    CacheKey cacheKey = new CacheKey(5 + parameterMappings.size());
     //下面这四个组成key
 
     //将 MappedStatement 的 id 添加到 Cache Key 对象 中
@@ -245,7 +246,6 @@ public abstract class BaseExecutor implements Executor {
     //将 SQL语句添加到 CacheKey 对象中
     cacheKey.update(boundSql.getSql());
 
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     //获取用户传入的实参，并添加 .f1J CacheKey 对象中
@@ -44,11 +44,16 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  // results of batches flushed because a limit was reached, returned by the next flushStatements()
+  private final List<BatchResult> executedResultList = new ArrayList<>();
   private String currentSql;
   private MappedStatement currentStatement;
+  private int pendingParameterCount;
+  private final BatchResultHandler batchResultHandler;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.batchResultHandler = configuration.getBatchResultHandler();
   }
 
   @Override
@@ -58,12 +63,13 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
+    final BatchResult batchResult;
     if (sql.equals(currentSql) && ms.equals(currentStatement)) {
       int last = statementList.size() - 1;
       stmt = statementList.get(last);
       applyTransactionTimeout(stmt);
       handler.parameterize(stmt);// fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+      batchResult = batchResultList.get(last);
       batchResult.addParameterObject(parameterObject);
     } else {
       Connection connection = getConnection(ms.getStatementLog());
@@ -72,12 +78,26 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
     }
     handler.batch(stmt);
+    pendingParameterCount += Math.max(1, boundSql.getParameterMappings().size());
+    if (isBatchLimitReached(ms, batchResult)) {
+      executeBatches(executedResultList);
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private boolean isBatchLimitReached(MappedStatement ms, BatchResult batchResult) {
+    Integer batchSize = ms.getBatchSize() != null ? ms.getBatchSize() : configuration.getDefaultBatchSize();
+    if (batchSize != null && batchSize > 0 && batchResult.getParameterObjects().size() >= batchSize) {
+      return true;
+    }
+    Integer maxParameterCount = configuration.getMaxBatchParameterCount();
+    return maxParameterCount != null && maxParameterCount > 0 && pendingParameterCount >= maxParameterCount;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -111,10 +131,24 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
+        closeStatements();
         return Collections.emptyList();
       }
+      List<BatchResult> results = new ArrayList<>(executedResultList);
+      executeBatches(results);
+      return results;
+    } finally {
+      executedResultList.clear();
+    }
+  }
+
+  /**
+   * Executes the pending batches in the order they were added and adds their results to the given list, or passes
+   * them to the {@link BatchResultHandler} if one is set.
+   */
+  private void executeBatches(List<BatchResult> results) throws SQLException {
+    try {
       for (int i = 0, n = statementList.size(); i < n; i++) {
         Statement stmt = statementList.get(i);
         applyTransactionTimeout(stmt);
@@ -146,19 +180,27 @@ public class BatchExecutor extends BaseExecutor {
                 .append(i)
                 .append(" prior sub executor(s) completed successfully, but will be rolled back.");
           }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+          throw new BatchExecutorException(message.toString(), e, new ArrayList<>(results), batchResult);
+        }
+        if (batchResultHandler != null) {
+          batchResultHandler.handleBatchResult(batchResult);
+        } else {
+          results.add(batchResult);
         }
-        results.add(batchResult);
       }
-      return results;
     } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
-      }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      closeStatements();
+    }
+  }
+
+  private void closeStatements() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
     }
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
+    pendingParameterCount = 0;
   }
 
 }
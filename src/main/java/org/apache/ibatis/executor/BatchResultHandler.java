@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Receives the result of each batch executed by a {@link BatchExecutor}. When a handler is set, results are passed to
+ * it as soon as their batch has been executed and are not returned by {@link Executor#flushStatements()}, so that long
+ * running batch jobs do not retain them.
+ * <p>
+ * The handler is set for all batch executors with {@link org.apache.ibatis.session.Configuration#setBatchResultHandler}
+ * and is shared by the sessions using them, so it must be thread safe when sessions run concurrently.
+ *
+ * @since 3.5.5
+ */
+@FunctionalInterface
+public interface BatchResultHandler {
+
+  void handleBatchResult(BatchResult batchResult);
+
+}
@@ -16,18 +16,27 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStatistics;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.invalidation.InvalidationBus;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlTables;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -42,6 +51,12 @@ public class CachingExecutor implements Executor {
 
   private final Executor delegate;
   private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  // tables written by the current transaction when entries are invalidated by table
+  private final Set<String> writtenTables = new HashSet<>();
+  private boolean unknownTablesWritten;
+  private TableVersions tableVersions;
+  // bus to publish the invalidations of the current transaction to, if any
+  private InvalidationBus invalidationBus;
 
   public CachingExecutor(Executor delegate) {
     this.delegate = delegate;
@@ -59,8 +74,9 @@ public class CachingExecutor implements Executor {
       // issues #499, #524 and #573
       if (forceRollback) {
         tcm.rollback();
+        resetWrittenTables();
       } else {
-        tcm.commit();
+        commitCaches();
       }
     } finally {
       delegate.close(forceRollback);
@@ -74,7 +90,12 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    if (ms.isFlushCacheRequired() && isInvalidatedByTable(ms)) {
+      // applies to the caches of every namespace, so the statement does not need a cache of its own
+      addWrittenTables(ms.getConfiguration(), SqlTables.writtenTables(ms, parameterObject));
+    } else {
+      flushCacheIfRequired(ms);
+    }
     return delegate.update(ms, parameterObject);
   }
 
@@ -100,18 +121,62 @@ public class CachingExecutor implements Executor {
       flushCacheIfRequired(ms);
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, boundSql);
-        @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
-        if (list == null) {
-          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+        CacheKey cacheKey = key;
+        if (isInvalidatedByTable(ms)) {
+          Set<String> tables = SqlTables.readTables(ms, boundSql);
+          if (isWritten(tables)) {
+            // the cache does not reflect the writes of this transaction yet
+            return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          }
+          cacheKey = withTableVersions(ms.getConfiguration(), key, tables);
         }
-        return list;
+        return queryCache(cache, cacheKey, ms, parameterObject, rowBounds, key, boundSql);
       }
     }
     return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  private <E> List<E> queryCache(Cache cache, CacheKey cacheKey, MappedStatement ms, Object parameterObject,
+      RowBounds rowBounds, CacheKey key, BoundSql boundSql) throws SQLException {
+    @SuppressWarnings("unchecked")
+    List<E> list = (List<E>) tcm.getObject(cache, cacheKey);
+    if (list == null) {
+      long start = System.nanoTime();
+      try {
+        list = delegate.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+      } catch (SQLException | RuntimeException e) {
+        @SuppressWarnings("unchecked")
+        List<E> stale = ScheduledCache.readStale(() -> (List<E>) tcm.getObject(cache, cacheKey));
+        if (stale == null) {
+          throw e;
+        }
+        return stale;
+      }
+      CacheStatistics statistics = ms.getConfiguration().getCacheStatistics().getStatistics(cache.getId());
+      if (statistics != null) {
+        statistics.recordLoad(System.nanoTime() - start);
+      }
+      tcm.putObject(cache, cacheKey, list); // issue #578 and #116
+      ms.getConfiguration().getQueryRefresher().register(ms, parameterObject, rowBounds, cacheKey);
+    }
+    return list;
+  }
+
+  /**
+   * Returns the key of a second level cache entry when entries are invalidated by table: the key of the query
+   * followed by the versions of the tables it reads.
+   */
+  static CacheKey withTableVersions(Configuration configuration, CacheKey key, Set<String> tables) {
+    CacheKey cacheKey;
+    try {
+      cacheKey = key.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new ExecutorException("Could not copy cache key. Cause: " + e, e);
+    }
+    configuration.getTableVersions().appendTo(cacheKey, tables);
+    return cacheKey;
+  }
+
   @Override
   public List<BatchResult> flushStatements() throws SQLException {
     return delegate.flushStatements();
@@ -120,7 +185,7 @@ public class CachingExecutor implements Executor {
   @Override
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
-    tcm.commit();
+    commitCaches();
   }
 
   @Override
@@ -130,10 +195,29 @@ public class CachingExecutor implements Executor {
     } finally {
       if (required) {
         tcm.rollback();
+        resetWrittenTables();
       }
     }
   }
 
+  private void commitCaches() {
+    InvalidationBus bus = invalidationBus;
+    if (bus == null) {
+      tcm.commit();
+      invalidateWrittenTables();
+      return;
+    }
+    // publishes the invalidations of the transaction as a single message
+    bus.begin();
+    try {
+      tcm.commit();
+      invalidateWrittenTables();
+    } finally {
+      invalidationBus = null;
+      bus.end();
+    }
+  }
+
   private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
     if (ms.getStatementType() == StatementType.CALLABLE) {
       for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
@@ -164,10 +248,60 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  private boolean isInvalidatedByTable(MappedStatement ms) {
+    return ms.getConfiguration().getCacheInvalidation() == CacheInvalidation.TABLE;
+  }
+
+  private void addWrittenTables(Configuration configuration, Set<String> tables) {
+    tableVersions = configuration.getTableVersions();
+    invalidationBus = configuration.getInvalidationBus();
+    if (tables == null) {
+      unknownTablesWritten = true;
+    } else {
+      writtenTables.addAll(tables);
+    }
+  }
+
+  private boolean isWritten(Set<String> tables) {
+    if (unknownTablesWritten) {
+      return true;
+    }
+    if (writtenTables.isEmpty()) {
+      return false;
+    }
+    if (tables == null) {
+      return true;
+    }
+    for (String table : tables) {
+      if (writtenTables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void invalidateWrittenTables() {
+    if (tableVersions != null) {
+      tableVersions.invalidate(unknownTablesWritten ? null : writtenTables);
+      if (invalidationBus != null) {
+        invalidationBus.tablesInvalidated(unknownTablesWritten ? null : writtenTables);
+      }
+      resetWrittenTables();
+    }
+  }
+
+  private void resetWrittenTables() {
+    tableVersions = null;
+    invalidationBus = null;
+    unknownTablesWritten = false;
+    writtenTables.clear();
+  }
+
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {
       tcm.clear(cache);
+      invalidationBus = ms.getConfiguration().getInvalidationBus();
     }
   }
 
@@ -53,6 +53,42 @@ public class ErrorContext {
     return LOCAL.get();
   }
 
+  /**
+   * Returns a copy of this context, for a task that carries on with it on another thread.
+   *
+   * @return the copy
+   * @since 3.5.5
+   */
+  public ErrorContext copy() {
+    ErrorContext copy = new ErrorContext();
+    copy.resource = resource;
+    copy.activity = activity;
+    copy.object = object;
+    copy.message = message;
+    copy.sql = sql;
+    copy.cause = cause;
+    return copy;
+  }
+
+  /**
+   * Makes the given context the one of the current thread.
+   *
+   * @param context
+   *          the context, usually a {@link #copy()} of the context of another thread, or {@code null} to start from
+   *          an empty one
+   * @return the context it replaces, to be restored with this method once done
+   * @since 3.5.5
+   */
+  public static ErrorContext replace(ErrorContext context) {
+    ErrorContext previous = LOCAL.get();
+    if (context == null) {
+      LOCAL.remove();
+    } else {
+      LOCAL.set(context);
+    }
+    return previous;
+  }
+
   public ErrorContext resource(String resource) {
     this.resource = resource;
     return this;
@@ -0,0 +1,231 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.EntryRefresher;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlTables;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+
+/**
+ * Refreshes second level cache entries by running the query that loaded them again.
+ * <p>
+ * {@link CachingExecutor} registers the statement, parameter and row bounds of each query whose result is put into a
+ * cache refreshed ahead of expiry. When the cache asks for an entry to be refreshed, the query runs on
+ * {@link Configuration#getAsyncExecutor()} with a {@link SimpleExecutor} of its own, bypassing the second level cache,
+ * and the result is put into the cache of the statement. The parameter is kept by reference, so the query is only run
+ * again if the parameter still produces the same cache key. Registrations are kept per cache and dropped when their
+ * entry leaves the cache or the cache is flushed. They are also bounded per cache, the least recently registered
+ * ones being dropped first.
+ *
+ * @since 3.5.5
+ */
+public class QueryRefresher implements EntryRefresher {
+
+  private static final Log log = LogFactory.getLog(QueryRefresher.class);
+  private static final int MAX_QUERIES_PER_CACHE = 1024;
+
+  private final Configuration configuration;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<String, Map<Object, Query>> queries = new ConcurrentHashMap<>();
+
+  public QueryRefresher(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Makes the queries that put entries into the given cache be registered.
+   *
+   * @param cacheId
+   *          the cache id
+   */
+  public void enable(String cacheId) {
+    queries.computeIfAbsent(cacheId, id -> new LinkedHashMap<Object, Query>(16, .75F, false) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Query> eldest) {
+        return size() > MAX_QUERIES_PER_CACHE;
+      }
+    });
+  }
+
+  public boolean isEnabled(String cacheId) {
+    return queries.containsKey(cacheId);
+  }
+
+  /**
+   * Registers the query that loaded an entry, if its cache is refreshed.
+   *
+   * @param ms
+   *          the statement
+   * @param parameter
+   *          the parameter
+   * @param rowBounds
+   *          the row bounds
+   * @param key
+   *          the cache key of the result
+   */
+  public void register(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey key) {
+    Cache cache = ms.getCache();
+    Map<Object, Query> cacheQueries = cache == null ? null : queries.get(cache.getId());
+    if (cacheQueries == null) {
+      return;
+    }
+    Query query = new Query(ms, parameter, rowBounds);
+    lock.lock();
+    try {
+      cacheQueries.put(key, query);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void refresh(String cacheId, Object key) {
+    final Query query = get(cacheId, key);
+    if (query == null) {
+      return;
+    }
+    try {
+      configuration.getAsyncExecutor().execute(() -> run(query, key));
+    } catch (RejectedExecutionException e) {
+      log.warn("Could not refresh cache entry of statement '" + query.ms.getId() + "'. Cause: " + e);
+    }
+  }
+
+  @Override
+  public void forget(String cacheId, Object key) {
+    Map<Object, Query> cacheQueries = queries.get(cacheId);
+    if (cacheQueries == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      cacheQueries.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void forgetAll(String cacheId) {
+    Map<Object, Query> cacheQueries = queries.get(cacheId);
+    if (cacheQueries == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      cacheQueries.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueryCount() {
+    lock.lock();
+    try {
+      int count = 0;
+      for (Map<Object, Query> cacheQueries : queries.values()) {
+        count += cacheQueries.size();
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Query get(String cacheId, Object key) {
+    Map<Object, Query> cacheQueries = queries.get(cacheId);
+    if (cacheQueries == null) {
+      return null;
+    }
+    lock.lock();
+    try {
+      return cacheQueries.get(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void run(Query query, Object key) {
+    // the executing thread may be reused or be the one that read the entry, so leave its context as it was
+    final ErrorContext previousContext = ErrorContext.replace(null);
+    Executor executor = null;
+    try {
+      final Environment environment = configuration.getEnvironment();
+      final TransactionFactory transactionFactory = environment.getTransactionFactory() == null
+          ? new ManagedTransactionFactory() : environment.getTransactionFactory();
+      final Transaction tx = transactionFactory.newTransaction(environment.getDataSource(), null, false);
+      // like Configuration.newExecutor but without a CachingExecutor, as the result goes to the cache below
+      executor = new SimpleExecutor(configuration, tx);
+      for (Interceptor interceptor : configuration.getInterceptors()) {
+        executor = (Executor) interceptor.plugin(executor);
+      }
+      BoundSql boundSql = query.ms.getBoundSql(query.parameter);
+      CacheKey current = executor.createCacheKey(query.ms, query.parameter, query.rowBounds, boundSql);
+      CacheKey cacheKey = configuration.getCacheInvalidation() == CacheInvalidation.TABLE
+          ? CachingExecutor.withTableVersions(configuration, current, SqlTables.readTables(query.ms, boundSql))
+          : current;
+      if (!cacheKey.equals(key)) {
+        // the parameter has been modified or the tables written since the entry was loaded
+        forget(query.ms.getCache().getId(), key);
+        return;
+      }
+      List<Object> list = executor.query(query.ms, query.parameter, query.rowBounds, Executor.NO_RESULT_HANDLER, current, boundSql);
+      query.ms.getCache().putObject(key, list);
+    } catch (Exception e) {
+      log.warn("Could not refresh cache entry of statement '" + query.ms.getId() + "'. Cause: " + e);
+    } finally {
+      if (executor != null) {
+        executor.close(false);
+      }
+      ErrorContext.replace(previousContext);
+    }
+  }
+
+  private static class Query {
+    private final MappedStatement ms;
+    private final Object parameter;
+    private final RowBounds rowBounds;
+
+    Query(MappedStatement ms, Object parameter, RowBounds rowBounds) {
+      this.ms = ms;
+      this.parameter = parameter;
+      this.rowBounds = rowBounds;
+    }
+  }
+
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BaseExecutor;
@@ -48,6 +49,7 @@ import org.apache.ibatis.session.RowBounds;
 public class ResultLoaderMap {
 
   private final Map<String, LoadPair> loaderMap = new HashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
 
   public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader) {
     String upperFirst = getUppercaseFirstProperty(property);
@@ -59,6 +61,16 @@ public class ResultLoaderMap {
     loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader));
   }
 
+  /**
+   * Gets the lock held by lazy loading proxies while they trigger loads, which run queries and so may block on I/O.
+   *
+   * @return the lock guarding this map
+   * @since 3.5.5
+   */
+  public ReentrantLock getLock() {
+    return lock;
+  }
+
   public final Map<String, LoadPair> getProperties() {
     return new HashMap<>(this.loaderMap);
   }
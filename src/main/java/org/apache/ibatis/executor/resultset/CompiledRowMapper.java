@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A row mapper for a simple result map whose column indexes, type handlers and setters have been resolved
+ * once for a given result set layout, so that each row is mapped without going through
+ * {@link org.apache.ibatis.reflection.MetaObject}.
+ * <p>
+ * Instances are immutable and shared by all executions of a result map against the same column layout.
+ *
+ * @since 3.5.5
+ */
+public final class CompiledRowMapper {
+
+  /**
+   * Marks a result map / column layout pair that cannot be compiled and must be mapped reflectively.
+   */
+  static final CompiledRowMapper UNSUPPORTED = new CompiledRowMapper(null, null, new ArrayList<>());
+
+  private final Class<?> type;
+  private final ObjectFactory objectFactory;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final Invoker[] setters;
+  private final String[] properties;
+  private final boolean[] primitives;
+
+  private CompiledRowMapper(Class<?> type, ObjectFactory objectFactory, List<Mapping> mappings) {
+    this.type = type;
+    this.objectFactory = objectFactory;
+    final int size = mappings.size();
+    this.columnIndexes = new int[size];
+    this.typeHandlers = new TypeHandler<?>[size];
+    this.setters = new Invoker[size];
+    this.properties = new String[size];
+    this.primitives = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      Mapping mapping = mappings.get(i);
+      columnIndexes[i] = mapping.columnIndex;
+      typeHandlers[i] = mapping.typeHandler;
+      setters[i] = mapping.setter;
+      properties[i] = mapping.property;
+      primitives[i] = mapping.primitive;
+    }
+  }
+
+  public Object map(ResultSet rs, Configuration configuration) throws SQLException {
+    final Object rowValue = objectFactory.create(type);
+    final boolean callSettersOnNulls = configuration.isCallSettersOnNulls();
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !primitives[i])) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        setValue(rowValue, i, value);
+      }
+    }
+    return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+  }
+
+  private void setValue(Object rowValue, int i, Object value) {
+    try {
+      try {
+        setters[i].invoke(rowValue, new Object[] {value});
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  public int getMappingCount() {
+    return columnIndexes.length;
+  }
+
+  static class Builder {
+    private final Class<?> type;
+    private final ObjectFactory objectFactory;
+    private final List<Mapping> mappings = new ArrayList<>();
+
+    Builder(Class<?> type, ObjectFactory objectFactory) {
+      this.type = type;
+      this.objectFactory = objectFactory;
+    }
+
+    Builder addMapping(int columnIndex, TypeHandler<?> typeHandler, Invoker setter, String property, boolean primitive) {
+      mappings.add(new Mapping(columnIndex, typeHandler, setter, property, primitive));
+      return this;
+    }
+
+    CompiledRowMapper build() {
+      return new CompiledRowMapper(type, objectFactory, mappings);
+    }
+  }
+
+  private static class Mapping {
+    private final int columnIndex;
+    private final TypeHandler<?> typeHandler;
+    private final Invoker setter;
+    private final String property;
+    private final boolean primitive;
+
+    Mapping(int columnIndex, TypeHandler<?> typeHandler, Invoker setter, String property, boolean primitive) {
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.setter = setter;
+      this.property = property;
+      this.primitive = primitive;
+    }
+  }
+
+}
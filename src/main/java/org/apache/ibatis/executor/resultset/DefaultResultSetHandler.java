@@ -21,6 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -53,7 +54,9 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
@@ -71,6 +74,8 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  // result sets may come in endless layouts, e.g. with dynamic column lists, so the compiled row mappers are bounded
+  private static final int MAX_COMPILED_ROW_MAPPERS = 4096;
 
   private final Executor executor;
   private final Configuration configuration;
@@ -87,13 +92,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
+  // reusable lookup key for nested result objects, only copied when it has to be kept
+  private final CacheKey nestedRowKeyProbe = new CacheKey();
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
-  // Cached Automappings
+  // Cached Automappings, valid for the result set they were created from
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
+  private ResultSetWrapper autoMappingsResultSet;
 
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
@@ -105,12 +113,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static class UnMappedColumnAutoMapping {
     private final String column;
+    private final int columnIndex;
     private final String property;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
 
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
@@ -362,9 +372,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
+    final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap);
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
-      ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      Object rowValue;
+      if (rowMapper != null) {
+        rowValue = rowMapper.map(resultSet, configuration);
+      } else {
+        ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
+        rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      }
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
     }
   }
@@ -421,6 +437,93 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return rowValue;
   }
 
+  //
+  // COMPILED ROW MAPPING
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (!configuration.isCompiledRowMappingEnabled() || resultMap.getDiscriminator() != null) {
+      return null;
+    }
+    final String layoutKey = createLayoutKey(rsw, resultMap);
+    final Map<String, CompiledRowMapper> compiledRowMappers = configuration.getCompiledRowMappers();
+    CompiledRowMapper rowMapper = compiledRowMappers.get(layoutKey);
+    if (rowMapper == null) {
+      rowMapper = compileRowMapper(rsw, resultMap);
+      if (compiledRowMappers.size() >= MAX_COMPILED_ROW_MAPPERS) {
+        compiledRowMappers.clear();
+      }
+      compiledRowMappers.putIfAbsent(layoutKey, rowMapper);
+    }
+    return rowMapper == CompiledRowMapper.UNSUPPORTED ? null : rowMapper;
+  }
+
+  private String createLayoutKey(ResultSetWrapper rsw, ResultMap resultMap) {
+    final List<String> columnNames = rsw.getColumnNames();
+    final List<JdbcType> jdbcTypes = rsw.getJdbcTypes();
+    final List<String> classNames = rsw.getClassNames();
+    final StringBuilder layoutKey = new StringBuilder(resultMap.getId());
+    for (int i = 0; i < columnNames.size(); i++) {
+      layoutKey.append(':').append(columnNames.get(i)).append('/').append(jdbcTypes.get(i)).append('/').append(classNames.get(i));
+    }
+    return layoutKey.toString();
+  }
+
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.hasNestedQueries()
+        || !resultMap.getConstructorResultMappings().isEmpty()
+        || configuration.getAutoMappingUnknownColumnBehavior() != AutoMappingUnknownColumnBehavior.NONE
+        || resultType.isInterface()
+        || Map.class.isAssignableFrom(resultType)
+        || Collection.class.isAssignableFrom(resultType)
+        || hasTypeHandlerForResultObject(rsw, resultType)
+        || !MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor()) {
+      return CompiledRowMapper.UNSUPPORTED;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(objectFactory.create(resultType));
+    if (!(metaObject.getObjectWrapper() instanceof BeanWrapper)) {
+      return CompiledRowMapper.UNSUPPORTED;
+    }
+    final MetaClass metaClass = MetaClass.forClass(metaObject.getOriginalObject().getClass(), reflectorFactory);
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(resultType, objectFactory);
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+        if (!addCompiledMapping(builder, rsw, metaClass, mapping.column, mapping.property, mapping.typeHandler)) {
+          return CompiledRowMapper.UNSUPPORTED;
+        }
+      }
+    }
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    final int[] columnIndexes = rsw.getPropertyColumnIndexes(resultMap, null);
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      if (propertyMapping.getResultSet() != null) {
+        return CompiledRowMapper.UNSUPPORTED;
+      }
+      // issue #541 make property optional
+      if (propertyMapping.getProperty() != null && columnIndexes[i] != -1
+          && !addCompiledMapping(builder, rsw, metaClass, propertyMapping.getColumn(), propertyMapping.getProperty(), propertyMapping.getTypeHandler())) {
+        return CompiledRowMapper.UNSUPPORTED;
+      }
+    }
+    return builder.build();
+  }
+
+  private boolean addCompiledMapping(CompiledRowMapper.Builder builder, ResultSetWrapper rsw, MetaClass metaClass, String column, String property,
+      TypeHandler<?> typeHandler) {
+    // nested properties need intermediate objects, leave them to MetaObject
+    if (property.indexOf('.') > -1 || property.indexOf('[') > -1 || !metaClass.hasSetter(property)) {
+      return false;
+    }
+    final int columnIndex = rsw.getColumnIndex(column);
+    if (columnIndex == -1) {
+      return false;
+    }
+    builder.addMapping(columnIndex, typeHandler, metaClass.getSetInvoker(property), property, metaClass.getSetterType(property).isPrimitive());
+    return true;
+  }
+
   //
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
@@ -478,19 +581,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final int[] columnIndexes = rsw.getPropertyColumnIndexes(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      int columnIndex = columnIndexes[i];
       if (propertyMapping.getNestedResultMapId() != null) {
         // the user added a column attribute to a nested result map, ignore it
-        column = null;
+        columnIndex = -1;
       }
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || columnIndex != -1
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndex);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -511,8 +615,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -520,12 +624,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return DEFERRED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex != -1) {
+        return typeHandler.getResult(rs, columnIndex);
+      }
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       return typeHandler.getResult(rs, column);
     }
   }
 
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    if (rsw != autoMappingsResultSet) {
+      // the column indexes of the cached mappings refer to the previous result set
+      autoMappingsCache.clear();
+      autoMappingsResultSet = rsw;
+    }
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
     if (autoMapping == null) {
@@ -550,7 +662,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final Class<?> propertyType = metaObject.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, rsw.getColumnIndex(columnName), property, typeHandler, propertyType.isPrimitive()));
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
                 .doAction(mappedStatement, columnName, property, propertyType);
@@ -570,7 +682,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex);
         if (value != null) {
           foundValues = true;
         }
@@ -909,7 +1021,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null, new CacheKey());
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
       if (mappedStatement.isResultOrdered()) {
@@ -956,12 +1068,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix, nestedRowKeyProbe);
+          CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
           Object rowValue = nestedResultObjects.get(combinedKey);
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
           if (anyNotNullColumnHasValue(resultMapping, columnPrefix, rsw)) {
+            if (combinedKey != CacheKey.NULL_CACHE_KEY && (!knownValue || nestedResultMap.hasNestedResultMaps())) {
+              // the key is about to be stored or to become the parent of nested keys
+              combinedKey = copyKey(combinedKey);
+            }
             rowValue = getRowValue(rsw, nestedResultMap, combinedKey, columnPrefix, rowValue);
             if (rowValue != null && !knownValue) {
               linkObjects(metaObject, resultMapping, rowValue);
@@ -1018,10 +1134,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
+  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix, CacheKey cacheKey) throws SQLException {
+    cacheKey.reset();
     cacheKey.update(resultMap.getId());
-    List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    // id mappings default to all result mappings, so they are only empty when there are no mappings at all
+    List<ResultMapping> resultMappings = resultMap.getIdResultMappings();
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         createRowKeyForMap(rsw, cacheKey);
@@ -1039,39 +1156,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
     if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
+      rowKey.update(parentRowKey);
+      return rowKey;
     }
     return CacheKey.NULL_CACHE_KEY;
   }
 
-  private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
-    List<ResultMapping> resultMappings = resultMap.getIdResultMappings();
-    if (resultMappings.isEmpty()) {
-      resultMappings = resultMap.getPropertyResultMappings();
+  private CacheKey copyKey(CacheKey cacheKey) {
+    try {
+      return cacheKey.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
     }
-    return resultMappings;
   }
 
   private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
-    for (ResultMapping resultMapping : resultMappings) {
-      if (resultMapping.isSimple()) {
-        final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
+    final int[] columnIndexes = rsw.getIdColumnIndexes(resultMap, columnPrefix);
+    for (int i = 0; i < resultMappings.size(); i++) {
+      final ResultMapping resultMapping = resultMappings.get(i);
+      // Issue #114
+      if (resultMapping.isSimple() && columnIndexes[i] != -1) {
         final TypeHandler<?> th = resultMapping.getTypeHandler();
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
-        // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+        final Object value = th.getResult(rsw.getResultSet(), columnIndexes[i]);
+        if (value != null || configuration.isReturnInstanceForEmptyRow()) {
+          cacheKey.update(prependPrefix(resultMapping.getColumn(), columnPrefix));
+          cacheKey.update(value);
         }
       }
     }
@@ -1091,7 +1200,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
+        String value = rsw.getResultSet().getString(rsw.getColumnIndex(column));
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1103,7 +1212,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+      final String value = rsw.getResultSet().getString(rsw.getColumnIndex(columnName));
       if (value != null) {
         cacheKey.update(columnName);
         cacheKey.update(value);
@@ -19,6 +19,7 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +30,7 @@ import java.util.Set;
 
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -50,9 +52,14 @@ public class ResultSetWrapper {
   private final List<String> classNames = new ArrayList<>();
   private final List<JdbcType> jdbcTypes = new ArrayList<>();
 
+  // column label (as reported and upper-cased) -> 1-based index of its first occurrence
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final Map<String, int[]> propertyColumnIndexesMap = new HashMap<>();
+  private final Map<String, int[]> idColumnIndexesMap = new HashMap<>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -61,9 +68,14 @@ public class ResultSetWrapper {
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      final String columnName = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+      columnNames.add(columnName);
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
+      if (columnName != null) {
+        columnIndexMap.putIfAbsent(columnName, i);
+        columnIndexMap.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), i);
+      }
     }
   }
 
@@ -84,12 +96,26 @@ public class ResultSetWrapper {
   }
 
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
+    final int columnIndex = getColumnIndex(columnName);
+    return columnIndex == -1 ? null : jdbcTypes.get(columnIndex - 1);
+  }
+
+  /**
+   * Gets the index of a column, matching the label case-insensitively like {@link ResultSet#findColumn(String)} does.
+   *
+   * @param columnName
+   *          the column name
+   * @return the 1-based index of the first column with that name, or -1 if there is no such column
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
     }
-    return null;
+    Integer columnIndex = columnIndexMap.get(columnName);
+    if (columnIndex == null) {
+      columnIndex = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    }
+    return columnIndex == null ? -1 : columnIndex;
   }
 
   /**
@@ -118,8 +144,8 @@ public class ResultSetWrapper {
       // Replicate logic of UnknownTypeHandler#resolveTypeHandler
       // See issue #59 comment 10
       if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
+        final int columnIndex = getColumnIndex(columnName);
+        final Class<?> javaType = columnIndex == -1 ? null : resolveClass(classNames.get(columnIndex - 1));
         if (javaType != null && jdbcType != null) {
           handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
         } else if (javaType != null) {
@@ -183,6 +209,47 @@ public class ResultSetWrapper {
     return unMappedColumnNames;
   }
 
+  /**
+   * Gets the column indexes of the property mappings of a result map, in the order of
+   * {@link ResultMap#getPropertyResultMappings()}.
+   *
+   * @param resultMap
+   *          the result map
+   * @param columnPrefix
+   *          the column prefix
+   * @return the 1-based column indexes, -1 for mappings whose column is not in this result set
+   */
+  public int[] getPropertyColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    return propertyColumnIndexesMap.computeIfAbsent(getMapKey(resultMap, columnPrefix),
+        k -> resolveColumnIndexes(resultMap.getPropertyResultMappings(), columnPrefix));
+  }
+
+  /**
+   * Gets the column indexes of the id mappings of a result map, in the order of {@link ResultMap#getIdResultMappings()}.
+   *
+   * @param resultMap
+   *          the result map
+   * @param columnPrefix
+   *          the column prefix
+   * @return the 1-based column indexes, -1 for mappings whose column is not in this result set
+   */
+  public int[] getIdColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    return idColumnIndexesMap.computeIfAbsent(getMapKey(resultMap, columnPrefix),
+        k -> resolveColumnIndexes(resultMap.getIdResultMappings(), columnPrefix));
+  }
+
+  private int[] resolveColumnIndexes(List<ResultMapping> resultMappings, String columnPrefix) {
+    final int[] columnIndexes = new int[resultMappings.size()];
+    Arrays.fill(columnIndexes, -1);
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final String column = resultMappings.get(i).getColumn();
+      if (column != null && !column.isEmpty()) {
+        columnIndexes[i] = getColumnIndex(columnPrefix == null ? column : columnPrefix + column);
+      }
+    }
+    return columnIndexes;
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
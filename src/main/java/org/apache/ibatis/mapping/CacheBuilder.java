@@ -20,17 +20,30 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.LongSupplier;
 
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheStatistics;
+import org.apache.ibatis.cache.EntryRefresher;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.CoalescingCache;
+import org.apache.ibatis.cache.decorators.CopyingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompressingCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -46,6 +59,19 @@ public class CacheBuilder {
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private Long maxWeight;
+  private Class<? extends Weigher> weigher;
+  private Class<? extends CacheSerializer> serializer;
+  private Integer compressionThreshold;
+  private boolean deepCopy;
+  private boolean coalesce;
+  private Long staleWhileRevalidate;
+  private Long timeToLive;
+  private Double ttlJitter;
+  private Long refreshAhead;
+  private boolean serveStaleOnError;
+  private EntryRefresher refresher;
+  private CacheStatistics statistics;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -84,28 +110,252 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * Bounds the cache by the estimated number of bytes it retains, in addition to its size.
+   *
+   * @param maxWeight
+   *          the maximum weight in bytes, or {@code null} for no weight bound
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder maxWeight(Long maxWeight) {
+    this.maxWeight = maxWeight;
+    return this;
+  }
+
+  /**
+   * Sets the weigher used to estimate the weight of the entries when a maximum weight is set.
+   *
+   * @param weigher
+   *          the weigher type, or {@code null} for {@link org.apache.ibatis.cache.DefaultWeigher}
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder weigher(Class<? extends Weigher> weigher) {
+    this.weigher = weigher;
+    return this;
+  }
+
+  /**
+   * Sets the serializer used to copy the values of a read/write cache.
+   *
+   * @param serializer
+   *          the serializer type, or {@code null} for {@link JavaCacheSerializer}
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
+  /**
+   * Compresses the values of a read/write cache whose serialized form is at least the given number of bytes long.
+   *
+   * @param compressionThreshold
+   *          the threshold in bytes, or {@code null} for no compression
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder compressionThreshold(Integer compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+    return this;
+  }
+
+  /**
+   * Makes a read/write cache copy its values with a {@link org.apache.ibatis.reflection.property.DeepCopier}
+   * instead of serializing them.
+   *
+   * @param deepCopy
+   *          whether values are deep copied
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder deepCopy(boolean deepCopy) {
+    this.deepCopy = deepCopy;
+    return this;
+  }
+
+  /**
+   * Makes concurrent misses on a key wait for the first one to fill it, with a {@link CoalescingCache}. Takes
+   * precedence over {@link #blocking(boolean)}.
+   *
+   * @param coalesce
+   *          whether misses are coalesced
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder coalesce(boolean coalesce) {
+    this.coalesce = coalesce;
+    return this;
+  }
+
+  /**
+   * Serves the previous value of an entry to coalesced misses while it is filled again, if it is not older than the
+   * given number of milliseconds. Only applies to read only caches.
+   *
+   * @param staleWhileRevalidate
+   *          the maximum staleness in milliseconds, or {@code null} to never serve previous values
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder staleWhileRevalidate(Long staleWhileRevalidate) {
+    this.staleWhileRevalidate = staleWhileRevalidate;
+    return this;
+  }
+
+  /**
+   * Makes each entry expire on its own the given number of milliseconds after it was put, with a
+   * {@link ScheduledCache}. The whole cache is still cleared every clear interval if one is set.
+   *
+   * @param timeToLive
+   *          the time to live in milliseconds, or {@code null} for entries that do not expire on their own
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  /**
+   * Sets by how much the time to live of each entry randomly varies, so that entries put together do not expire
+   * together.
+   *
+   * @param ttlJitter
+   *          the jitter as a fraction of the time to live, or {@code null} for none
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder ttlJitter(Double ttlJitter) {
+    this.ttlJitter = ttlJitter;
+    return this;
+  }
+
+  /**
+   * Refreshes an entry when it is read less than the given number of milliseconds before it expires. Requires a time
+   * to live and a {@link #refresher(EntryRefresher)}.
+   *
+   * @param refreshAhead
+   *          the refresh window in milliseconds, or {@code null} to never refresh entries
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder refreshAhead(Long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+    return this;
+  }
+
+  /**
+   * Keeps expired entries for one more time to live so that they can be served when the database cannot be queried.
+   * Requires a time to live.
+   *
+   * @param serveStaleOnError
+   *          whether expired entries are served on error
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder serveStaleOnError(boolean serveStaleOnError) {
+    this.serveStaleOnError = serveStaleOnError;
+    return this;
+  }
+
+  /**
+   * Sets the refresher that loads entries again within the refresh ahead window.
+   *
+   * @param refresher
+   *          the refresher, or {@code null}
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder refresher(EntryRefresher refresher) {
+    this.refresher = refresher;
+    return this;
+  }
+
+  /**
+   * Records the hits, misses, puts and evictions of the cache, with a {@link StatisticsCache}.
+   *
+   * @param statistics
+   *          the statistics, or {@code null} not to record any
+   * @return this builder
+   * @since 3.5.5
+   */
+  public CacheBuilder statistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
   }
 
+  /**
+   * Returns whether the cache will ask its refresher to load entries again shortly before they expire.
+   *
+   * @return {@code true} if a time to live and a refresh ahead window are set
+   * @since 3.5.5
+   */
+  public boolean isRefreshedAhead() {
+    return timeToLive != null && refreshAhead != null && refreshAhead > 0;
+  }
+
   public Cache build() {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
+    setEvictionListener(cache);
+    LongSupplier weight = null;
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
+      if (maxWeight != null) {
+        // innermost, so that entries evicted by the other decorators are accounted for
+        WeightedCache weightedCache = newWeightedCache(cache);
+        weight = weightedCache::getWeight;
+        cache = weightedCache;
+      }
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        setEvictionListener(cache);
       }
-      cache = setStandardDecorators(cache);
-    } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+      cache = setStandardDecorators(cache, true);
+    } else if (ConcurrentCache.class.equals(cache.getClass()) || OffHeapCache.class.equals(cache.getClass())) {
+      checkSelfEvictingCacheSettings(cache);
+      if (cache instanceof OffHeapCache) {
+        weight = ((OffHeapCache) cache)::getLiveBytes;
+      }
+      // evicts by itself and is thread-safe, so neither eviction decorators nor SynchronizedCache are applied
+      cache = setStandardDecorators(cache, false);
+    } else {
+      if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
+        cache = new LoggingCache(cache);
+      }
+      if (statistics != null) {
+        cache = new StatisticsCache(cache, statistics);
+      }
+    }
+    if (statistics != null) {
+      statistics.bind(cache, weight);
     }
     return cache;
   }
 
+  private void checkSelfEvictingCacheSettings(Cache cache) {
+    // LRU is what the mapper builders add when no eviction is configured
+    for (Class<? extends Cache> decorator : decorators) {
+      if (!LruCache.class.equals(decorator)) {
+        throw new CacheException("Cache " + cache.getClass().getName() + " evicts by itself and cannot be decorated with "
+            + decorator.getName() + " for namespace '" + id + "'.");
+      }
+    }
+    if (maxWeight != null) {
+      throw new CacheException("Cache " + cache.getClass().getName() + " cannot be bounded by weight for namespace '"
+          + id + "'.");
+    }
+  }
+
   private void setDefaultImplementations() {
     if (implementation == null) {
       implementation = PerpetualCache.class;
@@ -115,22 +365,33 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean synchronize) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
-      if (clearInterval != null) {
-        cache = new ScheduledCache(cache);
-        ((ScheduledCache) cache).setClearInterval(clearInterval);
+      if (clearInterval != null || timeToLive != null) {
+        cache = newScheduledCache(cache);
       }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = deepCopy ? new CopyingCache(cache) : new SerializedCache(cache, newSerializer());
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
-      if (blocking) {
+      if (statistics != null) {
+        cache = new StatisticsCache(cache, statistics);
+      }
+      if (synchronize) {
+        cache = new SynchronizedCache(cache);
+      }
+      if (coalesce) {
+        CoalescingCache coalescingCache = new CoalescingCache(cache);
+        if (staleWhileRevalidate != null && !readWrite) {
+          // the previous value is not a copy, so it can only be shared by read only caches
+          coalescingCache.setMaxStaleness(staleWhileRevalidate);
+        }
+        cache = coalescingCache;
+      } else if (blocking) {
         cache = new BlockingCache(cache);
       }
       return cache;
@@ -139,6 +400,64 @@ public class CacheBuilder {
     }
   }
 
+  private Cache newScheduledCache(Cache base) {
+    ScheduledCache cache = new ScheduledCache(base);
+    // without a clear interval, entries only expire on their own
+    cache.setClearInterval(clearInterval == null ? Long.MAX_VALUE : clearInterval);
+    if (timeToLive != null) {
+      cache.setTimeToLive(timeToLive);
+      if (ttlJitter != null) {
+        cache.setTtlJitter(ttlJitter);
+      }
+      if (refreshAhead != null) {
+        cache.setRefreshAhead(refreshAhead);
+        cache.setRefresher(refresher);
+      }
+      cache.setServeStaleOnError(serveStaleOnError);
+    }
+    return cache;
+  }
+
+  private WeightedCache newWeightedCache(Cache base) {
+    WeightedCache cache = new WeightedCache(base);
+    cache.setMaxWeight(maxWeight);
+    setEvictionListener(cache);
+    if (weigher != null) {
+      try {
+        cache.setWeigher(weigher.getDeclaredConstructor().newInstance());
+      } catch (Exception e) {
+        throw new CacheException("Could not instantiate cache weigher (" + weigher + "). Cause: " + e, e);
+      }
+    }
+    return cache;
+  }
+
+  private CacheSerializer newSerializer() {
+    CacheSerializer instance;
+    if (serializer == null) {
+      instance = new JavaCacheSerializer();
+    } else {
+      try {
+        instance = serializer.getDeclaredConstructor().newInstance();
+      } catch (Exception e) {
+        throw new CacheException("Could not instantiate cache serializer (" + serializer + "). Cause: " + e, e);
+      }
+    }
+    if (compressionThreshold != null && compressionThreshold > 0) {
+      instance = new CompressingCacheSerializer(instance, compressionThreshold);
+    }
+    return instance;
+  }
+
+  private void setEvictionListener(Cache cache) {
+    if (statistics != null) {
+      MetaObject metaCache = SystemMetaObject.forObject(cache);
+      if (metaCache.hasSetter("evictionListener")) {
+        metaCache.setValue("evictionListener", statistics);
+      }
+    }
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -18,6 +18,7 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -52,6 +53,7 @@ public final class MappedStatement {
   private String id;
   private Integer fetchSize;
   private Integer timeout;
+  private Integer batchSize;
   private StatementType statementType;
   private ResultSetType resultSetType;
   private SqlSource sqlSource;
@@ -65,6 +67,7 @@ public final class MappedStatement {
   private KeyGenerator keyGenerator;
   private String[] keyProperties;
   private String[] keyColumns;
+  private Set<String> tables;
   private boolean hasNestedResultMaps;
   private String databaseId;
   private Log statementLog;
@@ -128,6 +131,35 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * Sets the number of parameter sets after which a batched statement is flushed.
+     *
+     * @param batchSize
+     *          the batch size, {@code null} to use {@link Configuration#getDefaultBatchSize()}
+     * @return the builder
+     * @since 3.5.5
+     */
+    public Builder batchSize(Integer batchSize) {
+      mappedStatement.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Declares the tables the statement reads, if it is a query, or writes otherwise, instead of inferring them from
+     * its SQL.
+     *
+     * @param tables
+     *          comma separated table names, or {@code null} to infer them
+     * @return the builder
+     * @since 3.5.5
+     * @see SqlTables
+     */
+    public Builder tables(String tables) {
+      String[] names = delimitedStringToArray(tables);
+      mappedStatement.tables = names == null ? null : Collections.unmodifiableSet(SqlTables.normalize(names));
+      return this;
+    }
+
     public Builder statementType(StatementType statementType) {
       mappedStatement.statementType = statementType;
       return this;
@@ -244,6 +276,16 @@ public final class MappedStatement {
     return timeout;
   }
 
+  /**
+   * Gets the number of parameter sets after which a batched statement is flushed.
+   *
+   * @return the batch size, {@code null} if {@link Configuration#getDefaultBatchSize()} applies
+   * @since 3.5.5
+   */
+  public Integer getBatchSize() {
+    return batchSize;
+  }
+
   public StatementType getStatementType() {
     return statementType;
   }
@@ -284,6 +326,16 @@ public final class MappedStatement {
     return databaseId;
   }
 
+  /**
+   * Gets the tables declared by the statement.
+   *
+   * @return the normalized table names, or {@code null} if they are inferred from the SQL
+   * @since 3.5.5
+   */
+  public Set<String> getTables() {
+    return tables;
+  }
+
   public String[] getKeyProperties() {
     return keyProperties;
   }
@@ -0,0 +1,324 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tables a statement reads or writes, used to invalidate second level cache entries by table.
+ * <p>
+ * Tables are either declared by the statement or inferred from its SQL: the tables following {@code FROM},
+ * {@code JOIN} and {@code USING} are read, and the table following {@code INSERT INTO}, {@code UPDATE},
+ * {@code DELETE FROM}, {@code MERGE INTO}, {@code REPLACE INTO} or {@code TRUNCATE TABLE} is written. Inference errs
+ * on the safe side: a word that is not a table may be taken for one, which only invalidates entries more often, and
+ * when no table is found the tables are unknown. Names are compared case insensitively and without schema or quotes.
+ *
+ * @since 3.5.5
+ */
+public final class SqlTables {
+
+  private static final int MAX_CACHED_STATEMENTS = 4096;
+  private static final Map<String, SqlTables> parsed = new ConcurrentHashMap<>();
+
+  final Set<String> read;
+  final Set<String> written;
+
+  private SqlTables(Set<String> read, Set<String> written) {
+    this.read = read.isEmpty() ? null : Collections.unmodifiableSet(read);
+    this.written = written.isEmpty() ? null : Collections.unmodifiableSet(written);
+  }
+
+  /**
+   * Returns the tables a query reads.
+   *
+   * @param ms
+   *          the statement
+   * @param boundSql
+   *          the SQL of the statement, from which tables are inferred unless the statement declares them
+   * @return the tables, or {@code null} if they are unknown
+   */
+  public static Set<String> readTables(MappedStatement ms, BoundSql boundSql) {
+    return ms.getTables() != null ? ms.getTables() : parse(boundSql.getSql()).read;
+  }
+
+  /**
+   * Returns the tables an insert, update or delete writes.
+   *
+   * @param ms
+   *          the statement
+   * @param parameterObject
+   *          the parameter, used to get the SQL of the statement when tables are inferred
+   * @return the tables, or {@code null} if they are unknown
+   */
+  public static Set<String> writtenTables(MappedStatement ms, Object parameterObject) {
+    return ms.getTables() != null ? ms.getTables() : parse(ms.getBoundSql(parameterObject).getSql()).written;
+  }
+
+  /**
+   * Normalizes table names the way inferred names are.
+   *
+   * @param names
+   *          the table names
+   * @return the normalized names, in the same order
+   */
+  public static Set<String> normalize(String... names) {
+    Set<String> tables = new LinkedHashSet<>();
+    for (String name : names) {
+      String table = normalize(name);
+      if (!table.isEmpty()) {
+        tables.add(table);
+      }
+    }
+    return tables;
+  }
+
+  static SqlTables parse(String sql) {
+    SqlTables tables = parsed.get(sql);
+    if (tables == null) {
+      if (parsed.size() >= MAX_CACHED_STATEMENTS) {
+        // dynamic SQL may produce endless variants, keep the most recent ones
+        parsed.clear();
+      }
+      tables = infer(sql);
+      parsed.put(sql, tables);
+    }
+    return tables;
+  }
+
+  private static SqlTables infer(String sql) {
+    final List<String> tokens = tokenize(sql);
+    final Set<String> read = new LinkedHashSet<>();
+    final Set<String> written = new LinkedHashSet<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      final String token = tokens.get(i).toLowerCase(Locale.ENGLISH);
+      final String previous = i > 0 ? tokens.get(i - 1).toLowerCase(Locale.ENGLISH) : "";
+      switch (token) {
+        case "from":
+          if ("delete".equals(previous)) {
+            addTable(tokens, i + 1, written);
+          } else {
+            addTableList(tokens, i + 1, read);
+          }
+          break;
+        case "join":
+        case "using":
+          addTable(tokens, i + 1, read);
+          break;
+        case "into":
+          if ("insert".equals(previous) || "merge".equals(previous) || "replace".equals(previous)) {
+            addTable(tokens, i + 1, written);
+          }
+          break;
+        case "update":
+          // not FOR UPDATE nor ON DUPLICATE KEY UPDATE
+          if (!"for".equals(previous) && !"key".equals(previous)) {
+            addTable(tokens, i + 1, written);
+          }
+          break;
+        case "delete":
+          // DELETE t WHERE ..., without FROM
+          if (i + 1 < tokens.size() && !"from".equalsIgnoreCase(tokens.get(i + 1))) {
+            addTable(tokens, i + 1, written);
+          }
+          break;
+        case "table":
+          if ("truncate".equals(previous)) {
+            addTable(tokens, i + 1, written);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return new SqlTables(read, written);
+  }
+
+  private static void addTableList(List<String> tokens, int index, Set<String> tables) {
+    while (addTable(tokens, index, tables)) {
+      // skip an alias, with or without AS, up to the next comma
+      index++;
+      while (index < tokens.size() && !",".equals(tokens.get(index)) && isWord(tokens.get(index))
+          && !isClauseKeyword(tokens.get(index))) {
+        index++;
+      }
+      if (index >= tokens.size() || !",".equals(tokens.get(index))) {
+        return;
+      }
+      index++;
+    }
+  }
+
+  private static boolean addTable(List<String> tokens, int index, Set<String> tables) {
+    if (index >= tokens.size() || !isWord(tokens.get(index)) || isClauseKeyword(tokens.get(index))) {
+      // a subquery, a parameter or a keyword
+      return false;
+    }
+    String table = normalize(tokens.get(index));
+    if (!table.isEmpty()) {
+      tables.add(table);
+    }
+    return true;
+  }
+
+  private static boolean isWord(String token) {
+    return token.length() > 1 || Character.isLetterOrDigit(token.charAt(0)) || token.charAt(0) == '_';
+  }
+
+  private static boolean isClauseKeyword(String token) {
+    switch (token.toLowerCase(Locale.ENGLISH)) {
+      case "select":
+      case "where":
+      case "set":
+      case "values":
+      case "on":
+      case "join":
+      case "inner":
+      case "left":
+      case "right":
+      case "full":
+      case "outer":
+      case "cross":
+      case "natural":
+      case "group":
+      case "order":
+      case "having":
+      case "limit":
+      case "offset":
+      case "fetch":
+      case "union":
+      case "intersect":
+      case "except":
+      case "minus":
+      case "for":
+      case "lateral":
+      case "returning":
+      case "window":
+      case "connect":
+      case "start":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static String normalize(String name) {
+    String table = name.trim();
+    int dot = lastDotOutsideQuotes(table);
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    if (table.length() >= 2) {
+      char first = table.charAt(0);
+      char last = table.charAt(table.length() - 1);
+      if ((first == '"' && last == '"') || (first == '`' && last == '`') || (first == '[' && last == ']')) {
+        table = table.substring(1, table.length() - 1);
+      }
+    }
+    return table.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static int lastDotOutsideQuotes(String name) {
+    char quote = 0;
+    int dot = -1;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '[') {
+        quote = ']';
+      } else if (c == '.') {
+        dot = i;
+      }
+    }
+    return dot;
+  }
+
+  /**
+   * Splits SQL into words, which may be qualified and quoted names, and single punctuation characters, skipping
+   * string literals and comments.
+   */
+  private static List<String> tokenize(String sql) {
+    final List<String> tokens = new ArrayList<>();
+    final int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'') {
+        i = skipQuoted(sql, i, '\'');
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (isNameStart(c)) {
+        int start = i;
+        while (i < length && isNamePart(sql.charAt(i))) {
+          char part = sql.charAt(i);
+          if (part == '"' || part == '`') {
+            i = skipQuoted(sql, i, part);
+          } else if (part == '[') {
+            i = skipQuoted(sql, i, ']');
+          } else {
+            i++;
+          }
+        }
+        tokens.add(sql.substring(start, i));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static int skipQuoted(String sql, int start, char quote) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i++) == quote) {
+        if (i < sql.length() && sql.charAt(i) == quote && quote != ']') {
+          // escaped quote
+          i++;
+        } else {
+          return i;
+        }
+      }
+    }
+    return i;
+  }
+
+  private static boolean isNameStart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '"' || c == '`' || c == '[';
+  }
+
+  private static boolean isNamePart(char c) {
+    return isNameStart(c) || c == '.' || c == '$' || c == '#';
+  }
+
+}
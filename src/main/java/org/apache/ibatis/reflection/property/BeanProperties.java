@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Tells whether a result object can be rebuilt property by property, as {@link DeepCopier} and
+ * {@code BinaryCacheSerializer} do, and through which properties.
+ *
+ * @since 3.5.5
+ */
+public final class BeanProperties {
+
+  private BeanProperties() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns whether a class may be rebuilt property by property: a concrete class outside of the JDK that does not
+   * customize its serialization.
+   *
+   * @param type
+   *          the class
+   * @return {@code true} if it may be
+   */
+  public static boolean isRebuildable(Class<?> type) {
+    return !type.isInterface() && !Modifier.isAbstract(type.getModifiers()) && !type.getName().startsWith("java.")
+        && !hasCustomSerialization(type);
+  }
+
+  /**
+   * Returns the default constructor of a class, made accessible if needed.
+   *
+   * @param reflector
+   *          the reflector of the class
+   * @return the constructor, or {@code null} if there is none or it cannot be made accessible
+   */
+  public static Constructor<?> findDefaultConstructor(Reflector reflector) {
+    if (!reflector.hasDefaultConstructor()) {
+      return null;
+    }
+    Constructor<?> constructor = reflector.getDefaultConstructor();
+    if (!Modifier.isPublic(reflector.getType().getModifiers()) || !Modifier.isPublic(constructor.getModifiers())) {
+      if (!Reflector.canControlMemberAccessible()) {
+        return null;
+      }
+      constructor.setAccessible(true);
+    }
+    return constructor;
+  }
+
+  /**
+   * Returns the properties holding the whole state of an object: its readable and writable properties that are not
+   * backed by a static or transient field.
+   *
+   * @param reflector
+   *          the reflector of the class of the object
+   * @return the property names, or {@code null} if a field that is neither static nor transient is not one of them
+   */
+  public static List<String> findStateProperties(Reflector reflector) {
+    Class<?> type = reflector.getType();
+    List<String> names = new ArrayList<>();
+    for (String name : reflector.getSetablePropertyNames()) {
+      if (reflector.hasGetter(name) && !isStaticOrTransient(type, name)) {
+        names.add(name);
+      }
+    }
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !names.contains(field.getName())) {
+          // state that cannot be copied through the reflector
+          return null;
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Returns the initial capacity of a hash based collection that holds the given number of elements without
+   * rehashing.
+   *
+   * @param size
+   *          the number of elements
+   * @return the capacity
+   */
+  public static int hashCapacity(int size) {
+    return Math.max((int) (size / .75f) + 1, 16);
+  }
+
+  private static boolean hasCustomSerialization(Class<?> type) {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Method method : current.getDeclaredMethods()) {
+        String name = method.getName();
+        if ("writeReplace".equals(name) || "readResolve".equals(name)
+            || "writeObject".equals(name) || "readObject".equals(name)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isStaticOrTransient(Class<?> type, String name) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      try {
+        int modifiers = current.getDeclaredField(name).getModifiers();
+        return Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers);
+      } catch (NoSuchFieldException e) {
+        // check the superclass
+      }
+    }
+    return false;
+  }
+
+}
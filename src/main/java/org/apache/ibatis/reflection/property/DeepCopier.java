@@ -0,0 +1,268 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Makes deep copies of result objects without serializing them.
+ * <p>
+ * Where {@link PropertyCopier} copies the fields of one bean into another, this class builds, once per class, a copier
+ * that creates a new instance and copies each property of the bean through its {@link Reflector}, recursively.
+ * Immutable values such as strings, boxed primitives, {@link BigDecimal}, {@link BigInteger}, enums and
+ * {@code java.time} types are shared instead of copied. Dates, arrays and the common JDK collections and maps are
+ * copied. Shared and cyclic references are preserved. Objects that cannot be copied property by property, such as
+ * lazy loading proxies or classes customizing their serialization, are handed to a fallback copier.
+ *
+ * @since 3.5.5
+ */
+public class DeepCopier {
+
+  private static final Copier SHARE = (source, copies) -> source;
+
+  private final ReflectorFactory reflectorFactory;
+  private final Map<Class<?>, Copier> copiers = new ConcurrentHashMap<>();
+  private final Copier fallbackCopier;
+
+  public DeepCopier() {
+    this(new DefaultReflectorFactory(), source -> {
+      throw new ReflectionException("Cannot make a deep copy of " + source.getClass() + ".");
+    });
+  }
+
+  /**
+   * Creates a copier.
+   *
+   * @param reflectorFactory
+   *          the reflector factory
+   * @param fallbackCopier
+   *          copies the objects that cannot be copied property by property, a serialization round trip for example
+   */
+  public DeepCopier(ReflectorFactory reflectorFactory, UnaryOperator<Object> fallbackCopier) {
+    this.reflectorFactory = reflectorFactory;
+    this.fallbackCopier = (source, copies) -> register(source, fallbackCopier.apply(source), copies);
+  }
+
+  /**
+   * Returns a deep copy of a value, or the value itself if it is immutable.
+   *
+   * @param value
+   *          the value to copy, may be {@code null}
+   * @return the copy
+   */
+  public Object copy(Object value) {
+    return copy(value, new IdentityHashMap<>());
+  }
+
+  private Object copy(Object value, Map<Object, Object> copies) {
+    if (value == null) {
+      return null;
+    }
+    Copier copier = copierFor(value.getClass());
+    if (copier == SHARE) {
+      return value;
+    }
+    Object copy = copies.get(value);
+    return copy != null ? copy : copier.copy(value, copies);
+  }
+
+  private Copier copierFor(Class<?> type) {
+    Copier copier = copiers.get(type);
+    if (copier == null) {
+      copier = copiers.computeIfAbsent(type, this::createCopier);
+    }
+    return copier;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Copier createCopier(Class<?> type) {
+    if (isImmutable(type)) {
+      return SHARE;
+    } else if (Date.class.isAssignableFrom(type)) {
+      return (source, copies) -> register(source, ((Date) source).clone(), copies);
+    } else if (type.isArray()) {
+      return type.getComponentType().isPrimitive() ? this::copyPrimitiveArray : this::copyObjectArray;
+    } else if (type == ArrayList.class) {
+      return (source, copies) -> copyElements((Collection<?>) source,
+          new ArrayList<>(((Collection<?>) source).size()), copies);
+    } else if (type == LinkedList.class) {
+      return (source, copies) -> copyElements((Collection<?>) source, new LinkedList<>(), copies);
+    } else if (type == HashSet.class) {
+      return (source, copies) -> copyElements((Collection<?>) source,
+          new HashSet<>(BeanProperties.hashCapacity(((Collection<?>) source).size())), copies);
+    } else if (type == LinkedHashSet.class) {
+      return (source, copies) -> copyElements((Collection<?>) source,
+          new LinkedHashSet<>(BeanProperties.hashCapacity(((Collection<?>) source).size())), copies);
+    } else if (type == TreeSet.class) {
+      return (source, copies) -> copyElements((Collection<?>) source,
+          new TreeSet<>(((TreeSet<Object>) source).comparator()), copies);
+    } else if (type == HashMap.class) {
+      return (source, copies) -> copyEntries((Map<?, ?>) source,
+          new HashMap<>(BeanProperties.hashCapacity(((Map<?, ?>) source).size())), copies);
+    } else if (type == LinkedHashMap.class) {
+      return (source, copies) -> copyEntries((Map<?, ?>) source,
+          new LinkedHashMap<>(BeanProperties.hashCapacity(((Map<?, ?>) source).size())), copies);
+    } else if (type == TreeMap.class) {
+      return (source, copies) -> copyEntries((Map<?, ?>) source,
+          new TreeMap<>(((TreeMap<Object, Object>) source).comparator()), copies);
+    }
+    BeanCopier beanCopier = createBeanCopier(type);
+    return beanCopier != null ? beanCopier : fallbackCopier;
+  }
+
+  private static boolean isImmutable(Class<?> type) {
+    return type == String.class || type == Integer.class || type == Long.class || type == Boolean.class
+        || type == Double.class || type == Float.class || type == Short.class || type == Byte.class
+        || type == Character.class || type == BigDecimal.class || type == BigInteger.class || type == UUID.class
+        || type == Locale.class || type == Class.class || type.isEnum()
+        || (type.getSuperclass() != null && type.getSuperclass().isEnum())
+        || type.getName().startsWith("java.time.");
+  }
+
+  private Object copyPrimitiveArray(Object source, Map<Object, Object> copies) {
+    int length = Array.getLength(source);
+    Object copy = Array.newInstance(source.getClass().getComponentType(), length);
+    System.arraycopy(source, 0, copy, 0, length);
+    return register(source, copy, copies);
+  }
+
+  private Object copyObjectArray(Object source, Map<Object, Object> copies) {
+    Object[] array = (Object[]) source;
+    Object[] copy = Arrays.copyOf(array, array.length);
+    copies.put(source, copy);
+    for (int i = 0; i < copy.length; i++) {
+      copy[i] = copy(copy[i], copies);
+    }
+    return copy;
+  }
+
+  private Object copyElements(Collection<?> source, Collection<Object> copy, Map<Object, Object> copies) {
+    copies.put(source, copy);
+    for (Object element : source) {
+      copy.add(copy(element, copies));
+    }
+    return copy;
+  }
+
+  private Object copyEntries(Map<?, ?> source, Map<Object, Object> copy, Map<Object, Object> copies) {
+    copies.put(source, copy);
+    for (Map.Entry<?, ?> entry : source.entrySet()) {
+      copy.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+    }
+    return copy;
+  }
+
+  private static Object register(Object source, Object copy, Map<Object, Object> copies) {
+    copies.put(source, copy);
+    return copy;
+  }
+
+  private BeanCopier createBeanCopier(Class<?> type) {
+    if (!BeanProperties.isRebuildable(type)) {
+      return null;
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    Constructor<?> constructor = BeanProperties.findDefaultConstructor(reflector);
+    List<String> names = constructor == null ? null : BeanProperties.findStateProperties(reflector);
+    if (names == null) {
+      return null;
+    }
+    int size = names.size();
+    Invoker[] getters = new Invoker[size];
+    Invoker[] setters = new Invoker[size];
+    boolean[] shared = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      String name = names.get(i);
+      getters[i] = reflector.getGetInvoker(name);
+      setters[i] = reflector.getSetInvoker(name);
+      Class<?> propertyType = reflector.getGetterType(name);
+      // a final immutable or primitive type never needs to be looked at again
+      shared[i] = propertyType.isPrimitive()
+          || (Modifier.isFinal(propertyType.getModifiers()) && isImmutable(propertyType));
+    }
+    return new BeanCopier(constructor, getters, setters, shared);
+  }
+
+  @FunctionalInterface
+  private interface Copier {
+    Object copy(Object source, Map<Object, Object> copies);
+  }
+
+  private final class BeanCopier implements Copier {
+    private final Constructor<?> constructor;
+    private final Invoker[] getters;
+    private final Invoker[] setters;
+    private final boolean[] shared;
+
+    BeanCopier(Constructor<?> constructor, Invoker[] getters, Invoker[] setters, boolean[] shared) {
+      this.constructor = constructor;
+      this.getters = getters;
+      this.setters = setters;
+      this.shared = shared;
+    }
+
+    @Override
+    public Object copy(Object source, Map<Object, Object> copies) {
+      try {
+        Object copy = constructor.newInstance();
+        copies.put(source, copy);
+        Object[] args = new Object[1];
+        for (int i = 0; i < getters.length; i++) {
+          Object value = getters[i].invoke(source, null);
+          if (value == null && setters[i].getType().isPrimitive()) {
+            continue;
+          }
+          args[0] = shared[i] ? value : DeepCopier.this.copy(value, copies);
+          setters[i].invoke(copy, args);
+        }
+        return copy;
+      } catch (ReflectionException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new ReflectionException("Error copying " + source.getClass() + ".  Cause: " + e, e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,630 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * An expression parsed once into evaluator objects that read properties through {@link Reflector} invokers instead of
+ * OGNL.
+ * <p>
+ * Only a subset of OGNL is supported: property paths, the {@code size()}, {@code isEmpty()}, {@code length()} and
+ * {@code toString()} methods, {@code null}, boolean, number and string literals, {@code == != < > <= >=} and their
+ * {@code eq neq lt lte gt gte} forms, {@code ! not && || and or} and parentheses. {@link #compile(String)} returns
+ * {@code null} for any other expression. Operands are only compared when their types make OGNL semantics obvious (numbers, strings,
+ * booleans, null); otherwise, or when a property cannot be read the way OGNL would, {@link #evaluate(Object)} returns
+ * {@link #UNRESOLVED} and the expression must be evaluated by OGNL.
+ *
+ * @since 3.5.5
+ */
+abstract class CompiledExpression {
+
+  /**
+   * Returned when OGNL must evaluate the expression.
+   */
+  static final Object UNRESOLVED = new Object();
+
+  private static final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+
+  // properties OGNL may resolve to something else than Map.get
+  private static final Set<String> MAP_PSEUDO_PROPERTIES = new HashSet<>(
+      Arrays.asList("size", "isEmpty", "keys", "keySet", "values"));
+
+  private static final Set<String> METHODS = new HashSet<>(Arrays.asList("size", "isEmpty", "length", "toString"));
+
+  /**
+   * Parses an expression.
+   *
+   * @param expression
+   *          the OGNL expression
+   * @return the compiled expression, or {@code null} if it is not supported
+   */
+  static CompiledExpression compile(String expression) {
+    if (expression == null) {
+      return null;
+    }
+    try {
+      return new Parser(expression).parse();
+    } catch (UnsupportedExpressionException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Evaluates the expression.
+   *
+   * @param root
+   *          the root object, usually the bindings of a {@link DynamicContext}
+   * @return the value, or {@link #UNRESOLVED}
+   */
+  abstract Object evaluate(Object root);
+
+  /**
+   * Converts an operand of {@code !}, {@code and} or {@code or} to a boolean the way OGNL does.
+   *
+   * @return the boolean, or {@code null} for strings, whose conversion depends on the OGNL version
+   */
+  static Boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof String) {
+      return null;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof Character) {
+      return (Character) value != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+  static Object readProperty(Object target, String name) {
+    if (target == null) {
+      return UNRESOLVED;
+    }
+    try {
+      if (target instanceof DynamicContext.ContextMap) {
+        // same lookup as DynamicContext.ContextAccessor
+        Map<?, ?> map = (Map<?, ?>) target;
+        Object result = map.get(name);
+        if (result != null || map.containsKey(name)) {
+          return result;
+        }
+        Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+        return parameterObject instanceof Map ? ((Map<?, ?>) parameterObject).get(name) : null;
+      }
+      if (target instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) target;
+        if (MAP_PSEUDO_PROPERTIES.contains(name)) {
+          return UNRESOLVED;
+        }
+        return map.get(name);
+      }
+      if (target.getClass().isArray()) {
+        return "length".equals(name) ? (Object) Array.getLength(target) : UNRESOLVED;
+      }
+      if (target instanceof Collection || target instanceof Iterator || target instanceof Enumeration
+          || target instanceof Class) {
+        return UNRESOLVED;
+      }
+      Reflector reflector = reflectorFactory.findForClass(target.getClass());
+      if (!reflector.hasGetter(name)) {
+        return UNRESOLVED;
+      }
+      return reflector.getGetInvoker(name).invoke(target, null);
+    } catch (Throwable t) {
+      // let OGNL evaluate it, and report the failure its way
+      return UNRESOLVED;
+    }
+  }
+
+  static Object invokeMethod(Object target, String name) {
+    switch (name) {
+      case "size":
+        if (target instanceof Collection) {
+          return ((Collection<?>) target).size();
+        }
+        return target instanceof Map ? (Object) ((Map<?, ?>) target).size() : UNRESOLVED;
+      case "isEmpty":
+        if (target instanceof Collection) {
+          return ((Collection<?>) target).isEmpty();
+        }
+        if (target instanceof Map) {
+          return ((Map<?, ?>) target).isEmpty();
+        }
+        return target instanceof String ? (Object) ((String) target).isEmpty() : UNRESOLVED;
+      case "length":
+        return target instanceof String ? (Object) ((String) target).length() : UNRESOLVED;
+      case "toString":
+        return target.toString();
+      default:
+        return UNRESOLVED;
+    }
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private static boolean isNumber(Object value) {
+    return isIntegral(value) || value instanceof Double || value instanceof Float;
+  }
+
+  /**
+   * Compares two values the way OGNL does, for the types whose comparison is unambiguous.
+   *
+   * @return the comparison, or {@code null} if OGNL must compare them
+   */
+  private static Integer compare(Object left, Object right) {
+    if (isIntegral(left) && isIntegral(right)) {
+      return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+    }
+    if (isNumber(left) && isNumber(right)) {
+      double l = ((Number) left).doubleValue();
+      double r = ((Number) right).doubleValue();
+      return l == r ? 0 : l < r ? -1 : 1;
+    }
+    if (left instanceof String && right instanceof String) {
+      return ((String) left).compareTo((String) right);
+    }
+    return null;
+  }
+
+  private static Boolean equal(Object left, Object right) {
+    if (left == null || right == null) {
+      return left == right;
+    }
+    if (left instanceof Boolean && right instanceof Boolean) {
+      return left.equals(right);
+    }
+    Integer comparison = compare(left, right);
+    return comparison == null ? null : comparison == 0;
+  }
+
+  private static final class Literal extends CompiledExpression {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      return value;
+    }
+  }
+
+  private static final class PropertyPath extends CompiledExpression {
+    private final String[] names;
+    private final boolean[] methods;
+
+    PropertyPath(List<String> names, List<Boolean> methods) {
+      this.names = names.toArray(new String[0]);
+      this.methods = new boolean[names.size()];
+      for (int i = 0; i < this.methods.length; i++) {
+        this.methods[i] = methods.get(i);
+      }
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = readProperty(root, names[0]);
+      for (int i = 1; i < names.length && value != UNRESOLVED; i++) {
+        if (value == null) {
+          // OGNL fails on a null source
+          return UNRESOLVED;
+        }
+        value = methods[i] ? invokeMethod(value, names[i]) : readProperty(value, names[i]);
+      }
+      return value;
+    }
+  }
+
+  private static final class Not extends CompiledExpression {
+    private final CompiledExpression operand;
+
+    Not(CompiledExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = operand.evaluate(root);
+      Boolean booleanValue = value == UNRESOLVED ? null : booleanValue(value);
+      return booleanValue == null ? UNRESOLVED : !booleanValue;
+    }
+  }
+
+  /**
+   * {@code and} or {@code or}, which like OGNL return the last operand evaluated rather than a boolean.
+   */
+  private static final class Logical extends CompiledExpression {
+    private final CompiledExpression[] operands;
+    private final boolean and;
+
+    Logical(List<CompiledExpression> operands, boolean and) {
+      this.operands = operands.toArray(new CompiledExpression[0]);
+      this.and = and;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = null;
+      for (int i = 0; i < operands.length; i++) {
+        value = operands[i].evaluate(root);
+        if (value == UNRESOLVED || i == operands.length - 1) {
+          break;
+        }
+        Boolean booleanValue = booleanValue(value);
+        if (booleanValue == null) {
+          return UNRESOLVED;
+        }
+        if (booleanValue != and) {
+          break;
+        }
+      }
+      return value;
+    }
+  }
+
+  private static final class Comparison extends CompiledExpression {
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+    private final String operator;
+
+    Comparison(CompiledExpression left, String operator, CompiledExpression right) {
+      this.left = left;
+      this.operator = operator;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object l = left.evaluate(root);
+      if (l == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      Object r = right.evaluate(root);
+      if (r == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      if ("==".equals(operator) || "!=".equals(operator)) {
+        Boolean equal = equal(l, r);
+        return equal == null ? UNRESOLVED : equal == "==".equals(operator);
+      }
+      Integer comparison = l == null || r == null ? null : compare(l, r);
+      if (comparison == null) {
+        return UNRESOLVED;
+      }
+      switch (operator) {
+        case "<":
+          return comparison < 0;
+        case "<=":
+          return comparison <= 0;
+        case ">":
+          return comparison > 0;
+        default:
+          return comparison >= 0;
+      }
+    }
+  }
+
+  private static final class UnsupportedExpressionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * A recursive descent parser following the precedence of OGNL operators.
+   */
+  private static final class Parser {
+    private final List<String> tokens;
+    private int position;
+
+    Parser(String expression) {
+      this.tokens = tokenize(expression);
+    }
+
+    CompiledExpression parse() {
+      CompiledExpression expression = parseOr();
+      if (position != tokens.size()) {
+        throw new UnsupportedExpressionException();
+      }
+      return expression;
+    }
+
+    private CompiledExpression parseOr() {
+      List<CompiledExpression> operands = new ArrayList<>();
+      operands.add(parseAnd());
+      while (accept("||") || accept("or")) {
+        operands.add(parseAnd());
+      }
+      return operands.size() == 1 ? operands.get(0) : new Logical(operands, false);
+    }
+
+    private CompiledExpression parseAnd() {
+      List<CompiledExpression> operands = new ArrayList<>();
+      operands.add(parseEquality());
+      while (accept("&&") || accept("and")) {
+        operands.add(parseEquality());
+      }
+      return operands.size() == 1 ? operands.get(0) : new Logical(operands, true);
+    }
+
+    private CompiledExpression parseEquality() {
+      CompiledExpression expression = parseRelational();
+      String operator;
+      while ((operator = acceptAny("==", "!=", "eq", "neq")) != null) {
+        expression = new Comparison(expression, symbol(operator), parseRelational());
+      }
+      return expression;
+    }
+
+    private CompiledExpression parseRelational() {
+      CompiledExpression expression = parseUnary();
+      String operator;
+      while ((operator = acceptAny("<", "<=", ">", ">=", "lt", "lte", "gt", "gte")) != null) {
+        expression = new Comparison(expression, symbol(operator), parseUnary());
+      }
+      return expression;
+    }
+
+    private static String symbol(String operator) {
+      switch (operator) {
+        case "eq":
+          return "==";
+        case "neq":
+          return "!=";
+        case "lt":
+          return "<";
+        case "lte":
+          return "<=";
+        case "gt":
+          return ">";
+        case "gte":
+          return ">=";
+        default:
+          return operator;
+      }
+    }
+
+    private CompiledExpression parseUnary() {
+      if (accept("!") || accept("not")) {
+        return new Not(parseUnary());
+      }
+      return parsePrimary();
+    }
+
+    private CompiledExpression parsePrimary() {
+      String token = next();
+      if ("(".equals(token)) {
+        CompiledExpression expression = parseOr();
+        expect(")");
+        return expression;
+      }
+      if ("-".equals(token)) {
+        return new Literal(parseNumber("-" + next()));
+      }
+      if (Character.isDigit(token.charAt(0))) {
+        return new Literal(parseNumber(token));
+      }
+      if (token.charAt(0) == '\'' || token.charAt(0) == '"') {
+        String text = token.substring(1, token.length() - 1);
+        // like OGNL, a single character between single quotes is a char
+        return new Literal(token.charAt(0) == '\'' && text.length() == 1 ? (Object) text.charAt(0) : text);
+      }
+      switch (token) {
+        case "null":
+          return new Literal(null);
+        case "true":
+          return new Literal(Boolean.TRUE);
+        case "false":
+          return new Literal(Boolean.FALSE);
+        default:
+          return parsePath(token);
+      }
+    }
+
+    private CompiledExpression parsePath(String root) {
+      List<String> names = new ArrayList<>();
+      List<Boolean> methods = new ArrayList<>();
+      names.add(identifier(root));
+      methods.add(false);
+      while (accept(".")) {
+        String name = identifier(next());
+        boolean method = accept("(");
+        if (method) {
+          expect(")");
+          if (!METHODS.contains(name)) {
+            throw new UnsupportedExpressionException();
+          }
+        }
+        names.add(name);
+        methods.add(method);
+      }
+      return new PropertyPath(names, methods);
+    }
+
+    private static Object parseNumber(String token) {
+      String digits = token.startsWith("-") ? token.substring(1) : token;
+      if (digits.isEmpty() || !Character.isDigit(digits.charAt(0))
+          || (digits.length() > 1 && digits.charAt(0) == '0' && digits.charAt(1) != '.')) {
+        // octal and hexadecimal literals are left to OGNL
+        throw new UnsupportedExpressionException();
+      }
+      try {
+        return digits.indexOf('.') >= 0 ? (Object) Double.valueOf(token) : (Object) Integer.valueOf(token);
+      } catch (NumberFormatException e) {
+        throw new UnsupportedExpressionException();
+      }
+    }
+
+    private static String identifier(String token) {
+      if (!Character.isJavaIdentifierStart(token.charAt(0)) || isKeyword(token)) {
+        throw new UnsupportedExpressionException();
+      }
+      return token;
+    }
+
+    private static boolean isKeyword(String token) {
+      switch (token) {
+        case "and":
+        case "or":
+        case "not":
+        case "null":
+        case "true":
+        case "false":
+        case "eq":
+        case "neq":
+        case "lt":
+        case "lte":
+        case "gt":
+        case "gte":
+        case "in":
+        case "instanceof":
+        case "new":
+        case "band":
+        case "bor":
+        case "xor":
+        case "shl":
+        case "shr":
+        case "ushr":
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private boolean accept(String token) {
+      if (position < tokens.size() && tokens.get(position).equals(token)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private String acceptAny(String... candidates) {
+      for (String candidate : candidates) {
+        if (accept(candidate)) {
+          return candidate;
+        }
+      }
+      return null;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw new UnsupportedExpressionException();
+      }
+    }
+
+    private String next() {
+      if (position >= tokens.size()) {
+        throw new UnsupportedExpressionException();
+      }
+      return tokens.get(position++);
+    }
+
+    private static List<String> tokenize(String expression) {
+      List<String> tokens = new ArrayList<>();
+      int i = 0;
+      int length = expression.length();
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isJavaIdentifierStart(c) && c != '$') {
+          int start = i;
+          while (i < length && Character.isJavaIdentifierPart(expression.charAt(i)) && expression.charAt(i) != '$') {
+            i++;
+          }
+          tokens.add(expression.substring(start, i));
+        } else if (c == '\'' || c == '"') {
+          int end = expression.indexOf(c, i + 1);
+          if (end < 0 || expression.indexOf('\\', i) >= 0 && expression.indexOf('\\', i) < end) {
+            // escape sequences are left to OGNL
+            throw new UnsupportedExpressionException();
+          }
+          tokens.add(expression.substring(i, end + 1));
+          i = end + 1;
+        } else if (Character.isDigit(c)) {
+          int start = i;
+          while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+            i++;
+          }
+          if (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+            // a typed literal such as 1L or 2.0d
+            throw new UnsupportedExpressionException();
+          }
+          tokens.add(expression.substring(start, i));
+        } else {
+          String operator = operatorAt(expression, i);
+          tokens.add(operator);
+          i += operator.length();
+        }
+      }
+      return tokens;
+    }
+
+    private static String operatorAt(String expression, int i) {
+      if (i + 1 < expression.length()) {
+        String pair = expression.substring(i, i + 2);
+        switch (pair) {
+          case "==":
+          case "!=":
+          case "<=":
+          case ">=":
+          case "&&":
+          case "||":
+            return pair;
+          default:
+            break;
+        }
+      }
+      char c = expression.charAt(i);
+      switch (c) {
+        case '(':
+        case ')':
+        case '.':
+        case '<':
+        case '>':
+        case '!':
+        case '-':
+          return String.valueOf(c);
+        default:
+          throw new UnsupportedExpressionException();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * A {@link XMLLanguageDriver} that compiles dynamic SQL when the mapper is loaded, merging adjacent static text into a
+ * single fragment so that fewer fragments are appended on each execution.
+ *
+ * @since 3.5.5
+ */
+public class CompiledLanguageDriver extends XMLLanguageDriver {
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+    SqlSource sqlSource = super.createSqlSource(configuration, script, parameterType);
+    if (sqlSource instanceof DynamicSqlSource) {
+      SqlNode rootSqlNode = ((DynamicSqlSource) sqlSource).getRootSqlNode();
+      return new DynamicSqlSource(configuration, SqlNodeCompiler.compile(rootSqlNode));
+    }
+    return sqlSource;
+  }
+
+}
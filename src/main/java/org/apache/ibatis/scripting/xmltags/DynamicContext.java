@@ -15,9 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.StringJoiner;
 
 import ognl.OgnlContext;
 import ognl.OgnlRuntime;
@@ -38,11 +38,35 @@ public class DynamicContext {
     OgnlRuntime.setPropertyAccessor(ContextMap.class, new ContextAccessor());
   }
 
+  // largest buffer kept for the next context created by the same thread
+  private static final int MAX_REUSED_CAPACITY = 32 * 1024;
+  private static final ThreadLocal<StringBuilder> REUSABLE_BUFFER = new ThreadLocal<>();
+
   private final ContextMap bindings;
-  private final StringJoiner sqlBuilder = new StringJoiner(" ");
+  private final int sqlCapacity;
+  private StringBuilder sqlBuilder;
+  private boolean sqlAppended;
+  private Frame[] frames;
+  private int depth;
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, 0);
+  }
+
+  /**
+   * Creates a context whose SQL buffer is sized for the given capacity on the first append.
+   *
+   * @param configuration
+   *          the configuration
+   * @param parameterObject
+   *          the parameter object
+   * @param sqlCapacity
+   *          the expected length of the SQL, or {@code 0} if unknown
+   * @since 3.5.5
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, int sqlCapacity) {
+    this.sqlCapacity = sqlCapacity;
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       boolean existsTypeHandler = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
@@ -63,17 +87,243 @@ public class DynamicContext {
   }
 
   public void appendSql(String sql) {
-    sqlBuilder.add(sql);
+    if (sql == null && depth > 0 && !frames[depth - 1].raw) {
+      // a foreach item has always ignored null fragments
+      sql = "";
+    }
+    int start = buffer().length();
+    sqlBuilder.append(sql);
+    append(start, 0, depth - 1);
   }
 
   public String getSql() {
-    return sqlBuilder.toString().trim();
+    if (sqlBuilder == null) {
+      return "";
+    }
+    int start = 0;
+    int end = sqlBuilder.length();
+    while (start < end && sqlBuilder.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && sqlBuilder.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return sqlBuilder.substring(start, end);
   }
 
   public int getUniqueNumber() {
     return uniqueNumber++;
   }
 
+  /**
+   * Hands the SQL buffer over to the next context created by the current thread. The SQL of this context must not be
+   * used afterwards.
+   */
+  void release() {
+    if (sqlBuilder != null && sqlBuilder.capacity() <= MAX_REUSED_CAPACITY) {
+      sqlBuilder.setLength(0);
+      REUSABLE_BUFFER.set(sqlBuilder);
+    }
+    sqlBuilder = null;
+  }
+
+  /**
+   * Starts collecting the fragments appended from now on as they are, without separators, until
+   * {@link #endRawSql(int)} appends them as a single fragment.
+   *
+   * @return the position of the collected SQL in {@link #getSqlBuffer()}
+   */
+  int beginRawSql() {
+    push(true);
+    return buffer().length();
+  }
+
+  /**
+   * Appends the SQL collected since {@link #beginRawSql()}, as edited in {@link #getSqlBuffer()}, as a single fragment.
+   */
+  void endRawSql(int start) {
+    depth--;
+    append(start, 0, depth - 1);
+  }
+
+  StringBuilder getSqlBuffer() {
+    return buffer();
+  }
+
+  /**
+   * Starts rewriting the {@code #{item}} and {@code #{index}} placeholders of the fragments appended from now on,
+   * until {@link #endItems()}.
+   */
+  void beginItems(String item, String index) {
+    Frame frame = push(false);
+    frame.item = String.valueOf(item);
+    frame.index = index;
+  }
+
+  /**
+   * Starts a new item: placeholders are renamed to the given keys, and the prefix is appended before the first non
+   * blank fragment of the item.
+   */
+  void nextItem(String prefix, String itemKey, String indexKey) {
+    Frame frame = frames[depth - 1];
+    frame.prefix = prefix;
+    frame.prefixApplied = false;
+    frame.itemKey = itemKey;
+    frame.indexKey = indexKey;
+  }
+
+  boolean isItemPrefixApplied() {
+    return frames[depth - 1].prefixApplied;
+  }
+
+  void endItems() {
+    depth--;
+  }
+
+  private StringBuilder buffer() {
+    if (sqlBuilder == null) {
+      sqlBuilder = REUSABLE_BUFFER.get();
+      if (sqlBuilder == null) {
+        sqlBuilder = new StringBuilder(Math.max(sqlCapacity, 16));
+      } else {
+        REUSABLE_BUFFER.remove();
+        sqlBuilder.ensureCapacity(sqlCapacity);
+      }
+    }
+    return sqlBuilder;
+  }
+
+  private Frame push(boolean raw) {
+    if (frames == null) {
+      frames = new Frame[4];
+    } else if (depth == frames.length) {
+      frames = Arrays.copyOf(frames, depth * 2);
+    }
+    Frame frame = frames[depth];
+    if (frame == null) {
+      frame = new Frame();
+      frames[depth] = frame;
+    }
+    frame.raw = raw;
+    depth++;
+    return frame;
+  }
+
+  /**
+   * Passes the fragment at the end of the buffer, followed by {@code tail} characters, through the frames from
+   * {@code level} down.
+   */
+  private void append(int start, int tail, int level) {
+    for (int i = level; i >= 0; i--) {
+      Frame frame = frames[i];
+      if (frame.raw) {
+        return;
+      }
+      frame.rewritePlaceholders(sqlBuilder, start, sqlBuilder.length() - tail);
+      if (!frame.prefixApplied && !isBlank(start, sqlBuilder.length() - tail)) {
+        frame.prefixApplied = true;
+        int fragmentTail = sqlBuilder.length() - start;
+        sqlBuilder.insert(start, frame.prefix);
+        append(start, fragmentTail, i - 1);
+        start = sqlBuilder.length() - fragmentTail;
+      }
+    }
+    if (sqlAppended) {
+      sqlBuilder.insert(start, ' ');
+    }
+    sqlAppended = true;
+  }
+
+  private boolean isBlank(int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (sqlBuilder.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A {@code trim} or {@code foreach} node being applied.
+   */
+  private static class Frame {
+    private boolean raw;
+    private String item;
+    private String index;
+    private String itemKey;
+    private String indexKey;
+    private String prefix;
+    private boolean prefixApplied;
+
+    /**
+     * Renames the item or index at the start of the {@code #{}} placeholders between start and end, honoring escapes
+     * like {@link org.apache.ibatis.parsing.GenericTokenParser}.
+     */
+    void rewritePlaceholders(StringBuilder sql, int start, int end) {
+      int open = sql.indexOf("#{", start);
+      while (open >= 0 && open + 1 < end) {
+        if (open > start && sql.charAt(open - 1) == '\\') {
+          // escaped placeholder, remove the backslash
+          sql.deleteCharAt(open - 1);
+          end--;
+          open = sql.indexOf("#{", open + 1);
+          continue;
+        }
+        int offset = open + 2;
+        int from = offset;
+        int close = sql.indexOf("}", from);
+        while (close >= 0 && close < end && close > from && sql.charAt(close - 1) == '\\') {
+          from = close + 1;
+          close = sql.indexOf("}", from);
+        }
+        if (close < 0 || close >= end) {
+          // not closed, kept as it is
+          return;
+        }
+        for (int escaped = sql.indexOf("}", offset); escaped < close; escaped = sql.indexOf("}", escaped)) {
+          sql.deleteCharAt(escaped - 1);
+          close--;
+          end--;
+        }
+        int length = sql.length();
+        if (!rename(sql, offset, close, item, itemKey) && index != null) {
+          rename(sql, offset, close, index, indexKey);
+        }
+        close += sql.length() - length;
+        end += sql.length() - length;
+        open = sql.indexOf("#{", close + 1);
+      }
+    }
+
+    private static boolean rename(StringBuilder sql, int start, int end, String name, String key) {
+      int nameStart = start;
+      while (nameStart < end && isSpace(sql.charAt(nameStart))) {
+        nameStart++;
+      }
+      int nameEnd = nameStart + name.length();
+      if (nameEnd > end) {
+        return false;
+      }
+      for (int i = 0; i < name.length(); i++) {
+        if (sql.charAt(nameStart + i) != name.charAt(i)) {
+          return false;
+        }
+      }
+      if (nameEnd < end) {
+        char next = sql.charAt(nameEnd);
+        if (next != '.' && next != ',' && next != ':' && !isSpace(next)) {
+          return false;
+        }
+      }
+      sql.replace(start, nameEnd, key);
+      return true;
+    }
+
+    private static boolean isSpace(char c) {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+  }
+
   static class ContextMap extends HashMap<String, Object> {
     private static final long serialVersionUID = 2977601501966151582L;
     private final MetaObject parameterMetaObject;
@@ -27,22 +27,48 @@ public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  private final SqlShapeCache shapeCache;
+  // length of the last rendered SQL, used to size the buffer of the next one
+  private int sqlLengthHint;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    int shapeCacheSize = configuration.getSqlShapeCacheSize();
+    this.shapeCache = shapeCacheSize > 0 ? new SqlShapeCache(configuration, shapeCacheSize) : null;
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
+    DynamicContext context = new DynamicContext(configuration, parameterObject, sqlLengthHint);
     rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    String sql = context.getSql();
+    context.release();
+    sqlLengthHint = sql.length() + (sql.length() >> 3);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource;
+    if (shapeCache == null) {
+      sqlSource = new SqlSourceBuilder(configuration).parse(sql, parameterType, context.getBindings());
+    } else {
+      sqlSource = shapeCache.get(sql, parameterType, context.getBindings());
+    }
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     context.getBindings().forEach(boundSql::setAdditionalParameter);
     return boundSql;
   }
 
+  /**
+   * Gets the cache of the SQL sources parsed from the shapes rendered so far.
+   *
+   * @return the shape cache, or {@code null} if the {@code sqlShapeCacheSize} setting is {@code 0}
+   * @since 3.5.5
+   */
+  public SqlShapeCache getShapeCache() {
+    return shapeCache;
+  }
+
+  SqlNode getRootSqlNode() {
+    return rootSqlNode;
+  }
+
 }
@@ -29,7 +29,17 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return toBoolean(OgnlCache.getValue(expression, parameterObject));
+  }
+
+  /**
+   * Same as {@link #evaluateBoolean(String, Object)}, using the compiled form of the expression when it can resolve it.
+   */
+  boolean evaluateBoolean(String expression, CompiledExpression compiled, Object parameterObject) {
+    return toBoolean(getValue(expression, compiled, parameterObject));
+  }
+
+  private boolean toBoolean(Object value) {
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -40,7 +50,27 @@ public class ExpressionEvaluator {
   }
 
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return toIterable(expression, OgnlCache.getValue(expression, parameterObject));
+  }
+
+  /**
+   * Same as {@link #evaluateIterable(String, Object)}, using the compiled form of the expression when it can resolve it.
+   */
+  Iterable<?> evaluateIterable(String expression, CompiledExpression compiled, Object parameterObject) {
+    return toIterable(expression, getValue(expression, compiled, parameterObject));
+  }
+
+  private Object getValue(String expression, CompiledExpression compiled, Object parameterObject) {
+    if (compiled != null) {
+      Object value = compiled.evaluate(parameterObject);
+      if (value != CompiledExpression.UNRESOLVED) {
+        return value;
+      }
+    }
+    return OgnlCache.getValue(expression, parameterObject);
+  }
+
+  private Iterable<?> toIterable(String expression, Object value) {
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Decides how many elements a {@code <foreach>} renders for a collection of a given size. The elements past the end
+ * of the collection repeat its last element, which keeps the number of distinct SQL texts of an {@code IN} list small
+ * so that prepared statements and execution plans are reused.
+ * <p>
+ * Padding must only be used where repeating an element does not change the result, such as {@code IN} lists.
+ *
+ * @since 3.5.5
+ * @see PowerOfTwoPadding
+ * @see NoPadding
+ */
+public interface ForEachPadding {
+
+  /**
+   * Gets the number of elements to render.
+   *
+   * @param size
+   *          the size of the collection, at least 1
+   * @return the number of elements to render, the size itself or more
+   */
+  int getPaddedSize(int size);
+
+}
@@ -15,9 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Collection;
 import java.util.Map;
 
-import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -28,78 +28,127 @@ public class ForEachSqlNode implements SqlNode {
 
   private final ExpressionEvaluator evaluator;
   private final String collectionExpression;
+  private final CompiledExpression compiledCollectionExpression;
   private final SqlNode contents;
   private final String open;
   private final String close;
   private final String separator;
   private final String item;
   private final String index;
+  private final ForEachPadding padding;
   private final Configuration configuration;
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, null);
+  }
+
+  /**
+   * Creates a node that pads the collection it iterates over.
+   *
+   * @param padding
+   *          how to pad the collection, or {@code null} to use the default of the configuration
+   * @since 3.5.5
+   * @see Configuration#getDefaultForEachPadding()
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+      ForEachPadding padding) {
+    this(configuration, contents, collectionExpression, CompiledExpression.compile(collectionExpression), index, item, open, close, separator, padding);
+  }
+
+  private ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, CompiledExpression compiledCollectionExpression,
+      String index, String item, String open, String close, String separator, ForEachPadding padding) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
+    this.compiledCollectionExpression = compiledCollectionExpression;
     this.contents = contents;
     this.open = open;
     this.close = close;
     this.separator = separator;
     this.index = index;
     this.item = item;
+    this.padding = padding;
     this.configuration = configuration;
   }
 
   @Override
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, compiledCollectionExpression, bindings);
     if (!iterable.iterator().hasNext()) {
       return true;
     }
     boolean first = true;
     applyOpen(context);
+    context.beginItems(item, index);
     int i = 0;
+    Object last = null;
     for (Object o : iterable) {
-      DynamicContext oldContext = context;
-      if (first || separator == null) {
-        context = new PrefixedContext(context, "");
-      } else {
-        context = new PrefixedContext(context, separator);
-      }
-      int uniqueNumber = context.getUniqueNumber();
-      // Issue #709
-      if (o instanceof Map.Entry) {
-        @SuppressWarnings("unchecked")
-        Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        applyIndex(context, mapEntry.getKey(), uniqueNumber);
-        applyItem(context, mapEntry.getValue(), uniqueNumber);
-      } else {
-        applyIndex(context, i, uniqueNumber);
-        applyItem(context, o, uniqueNumber);
-      }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
-      if (first) {
-        first = !((PrefixedContext) context).isPrefixApplied();
-      }
-      context = oldContext;
+      first = applyEach(context, o, i, first);
+      last = o;
       i++;
     }
+    // repeat the last element, with its index, up to the padded size
+    int lastIndex = i - 1;
+    for (int paddedSize = paddedSize(iterable); i < paddedSize; i++) {
+      first = applyEach(context, last, lastIndex, first);
+    }
+    context.endItems();
     applyClose(context);
     context.getBindings().remove(item);
     context.getBindings().remove(index);
     return true;
   }
 
-  private void applyIndex(DynamicContext context, Object o, int i) {
+  private boolean applyEach(DynamicContext context, Object o, int i, boolean first) {
+    String prefix = first || separator == null ? "" : separator;
+    int uniqueNumber = context.getUniqueNumber();
+    String itemKey = itemizeItem(item, uniqueNumber);
+    String indexKey = index == null ? null : itemizeItem(index, uniqueNumber);
+    // Issue #709
+    if (o instanceof Map.Entry) {
+      @SuppressWarnings("unchecked")
+      Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
+      applyIndex(context, mapEntry.getKey(), indexKey);
+      applyItem(context, mapEntry.getValue(), itemKey);
+    } else {
+      applyIndex(context, i, indexKey);
+      applyItem(context, o, itemKey);
+    }
+    context.nextItem(prefix, itemKey, indexKey);
+    contents.apply(context);
+    return first && !context.isItemPrefixApplied();
+  }
+
+  private int paddedSize(Iterable<?> iterable) {
+    ForEachPadding padding = this.padding == null ? configuration.getDefaultForEachPadding() : this.padding;
+    if (padding == null || !(iterable instanceof Collection)) {
+      return 0;
+    }
+    return padding.getPaddedSize(((Collection<?>) iterable).size());
+  }
+
+  /**
+   * Returns a node iterating the same way as this one over the given contents.
+   */
+  ForEachSqlNode withContents(SqlNode contents) {
+    return new ForEachSqlNode(configuration, contents, collectionExpression, compiledCollectionExpression, index, item, open, close, separator, padding);
+  }
+
+  SqlNode getContents() {
+    return contents;
+  }
+
+  private void applyIndex(DynamicContext context, Object o, String indexKey) {
     if (index != null) {
       context.bind(index, o);
-      context.bind(itemizeItem(index, i), o);
+      context.bind(indexKey, o);
     }
   }
 
-  private void applyItem(DynamicContext context, Object o, int i) {
+  private void applyItem(DynamicContext context, Object o, String itemKey) {
     if (item != null) {
       context.bind(item, o);
-      context.bind(itemizeItem(item, i), o);
+      context.bind(itemKey, o);
     }
   }
 
@@ -119,100 +168,4 @@ public class ForEachSqlNode implements SqlNode {
     return ITEM_PREFIX + item + "_" + i;
   }
 
-  private static class FilteredDynamicContext extends DynamicContext {
-    private final DynamicContext delegate;
-    private final int index;
-    private final String itemIndex;
-    private final String item;
-
-    public FilteredDynamicContext(Configuration configuration,DynamicContext delegate, String itemIndex, String item, int i) {
-      super(configuration, null);
-      this.delegate = delegate;
-      this.index = i;
-      this.itemIndex = itemIndex;
-      this.item = item;
-    }
-
-    @Override
-    public Map<String, Object> getBindings() {
-      return delegate.getBindings();
-    }
-
-    @Override
-    public void bind(String name, Object value) {
-      delegate.bind(name, value);
-    }
-
-    @Override
-    public String getSql() {
-      return delegate.getSql();
-    }
-
-    @Override
-    public void appendSql(String sql) {
-      GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
-        String newContent = content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemizeItem(item, index));
-        if (itemIndex != null && newContent.equals(content)) {
-          newContent = content.replaceFirst("^\\s*" + itemIndex + "(?![^.,:\\s])", itemizeItem(itemIndex, index));
-        }
-        return "#{" + newContent + "}";
-      });
-
-      delegate.appendSql(parser.parse(sql));
-    }
-
-    @Override
-    public int getUniqueNumber() {
-      return delegate.getUniqueNumber();
-    }
-
-  }
-
-
-  private class PrefixedContext extends DynamicContext {
-    private final DynamicContext delegate;
-    private final String prefix;
-    private boolean prefixApplied;
-
-    public PrefixedContext(DynamicContext delegate, String prefix) {
-      super(configuration, null);
-      this.delegate = delegate;
-      this.prefix = prefix;
-      this.prefixApplied = false;
-    }
-
-    public boolean isPrefixApplied() {
-      return prefixApplied;
-    }
-
-    @Override
-    public Map<String, Object> getBindings() {
-      return delegate.getBindings();
-    }
-
-    @Override
-    public void bind(String name, Object value) {
-      delegate.bind(name, value);
-    }
-
-    @Override
-    public void appendSql(String sql) {
-      if (!prefixApplied && sql != null && sql.trim().length() > 0) {
-        delegate.appendSql(prefix);
-        prefixApplied = true;
-      }
-      delegate.appendSql(sql);
-    }
-
-    @Override
-    public String getSql() {
-      return delegate.getSql();
-    }
-
-    @Override
-    public int getUniqueNumber() {
-      return delegate.getUniqueNumber();
-    }
-  }
-
 }
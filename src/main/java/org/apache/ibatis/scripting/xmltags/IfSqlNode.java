@@ -21,21 +21,38 @@ package org.apache.ibatis.scripting.xmltags;
 public class IfSqlNode implements SqlNode {
   private final ExpressionEvaluator evaluator;
   private final String test;
+  private final CompiledExpression compiledTest;
   private final SqlNode contents;
 
   public IfSqlNode(SqlNode contents, String test) {
+    this(contents, test, CompiledExpression.compile(test));
+  }
+
+  private IfSqlNode(SqlNode contents, String test, CompiledExpression compiledTest) {
     this.test = test;
+    this.compiledTest = compiledTest;
     this.contents = contents;
     this.evaluator = new ExpressionEvaluator();
   }
 
   @Override
   public boolean apply(DynamicContext context) {
-    if (evaluator.evaluateBoolean(test, context.getBindings())) {
+    if (evaluator.evaluateBoolean(test, compiledTest, context.getBindings())) {
       contents.apply(context);
       return true;
     }
     return false;
   }
 
+  /**
+   * Returns a node with the same test, compiled or not, over the given contents.
+   */
+  IfSqlNode withContents(SqlNode contents) {
+    return new IfSqlNode(contents, test, compiledTest);
+  }
+
+  SqlNode getContents() {
+    return contents;
+  }
+
 }
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Pads collections to the next power of two, so that lists of up to n elements produce about log2(n) SQL texts.
+ *
+ * @since 3.5.5
+ */
+public class PowerOfTwoPadding implements ForEachPadding {
+
+  @Override
+  public int getPaddedSize(int size) {
+    if (size <= 1) {
+      return size;
+    }
+    int highestOneBit = Integer.highestOneBit(size);
+    return highestOneBit == size || highestOneBit == 1 << 30 ? size : highestOneBit << 1;
+  }
+
+}
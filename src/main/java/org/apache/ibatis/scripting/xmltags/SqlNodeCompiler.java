@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a tree of {@link SqlNode}s parsed by {@link XMLScriptBuilder} into an equivalent tree that appends adjacent
+ * static text at once.
+ * <p>
+ * Nodes this class does not know, such as {@link TextSqlNode} or custom nodes, are kept as they are.
+ *
+ * @since 3.5.5
+ */
+final class SqlNodeCompiler {
+
+  private SqlNodeCompiler() {
+    // Prevent Instantiation of Static Class
+  }
+
+  static SqlNode compile(SqlNode node) {
+    return compile(node, " ");
+  }
+
+  /**
+   * Compiles a node.
+   *
+   * @param node
+   *          the node
+   * @param textSeparator
+   *          the separator the enclosing context puts between appended fragments, or {@code null} if static text must
+   *          not be merged
+   */
+  private static SqlNode compile(SqlNode node, String textSeparator) {
+    if (node instanceof MixedSqlNode) {
+      List<SqlNode> contents = new ArrayList<>();
+      flatten((MixedSqlNode) node, textSeparator, contents);
+      return contents.size() == 1 ? contents.get(0) : new MixedSqlNode(contents);
+    }
+    if (node instanceof IfSqlNode) {
+      IfSqlNode ifNode = (IfSqlNode) node;
+      return ifNode.withContents(compile(ifNode.getContents(), textSeparator));
+    }
+    if (node instanceof ChooseSqlNode) {
+      ChooseSqlNode chooseNode = (ChooseSqlNode) node;
+      List<SqlNode> ifNodes = new ArrayList<>(chooseNode.getIfSqlNodes().size());
+      for (SqlNode ifNode : chooseNode.getIfSqlNodes()) {
+        ifNodes.add(compile(ifNode, textSeparator));
+      }
+      SqlNode defaultNode = chooseNode.getDefaultSqlNode();
+      return new ChooseSqlNode(ifNodes, defaultNode == null ? null : compile(defaultNode, textSeparator));
+    }
+    if (node instanceof TrimSqlNode) {
+      // the trimmed buffer concatenates fragments without separator
+      return ((TrimSqlNode) node).withContents(compile(((TrimSqlNode) node).getContents(), ""));
+    }
+    if (node instanceof ForEachSqlNode) {
+      // each item prefixes the separator on its first non blank fragment, which merging would move
+      ForEachSqlNode forEachNode = (ForEachSqlNode) node;
+      return forEachNode.withContents(compile(forEachNode.getContents(), null));
+    }
+    return node;
+  }
+
+  private static void flatten(MixedSqlNode node, String textSeparator, List<SqlNode> contents) {
+    for (SqlNode child : node.getContents()) {
+      SqlNode compiled = compile(child, textSeparator);
+      if (compiled instanceof MixedSqlNode) {
+        for (SqlNode grandChild : ((MixedSqlNode) compiled).getContents()) {
+          append(grandChild, textSeparator, contents);
+        }
+      } else {
+        append(compiled, textSeparator, contents);
+      }
+    }
+  }
+
+  private static void append(SqlNode node, String textSeparator, List<SqlNode> contents) {
+    int last = contents.size() - 1;
+    if (textSeparator != null && node instanceof StaticTextSqlNode && last >= 0
+        && contents.get(last) instanceof StaticTextSqlNode) {
+      String text = ((StaticTextSqlNode) contents.get(last)).getText() + textSeparator
+          + ((StaticTextSqlNode) node).getText();
+      contents.set(last, new StaticTextSqlNode(text));
+    } else {
+      contents.add(node);
+    }
+  }
+
+}
@@ -0,0 +1,180 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Keeps the SQL sources parsed from the SQL rendered by a {@link DynamicSqlSource}, so that rendering the same shape
+ * again, i.e. the same branches of {@code if} and {@code choose} and the same {@code foreach} sizes, skips parsing the
+ * parameter placeholders and building the parameter mappings.
+ * <p>
+ * The rendered SQL is the key, since it reflects the shape exactly. The type of a parameter mapping may also depend on
+ * the runtime type of an additional parameter (e.g. a {@code foreach} item), so an entry is only reused when the
+ * parameter object has the same type and the additional parameters it refers to have the same types. The types are
+ * recorded when the entry is created; a lookup only compares the classes of the additional parameters, and resolves
+ * the type of a nested property again only when it goes through an additional parameter. The cache is emptied when it
+ * is full, since dynamic SQL may produce endless variants.
+ *
+ * @since 3.5.5
+ */
+public class SqlShapeCache {
+
+  private final Configuration configuration;
+  private final int maxSize;
+  private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public SqlShapeCache(Configuration configuration, int maxSize) {
+    this.configuration = configuration;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the SQL source of rendered SQL, parsing it on a miss.
+   *
+   * @param sql
+   *          the rendered SQL, with parameter placeholders
+   * @param parameterType
+   *          the type of the parameter object
+   * @param additionalParameters
+   *          the bindings of the rendering
+   * @return the SQL source
+   */
+  public SqlSource get(String sql, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    Shape shape = shapes.get(sql);
+    if (shape != null && shape.matches(configuration, parameterType, additionalParameters)) {
+      hits.increment();
+      return shape.sqlSource;
+    }
+    misses.increment();
+    SqlSource sqlSource = new SqlSourceBuilder(configuration).parse(sql, parameterType, additionalParameters);
+    if (shapes.size() >= maxSize) {
+      shapes.clear();
+    }
+    shapes.put(sql, new Shape(configuration, sqlSource, parameterType, additionalParameters));
+    return sqlSource;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public int getSize() {
+    return shapes.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  private static final class Shape {
+    private final SqlSource sqlSource;
+    private final Class<?> parameterType;
+    // the additional parameters the properties start with, and the type of each, null if there was none by that name
+    private final String[] names;
+    private final Class<?>[] types;
+    // the nested properties that go through an additional parameter, whose type may depend on the values it holds
+    private final String[] nestedProperties;
+    private final Class<?>[] nestedTypes;
+
+    Shape(Configuration configuration, SqlSource sqlSource, Class<?> parameterType, Map<String, Object> additionalParameters) {
+      this.sqlSource = sqlSource;
+      this.parameterType = parameterType;
+      Map<String, Class<?>> namedTypes = new LinkedHashMap<>();
+      Map<String, Class<?>> nested = new LinkedHashMap<>();
+      MetaObject metaParameters = null;
+      for (ParameterMapping parameterMapping : sqlSource.getBoundSql(null).getParameterMappings()) {
+        String property = parameterMapping.getProperty();
+        if (property == null) {
+          continue;
+        }
+        if (isSimple(property)) {
+          namedTypes.put(property, additionalType(additionalParameters, property));
+          continue;
+        }
+        // MapWrapper looks nested properties up by their indexed name
+        String name = new PropertyTokenizer(property).getIndexedName();
+        namedTypes.put(name, additionalType(additionalParameters, name));
+        if (additionalParameters.containsKey(name)) {
+          if (metaParameters == null) {
+            metaParameters = configuration.newMetaObject(additionalParameters);
+          }
+          nested.put(property, additionalType(metaParameters, property));
+        }
+      }
+      this.names = namedTypes.keySet().toArray(new String[0]);
+      this.types = namedTypes.values().toArray(new Class<?>[0]);
+      this.nestedProperties = nested.keySet().toArray(new String[0]);
+      this.nestedTypes = nested.values().toArray(new Class<?>[0]);
+    }
+
+    boolean matches(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
+      if (this.parameterType != parameterType) {
+        return false;
+      }
+      for (int i = 0; i < names.length; i++) {
+        if (types[i] != additionalType(additionalParameters, names[i])) {
+          return false;
+        }
+      }
+      if (nestedProperties.length == 0) {
+        return true;
+      }
+      MetaObject metaParameters = configuration.newMetaObject(additionalParameters);
+      for (int i = 0; i < nestedProperties.length; i++) {
+        if (nestedTypes[i] != additionalType(metaParameters, nestedProperties[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isSimple(String property) {
+      return property.indexOf('.') < 0 && property.indexOf('[') < 0;
+    }
+
+    // same result as the MetaObject lookup below for a simple property, without creating a MetaObject
+    private static Class<?> additionalType(Map<String, Object> additionalParameters, String name) {
+      if (!additionalParameters.containsKey(name)) {
+        return null;
+      }
+      Object value = additionalParameters.get(name);
+      return value == null ? Object.class : value.getClass();
+    }
+
+    // same lookup as SqlSourceBuilder, which prefers the type of an additional parameter (issue #448)
+    private static Class<?> additionalType(MetaObject metaParameters, String property) {
+      return metaParameters.hasGetter(property) ? metaParameters.getGetterType(property) : null;
+    }
+  }
+
+}
@@ -19,7 +19,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.session.Configuration;
@@ -51,12 +50,24 @@ public class TrimSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
-    FilteredDynamicContext filteredDynamicContext = new FilteredDynamicContext(context);
-    boolean result = contents.apply(filteredDynamicContext);
-    filteredDynamicContext.applyAll();
+    int start = context.beginRawSql();
+    boolean result = contents.apply(context);
+    applyAll(context.getSqlBuffer(), start);
+    context.endRawSql(start);
     return result;
   }
 
+  /**
+   * Returns a node trimming the given contents the same way as this one.
+   */
+  TrimSqlNode withContents(SqlNode contents) {
+    return new TrimSqlNode(configuration, contents, prefix, prefixesToOverride, suffix, suffixesToOverride);
+  }
+
+  SqlNode getContents() {
+    return contents;
+  }
+
   private static List<String> parseOverrides(String overrides) {
     if (overrides != null) {
       final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
@@ -69,93 +80,86 @@ public class TrimSqlNode implements SqlNode {
     return Collections.emptyList();
   }
 
-  private class FilteredDynamicContext extends DynamicContext {
-    private DynamicContext delegate;
-    private boolean prefixApplied;
-    private boolean suffixApplied;
-    private StringBuilder sqlBuffer;
-
-    public FilteredDynamicContext(DynamicContext delegate) {
-      super(configuration, null);
-      this.delegate = delegate;
-      this.prefixApplied = false;
-      this.suffixApplied = false;
-      this.sqlBuffer = new StringBuilder();
+  /**
+   * Trims the SQL appended by the contents, from start to the end of the buffer, in place.
+   */
+  private void applyAll(StringBuilder sql, int start) {
+    int end = sql.length();
+    int first = start;
+    while (first < end && sql.charAt(first) <= ' ') {
+      first++;
+    }
+    while (end > first && sql.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    sql.setLength(end);
+    sql.delete(start, first);
+    if (sql.length() > start) {
+      // both overrides are matched against the trimmed SQL, before any of them is applied
+      String prefixToRemove = findPrefixToRemove(sql, start);
+      String suffixToRemove = findSuffixToRemove(sql, start);
+      applyPrefix(sql, start, prefixToRemove);
+      applySuffix(sql, suffixToRemove);
     }
+  }
 
-    public void applyAll() {
-      sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
-      String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
-      if (trimmedUppercaseSql.length() > 0) {
-        applyPrefix(sqlBuffer, trimmedUppercaseSql);
-        applySuffix(sqlBuffer, trimmedUppercaseSql);
+  private String findPrefixToRemove(StringBuilder sql, int start) {
+    if (prefixesToOverride != null) {
+      for (String toRemove : prefixesToOverride) {
+        if (regionMatches(sql, start, start, toRemove)) {
+          return toRemove;
+        }
       }
-      delegate.appendSql(sqlBuffer.toString());
     }
+    return null;
+  }
 
-    @Override
-    public Map<String, Object> getBindings() {
-      return delegate.getBindings();
+  private String findSuffixToRemove(StringBuilder sql, int start) {
+    if (suffixesToOverride != null) {
+      for (String toRemove : suffixesToOverride) {
+        String trimmed = toRemove.trim();
+        if (regionMatches(sql, start, sql.length() - toRemove.length(), toRemove)
+            || regionMatches(sql, start, sql.length() - trimmed.length(), trimmed)) {
+          return toRemove;
+        }
+      }
     }
+    return null;
+  }
 
-    @Override
-    public void bind(String name, Object value) {
-      delegate.bind(name, value);
+  private void applyPrefix(StringBuilder sql, int start, String toRemove) {
+    if (toRemove != null) {
+      sql.delete(start, start + toRemove.trim().length());
     }
-
-    @Override
-    public int getUniqueNumber() {
-      return delegate.getUniqueNumber();
+    if (prefix != null) {
+      sql.insert(start, " ");
+      sql.insert(start, prefix);
     }
+  }
 
-    @Override
-    public void appendSql(String sql) {
-      sqlBuffer.append(sql);
+  private void applySuffix(StringBuilder sql, String toRemove) {
+    if (toRemove != null) {
+      sql.setLength(sql.length() - toRemove.trim().length());
     }
-
-    @Override
-    public String getSql() {
-      return delegate.getSql();
+    if (suffix != null) {
+      sql.append(" ");
+      sql.append(suffix);
     }
+  }
 
-    private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
-      if (!prefixApplied) {
-        prefixApplied = true;
-        if (prefixesToOverride != null) {
-          for (String toRemove : prefixesToOverride) {
-            if (trimmedUppercaseSql.startsWith(toRemove)) {
-              sql.delete(0, toRemove.trim().length());
-              break;
-            }
-          }
-        }
-        if (prefix != null) {
-          sql.insert(0, " ");
-          sql.insert(0, prefix);
-        }
-      }
+  /**
+   * Whether the SQL from offset, which must not be before start, matches an upper case override ignoring case.
+   */
+  private static boolean regionMatches(StringBuilder sql, int start, int offset, String override) {
+    if (offset < start || offset + override.length() > sql.length()) {
+      return false;
     }
-
-    private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
-      if (!suffixApplied) {
-        suffixApplied = true;
-        if (suffixesToOverride != null) {
-          for (String toRemove : suffixesToOverride) {
-            if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
-              int start = sql.length() - toRemove.trim().length();
-              int end = sql.length();
-              sql.delete(start, end);
-              break;
-            }
-          }
-        }
-        if (suffix != null) {
-          sql.append(" ");
-          sql.append(suffix);
-        }
+    for (int i = 0; i < override.length(); i++) {
+      if (Character.toUpperCase(sql.charAt(offset + i)) != override.charAt(i)) {
+        return false;
       }
     }
-
+    return true;
   }
 
 }
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -34,17 +35,30 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatisticsRegistry;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.InvalidationBus;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.cache.invalidation.LoopbackTransport;
+import org.apache.ibatis.cache.invalidation.MulticastTransport;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResultHandler;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.QueryRefresher;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -52,6 +66,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -86,6 +101,10 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.ForEachPadding;
+import org.apache.ibatis.scripting.xmltags.NoPadding;
+import org.apache.ibatis.scripting.xmltags.PowerOfTwoPadding;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -130,15 +149,25 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compiledRowMappingEnabled;
+  protected int sqlShapeCacheSize = 64;
+  protected ForEachPadding defaultForEachPadding;
+  protected java.util.concurrent.Executor asyncExecutor;
+  protected SqlSessionFactory asyncSqlSessionFactory;
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
   protected Class<? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected CacheInvalidation cacheInvalidation = CacheInvalidation.NAMESPACE;
+  protected boolean cacheStatisticsEnabled;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  protected Integer defaultBatchSize;
+  protected Integer maxBatchParameterCount;
+  protected BatchResultHandler batchResultHandler;
   protected ResultSetType defaultResultSetType;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
@@ -176,6 +205,11 @@ public class Configuration {
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
+  protected final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
+  protected final QueryRefresher queryRefresher;
+  protected final TableVersions tableVersions = new TableVersions();
+  protected InvalidationBus invalidationBus;
+  protected final CacheStatisticsRegistry cacheStatistics = new CacheStatisticsRegistry();
 
   protected final Set<String> loadedResources = new HashSet<>();
   protected final Map<String, XNode> sqlFragments = new StrictMap<>("XML fragments parsed from previous mappers");
@@ -203,18 +237,31 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
 
+    typeAliasRegistry.registerAlias("JAVA", JavaCacheSerializer.class);
+    typeAliasRegistry.registerAlias("BINARY", BinaryCacheSerializer.class);
+
+    typeAliasRegistry.registerAlias("LOOPBACK", LoopbackTransport.class);
+    typeAliasRegistry.registerAlias("MULTICAST", MulticastTransport.class);
+
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
+    typeAliasRegistry.registerAlias("COMPILED", CompiledLanguageDriver.class);
+
+    typeAliasRegistry.registerAlias("NO_PADDING", NoPadding.class);
+    typeAliasRegistry.registerAlias("POWER_OF_TWO", PowerOfTwoPadding.class);
 
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
     typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
@@ -229,6 +276,8 @@ public class Configuration {
 
     languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
     languageRegistry.register(RawLanguageDriver.class);
+
+    queryRefresher = new QueryRefresher(this);
   }
 
   public String getLogPrefix() {
@@ -285,6 +334,142 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * Gets the number of SQL shapes each dynamic statement keeps parsed.
+   *
+   * @return the shape cache size
+   * @since 3.5.5
+   */
+  public int getSqlShapeCacheSize() {
+    return sqlShapeCacheSize;
+  }
+
+  /**
+   * Sets the number of SQL shapes each dynamic statement built from now on keeps parsed, so that rendering a shape
+   * again does not parse its parameter placeholders again.
+   *
+   * @param sqlShapeCacheSize
+   *          the shape cache size, {@code 0} to parse the SQL of dynamic statements on every execution
+   * @since 3.5.5
+   * @see org.apache.ibatis.scripting.xmltags.SqlShapeCache
+   */
+  public void setSqlShapeCacheSize(int sqlShapeCacheSize) {
+    this.sqlShapeCacheSize = sqlShapeCacheSize;
+  }
+
+  /**
+   * Gets the padding of the {@code <foreach>} elements that do not specify one.
+   *
+   * @return the default padding, or {@code null} if collections are not padded
+   * @since 3.5.5
+   */
+  public ForEachPadding getDefaultForEachPadding() {
+    return defaultForEachPadding;
+  }
+
+  /**
+   * Sets the padding of the {@code <foreach>} elements that do not specify one. Since padding repeats the last element
+   * of a collection, it is only safe when all of them build {@code IN} lists.
+   *
+   * @param defaultForEachPadding
+   *          the default padding, or {@code null} not to pad collections
+   * @since 3.5.5
+   */
+  public void setDefaultForEachPadding(ForEachPadding defaultForEachPadding) {
+    this.defaultForEachPadding = defaultForEachPadding;
+  }
+
+  /**
+   * Gets whether simple result maps are mapped through a {@link CompiledRowMapper}.
+   *
+   * @return true if compiled row mapping is enabled
+   * @since 3.5.5
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * Sets whether simple result maps are mapped through a {@link CompiledRowMapper}.
+   * Result maps using discriminators, nested selects, nested result maps, constructor mappings or lazy loading
+   * are always mapped reflectively.
+   *
+   * @param compiledRowMappingEnabled
+   *          true to enable compiled row mapping
+   * @since 3.5.5
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * Gets the executor that runs mapper methods returning {@code CompletableFuture} or {@code CompletionStage}.
+   *
+   * @return the configured executor, or a shared pool of daemon threads dedicated to such methods when none is set
+   * @since 3.5.5
+   */
+  public java.util.concurrent.Executor getAsyncExecutor() {
+    return asyncExecutor == null ? DefaultAsyncExecutor.getInstance() : asyncExecutor;
+  }
+
+  /**
+   * Sets the executor that runs mapper methods returning {@code CompletableFuture} or {@code CompletionStage}.
+   * Each such call is executed on this executor within its own {@link SqlSession}, which is committed when the
+   * statement succeeds and rolled back otherwise.
+   *
+   * @param asyncExecutor
+   *          the executor, or {@code null} to use a shared pool of daemon threads dedicated to such methods
+   * @since 3.5.5
+   */
+  public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  /**
+   * Gets the factory that opens the sessions of mapper methods returning {@code CompletableFuture} or
+   * {@code CompletionStage}, when the session the mapper was obtained from cannot open one itself.
+   *
+   * @return the factory, or {@code null}
+   * @since 3.5.5
+   */
+  public SqlSessionFactory getAsyncSqlSessionFactory() {
+    return asyncSqlSessionFactory;
+  }
+
+  /**
+   * Sets the factory that opens the sessions of mapper methods returning {@code CompletableFuture} or
+   * {@code CompletionStage}. Sessions opened by the default factory, or by a {@link SqlSessionManager}, open them
+   * with their own settings. This factory is used for other {@link SqlSession} implementations.
+   *
+   * @param asyncSqlSessionFactory
+   *          the factory, or {@code null}
+   * @since 3.5.5
+   */
+  public void setAsyncSqlSessionFactory(SqlSessionFactory asyncSqlSessionFactory) {
+    this.asyncSqlSessionFactory = asyncSqlSessionFactory;
+  }
+
+  /**
+   * Gets the row mappers compiled so far, keyed by result map id and result set layout. The map is emptied once it
+   * holds 4096 row mappers, so that an endless number of layouts does not grow it without bounds.
+   *
+   * @return the compiled row mappers
+   * @since 3.5.5
+   */
+  public Map<String, CompiledRowMapper> getCompiledRowMappers() {
+    return compiledRowMappers;
+  }
+
+  /**
+   * Gets the refresher that runs queries again to refresh the entries of caches with a refresh ahead window.
+   *
+   * @return the query refresher
+   * @since 3.5.5
+   */
+  public QueryRefresher getQueryRefresher() {
+    return queryRefresher;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -466,6 +651,72 @@ public class Configuration {
     this.defaultFetchSize = defaultFetchSize;
   }
 
+  /**
+   * Gets the number of parameter sets after which a batched statement is flushed, unless the statement sets its own.
+   *
+   * @return the default batch size, {@code null} if batches are only flushed on demand
+   * @since 3.5.5
+   */
+  public Integer getDefaultBatchSize() {
+    return defaultBatchSize;
+  }
+
+  /**
+   * Sets the number of parameter sets after which a batched statement is flushed, unless the statement sets its own.
+   *
+   * @param defaultBatchSize
+   *          the default batch size, {@code null} or {@code 0} to flush batches only on demand
+   * @since 3.5.5
+   */
+  public void setDefaultBatchSize(Integer defaultBatchSize) {
+    this.defaultBatchSize = defaultBatchSize;
+  }
+
+  /**
+   * Gets the number of bound parameters after which all pending batches are flushed.
+   *
+   * @return the maximum parameter count, {@code null} if not limited
+   * @since 3.5.5
+   */
+  public Integer getMaxBatchParameterCount() {
+    return maxBatchParameterCount;
+  }
+
+  /**
+   * Sets the number of bound parameters after which all pending batches are flushed. As the driver keeps every
+   * parameter of a batch until it is executed, this bounds the memory held by pending batches.
+   *
+   * @param maxBatchParameterCount
+   *          the maximum parameter count, {@code null} or {@code 0} for no limit
+   * @since 3.5.5
+   */
+  public void setMaxBatchParameterCount(Integer maxBatchParameterCount) {
+    this.maxBatchParameterCount = maxBatchParameterCount;
+  }
+
+  /**
+   * Gets the handler that batch executors pass their results to.
+   *
+   * @return the batch result handler, {@code null} if results are returned by {@code flushStatements()}
+   * @since 3.5.5
+   */
+  public BatchResultHandler getBatchResultHandler() {
+    return batchResultHandler;
+  }
+
+  /**
+   * Sets the handler that batch executors pass their results to instead of returning them from
+   * {@code flushStatements()}. The handler is global: it is used by the batch executors of all the sessions opened
+   * afterwards, which keep the one set when they were opened.
+   *
+   * @param batchResultHandler
+   *          the batch result handler
+   * @since 3.5.5
+   */
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    this.batchResultHandler = batchResultHandler;
+  }
+
   /**
    * Gets the default result set type.
    *
@@ -503,6 +754,95 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * Gets how inserts, updates and deletes invalidate the second level cache.
+   *
+   * @return the cache invalidation
+   * @since 3.5.5
+   */
+  public CacheInvalidation getCacheInvalidation() {
+    return cacheInvalidation;
+  }
+
+  /**
+   * Sets how inserts, updates and deletes invalidate the second level cache.
+   *
+   * @param cacheInvalidation
+   *          {@link CacheInvalidation#NAMESPACE} to clear the cache of the namespace of the statement, which is the
+   *          default, or {@link CacheInvalidation#TABLE} to invalidate the entries read from the tables it writes
+   * @since 3.5.5
+   */
+  public void setCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    this.cacheInvalidation = cacheInvalidation;
+  }
+
+  /**
+   * Gets the versions of the tables that second level cache entries are read from, when they are invalidated by
+   * table.
+   *
+   * @return the table versions
+   * @since 3.5.5
+   */
+  public TableVersions getTableVersions() {
+    return tableVersions;
+  }
+
+  /**
+   * Gets whether the second level caches built from now on record statistics.
+   *
+   * @return true if cache statistics are enabled
+   * @since 3.5.5
+   */
+  public boolean isCacheStatisticsEnabled() {
+    return cacheStatisticsEnabled;
+  }
+
+  /**
+   * Sets whether the second level caches built from now on record statistics in {@link #getCacheStatistics()}.
+   *
+   * @param cacheStatisticsEnabled
+   *          whether cache statistics are enabled
+   * @since 3.5.5
+   */
+  public void setCacheStatisticsEnabled(boolean cacheStatisticsEnabled) {
+    this.cacheStatisticsEnabled = cacheStatisticsEnabled;
+  }
+
+  /**
+   * Gets the statistics of the second level caches, when they are enabled.
+   *
+   * @return the cache statistics registry
+   * @since 3.5.5
+   */
+  public CacheStatisticsRegistry getCacheStatistics() {
+    return cacheStatistics;
+  }
+
+  /**
+   * Gets the bus that shares the second level cache invalidations of this configuration with other nodes.
+   *
+   * @return the invalidation bus, or {@code null} if invalidations are not shared
+   * @since 3.5.5
+   */
+  public InvalidationBus getInvalidationBus() {
+    return invalidationBus;
+  }
+
+  /**
+   * Sets the transport used to share the second level cache invalidations with other nodes. It must be set before
+   * mappers are added, since only the caches built afterwards report their invalidations.
+   *
+   * @param invalidationTransport
+   *          the transport, or {@code null} not to share invalidations
+   * @since 3.5.5
+   */
+  public void setInvalidationTransport(InvalidationTransport invalidationTransport) {
+    if (invalidationBus != null) {
+      invalidationBus.close();
+    }
+    this.invalidationBus = invalidationTransport == null ? null : new InvalidationBus(this, invalidationTransport);
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor used when no async executor is configured. It is shared by all configurations and only created on
+ * first use. Its daemon threads are stopped after a minute without work, so that it neither keeps the JVM alive nor
+ * has to be shut down. Unlike the common pool, it is meant for tasks that block on JDBC calls.
+ *
+ * @since 3.5.5
+ */
+final class DefaultAsyncExecutor {
+
+  private static final int MAX_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+  private static final Executor INSTANCE = newExecutor();
+
+  private DefaultAsyncExecutor() {
+    // Prevent Instantiation
+  }
+
+  static Executor getInstance() {
+    return INSTANCE;
+  }
+
+  private static Executor newExecutor() {
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+}
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
@@ -62,6 +63,7 @@ public class DefaultSqlSession implements SqlSession {
       private final boolean autoCommit;
       private boolean dirty;
       private List<Cursor<?>> cursorList;
+      private Supplier<SqlSession> siblingOpener;
 
       public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit) {
         this.configuration = configuration;
@@ -75,6 +77,21 @@ public class DefaultSqlSession implements SqlSession {
         this(configuration, executor, false);
       }
 
+      void setSiblingOpener(Supplier<SqlSession> siblingOpener) {
+        this.siblingOpener = siblingOpener;
+      }
+
+      /**
+       * Opens a new session from the factory, and with the executor type, isolation level and auto-commit setting,
+       * this session was opened with. Unlike this session, it can be used on another thread.
+       *
+       * @return the new session, or {@code null} if this session was not opened by a {@link DefaultSqlSessionFactory}
+       * @since 3.5.5
+       */
+      public SqlSession openSibling() {
+        return siblingOpener == null ? null : siblingOpener.get();
+      }
+
       @Override
       public <T> T selectOne(String statement) {
         return this.selectOne(statement, null);
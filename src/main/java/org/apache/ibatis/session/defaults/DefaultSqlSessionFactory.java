@@ -103,7 +103,9 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
               //根据配置创建 Executor 对象
               final Executor executor = configuration.newExecutor(tx, execType);
               //创建 DefaultSqlSession 对象
-              return new DefaultSqlSession(configuration, executor, autoCommit);
+              DefaultSqlSession session = new DefaultSqlSession(configuration, executor, autoCommit);
+              session.setSiblingOpener(() -> openSessionFromDataSource(execType, level, autoCommit));
+              return session;
             } catch (Exception e) {
 
               //mynote: 关闭 Transaction
@@ -137,7 +139,11 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
               final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
               final Transaction tx = transactionFactory.newTransaction(connection);
               final Executor executor = configuration.newExecutor(tx, execType);
-              return new DefaultSqlSession(configuration, executor, autoCommit);
+              DefaultSqlSession session = new DefaultSqlSession(configuration, executor, autoCommit);
+              // a connection cannot be shared across threads, siblings get theirs from the data source
+              final boolean siblingAutoCommit = autoCommit;
+              session.setSiblingOpener(() -> openSessionFromDataSource(execType, null, siblingAutoCommit));
+              return session;
             } catch (Exception e) {
               throw ExceptionFactory.wrapException("Error opening session.  Cause: " + e, e);
             } finally {
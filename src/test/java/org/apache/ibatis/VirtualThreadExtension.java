@@ -0,0 +1,102 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+/**
+ * Runs the test methods of a class, and its before and after each callbacks, on a new virtual thread per invocation.
+ * Lets an existing suite be run unchanged on virtual threads by extending it with this extension registered. Disables
+ * the class when the JVM does not support virtual threads.
+ */
+public class VirtualThreadExtension implements ExecutionCondition, InvocationInterceptor {
+
+  private static final ThreadFactory THREAD_FACTORY = virtualThreadFactory();
+
+  /**
+   * Returns whether the JVM supports virtual threads.
+   *
+   * @return true if virtual threads can be started
+   */
+  public static boolean isSupported() {
+    return THREAD_FACTORY != null;
+  }
+
+  @Override
+  public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+    return !isSupported() ? ConditionEvaluationResult.disabled("Virtual threads are not supported by this JVM")
+        : ConditionEvaluationResult.enabled("Virtual threads are supported by this JVM");
+  }
+
+  @Override
+  public void interceptBeforeEachMethod(Invocation<Void> invocation,
+      ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+    proceedOnVirtualThread(invocation);
+  }
+
+  @Override
+  public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+      ExtensionContext extensionContext) throws Throwable {
+    proceedOnVirtualThread(invocation);
+  }
+
+  @Override
+  public void interceptTestTemplateMethod(Invocation<Void> invocation,
+      ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+    proceedOnVirtualThread(invocation);
+  }
+
+  @Override
+  public void interceptAfterEachMethod(Invocation<Void> invocation,
+      ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+    proceedOnVirtualThread(invocation);
+  }
+
+  private static void proceedOnVirtualThread(Invocation<Void> invocation) throws Throwable {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread thread = THREAD_FACTORY.newThread(() -> {
+      try {
+        invocation.proceed();
+      } catch (Throwable t) {
+        failure.set(t);
+      }
+    });
+    thread.start();
+    thread.join();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  private static ThreadFactory virtualThreadFactory() {
+    try {
+      // Thread.ofVirtual() is available since Java 21; calls go through the public Thread.Builder interface
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+}
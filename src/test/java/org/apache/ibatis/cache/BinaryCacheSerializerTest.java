@@ -0,0 +1,202 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.apache.ibatis.cache.serializer.CompressingCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class BinaryCacheSerializerTest {
+
+  private final CacheSerializer serializer = new BinaryCacheSerializer();
+
+  @Test
+  void shouldCopyJdkTypes() {
+    Timestamp timestamp = new Timestamp(1_000_000L);
+    timestamp.setNanos(123_456_789);
+    List<Object> values = Arrays.asList(null, true, false, (byte) -1, (short) -300, -5, Integer.MIN_VALUE,
+        Long.MAX_VALUE, -1.5f, Math.PI, 'é', "", "héllo wörld €", new BigInteger("-123456789012345678901234567890"),
+        new BigDecimal("-1234.5678"), new Date(123L), new java.sql.Date(456L), new java.sql.Time(789L), timestamp,
+        LocalDate.of(1970, 1, 1).minusDays(10), LocalTime.of(23, 59, 59, 999), LocalDateTime.of(2020, 2, 29, 12, 0),
+        Instant.ofEpochSecond(-10, 5), Section.NEWS, UUID.randomUUID());
+    for (Object value : values) {
+      assertEquals(value, copy(value));
+    }
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) copy(new byte[] { 1, 2, 3 }));
+  }
+
+  @Test
+  void shouldCopyCollectionsAndMaps() {
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("ID", 1);
+    row.put("NAME", "one");
+    Map<Integer, String> sorted = new TreeMap<>();
+    sorted.put(2, "b");
+    sorted.put(1, "a");
+    List<Object> rows = new ArrayList<>(Arrays.asList(row, new HashMap<>(row), sorted,
+        new LinkedHashSet<>(Arrays.asList("x", "y")), new String[] { "s", null }, Collections.singletonList(1)));
+
+    @SuppressWarnings("unchecked")
+    List<Object> copy = (List<Object>) copy(rows);
+    assertEquals(ArrayList.class, copy.getClass());
+    assertEquals(LinkedHashMap.class, copy.get(0).getClass());
+    assertEquals(Arrays.asList("ID", "NAME"), new ArrayList<>(((Map<?, ?>) copy.get(0)).keySet()));
+    assertEquals(TreeMap.class, copy.get(2).getClass());
+    assertArrayEquals(new String[] { "s", null }, (String[]) copy.get(4));
+    assertEquals(rows.subList(0, 4), copy.subList(0, 4));
+    assertEquals(rows.get(5), copy.get(5));
+  }
+
+  @Test
+  void shouldCopyBeansAndKeepSharedReferences() {
+    Person author = new Person();
+    author.setId(1);
+    author.setName("author");
+    author.setSalary(new BigDecimal("10.50"));
+    author.setCache("not copied");
+    Person reviewer = new Person();
+    reviewer.setId(2);
+    reviewer.setFriend(author);
+    author.setFriend(reviewer);
+    List<Person> rows = new ArrayList<>(Arrays.asList(author, reviewer, author));
+
+    @SuppressWarnings("unchecked")
+    List<Person> copy = (List<Person>) copy(rows);
+    Person copiedAuthor = copy.get(0);
+    assertNotSame(author, copiedAuthor);
+    assertEquals(1, copiedAuthor.getId());
+    assertEquals("author", copiedAuthor.getName());
+    assertEquals(new BigDecimal("10.50"), copiedAuthor.getSalary());
+    assertNull(copiedAuthor.getCache());
+    assertSame(copiedAuthor, copy.get(2));
+    assertSame(copy.get(1), copiedAuthor.getFriend());
+    assertSame(copiedAuthor, copy.get(1).getFriend());
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Person> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Person person = new Person();
+      person.setId(i);
+      person.setName("person" + i);
+      rows.add(person);
+    }
+    assertTrue(serializer.serialize(rows).length < new JavaCacheSerializer().serialize(rows).length);
+  }
+
+  @Test
+  void shouldCompressLargeValues() {
+    CacheSerializer compressing = new CompressingCacheSerializer(serializer, 100);
+    List<String> rows = new ArrayList<>(Collections.nCopies(1000, "the same row"));
+    byte[] bytes = compressing.serialize(rows);
+    assertTrue(bytes.length < 1000);
+    assertEquals(rows, compressing.deserialize(bytes));
+    assertEquals("small", compressing.deserialize(compressing.serialize("small")));
+  }
+
+  @Test
+  void shouldBeUsableBySerializedCache() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    Person person = new Person();
+    person.setName("cached");
+    cache.putObject("key", person);
+    Person copy = (Person) cache.getObject("key");
+    assertNotSame(person, copy);
+    assertEquals("cached", copy.getName());
+  }
+
+  private Object copy(Object value) {
+    return serializer.deserialize(serializer.serialize(value));
+  }
+
+  public static class Person implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int id;
+    private String name;
+    private BigDecimal salary;
+    private Person friend;
+    private transient String cache;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public BigDecimal getSalary() {
+      return salary;
+    }
+
+    public void setSalary(BigDecimal salary) {
+      this.salary = salary;
+    }
+
+    public Person getFriend() {
+      return friend;
+    }
+
+    public void setFriend(Person friend) {
+      this.friend = friend;
+    }
+
+    public String getCache() {
+      return cache;
+    }
+
+    public void setCache(String cache) {
+      this.cache = cache;
+    }
+  }
+
+}
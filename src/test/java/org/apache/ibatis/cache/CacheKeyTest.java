@@ -103,6 +103,105 @@ class CacheKeyTest {
     Assertions.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  void shouldTreatPrimitiveAndBoxedUpdatesAsEqual() {
+    CacheKey key1 = new CacheKey();
+    key1.update("id");
+    key1.update(10);
+    key1.update(20L);
+    CacheKey key2 = new CacheKey(new Object[] { "id", 10, 20L });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+  }
+
+  @Test
+  void shouldNotWidenNarrowPrimitiveUpdates() {
+    CacheKey key1 = new CacheKey();
+    key1.update((byte) 1);
+    key1.update((short) 2);
+    key1.update('c');
+    CacheKey key2 = new CacheKey(new Object[] { (byte) 1, (short) 2, 'c' });
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    CacheKey key3 = new CacheKey(new Object[] { 1, 2, (int) 'c' });
+    assertNotEquals(key1, key3);
+  }
+
+  @Test
+  void shouldTestPrimitiveUpdatesNotEqualDueToValue() {
+    CacheKey key1 = new CacheKey();
+    key1.update(10);
+    CacheKey key2 = new CacheKey();
+    key2.update(11);
+    assertNotEquals(key1, key2);
+    CacheKey key3 = new CacheKey();
+    key3.update(10L);
+    assertNotEquals(key1, key3);
+  }
+
+  @Test
+  void shouldGrowBeyondExpectedUpdateCount() {
+    CacheKey key1 = new CacheKey(1);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 20; i++) {
+      key1.update(i);
+      key2.update(Integer.valueOf(i));
+    }
+    assertEquals(20, key1.getUpdateCount());
+    assertEquals(key1, key2);
+  }
+
+  @Test
+  void shouldResetToEmptyKey() {
+    CacheKey key = new CacheKey();
+    key.update("hello");
+    key.update(1);
+    String before = key.toString();
+    key.reset();
+    assertEquals(0, key.getUpdateCount());
+    assertEquals(new CacheKey(), key);
+    assertEquals(new CacheKey().hashCode(), key.hashCode());
+    key.update("hello");
+    key.update(1);
+    assertEquals(before, key.toString());
+  }
+
+  @Test
+  void shouldNotAllowUpdatingNullCacheKey() {
+    assertThrows(CacheException.class, () -> CacheKey.NULL_CACHE_KEY.update("hello"));
+    assertThrows(CacheException.class, () -> CacheKey.NULL_CACHE_KEY.update(1));
+    assertThrows(CacheException.class, () -> CacheKey.NULL_CACHE_KEY.update(1L));
+    assertThrows(CacheException.class, CacheKey.NULL_CACHE_KEY::reset);
+  }
+
+  @Test
+  void clonedKeyShouldNotSeeLaterUpdates() throws Exception {
+    CacheKey key = new CacheKey();
+    key.update("hello");
+    key.update(1);
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    key.update(2);
+    clone.update(3);
+    assertNotEquals(key, clone);
+    key.reset();
+    assertEquals(3, clone.getUpdateCount());
+  }
+
+  @Test
+  void serializationWithPrimitivesTest() throws Exception {
+    CacheKey cacheKey = new CacheKey();
+    cacheKey.update("serializable");
+    cacheKey.update(1);
+    cacheKey.update(2L);
+    CacheKey deserialized = serialize(cacheKey);
+    assertEquals(cacheKey, deserialized);
+    assertEquals(cacheKey.hashCode(), deserialized.hashCode());
+    assertEquals(cacheKey.toString(), deserialized.toString());
+  }
+
   private static <T> T serialize(T object) throws Exception {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       new ObjectOutputStream(baos).writeObject(object);
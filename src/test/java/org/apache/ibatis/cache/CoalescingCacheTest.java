@@ -0,0 +1,176 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.CoalescingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CoalescingCacheTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldLetOneThreadFillAMissedEntry() throws Exception {
+    CoalescingCache cache = new CoalescingCache(new PerpetualCache("default"));
+    AtomicInteger queries = new AtomicInteger();
+    CountDownLatch leaderMissed = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<Object> leader = executor.submit(() -> {
+      TransactionalCache tx = new TransactionalCache(cache);
+      Object value = tx.getObject("key");
+      queries.incrementAndGet();
+      leaderMissed.countDown();
+      release.await();
+      tx.putObject("key", "value");
+      tx.commit();
+      return value;
+    });
+    leaderMissed.await();
+    Future<Object> follower = executor.submit(() -> {
+      TransactionalCache tx = new TransactionalCache(cache);
+      Object value = tx.getObject("key");
+      if (value == null) {
+        queries.incrementAndGet();
+      }
+      tx.commit();
+      return value;
+    });
+    Thread.sleep(100);
+    assertFalse(follower.isDone());
+    assertEquals(1, cache.getPendingCount());
+    release.countDown();
+
+    assertNull(leader.get(5, TimeUnit.SECONDS));
+    assertEquals("value", follower.get(5, TimeUnit.SECONDS));
+    assertEquals(1, queries.get());
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  void shouldHandOverWhenTheFirstThreadRollsBack() throws Exception {
+    CoalescingCache cache = new CoalescingCache(new PerpetualCache("default"));
+    TransactionalCache leaderTx = new TransactionalCache(cache);
+    assertNull(leaderTx.getObject("key"));
+
+    Future<Object> follower = executor.submit(() -> {
+      TransactionalCache tx = new TransactionalCache(cache);
+      Object value = tx.getObject("key");
+      int pending = cache.getPendingCount();
+      tx.putObject("key", "follower");
+      tx.commit();
+      return value == null && pending == 1 ? "filled" : "unexpected";
+    });
+    Thread.sleep(100);
+    assertFalse(follower.isDone());
+    leaderTx.rollback();
+
+    assertEquals("filled", follower.get(5, TimeUnit.SECONDS));
+    assertEquals("follower", cache.getObject("key"));
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  void shouldQueryAfterTimeout() throws Exception {
+    CoalescingCache cache = new CoalescingCache(new PerpetualCache("default"));
+    cache.setTimeout(50);
+    assertNull(cache.getObject("key"));
+
+    Future<Object> follower = executor.submit(() -> cache.getObject("key"));
+    assertNull(follower.get(5, TimeUnit.SECONDS));
+    cache.removeObject("key");
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  void shouldServeStaleValueWhileRefreshing() throws Exception {
+    LruCache lru = new LruCache(new PerpetualCache("default"));
+    lru.setSize(1);
+    CoalescingCache cache = new CoalescingCache(lru);
+    cache.setMaxStaleness(60_000);
+    cache.putObject("key", "old");
+    cache.putObject("other", "evicts key");
+    assertNull(cache.getObject("key"));
+
+    Future<Object> follower = executor.submit(() -> cache.getObject("key"));
+    assertEquals("old", follower.get(5, TimeUnit.SECONDS));
+    cache.putObject("key", "new");
+    assertEquals("new", cache.getObject("key"));
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  void shouldNotServeStaleValueAfterFlush() throws Exception {
+    CoalescingCache cache = new CoalescingCache(new PerpetualCache("default"));
+    cache.setMaxStaleness(60_000);
+    cache.putObject("key", "old");
+    cache.clear();
+    assertNull(cache.getObject("key"));
+
+    Future<Object> follower = executor.submit(() -> cache.getObject("key"));
+    Thread.sleep(100);
+    assertFalse(follower.isDone());
+    cache.putObject("key", "new");
+    assertEquals("new", follower.get(5, TimeUnit.SECONDS));
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  void shouldNotServeStaleValueOfRemovedKey() throws Exception {
+    PerpetualCache delegate = new PerpetualCache("default");
+    CoalescingCache cache = new CoalescingCache(delegate);
+    cache.setMaxStaleness(60_000);
+    cache.putObject("key", "old");
+    delegate.removeObject("key");
+    cache.removeObject("key");
+    assertNull(cache.getObject("key"));
+
+    Future<Object> follower = executor.submit(() -> cache.getObject("key"));
+    Thread.sleep(100);
+    assertFalse(follower.isDone());
+    cache.putObject("key", "new");
+    assertEquals("new", follower.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldLetTheFirstThreadMissAgain() {
+    CoalescingCache cache = new CoalescingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(0, cache.getPendingCount());
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentCacheTest {
+
+  @Test
+  void shouldNotExceedSize() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+      assertEquals(i, cache.getObject(i));
+    }
+    assertTrue(cache.getSize() <= 100);
+    assertTrue(cache.getSize() >= 90);
+  }
+
+  @Test
+  void shouldPreferEvictingEntriesThatWereNotRead() throws Exception {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    Thread.sleep(1);
+    for (int i = 1; i < 5; i++) {
+      cache.getObject(i);
+    }
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(0));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  void shouldReplaceExistingEntry() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(2);
+    cache.putObject("a", 1);
+    cache.putObject("a", 2);
+    cache.putObject("b", 3);
+    assertEquals(2, cache.getObject("a"));
+    assertEquals(3, cache.getObject("b"));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertNull(cache.removeObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+    cache.putObject(1, 1);
+    assertEquals(1, cache.getObject(1));
+  }
+
+  @Test
+  void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(256);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t * 10_000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10_000; i++) {
+            Integer key = offset + i;
+            cache.putObject(key, key);
+            Object value = cache.getObject(key);
+            assertTrue(value == null || key.equals(value));
+            if (i % 7 == 0) {
+              cache.removeObject(key);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.getSize() <= 256);
+  }
+
+}
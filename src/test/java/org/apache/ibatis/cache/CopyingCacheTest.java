@@ -0,0 +1,181 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.CopyingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class CopyingCacheTest {
+
+  @Test
+  void shouldReturnDeepCopies() {
+    Cache cache = new CopyingCache(new PerpetualCache("default"));
+    Order order = new Order();
+    order.setName("order");
+    order.setAmount(new BigDecimal("12.34"));
+    order.setCreated(new Date(1000L));
+    order.setUpdated(LocalDateTime.of(2020, 1, 1, 10, 0));
+    order.setTags(new String[] { "a", "b" });
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("priority", 1);
+    order.setAttributes(attributes);
+    cache.putObject("key", new ArrayList<>(Arrays.asList(order)));
+
+    order.setName("changed after put");
+    @SuppressWarnings("unchecked")
+    List<Order> first = (List<Order>) cache.getObject("key");
+    @SuppressWarnings("unchecked")
+    List<Order> second = (List<Order>) cache.getObject("key");
+    Order copy = first.get(0);
+    assertEquals("order", copy.getName());
+    assertNotSame(first, second);
+    assertNotSame(copy, second.get(0));
+    assertNotSame(copy.getCreated(), second.get(0).getCreated());
+    assertNotSame(copy.getTags(), second.get(0).getTags());
+    assertNotSame(copy.getAttributes(), second.get(0).getAttributes());
+    assertEquals(attributes, copy.getAttributes());
+    assertArrayEquals(new String[] { "a", "b" }, copy.getTags());
+    assertEquals(new Date(1000L), copy.getCreated());
+    // immutable values are shared
+    assertSame(copy.getAmount(), second.get(0).getAmount());
+    assertSame(copy.getUpdated(), second.get(0).getUpdated());
+  }
+
+  @Test
+  void shouldKeepCyclicReferences() {
+    Cache cache = new CopyingCache(new PerpetualCache("default"));
+    Order order = new Order();
+    Order parent = new Order();
+    order.setParent(parent);
+    parent.setParent(order);
+    cache.putObject("key", order);
+    Order copy = (Order) cache.getObject("key");
+    assertNotSame(order, copy);
+    assertSame(copy, copy.getParent().getParent());
+  }
+
+  @Test
+  void shouldCopyCustomSerializableObjectsBySerialization() {
+    Cache cache = new CopyingCache(new PerpetualCache("default"));
+    Custom custom = new Custom("value");
+    cache.putObject("key", custom);
+    Custom copy = (Custom) cache.getObject("key");
+    assertNotSame(custom, copy);
+    assertEquals("value", copy.value);
+  }
+
+  @Test
+  void shouldRejectNonSerializableObjects() {
+    Cache cache = new CopyingCache(new PerpetualCache("default"));
+    assertThrows(CacheException.class, () -> cache.putObject("key", new Object()));
+  }
+
+  public static class Order implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+    private BigDecimal amount;
+    private Date created;
+    private LocalDateTime updated;
+    private String[] tags;
+    private Map<String, Object> attributes;
+    private Order parent;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public BigDecimal getAmount() {
+      return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+      this.amount = amount;
+    }
+
+    public Date getCreated() {
+      return created;
+    }
+
+    public void setCreated(Date created) {
+      this.created = created;
+    }
+
+    public LocalDateTime getUpdated() {
+      return updated;
+    }
+
+    public void setUpdated(LocalDateTime updated) {
+      this.updated = updated;
+    }
+
+    public String[] getTags() {
+      return tags;
+    }
+
+    public void setTags(String[] tags) {
+      this.tags = tags;
+    }
+
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    public void setAttributes(Map<String, Object> attributes) {
+      this.attributes = attributes;
+    }
+
+    public Order getParent() {
+      return parent;
+    }
+
+    public void setParent(Order parent) {
+      this.parent = parent;
+    }
+  }
+
+  static class Custom implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String value;
+
+    Custom(String value) {
+      this.value = value;
+    }
+
+    private Object readResolve() {
+      return new Custom(value);
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldStoreSerializedEntriesAsIs() {
+    OffHeapCache cache = new OffHeapCache("default");
+    byte[] bytes = { 1, 2, 3 };
+    cache.putObject("a", bytes);
+    assertArrayEquals(bytes, (byte[]) cache.getObject("a"));
+    assertEquals(3, cache.getLiveBytes());
+  }
+
+  @Test
+  void shouldWorkUnderSerializedCache() {
+    Cache cache = new SerializedCache(new OffHeapCache("default"));
+    List<String> rows = new ArrayList<>(Arrays.asList("one", "two"));
+    cache.putObject("a", rows);
+    assertEquals(rows, cache.getObject("a"));
+    assertNotSame(rows, cache.getObject("a"));
+    cache.putObject("b", null);
+    assertNull(cache.getObject("b"));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldSerializeOtherValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.putObject("a", "value");
+    assertEquals("value", cache.getObject("a"));
+    assertEquals("value", cache.removeObject("a"));
+    assertNull(cache.getObject("a"));
+    assertEquals(0, cache.getLiveBytes());
+  }
+
+  @Test
+  void shouldEvictOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(100);
+    cache.setCapacity(300);
+    for (int i = 0; i < 6; i++) {
+      cache.putObject(i, new byte[50]);
+    }
+    assertEquals(300, cache.getAllocatedBytes());
+    assertEquals(6, cache.getSize());
+    cache.putObject(6, new byte[50]);
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertNotNull(cache.getObject(6));
+    assertEquals(5, cache.getSize());
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals(300, cache.getAllocatedBytes());
+  }
+
+  @Test
+  void shouldReportFragmentation() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.putObject("a", new byte[30]);
+    cache.putObject("b", new byte[10]);
+    assertEquals(0, cache.getFragmentation(), 0.001);
+    cache.putObject("a", new byte[10]);
+    assertEquals(50, cache.getUsedBytes());
+    assertEquals(20, cache.getLiveBytes());
+    assertEquals(0.6, cache.getFragmentation(), 0.001);
+  }
+
+  @Test
+  void shouldNotCacheEntriesLargerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(16);
+    cache.putObject("a", new byte[8]);
+    cache.putObject("a", new byte[17]);
+    assertNull(cache.getObject("a"));
+    assertEquals(0, cache.getLiveBytes());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, new byte[] { (byte) i });
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getUsedBytes());
+    cache.putObject(1, new byte[] { 1 });
+    assertArrayEquals(new byte[] { 1 }, (byte[]) cache.getObject(1));
+  }
+
+}
@@ -17,6 +17,12 @@ package org.apache.ibatis.cache;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
@@ -66,4 +72,152 @@ class ScheduledCacheTest {
     assertNull(cache.getObject(4));
   }
 
+  @Test
+  void shouldExpireEntriesOneByOne() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setTimeToLive(200);
+    cache.putObject(0, 0);
+    Thread.sleep(120);
+    cache.putObject(1, 1);
+    Thread.sleep(120);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    Thread.sleep(120);
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldNotExpireEntriesWithoutTimeToLive() {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setRefreshAhead(60000);
+    cache.setRefresher(new RecordingRefresher());
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+  }
+
+  @Test
+  void shouldRefreshEntriesReadShortlyBeforeTheyExpire() {
+    RecordingRefresher refresher = new RecordingRefresher();
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setTimeToLive(60000);
+    cache.setRefreshAhead(30000);
+    cache.setRefresher(refresher);
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    assertTrue(refresher.refreshed.isEmpty());
+
+    cache.setRefreshAhead(60000);
+    assertEquals(0, cache.getObject(0));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(1, refresher.refreshed.size());
+
+    // putting the entry again allows it to be refreshed again
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    assertEquals(2, refresher.refreshed.size());
+
+    cache.removeObject(0);
+    assertEquals(1, refresher.forgotten.size());
+  }
+
+  @Test
+  void shouldForgetAllEntriesWhenCleared() {
+    RecordingRefresher refresher = new RecordingRefresher();
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setTimeToLive(60000);
+    cache.setRefreshAhead(30000);
+    cache.setRefresher(refresher);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    cache.clear();
+    assertEquals(1, refresher.forgotten.size());
+    assertEquals("DefaultCache", refresher.forgotten.get(0));
+  }
+
+  @Test
+  void shouldServeExpiredEntriesOnlyWhenReadingStaleValues() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setTimeToLive(100);
+    cache.setServeStaleOnError(true);
+    cache.putObject(0, 0);
+    Thread.sleep(150);
+    assertNull(cache.getObject(0));
+    // releasing a miss keeps the expired entry
+    cache.putObject(0, null);
+    cache.removeObject(0);
+    assertEquals(0, ScheduledCache.readStale(() -> cache.getObject(0)));
+    assertNull(cache.getObject(0));
+    cache.putObject(0, 1);
+    assertEquals(1, cache.getObject(0));
+  }
+
+  @Test
+  void shouldDropExpiredEntriesWhenNotServingStaleValues() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setTimeToLive(100);
+    cache.putObject(0, 0);
+    Thread.sleep(150);
+    assertNull(cache.getObject(0));
+    assertNull(ScheduledCache.readStale(() -> cache.getObject(0)));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldKeepJitteredTimeToLiveWithinBounds() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(Long.MAX_VALUE);
+    cache.setTimeToLive(200);
+    cache.setTtlJitter(0.5);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    Thread.sleep(50);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, cache.getObject(i));
+    }
+    Thread.sleep(300);
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldNotHoldBlockingLockTwiceOnStaleMiss() throws Exception {
+    ScheduledCache scheduled = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    scheduled.setClearInterval(Long.MAX_VALUE);
+    scheduled.setTimeToLive(60000);
+    scheduled.setServeStaleOnError(true);
+    Cache cache = new BlockingCache(scheduled);
+    assertNull(cache.getObject(0));
+    assertNull(ScheduledCache.readStale(() -> cache.getObject(0)));
+    cache.removeObject(0);
+    assertNull(CompletableFuture.supplyAsync(() -> cache.getObject(0)).get(1, TimeUnit.SECONDS));
+  }
+
+  private static class RecordingRefresher implements EntryRefresher {
+    private final List<Object> refreshed = new ArrayList<>();
+    private final List<Object> forgotten = new ArrayList<>();
+
+    @Override
+    public void refresh(String cacheId, Object key) {
+      refreshed.add(key);
+    }
+
+    @Override
+    public void forget(String cacheId, Object key) {
+      forgotten.add(key);
+    }
+
+    @Override
+    public void forgetAll(String cacheId) {
+      forgotten.add(cacheId);
+    }
+  }
+
 }
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class StatisticsCacheTest {
+
+  @Test
+  void shouldCountRequestsPutsRemovalsAndClears() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new StatisticsCache(new PerpetualCache("default"), statistics);
+    cache.putObject(1, "a");
+    cache.getObject(1);
+    cache.getObject(1);
+    cache.getObject(2);
+    cache.removeObject(1);
+    cache.removeObject(1);
+    cache.clear();
+    assertEquals(2, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(2.0 / 3, statistics.getHitRatio(), 0.0001);
+    assertEquals(1, statistics.getPutCount());
+    assertEquals(1, statistics.getRemovalCount());
+    assertEquals(1, statistics.getClearCount());
+  }
+
+  @Test
+  void shouldCountLruEvictions() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new CacheBuilder("default").addDecorator(LruCache.class).size(2).statistics(statistics).build();
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(3, statistics.getEvictionCount());
+    assertEquals(2, statistics.getSize());
+    assertEquals(-1, statistics.getWeight());
+  }
+
+  @Test
+  void shouldCountFifoEvictions() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new CacheBuilder("default").addDecorator(FifoCache.class).size(3).statistics(statistics).build();
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(2, statistics.getEvictionCount());
+  }
+
+  @Test
+  void shouldCountConcurrentCacheEvictions() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new CacheBuilder("default").implementation(ConcurrentCache.class).size(16).statistics(statistics).build();
+    for (int i = 0; i < 20; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(20 - cache.getSize(), statistics.getEvictionCount());
+  }
+
+  @Test
+  void shouldReportWeightAndWeightEvictions() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new CacheBuilder("default").maxWeight(1000L).weigher(FixedWeigher.class).statistics(statistics).build();
+    for (int i = 0; i < 4; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(900, statistics.getWeight());
+    assertEquals(1, statistics.getEvictionCount());
+  }
+
+  @Test
+  void shouldRecordLoadTimes() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    statistics.recordLoad(10);
+    statistics.recordLoad(30);
+    assertEquals(2, statistics.getLoadCount());
+    assertEquals(40, statistics.getTotalLoadTime());
+    assertEquals(20.0, statistics.getAverageLoadTime(), 0.0001);
+  }
+
+  @Test
+  void shouldNotifyListenersOfRegisteredAndNewStatistics() {
+    CacheStatisticsRegistry registry = new CacheStatisticsRegistry();
+    CacheStatistics authors = registry.register("authors");
+    List<CacheStatistics> notified = new ArrayList<>();
+    registry.addListener(notified::add);
+    CacheStatistics posts = registry.register("posts");
+    assertSame(authors, notified.get(0));
+    assertSame(posts, notified.get(1));
+    assertSame(posts, registry.getStatistics("posts"));
+    assertNull(registry.getStatistics("blogs"));
+    assertEquals(2, registry.getAll().size());
+  }
+
+  public static class FixedWeigher implements Weigher {
+    @Override
+    public long weigh(Object key, Object value) {
+      return 300;
+    }
+  }
+
+}
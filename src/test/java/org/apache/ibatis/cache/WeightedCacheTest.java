@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedItemsBeyondMaxWeight() {
+    WeightedCache cache = newCache(10);
+    cache.putObject("a", 4);
+    cache.putObject("b", 4);
+    assertEquals(4, cache.getObject("a"));
+    cache.putObject("c", 4);
+    assertEquals(4, cache.getObject("a"));
+    assertNull(cache.getObject("b"));
+    assertEquals(4, cache.getObject("c"));
+    assertEquals(8, cache.getWeight());
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldNotCacheItemHeavierThanMaxWeight() {
+    WeightedCache cache = newCache(10);
+    cache.putObject("a", 4);
+    cache.putObject("c", 3);
+    cache.putObject("b", 11);
+    assertNull(cache.getObject("b"));
+    assertEquals(4, cache.getObject("a"));
+    assertEquals(3, cache.getObject("c"));
+    assertEquals(7, cache.getWeight());
+  }
+
+  @Test
+  void shouldDropReplacedItemHeavierThanMaxWeight() {
+    WeightedCache cache = newCache(10);
+    cache.putObject("a", 4);
+    cache.putObject("c", 3);
+    cache.putObject("a", 11);
+    assertNull(cache.getObject("a"));
+    assertEquals(3, cache.getObject("c"));
+    assertEquals(3, cache.getWeight());
+  }
+
+  @Test
+  void shouldReweighReplacedItem() {
+    WeightedCache cache = newCache(10);
+    cache.putObject("a", 4);
+    cache.putObject("a", 6);
+    assertEquals(6, cache.getWeight());
+    assertEquals(6, cache.removeObject("a"));
+    assertEquals(0, cache.getWeight());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    WeightedCache cache = newCache(10);
+    cache.putObject("a", 4);
+    cache.putObject("b", 4);
+    cache.clear();
+    assertNull(cache.getObject("a"));
+    assertEquals(0, cache.getWeight());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldWeighResultListsByRowCount() {
+    DefaultWeigher weigher = new DefaultWeigher();
+    List<Object> small = new ArrayList<>();
+    List<Object> large = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      if (i < 10) {
+        small.add(new Row());
+      }
+      large.add(new Row());
+    }
+    CacheKey key = new CacheKey(new Object[] { "select", 1 });
+    long smallWeight = weigher.weigh(key, small);
+    long largeWeight = weigher.weigh(key, large);
+    assertTrue(largeWeight > smallWeight * 50);
+    assertTrue(weigher.weigh(key, new byte[10000]) > 10000);
+  }
+
+  private WeightedCache newCache(long maxWeight) {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((Integer) value).longValue());
+    cache.setMaxWeight(maxWeight);
+    return cache;
+  }
+
+  static class Row {
+    private int id;
+    private String name;
+    private long created;
+  }
+
+}
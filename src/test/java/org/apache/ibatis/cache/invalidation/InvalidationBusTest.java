@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.BroadcastingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlTables;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InvalidationBusTest {
+
+  private final String channel = UUID.randomUUID().toString();
+  private final List<Invalidation> published = new ArrayList<>();
+  private Configuration node1;
+  private Configuration node2;
+
+  @BeforeEach
+  void setUp() {
+    node1 = new Configuration();
+    node1.setInvalidationTransport(new LoopbackTransport(channel) {
+      @Override
+      public void publish(Invalidation invalidation) {
+        published.add(invalidation);
+        super.publish(invalidation);
+      }
+    });
+    node2 = new Configuration();
+    node2.setInvalidationTransport(new LoopbackTransport(channel));
+  }
+
+  @AfterEach
+  void tearDown() {
+    node1.setInvalidationTransport(null);
+    node2.setInvalidationTransport(null);
+  }
+
+  @Test
+  void shouldClearTheCacheOfTheOtherNodes() {
+    Cache cache1 = addCache(node1, "authors");
+    Cache cache2 = addCache(node2, "authors");
+    cache1.putObject(1, "a");
+    cache2.putObject(1, "a");
+    cache1.clear();
+    assertEquals(0, cache2.getSize());
+    assertEquals(1, published.size());
+  }
+
+  @Test
+  void shouldNotPublishInvalidationsReceivedAgain() {
+    Cache cache1 = addCache(node1, "authors");
+    addCache(node2, "authors").clear();
+    cache1.putObject(1, "a");
+    assertEquals(0, published.size());
+  }
+
+  @Test
+  void shouldRemoveKeysFromTheOtherNodes() {
+    Cache cache1 = addCache(node1, "authors");
+    Cache cache2 = addCache(node2, "authors");
+    cache1.putObject(1, "a");
+    cache2.putObject(1, "a");
+    cache2.putObject(2, "b");
+    cache1.removeObject(1);
+    assertNull(cache2.getObject(1));
+    assertEquals("b", cache2.getObject(2));
+  }
+
+  @Test
+  void shouldNotPublishRemovalsOfMissingKeys() {
+    addCache(node1, "authors").removeObject(1);
+    assertTrue(published.isEmpty());
+  }
+
+  @Test
+  void shouldCoalesceTheInvalidationsOfATransaction() throws Exception {
+    Cache authors = addCache(node1, "authors");
+    Cache posts = addCache(node1, "posts");
+    Cache posts2 = addCache(node2, "posts");
+    posts2.putObject(1, "a");
+
+    CachingExecutor executor = newExecutor();
+    executor.update(statement(node1, "authors.update", "update author set name = ?", authors), 1);
+    executor.update(statement(node1, "posts.update", "update post set title = ?", posts), 1);
+    executor.update(statement(node1, "posts.delete", "delete from post", posts), 1);
+    assertTrue(published.isEmpty());
+    executor.commit(true);
+
+    assertEquals(1, published.size());
+    assertEquals(new HashSet<>(Arrays.asList("authors", "posts")), published.get(0).getClearedCaches());
+    assertEquals(0, posts2.getSize());
+  }
+
+  @Test
+  void shouldNotPublishRolledBackInvalidations() throws Exception {
+    Cache authors = addCache(node1, "authors");
+    CachingExecutor executor = newExecutor();
+    executor.update(statement(node1, "authors.update", "update author set name = ?", authors), 1);
+    executor.rollback(true);
+    assertTrue(published.isEmpty());
+  }
+
+  @Test
+  void shouldInvalidateTheTablesWrittenOnTheOtherNodes() throws Exception {
+    node1.setCacheInvalidation(CacheInvalidation.TABLE);
+    node2.setCacheInvalidation(CacheInvalidation.TABLE);
+    String author = SqlTables.normalize("author").iterator().next();
+    String post = SqlTables.normalize("post").iterator().next();
+    long authorVersion = node2.getTableVersions().getVersion(author);
+    long postVersion = node2.getTableVersions().getVersion(post);
+
+    CachingExecutor executor = newExecutor();
+    executor.update(statement(node1, "authors.update", "update author set name = ?", null), 1);
+    executor.commit(true);
+
+    assertEquals(1, published.size());
+    assertNotEquals(authorVersion, node2.getTableVersions().getVersion(author));
+    assertEquals(postVersion, node2.getTableVersions().getVersion(post));
+  }
+
+  @Test
+  void shouldClearTheCacheInsteadOfRemovingTooManyKeys() {
+    Invalidation invalidation = new Invalidation("node");
+    for (int i = 0; i <= Invalidation.MAX_KEYS_PER_CACHE; i++) {
+      invalidation.remove("authors", i);
+    }
+    assertTrue(invalidation.getRemovedKeys().isEmpty());
+    assertEquals(Collections.singleton("authors"), invalidation.getClearedCaches());
+  }
+
+  @Test
+  void shouldEncodeMulticastDatagrams() throws Exception {
+    byte[] datagram = MulticastTransport.encode("node", Arrays.asList("authors", "posts"), Arrays.asList("AUTHOR"), false);
+    Invalidation invalidation = MulticastTransport.decode(datagram, datagram.length);
+    assertEquals("node", invalidation.getSource());
+    assertEquals(Arrays.asList("authors", "posts"), new ArrayList<>(invalidation.getClearedCaches()));
+    assertEquals(Collections.singleton("AUTHOR"), invalidation.getTables());
+
+    datagram = MulticastTransport.encode("node", Collections.emptyList(), Collections.emptyList(), true);
+    assertNull(MulticastTransport.decode(datagram, datagram.length).getTables());
+    assertNull(MulticastTransport.decode(new byte[] {1, 2, 3, 4}, 4));
+  }
+
+  private Cache addCache(Configuration configuration, String id) {
+    Cache cache = new BroadcastingCache(new PerpetualCache(id), configuration.getInvalidationBus());
+    configuration.addCache(cache);
+    return cache;
+  }
+
+  private MappedStatement statement(Configuration configuration, String id, String sql, Cache cache) {
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, sql), SqlCommandType.UPDATE)
+        .cache(cache).flushCacheRequired(true).build();
+  }
+
+  private CachingExecutor newExecutor() {
+    Executor delegate = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Executor.class},
+        (proxy, method, args) -> "update".equals(method.getName()) ? 1 : null);
+    return new CachingExecutor(delegate);
+  }
+
+}
@@ -0,0 +1,317 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPooledDataSourceTest {
+
+  private ConcurrentPooledDataSource dataSource;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = new ConcurrentPooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:concurrentpool", "sa", "");
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  void shouldReuseReturnedConnection() throws Exception {
+    Connection conn1 = dataSource.getConnection();
+    Connection realConn = PooledDataSource.unwrapConnection(conn1);
+    assertEquals(1, dataSource.getPoolState().getActiveConnectionCount());
+    conn1.close();
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+
+    Connection conn2 = dataSource.getConnection();
+    assertSame(realConn, PooledDataSource.unwrapConnection(conn2));
+    conn2.close();
+    assertEquals(2, dataSource.getPoolState().getRequestCount());
+    assertEquals(0, dataSource.getPoolState().getBadConnectionCount());
+    assertEquals(0, dataSource.getPoolState().getHadToWaitCount());
+    assertNotNull(dataSource.getPoolState().toString());
+  }
+
+  @Test
+  void shouldInvalidateProxyWhenClosed() throws Exception {
+    Connection conn = dataSource.getConnection();
+    conn.close();
+    assertThrows(SQLException.class, conn::createStatement);
+  }
+
+  @Test
+  void shouldCloseConnectionsAboveMaximumIdle() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(3);
+    dataSource.setPoolMaximumIdleConnections(2);
+    List<Connection> connections = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      connections.add(dataSource.getConnection());
+    }
+    assertEquals(3, dataSource.getPoolState().getActiveConnectionCount());
+    Connection realConn = PooledDataSource.unwrapConnection(connections.get(2));
+    for (Connection conn : connections) {
+      conn.close();
+    }
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+    assertTrue(realConn.isClosed());
+  }
+
+  @Test
+  void shouldClaimOverdueConnection() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(1);
+    dataSource.setPoolMaximumCheckoutTime(50);
+    Connection conn1 = dataSource.getConnection();
+    Thread.sleep(100);
+    Connection conn2 = dataSource.getConnection();
+    assertSame(PooledDataSource.unwrapConnection(conn1), PooledDataSource.unwrapConnection(conn2));
+    assertEquals(1, dataSource.getPoolState().getClaimedOverdueConnectionCount());
+    assertThrows(SQLException.class, conn1::createStatement);
+
+    conn1.close();
+    assertEquals(1, dataSource.getPoolState().getBadConnectionCount());
+    assertEquals(1, dataSource.getPoolState().getActiveConnectionCount());
+    conn2.close();
+    assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldHandOffReturnedConnectionToWaitingThread() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(1);
+    Connection conn1 = dataSource.getConnection();
+    Connection realConn = PooledDataSource.unwrapConnection(conn1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      CountDownLatch started = new CountDownLatch(1);
+      Future<Connection> waiting = executor.submit(() -> {
+        started.countDown();
+        try (Connection conn = dataSource.getConnection()) {
+          return PooledDataSource.unwrapConnection(conn);
+        }
+      });
+      started.await();
+      Thread.sleep(100);
+      assertFalse(waiting.isDone());
+      conn1.close();
+      assertSame(realConn, waiting.get(5, TimeUnit.SECONDS));
+      assertEquals(1, dataSource.getPoolState().getHadToWaitCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldGiveSlotBackWhenCheckoutFails() throws Exception {
+    AtomicBoolean failing = new AtomicBoolean(true);
+    ConcurrentPooledDataSource pool = new ConcurrentPooledDataSource(new UnpooledDataSource() {
+      @Override
+      public Connection getConnection() {
+        return fakeConnection(failing);
+      }
+    });
+    pool.setPoolMaximumActiveConnections(1);
+    pool.setPoolTimeToWait(100);
+    assertThrows(SQLException.class, pool::getConnection);
+    assertEquals(0, pool.getPoolState().getActiveConnectionCount());
+
+    failing.set(false);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> borrowed = executor.submit(() -> {
+        try (Connection conn = pool.getConnection()) {
+          return conn != null;
+        }
+      });
+      assertTrue(borrowed.get(5, TimeUnit.SECONDS));
+      assertEquals(0, pool.getPoolState().getHadToWaitCount());
+    } finally {
+      executor.shutdownNow();
+      pool.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldParkWaitingThreadsUntilTimeToWaitElapses() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(1);
+    dataSource.setPoolTimeToWait(50);
+    Connection conn1 = dataSource.getConnection();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Boolean>> waiting = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        waiting.add(executor.submit(() -> {
+          try (Connection conn = dataSource.getConnection()) {
+            return conn != null;
+          }
+        }));
+      }
+      // both threads time out at least once before the connection is returned
+      Thread.sleep(200);
+      assertEquals(2, dataSource.getPoolState().getWaitingThreadCount());
+      conn1.close();
+      for (Future<Boolean> future : waiting) {
+        assertTrue(future.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(0, dataSource.getPoolState().getWaitingThreadCount());
+      assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldNotExceedMaximumActiveConnectionsUnderContention() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(4);
+    dataSource.setPoolMaximumIdleConnections(4);
+    int threads = 32;
+    int iterations = 200;
+    Set<Connection> realConnections = ConcurrentHashMap.newKeySet();
+    AtomicInteger inUse = new AtomicInteger();
+    AtomicInteger maxInUse = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < iterations; j++) {
+            try (Connection conn = dataSource.getConnection()) {
+              maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+              realConnections.add(PooledDataSource.unwrapConnection(conn));
+              conn.getAutoCommit();
+              inUse.decrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(maxInUse.get() <= 4);
+    assertTrue(realConnections.size() <= 4);
+    assertEquals(threads * iterations, dataSource.getPoolState().getRequestCount());
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    assertEquals(0, dataSource.getPoolState().getBadConnectionCount());
+  }
+
+  @Test
+  void shouldInvalidateActiveConnectionsOnForceCloseAll() throws Exception {
+    Connection active = dataSource.getConnection();
+    Connection idle = dataSource.getConnection();
+    Connection realIdle = PooledDataSource.unwrapConnection(idle);
+    idle.close();
+    dataSource.forceCloseAll();
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+    assertTrue(realIdle.isClosed());
+    assertThrows(SQLException.class, active::createStatement);
+    active.close();
+    assertEquals(1, dataSource.getPoolState().getBadConnectionCount());
+  }
+
+  @Test
+  void shouldPrefillAndRetireIdleConnections() throws Exception {
+    dataSource.setPoolHousekeepingPeriod(0);
+    dataSource.setPoolMinimumIdleConnections(2);
+    dataSource.housekeep();
+    assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+
+    dataSource.setPoolIdleTimeout(50);
+    List<Connection> connections = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      connections.add(dataSource.getConnection());
+    }
+    for (Connection conn : connections) {
+      conn.close();
+    }
+    assertEquals(4, dataSource.getPoolState().getIdleConnectionCount());
+    Thread.sleep(100);
+    dataSource.housekeep();
+    assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    dataSource.setPoolMinimumIdleConnections(0);
+  }
+
+  @Test
+  void shouldBeSelectableByTypeAlias() {
+    Configuration configuration = new Configuration();
+    Class<?> factoryType = configuration.getTypeAliasRegistry().resolveAlias("CONCURRENT_POOLED");
+    assertEquals(ConcurrentPooledDataSourceFactory.class, factoryType);
+
+    DataSourceFactory factory = new ConcurrentPooledDataSourceFactory();
+    Properties properties = new Properties();
+    properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+    properties.setProperty("url", "jdbc:hsqldb:mem:concurrentpool");
+    properties.setProperty("poolMaximumActiveConnections", "20");
+    factory.setProperties(properties);
+    ConcurrentPooledDataSource configured = (ConcurrentPooledDataSource) factory.getDataSource();
+    assertEquals(20, configured.getPoolMaximumActiveConnections());
+  }
+
+  private static Connection fakeConnection(AtomicBoolean failing) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getAutoCommit":
+              if (failing.get()) {
+                throw new SQLException("Connection reset");
+              }
+              return true;
+            case "isClosed":
+              return false;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            case "toString":
+              return "FakeConnection";
+            default:
+              return null;
+          }
+        });
+  }
+
+}
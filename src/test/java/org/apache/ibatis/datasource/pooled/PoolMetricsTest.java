@@ -0,0 +1,172 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PoolMetricsTest {
+
+  private PooledDataSource dataSource;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:poolmetrics", "sa", "");
+    dataSource.setPoolHousekeepingPeriod(0);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  void shouldRecordHistogram() {
+    PoolMetrics.Histogram histogram = new PoolMetrics.Histogram(TimeUnit.MICROSECONDS);
+    assertEquals(0, histogram.getPercentile(50));
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(5050, histogram.getSum());
+    assertEquals(100, histogram.getMax());
+    assertEquals(50.5, histogram.getMean(), 0.001);
+    // 50 falls into [32, 64), 99 and 100 into [64, 128)
+    assertEquals(63, histogram.getPercentile(50));
+    assertEquals(100, histogram.getPercentile(99));
+    assertEquals(1, histogram.getBucketCounts()[1]);
+    assertEquals(37, histogram.getBucketCounts()[7]);
+  }
+
+  @Test
+  void shouldNotifyListenersOfBorrowedAndReturnedConnections() throws Exception {
+    AtomicInteger borrowed = new AtomicInteger();
+    AtomicInteger returned = new AtomicInteger();
+    dataSource.addPoolListener(new PoolListener() {
+      @Override
+      public void connectionBorrowed(long borrowNanos) {
+        borrowed.incrementAndGet();
+      }
+
+      @Override
+      public void connectionReturned(long usageMillis) {
+        returned.incrementAndGet();
+      }
+    });
+    dataSource.addPoolListener(new PoolListener() {
+      @Override
+      public void connectionBorrowed(long borrowNanos) {
+        throw new IllegalStateException("failing listener");
+      }
+    });
+
+    Connection conn1 = dataSource.getConnection();
+    Connection conn2 = dataSource.getConnection();
+    PoolMetrics metrics = dataSource.getPoolMetrics();
+    assertEquals(2, metrics.getActiveConnectionCount());
+    conn1.close();
+    assertEquals(1, metrics.getActiveConnectionCount());
+    assertEquals(1, metrics.getIdleConnectionCount());
+    conn2.close();
+
+    assertEquals(2, borrowed.get());
+    assertEquals(2, returned.get());
+    assertEquals(2, metrics.getBorrowTime().getCount());
+    assertEquals(2, metrics.getUsageTime().getCount());
+    assertEquals(0, metrics.getWaitingThreadCount());
+    assertNotNull(metrics.toString());
+  }
+
+  @Test
+  void shouldCountTimedOutWaits() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(1);
+    dataSource.setPoolTimeToWait(20);
+    Connection conn = dataSource.getConnection();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> waiting = executor.submit(() -> {
+        dataSource.getConnection().close();
+        return null;
+      });
+      long deadline = System.currentTimeMillis() + 5000;
+      while (dataSource.getPoolMetrics().getTimeoutCount() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(dataSource.getPoolMetrics().getTimeoutCount() > 0);
+      conn.close();
+      waiting.get(5, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, dataSource.getPoolState().getHadToWaitCount());
+    assertEquals(0, dataSource.getPoolMetrics().getWaitingThreadCount());
+  }
+
+  @Test
+  void shouldReportLeakedConnectionOnce() throws Exception {
+    List<Throwable> stacks = new CopyOnWriteArrayList<>();
+    dataSource.addPoolListener(new PoolListener() {
+      @Override
+      public void leakDetected(long checkoutMillis, Throwable checkoutStack) {
+        stacks.add(checkoutStack);
+      }
+    });
+    dataSource.setPoolLeakDetectionThreshold(50);
+    Connection conn = dataSource.getConnection();
+    dataSource.housekeep();
+    assertTrue(stacks.isEmpty());
+
+    Thread.sleep(100);
+    dataSource.housekeep();
+    dataSource.housekeep();
+    assertEquals(1, stacks.size());
+    assertEquals(1, dataSource.getPoolMetrics().getLeakCount());
+    assertEquals("shouldReportLeakedConnectionOnce", stacks.get(0).getStackTrace()[2].getMethodName());
+    conn.close();
+  }
+
+  @Test
+  void shouldReportLeakedConnectionOfConcurrentPool() throws Exception {
+    ConcurrentPooledDataSource concurrentDataSource = new ConcurrentPooledDataSource("org.hsqldb.jdbcDriver",
+        "jdbc:hsqldb:mem:poolmetrics", "sa", "");
+    try {
+      concurrentDataSource.setPoolHousekeepingPeriod(0);
+      concurrentDataSource.setPoolLeakDetectionThreshold(50);
+      Connection conn = concurrentDataSource.getConnection();
+      Thread.sleep(100);
+      concurrentDataSource.housekeep();
+      assertEquals(1, concurrentDataSource.getPoolMetrics().getLeakCount());
+      assertEquals(1, concurrentDataSource.getPoolMetrics().getBorrowTime().getCount());
+      conn.close();
+      assertEquals(1, concurrentDataSource.getPoolMetrics().getUsageTime().getCount());
+    } finally {
+      concurrentDataSource.forceCloseAll();
+    }
+  }
+
+}
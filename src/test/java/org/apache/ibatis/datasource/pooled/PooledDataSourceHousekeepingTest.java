@@ -0,0 +1,153 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceHousekeepingTest {
+
+  private PooledDataSource dataSource;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:housekeeping", "sa", "");
+    // housekeeping is triggered by the tests
+    dataSource.setPoolHousekeepingPeriod(0);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.setPoolMinimumIdleConnections(0);
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  void shouldPrefillMinimumIdleConnections() {
+    dataSource.setPoolMinimumIdleConnections(3);
+    dataSource.housekeep();
+    assertEquals(3, dataSource.getPoolState().getIdleConnectionCount());
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+  }
+
+  @Test
+  void shouldNotPrefillBeyondMaximumActiveConnections() throws Exception {
+    dataSource.setPoolMaximumActiveConnections(2);
+    Connection conn = dataSource.getConnection();
+    dataSource.setPoolMinimumIdleConnections(3);
+    dataSource.housekeep();
+    assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+    conn.close();
+  }
+
+  @Test
+  void shouldRetireIdleConnectionsAfterIdleTimeout() throws Exception {
+    dataSource.setPoolIdleTimeout(50);
+    dataSource.setPoolMinimumIdleConnections(1);
+    List<Connection> connections = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      connections.add(dataSource.getConnection());
+    }
+    for (Connection conn : connections) {
+      conn.close();
+    }
+    assertEquals(3, dataSource.getPoolState().getIdleConnectionCount());
+    Thread.sleep(100);
+    dataSource.housekeep();
+    assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldRetireConnectionsAfterMaximumLifetime() throws Exception {
+    dataSource.setPoolMaximumLifetime(50);
+    Connection idle = dataSource.getConnection();
+    Connection realIdle = PooledDataSource.unwrapConnection(idle);
+    Connection active = dataSource.getConnection();
+    Connection realActive = PooledDataSource.unwrapConnection(active);
+    idle.close();
+    assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+    Thread.sleep(100);
+    dataSource.housekeep();
+    assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+    assertTrue(realIdle.isClosed());
+
+    active.close();
+    assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+    assertTrue(realActive.isClosed());
+  }
+
+  @Test
+  void shouldValidateIdleConnectionsInBackground() throws Exception {
+    dataSource.setPoolPingEnabled(true);
+    dataSource.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+    dataSource.setPoolPingConnectionsNotUsedFor(0);
+    dataSource.setPoolBackgroundValidationEnabled(true);
+    Connection good = dataSource.getConnection();
+    Connection bad = dataSource.getConnection();
+    Connection realBad = PooledDataSource.unwrapConnection(bad);
+    good.close();
+    bad.close();
+    realBad.close();
+    Thread.sleep(10);
+
+    dataSource.housekeep();
+    PoolState state = dataSource.getPoolState();
+    assertEquals(1, state.getIdleConnectionCount());
+    assertEquals(1, state.getBadConnectionCount());
+    assertTrue(state.idleConnections.get(0).getLastValidatedTimestamp() > 0);
+  }
+
+  @Test
+  void shouldCloseConnectionValidatedAcrossForceCloseAll() throws Exception {
+    dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:housekeeping", "sa", "") {
+      @Override
+      protected boolean validateIdleConnection(PooledConnection conn) {
+        // settings change while the housekeeper holds the connection
+        setUrl("jdbc:hsqldb:mem:housekeeping2");
+        return super.validateIdleConnection(conn);
+      }
+    };
+    dataSource.setPoolHousekeepingPeriod(0);
+    dataSource.setPoolBackgroundValidationEnabled(true);
+    Connection conn = dataSource.getConnection();
+    Connection realConn = PooledDataSource.unwrapConnection(conn);
+    conn.close();
+    Thread.sleep(10);
+
+    dataSource.housekeep();
+    assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+    assertTrue(realConn.isClosed());
+  }
+
+  @Test
+  void shouldRunHousekeepingInBackground() throws Exception {
+    dataSource.setPoolHousekeepingPeriod(20);
+    dataSource.setPoolMinimumIdleConnections(2);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (dataSource.getPoolState().getIdleConnectionCount() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+import org.junit.jupiter.api.Test;
+
+class QueryRefresherTest {
+
+  private final Configuration configuration = new Configuration();
+  private final QueryRefresher refresher = configuration.getQueryRefresher();
+  private final MappedStatement ms = new MappedStatement.Builder(configuration, "ns.select",
+      new StaticSqlSource(configuration, "select 1"), SqlCommandType.SELECT).cache(new PerpetualCache("ns")).build();
+
+  @Test
+  void shouldOnlyRegisterQueriesOfEnabledCaches() {
+    refresher.register(ms, 1, RowBounds.DEFAULT, key(1));
+    assertEquals(0, refresher.getQueryCount());
+
+    refresher.enable("ns");
+    refresher.register(ms, 1, RowBounds.DEFAULT, key(1));
+    refresher.register(ms, 2, RowBounds.DEFAULT, key(2));
+    assertEquals(2, refresher.getQueryCount());
+    refresher.forget("ns", key(1));
+    assertEquals(1, refresher.getQueryCount());
+  }
+
+  @Test
+  void shouldForgetAllQueriesOfAFlushedCache() {
+    refresher.enable("ns");
+    refresher.register(ms, 1, RowBounds.DEFAULT, key(1));
+    refresher.register(ms, 2, RowBounds.DEFAULT, key(2));
+    refresher.forgetAll("other");
+    assertEquals(2, refresher.getQueryCount());
+    refresher.forgetAll("ns");
+    assertEquals(0, refresher.getQueryCount());
+  }
+
+  @Test
+  void shouldBoundQueriesPerCache() {
+    refresher.enable("ns");
+    for (int i = 0; i < 2000; i++) {
+      refresher.register(ms, i, RowBounds.DEFAULT, key(i));
+    }
+    assertEquals(1024, refresher.getQueryCount());
+  }
+
+  @Test
+  void shouldKeepTheContextOfTheThreadWhenARefreshFails() {
+    // without an environment, the refresh fails when opening its transaction
+    configuration.setAsyncExecutor(Runnable::run);
+    refresher.enable("ns");
+    refresher.register(ms, 1, RowBounds.DEFAULT, key(1));
+    ErrorContext.instance().activity("reading the cache");
+    try {
+      refresher.refresh("ns", key(1));
+      assertTrue(ErrorContext.instance().toString().contains("reading the cache"));
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
+  @Test
+  void shouldPluginTheExecutorOfARefresh() {
+    List<String> intercepted = new ArrayList<>();
+    configuration.addInterceptor(new CacheKeyInterceptor(intercepted));
+    configuration.setEnvironment(new Environment("test", new ManagedTransactionFactory(), new UnpooledDataSource()));
+    configuration.setAsyncExecutor(Runnable::run);
+    refresher.enable("ns");
+    refresher.register(ms, 1, RowBounds.DEFAULT, key(1));
+    // the key does not match the one of the statement, so the refresh stops after computing it
+    refresher.refresh("ns", key(1));
+    assertEquals(Collections.singletonList("ns.select"), intercepted);
+    assertEquals(0, refresher.getQueryCount());
+  }
+
+  private static CacheKey key(int id) {
+    CacheKey key = new CacheKey();
+    key.update("ns.select");
+    key.update(id);
+    return key;
+  }
+
+
+  @Intercepts(@Signature(type = Executor.class, method = "createCacheKey", args = { MappedStatement.class, Object.class,
+      RowBounds.class, BoundSql.class }))
+  private static class CacheKeyInterceptor implements Interceptor {
+
+    private final List<String> intercepted;
+
+    CacheKeyInterceptor(List<String> intercepted) {
+      this.intercepted = intercepted;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      intercepted.add(((MappedStatement) invocation.getArgs()[0]).getId());
+      return invocation.proceed();
+    }
+
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TableInvalidationTest {
+
+  private final AtomicInteger queries = new AtomicInteger();
+  private Configuration configuration;
+  private MappedStatement selectAuthors;
+  private MappedStatement selectPosts;
+
+  @BeforeEach
+  void setUp() {
+    configuration = new Configuration();
+    configuration.setCacheInvalidation(CacheInvalidation.TABLE);
+    selectAuthors = statement("authors.select", "select * from author", SqlCommandType.SELECT, new PerpetualCache("authors"));
+    selectPosts = statement("posts.select", "select * from post p join blog b on b.id = p.blog_id",
+        SqlCommandType.SELECT, new PerpetualCache("posts"));
+  }
+
+  @Test
+  void shouldOnlyInvalidateEntriesReadFromTheTablesWritten() throws Exception {
+    readAll(2);
+    readAll(0);
+
+    // a statement of another namespace, which has no cache
+    write(statement("blogs.update", "update blog set title = ?", SqlCommandType.UPDATE, null));
+
+    assertEquals(1, read(selectPosts));
+    assertEquals(0, read(selectAuthors));
+  }
+
+  @Test
+  void shouldBypassTheCacheForTablesWrittenByTheCurrentTransaction() throws Exception {
+    readAll(2);
+    CachingExecutor executor = newExecutor();
+    executor.update(statement("authors.insert", "insert into author (id) values (?)", SqlCommandType.INSERT, null), 1);
+    executor.query(selectAuthors, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    executor.query(selectPosts, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    assertEquals(3, queries.get());
+    executor.rollback(true);
+
+    // rolled back, so nothing is invalidated
+    readAll(0);
+  }
+
+  @Test
+  void shouldInvalidateEverythingWhenTheTablesWrittenAreUnknown() throws Exception {
+    readAll(2);
+    write(statement("authors.call", "{call purge()}", SqlCommandType.UPDATE, null));
+    readAll(2);
+  }
+
+  @Test
+  void shouldUseDeclaredTables() throws Exception {
+    readAll(2);
+    MappedStatement purge = new MappedStatement.Builder(configuration, "posts.purge",
+        new StaticSqlSource(configuration, "{call purge()}"), SqlCommandType.UPDATE).tables("POST").flushCacheRequired(true).build();
+    write(purge);
+    assertEquals(1, read(selectPosts));
+    assertEquals(0, read(selectAuthors));
+  }
+
+  @Test
+  void shouldStillClearTheNamespaceWithoutTableInvalidation() throws Exception {
+    configuration.setCacheInvalidation(CacheInvalidation.NAMESPACE);
+    readAll(2);
+    write(statement("posts.update", "update author set name = ?", SqlCommandType.UPDATE, selectPosts.getCache()));
+    assertEquals(1, read(selectPosts));
+    assertEquals(0, read(selectAuthors));
+  }
+
+  private void readAll(int expectedQueries) throws Exception {
+    assertEquals(expectedQueries, read(selectAuthors, selectPosts));
+  }
+
+  private int read(MappedStatement... statements) throws Exception {
+    int before = queries.get();
+    CachingExecutor executor = newExecutor();
+    for (MappedStatement statement : statements) {
+      executor.query(statement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    }
+    executor.commit(true);
+    return queries.get() - before;
+  }
+
+  private void write(MappedStatement statement) throws Exception {
+    CachingExecutor executor = newExecutor();
+    executor.update(statement, 1);
+    executor.commit(true);
+  }
+
+  private MappedStatement statement(String id, String sql, SqlCommandType type, Cache cache) {
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, sql), type)
+        .cache(cache).flushCacheRequired(type != SqlCommandType.SELECT).useCache(type == SqlCommandType.SELECT).build();
+  }
+
+  private CachingExecutor newExecutor() {
+    Executor delegate = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Executor.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "query":
+              queries.incrementAndGet();
+              return Collections.singletonList(((MappedStatement) args[0]).getId());
+            case "createCacheKey":
+              return new CacheKey(new Object[] {((MappedStatement) args[0]).getId(), ((BoundSql) args[3]).getSql()});
+            case "update":
+              return 1;
+            default:
+              return null;
+          }
+        });
+    return new CachingExecutor(delegate);
+  }
+
+}
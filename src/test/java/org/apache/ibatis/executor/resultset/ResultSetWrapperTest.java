@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ResultSetWrapperTest {
+
+  @Mock
+  private ResultSet rs;
+  @Mock
+  private ResultSetMetaData rsmd;
+
+  private final Configuration configuration = new Configuration();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnLabel(1)).thenReturn("Id");
+    when(rsmd.getColumnLabel(2)).thenReturn("P_NAME");
+    when(rsmd.getColumnLabel(3)).thenReturn("id");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnType(3)).thenReturn(Types.BIGINT);
+  }
+
+  @Test
+  void shouldResolveColumnIndexCaseInsensitively() throws Exception {
+    ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+    assertEquals(1, rsw.getColumnIndex("Id"));
+    assertEquals(1, rsw.getColumnIndex("ID"));
+    assertEquals(1, rsw.getColumnIndex("id"));
+    assertEquals(2, rsw.getColumnIndex("p_name"));
+    assertEquals(-1, rsw.getColumnIndex("missing"));
+    assertEquals(-1, rsw.getColumnIndex(null));
+    assertEquals(JdbcType.INTEGER, rsw.getJdbcType("ID"));
+  }
+
+  @Test
+  void shouldResolvePropertyAndIdColumnIndexesWithPrefix() throws Exception {
+    final TypeHandlerRegistry registry = configuration.getTypeHandlerRegistry();
+    List<ResultMapping> resultMappings = new ArrayList<>();
+    resultMappings.add(new ResultMapping.Builder(configuration, "name", "name", registry.getTypeHandler(String.class)).build());
+    resultMappings.add(new ResultMapping.Builder(configuration, "other", "other", registry.getTypeHandler(String.class)).build());
+    ResultMap resultMap = new ResultMap.Builder(configuration, "testMap", HashMap.class, resultMappings).build();
+
+    ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+    assertArrayEquals(new int[] {2, -1}, rsw.getPropertyColumnIndexes(resultMap, "P_"));
+    assertArrayEquals(new int[] {-1, -1}, rsw.getPropertyColumnIndexes(resultMap, null));
+    assertArrayEquals(new int[] {2, -1}, rsw.getIdColumnIndexes(resultMap, "p_"));
+  }
+
+}
@@ -23,6 +23,16 @@ import java.lang.reflect.Field;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.CoalescingCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -43,6 +53,66 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void testConcurrentCacheIsNotSynchronized() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentCache.class).addDecorator(LruCache.class)
+        .size(10).readWrite(true).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Cache serialized = unwrap(cache);
+    Assertions.assertThat(serialized).isInstanceOf(SerializedCache.class);
+    Cache concurrent = unwrap(serialized);
+    Assertions.assertThat(concurrent).isInstanceOf(ConcurrentCache.class);
+    Assertions.assertThat(((ConcurrentCache) concurrent).getMaxSize()).isEqualTo(10);
+  }
+
+  @Test
+  void testSelfEvictingCacheRejectsEvictionDecorator() {
+    when(() -> new CacheBuilder("test").implementation(ConcurrentCache.class).addDecorator(FifoCache.class).build());
+    then(caughtException()).isInstanceOf(CacheException.class)
+      .hasMessage("Cache org.apache.ibatis.cache.impl.ConcurrentCache evicts by itself and cannot be decorated with "
+          + "org.apache.ibatis.cache.decorators.FifoCache for namespace 'test'.");
+  }
+
+  @Test
+  void testSelfEvictingCacheRejectsMaxWeight() {
+    when(() -> new CacheBuilder("test").implementation(OffHeapCache.class).addDecorator(LruCache.class)
+        .maxWeight(1024L).build());
+    then(caughtException()).isInstanceOf(CacheException.class)
+      .hasMessage("Cache org.apache.ibatis.cache.impl.OffHeapCache cannot be bounded by weight for namespace 'test'.");
+  }
+
+  @Test
+  void testWeightedCacheIsInnermostDecorator() {
+    Cache cache = new CacheBuilder("test").maxWeight(1024L).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+    Cache lru = unwrap(unwrap(cache));
+    Assertions.assertThat(lru).isInstanceOf(LruCache.class);
+    Cache weighted = unwrap(lru);
+    Assertions.assertThat(weighted).isInstanceOf(WeightedCache.class);
+    Assertions.assertThat(((WeightedCache) weighted).getMaxWeight()).isEqualTo(1024L);
+    Assertions.assertThat((Cache) unwrap(weighted)).isInstanceOf(PerpetualCache.class);
+  }
+
+  @Test
+  void testCoalescingTakesPrecedenceOverBlocking() {
+    Cache readOnly = new CacheBuilder("test").blocking(true).coalesce(true).staleWhileRevalidate(1000L).build();
+    Assertions.assertThat(readOnly).isInstanceOf(CoalescingCache.class);
+    Assertions.assertThat(((CoalescingCache) readOnly).getMaxStaleness()).isEqualTo(1000L);
+
+    Cache readWrite = new CacheBuilder("test").readWrite(true).coalesce(true).staleWhileRevalidate(1000L).build();
+    Assertions.assertThat(((CoalescingCache) readWrite).getMaxStaleness()).isEqualTo(0L);
+  }
+
+  @Test
+  void testTimeToLiveWithoutClearInterval() {
+    Cache cache = new CacheBuilder("test").timeToLive(1000L).ttlJitter(0.1).build();
+    ScheduledCache scheduled = unwrap(unwrap(cache));
+    Assertions.assertThat(scheduled).hasFieldOrPropertyWithValue("timeToLive", 1000L);
+    Assertions.assertThat(scheduled).hasFieldOrPropertyWithValue("clearInterval", Long.MAX_VALUE);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
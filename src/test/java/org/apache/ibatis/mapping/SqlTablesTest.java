@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SqlTablesTest {
+
+  @Test
+  void shouldInferTablesReadByQueries() {
+    assertEquals(tables("author"), SqlTables.parse("select * from author where id = ?").read);
+    assertEquals(tables("blog", "author", "post"), SqlTables.parse(
+        "select * from blog b join author a on a.id = b.author_id left outer join post p on p.blog_id = b.id").read);
+    assertEquals(tables("blog", "author"), SqlTables.parse("SELECT * FROM blog b, author AS a WHERE a.id = b.author_id").read);
+    assertEquals(tables("author", "post"),
+        SqlTables.parse("select * from author where id in (select author_id from post) order by id").read);
+    assertEquals(tables("author"), SqlTables.parse("select * from app.\"AUTHOR\" for update").read);
+    assertNull(SqlTables.parse("select * from author").written);
+  }
+
+  @Test
+  void shouldInferTablesWrittenByStatements() {
+    assertEquals(tables("author"), SqlTables.parse("insert into author (id, name) values (?, ?)").written);
+    assertEquals(tables("author"), SqlTables.parse("UPDATE `author` SET name = ? WHERE id = ?").written);
+    assertEquals(tables("author"), SqlTables.parse("delete from author where id = ?").written);
+    assertEquals(tables("author"), SqlTables.parse(
+        "insert into author (id) values (?) on duplicate key update id = id").written);
+    assertEquals(tables("author"), SqlTables.parse(
+        "merge into author a using author_import i on (a.id = i.id) when matched then update set a.name = i.name").written);
+    assertEquals(tables("author"), SqlTables.parse("truncate table author").written);
+  }
+
+  @Test
+  void shouldIgnoreLiteralsAndComments() {
+    SqlTables tables = SqlTables.parse("select 'from post' from author -- join comment\n /* join tag */ where id = ?");
+    assertEquals(tables("author"), tables.read);
+  }
+
+  @Test
+  void shouldNotFindTablesOfProcedureCalls() {
+    SqlTables tables = SqlTables.parse("{call author_stats(?)}");
+    assertNull(tables.read);
+    assertNull(tables.written);
+  }
+
+  @Test
+  void shouldNormalizeDeclaredTables() {
+    assertEquals(tables("author", "post"), SqlTables.normalize(" Author", "app.POST", ""));
+  }
+
+  private static Set<String> tables(String... tables) {
+    return new LinkedHashSet<>(Arrays.asList(tables));
+  }
+
+}
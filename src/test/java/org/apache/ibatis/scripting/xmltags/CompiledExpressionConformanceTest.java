@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that every expression {@link CompiledExpression} resolves gives the same value as OGNL.
+ */
+class CompiledExpressionConformanceTest {
+
+  private static final List<String> EXPRESSIONS = Arrays.asList(
+      "name", "name != null", "name == null", "missing == null", "missing != null",
+      "name == 'jim'", "name != \"jim\"", "name eq 'jim'", "name neq 'bob'", "name < 'k'", "name gte 'jim'",
+      "name.length() > 2", "name.isEmpty()", "!name.isEmpty()", "not name.isEmpty()", "empty.isEmpty()",
+      "count == 3", "count != 3", "count > 2", "count >= 3", "count lt 10", "count lte -1", "count == 3.0",
+      "ratio == 0.5", "ratio > 0", "ratio < count", "zero", "!zero", "flag", "!flag", "flag == true", "flag != false",
+      "ids != null and ids.size() > 0", "ids.size() == 3", "ids.isEmpty()", "none.size() == 0", "none.isEmpty()",
+      "map.size() == 1", "map.isEmpty()", "map.key == 'value'", "map.other == null", "array.length == 2",
+      "section.toString() == 'NEWS'", "section == null", "author.username == 'jim'", "author.id > 100",
+      "author.bio == null", "author.favouriteSection != null",
+      "name or missing", "missing or name", "name and count", "missing and name", "missing || zero", "name && flag",
+      "(name != null or missing != null) and count > 1", "name != null and (count == 1 or count == 3)",
+      "!(count > 1)", "! flag and zero == 0", "true", "false", "null", "1", "-1", "0.25", "'x'", "'text'",
+      "_parameter.name", "_parameter.count > 2", "_databaseId == null");
+
+  private final Configuration configuration = new Configuration();
+  private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+  @Test
+  void shouldCompileTheWholeSuite() {
+    for (String expression : EXPRESSIONS) {
+      assertNotNull(CompiledExpression.compile(expression), expression);
+    }
+  }
+
+  @Test
+  void shouldEvaluateLikeOgnlWithAMapParameter() {
+    assertConformance(bindings(mapParameter()));
+  }
+
+  @Test
+  void shouldEvaluateLikeOgnlWithABeanParameter() {
+    Author author = new Author(101, "jim", "***", "jim@ibatis.apache.org", null, Section.NEWS);
+    Map<String, Object> bindings = bindings(author);
+    for (String expression : Arrays.asList("username != null", "bio == null", "id > 100", "id == 101",
+        "favouriteSection.toString() == 'NEWS'", "_parameter.username.length() == 3", "_parameter != null")) {
+      assertConformance(expression, bindings);
+    }
+  }
+
+  @Test
+  void shouldEvaluateBooleansLikeOgnl() {
+    Map<String, Object> bindings = bindings(mapParameter());
+    for (String expression : EXPRESSIONS) {
+      CompiledExpression compiled = CompiledExpression.compile(expression);
+      assertEquals(evaluator.evaluateBoolean(expression, bindings),
+          evaluator.evaluateBoolean(expression, compiled, bindings), expression);
+    }
+  }
+
+  @Test
+  void shouldIterateLikeOgnl() {
+    Map<String, Object> bindings = bindings(mapParameter());
+    for (String expression : Arrays.asList("ids", "none", "array", "map", "_parameter.ids")) {
+      CompiledExpression compiled = CompiledExpression.compile(expression);
+      assertEquals(toList(evaluator.evaluateIterable(expression, bindings)),
+          toList(evaluator.evaluateIterable(expression, compiled, bindings)), expression);
+    }
+  }
+
+  @Test
+  void shouldResolveTheCommonExpressions() {
+    Map<String, Object> bindings = bindings(mapParameter());
+    for (String expression : Arrays.asList("name != null", "ids != null and ids.size() > 0", "name == 'jim'",
+        "count > 2", "!name.isEmpty()", "author.username == 'jim'", "section.toString() == 'NEWS'")) {
+      assertTrue(CompiledExpression.compile(expression).evaluate(bindings) != CompiledExpression.UNRESOLVED, expression);
+    }
+  }
+
+  private void assertConformance(Map<String, Object> bindings) {
+    for (String expression : EXPRESSIONS) {
+      assertConformance(expression, bindings);
+    }
+  }
+
+  private void assertConformance(String expression, Map<String, Object> bindings) {
+    CompiledExpression compiled = CompiledExpression.compile(expression);
+    assertNotNull(compiled, expression);
+    Object value = compiled.evaluate(bindings);
+    if (value != CompiledExpression.UNRESOLVED) {
+      assertEquals(OgnlCache.getValue(expression, bindings), value, expression);
+    }
+  }
+
+  private Map<String, Object> bindings(Object parameterObject) {
+    return new DynamicContext(configuration, parameterObject).getBindings();
+  }
+
+  private static Map<String, Object> mapParameter() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "jim");
+    parameter.put("empty", "");
+    parameter.put("count", 3L);
+    parameter.put("ratio", 0.5d);
+    parameter.put("zero", 0);
+    parameter.put("flag", true);
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    parameter.put("none", Collections.emptyList());
+    parameter.put("map", Collections.singletonMap("key", "value"));
+    parameter.put("array", new int[] {1, 2});
+    parameter.put("section", Section.NEWS);
+    parameter.put("author", new Author(101, "jim", "***", "jim@ibatis.apache.org", null, Section.NEWS));
+    return parameter;
+  }
+
+  private static List<Object> toList(Iterable<?> iterable) {
+    List<Object> list = new ArrayList<>();
+    iterable.forEach(list::add);
+    return list;
+  }
+
+}
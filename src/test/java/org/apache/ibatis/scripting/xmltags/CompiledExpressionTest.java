@@ -0,0 +1,176 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldNotCompileUnsupportedExpressions() {
+    assertNull(CompiledExpression.compile("name.startsWith('a')"));
+    assertNull(CompiledExpression.compile("name == 'it\\'s'"));
+    assertNull(CompiledExpression.compile("index % 2 != 0"));
+    assertNull(CompiledExpression.compile("value not in {null, ''}"));
+    assertNull(CompiledExpression.compile("a + 1"));
+    assertNull(CompiledExpression.compile("@java.lang.Math@max(a, b)"));
+    assertNull(CompiledExpression.compile("a == 1L"));
+    assertNull(CompiledExpression.compile("a == 010"));
+    assertNull(CompiledExpression.compile("a instanceof b"));
+    assertNull(CompiledExpression.compile("(a"));
+    assertNull(CompiledExpression.compile(""));
+  }
+
+  @Test
+  void shouldReadBeanProperties() {
+    Author author = new Author(101, "jim", "***", "jim@ibatis.apache.org", null, Section.NEWS);
+    Map<String, Object> bindings = bindings(author);
+    assertEquals(true, evaluate("username != null", bindings));
+    assertEquals(true, evaluate("bio == null", bindings));
+    assertEquals(true, evaluate("id > 100 and id <= 101", bindings));
+    assertEquals(Section.NEWS, evaluate("favouriteSection", bindings));
+    assertEquals(101, evaluate("_parameter.id", bindings));
+  }
+
+  @Test
+  void shouldReadMapEntries() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    parameter.put("name", "jim");
+    Map<String, Object> bindings = bindings(parameter);
+    assertEquals(true, evaluate("ids != null && ids.size() > 0", bindings));
+    assertEquals(Arrays.asList(1, 2, 3), evaluate("ids", bindings));
+    assertNull(evaluate("missing", bindings));
+  }
+
+  @Test
+  void shouldReturnTheOperandsOfLogicalOperators() {
+    Map<String, Object> bindings = bindings(Collections.singletonMap("name", "jim"));
+    assertEquals("jim", evaluate("missing || name", bindings));
+    assertNull(evaluate("missing and name", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("!name", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("name and missing", bindings));
+    assertEquals(true, evaluate("!(missing)", bindings));
+  }
+
+  @Test
+  void shouldCompareNumbersNumerically() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("count", 3L);
+    parameter.put("ratio", 0.5d);
+    Map<String, Object> bindings = bindings(parameter);
+    assertEquals(true, evaluate("count == 3", bindings));
+    assertEquals(true, evaluate("count > -1", bindings));
+    assertEquals(true, evaluate("ratio < 1", bindings));
+    assertEquals(true, evaluate("ratio == 0.5", bindings));
+    assertEquals(false, evaluate("count != 3", bindings));
+  }
+
+  @Test
+  void shouldFollowOperatorPrecedence() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("a", 1);
+    parameter.put("b", 2);
+    Map<String, Object> bindings = bindings(parameter);
+    assertEquals(true, evaluate("a == 2 or a == 1 and b == 2", bindings));
+    assertEquals(false, evaluate("(a == 2 or a == 1) and b == 3", bindings));
+    assertEquals(true, evaluate("a < b == true", bindings));
+  }
+
+  @Test
+  void shouldLeaveAmbiguousValuesToOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "jim");
+    parameter.put("flag", true);
+    parameter.put("list", Arrays.asList(1, 2));
+    parameter.put("map", new HashMap<>());
+    Map<String, Object> bindings = bindings(parameter);
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("name == 1", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("flag == 1", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("list.size", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("map.size", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("missing.name", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("name.unknown", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("name.size()", bindings));
+  }
+
+  @Test
+  void shouldEvaluateStringLiteralsAndMethods() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "jim");
+    parameter.put("empty", "");
+    parameter.put("ids", Arrays.asList(1, 2));
+    parameter.put("array", new int[] {1, 2, 3});
+    parameter.put("section", Section.NEWS);
+    Map<String, Object> bindings = bindings(parameter);
+    assertEquals(true, evaluate("name == 'jim'", bindings));
+    assertEquals(true, evaluate("name eq \"jim\"", bindings));
+    assertEquals(true, evaluate("name.length() gte 3", bindings));
+    assertEquals(true, evaluate("empty.isEmpty()", bindings));
+    assertEquals(false, evaluate("not ids.isEmpty() and empty != ''", bindings));
+    assertEquals(3, evaluate("array.length", bindings));
+    assertEquals(true, evaluate("section.toString() == 'NEWS'", bindings));
+    assertEquals('x', evaluate("'x'", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("name == 'j'", bindings));
+    assertSame(CompiledExpression.UNRESOLVED, evaluate("section == 'NEWS'", bindings));
+  }
+
+  @Test
+  void shouldCompileTheExpressionsOfTheDefaultNodes() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "jim");
+    parameter.put("ids", Arrays.asList(1, 2));
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    new IfSqlNode(new StaticTextSqlNode("name = #{name}"), "name != null and name.length() > 0").apply(context);
+    new ForEachSqlNode(configuration, new StaticTextSqlNode("#{id}"), "ids", null, "id", "(", ")", ",").apply(context);
+    assertEquals("name = #{name} ( #{__frch_id_0} , #{__frch_id_1} )", context.getSql().replaceAll("\\s+", " "));
+  }
+
+  @Test
+  void shouldEvaluateBooleansLikeOgnl() {
+    ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("zero", 0);
+    parameter.put("name", "");
+    Map<String, Object> bindings = bindings(parameter);
+    assertFalse(evaluator.evaluateBoolean("zero", CompiledExpression.compile("zero"), bindings));
+    assertTrue(evaluator.evaluateBoolean("name", CompiledExpression.compile("name"), bindings));
+    assertFalse(evaluator.evaluateBoolean("missing", CompiledExpression.compile("missing"), bindings));
+  }
+
+  private Map<String, Object> bindings(Object parameterObject) {
+    return new DynamicContext(configuration, parameterObject).getBindings();
+  }
+
+  private static Object evaluate(String expression, Object root) {
+    CompiledExpression compiled = CompiledExpression.compile(expression);
+    assertNotNull(compiled, expression);
+    return compiled.evaluate(root);
+  }
+
+}
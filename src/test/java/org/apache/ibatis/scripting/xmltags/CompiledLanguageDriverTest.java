@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledLanguageDriverTest {
+
+  private final Configuration configuration = new Configuration();
+  private final CompiledLanguageDriver driver = new CompiledLanguageDriver();
+
+  @Test
+  void shouldRenderDynamicSql() {
+    String script = "<script>select * from author"
+        + " <where>"
+        + " <if test=\"name != null\">and name = #{name}</if>"
+        + " <if test=\"ids != null and ids.size() > 0\"> and id in"
+        + " <foreach collection=\"ids\" item=\"id\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>"
+        + " </if>"
+        + " </where>"
+        + " <choose><when test=\"limit > 0\">limit #{limit}</when><otherwise>limit 10</otherwise></choose>"
+        + "</script>";
+    SqlSource sqlSource = driver.createSqlSource(configuration, script, Map.class);
+    BoundSql boundSql = sqlSource.getBoundSql(params("jim", Arrays.asList(1, 2), 5));
+    assertEquals("select * from author WHERE name = ? and id in (?,?) limit ?", normalize(boundSql.getSql()));
+    assertEquals(2, boundSql.getAdditionalParameter("__frch_id_1"));
+
+    boundSql = sqlSource.getBoundSql(params(null, Arrays.asList(), 0));
+    assertEquals("select * from author limit 10", normalize(boundSql.getSql()));
+  }
+
+  @Test
+  void shouldMergeAdjacentStaticText() {
+    SqlNode root = new MixedSqlNode(Arrays.asList(
+        new StaticTextSqlNode("select *"),
+        new MixedSqlNode(Arrays.asList(new StaticTextSqlNode("from"), new StaticTextSqlNode("author"))),
+        new IfSqlNode(new StaticTextSqlNode("where name = #{name}"), "name != null")));
+    SqlNode compiled = SqlNodeCompiler.compile(root);
+    List<SqlNode> contents = ((MixedSqlNode) compiled).getContents();
+    assertEquals(2, contents.size());
+    assertEquals("select * from author", ((StaticTextSqlNode) contents.get(0)).getText());
+
+    DynamicContext context = new DynamicContext(configuration, params("jim", null, 0));
+    compiled.apply(context);
+    assertEquals("select * from author where name = #{name}", context.getSql());
+  }
+
+  @Test
+  void shouldNotSeparateTextMergedInsideTrim() {
+    SqlNode root = new TrimSqlNode(configuration, new MixedSqlNode(Arrays.asList(
+        new StaticTextSqlNode("a = 1,"), new StaticTextSqlNode("b = 2,"))), "set", null, null, ",");
+    DynamicContext context = new DynamicContext(configuration, null);
+    SqlNodeCompiler.compile(root).apply(context);
+    assertEquals("set a = 1,b = 2", context.getSql());
+  }
+
+  @Test
+  void shouldMergeStaticTextOfParsedScripts() {
+    String script = "<script>select * from author <!-- by id --> where id = #{id}"
+        + "<if test=\"name != null\"> and name = #{name}</if> and age <![CDATA[ < ]]> #{age}</script>";
+    SqlSource sqlSource = driver.createSqlSource(configuration, script, Map.class);
+    List<SqlNode> contents = ((MixedSqlNode) ((DynamicSqlSource) sqlSource).getRootSqlNode()).getContents();
+    assertEquals(3, contents.size());
+    assertEquals("select * from author where id = #{id}", normalize(((StaticTextSqlNode) contents.get(0)).getText()).trim());
+    assertEquals("and age < #{age}", normalize(((StaticTextSqlNode) contents.get(2)).getText()).trim());
+
+    sqlSource = new XMLLanguageDriver().createSqlSource(configuration, script, Map.class);
+    contents = ((MixedSqlNode) ((DynamicSqlSource) sqlSource).getRootSqlNode()).getContents();
+    assertEquals(5, contents.size());
+  }
+
+  @Test
+  void shouldKeepStaticSqlRaw() {
+    SqlSource sqlSource = driver.createSqlSource(configuration, "<script>select * from author</script>", Map.class);
+    assertFalse(sqlSource instanceof DynamicSqlSource);
+  }
+
+  private static String normalize(String sql) {
+    return sql.replaceAll("\\s+", " ");
+  }
+
+  private static Map<String, Object> params(String name, List<Integer> ids, int limit) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("name", name);
+    params.put("ids", ids);
+    params.put("limit", limit);
+    return params;
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class DynamicContextTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldJoinFragmentsWithSpaces() {
+    DynamicContext context = new DynamicContext(configuration, null);
+    context.appendSql(" select *");
+    context.appendSql("");
+    context.appendSql("from author ");
+    assertEquals("select *  from author", context.getSql());
+  }
+
+  @Test
+  void shouldTrimInPlace() {
+    SqlNode where = new WhereSqlNode(configuration, mixed(
+        new StaticTextSqlNode(" "), new IfSqlNode(new StaticTextSqlNode("and\tid = #{id}"), "id != null"),
+        new StaticTextSqlNode("or name = #{name} ")));
+    DynamicContext context = new DynamicContext(configuration, params(1, "jim"));
+    mixed(new StaticTextSqlNode("select * from author"), where, new StaticTextSqlNode("order by id")).apply(context);
+    assertEquals("select * from author WHERE \tid = #{id}or name = #{name} order by id", context.getSql());
+  }
+
+  @Test
+  void shouldOverrideSuffixes() {
+    SqlNode set = new SetSqlNode(configuration, mixed(new StaticTextSqlNode("name = #{name},"),
+        new IfSqlNode(new StaticTextSqlNode("id = #{id},"), "id != null")));
+    DynamicContext context = new DynamicContext(configuration, params(null, "jim"));
+    set.apply(context);
+    assertEquals("SET name = #{name}", context.getSql());
+  }
+
+  @Test
+  void shouldRenameItemsAndSeparateThem() {
+    SqlNode forEach = new ForEachSqlNode(configuration, new StaticTextSqlNode("#{ item.id } #{i} #{itemName} \\#{item}"),
+        "list", "i", "item", "(", ")", ",");
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("list", Arrays.asList(params(1, null), params(2, null)));
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    forEach.apply(context);
+    assertEquals("(  #{__frch_item_0.id } #{__frch_i_0} #{itemName} #{item} , #{__frch_item_1.id } #{__frch_i_1} #{itemName} #{item} )",
+        context.getSql());
+    assertEquals(1, context.getBindings().get("__frch_i_1"));
+    assertFalse(context.getBindings().containsKey("item"));
+  }
+
+  @Test
+  void shouldNotSeparateItemsBeforeTheFirstNonBlankOne() {
+    SqlNode forEach = new ForEachSqlNode(configuration,
+        new IfSqlNode(new StaticTextSqlNode("#{id}"), "id > 1"), "ids", null, "id", null, null, " or ");
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    mixed(new WhereSqlNode(configuration, forEach)).apply(context);
+    assertEquals("WHERE #{__frch_id_1} or #{__frch_id_2}", context.getSql());
+  }
+
+  @Test
+  void shouldReuseTheBufferOfAReleasedContext() {
+    DynamicContext context = new DynamicContext(configuration, null);
+    context.appendSql("select 1");
+    StringBuilder buffer = context.getSqlBuffer();
+    assertEquals("select 1", context.getSql());
+    context.release();
+
+    DynamicContext next = new DynamicContext(configuration, null, 1000);
+    next.appendSql("select 2");
+    assertSame(buffer, next.getSqlBuffer());
+    assertTrue(buffer.capacity() >= 1000);
+    assertEquals("select 2", next.getSql());
+  }
+
+  private static SqlNode mixed(SqlNode... contents) {
+    return new MixedSqlNode(new ArrayList<>(Arrays.asList(contents)));
+  }
+
+  private static Map<String, Object> params(Integer id, String name) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("id", id);
+    params.put("name", name);
+    return params;
+  }
+
+}
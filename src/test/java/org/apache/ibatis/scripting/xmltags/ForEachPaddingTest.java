@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ForEachPaddingTest {
+
+  private static final String SCRIPT = "<script>select * from author where id in"
+      + "<foreach collection=\"ids\" item=\"id\" open=\"(\" separator=\",\" close=\")\"%s>#{id}</foreach>"
+      + "</script>";
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldPadToTheNextPowerOfTwo() {
+    PowerOfTwoPadding padding = new PowerOfTwoPadding();
+    assertEquals(1, padding.getPaddedSize(1));
+    assertEquals(2, padding.getPaddedSize(2));
+    assertEquals(4, padding.getPaddedSize(3));
+    assertEquals(8, padding.getPaddedSize(5));
+    assertEquals(1024, padding.getPaddedSize(1000));
+    assertEquals(Integer.MAX_VALUE, padding.getPaddedSize(Integer.MAX_VALUE));
+  }
+
+  @Test
+  void shouldRepeatTheLastElement() {
+    SqlSource sqlSource = sqlSource(" padding=\"POWER_OF_TWO\"");
+    BoundSql boundSql = sqlSource.getBoundSql(ids(1, 2, 3, 4, 5));
+    assertEquals("select * from author where id in (?,?,?,?,?,?,?,?)", normalize(boundSql.getSql()));
+    assertEquals(8, boundSql.getParameterMappings().size());
+    ParameterMapping last = boundSql.getParameterMappings().get(7);
+    assertEquals(5, boundSql.getAdditionalParameter(last.getProperty()));
+
+    assertEquals(boundSql.getSql(), sqlSource.getBoundSql(ids(1, 2, 3, 4, 5, 6, 7)).getSql());
+  }
+
+  @Test
+  void shouldNotPadByDefault() {
+    BoundSql boundSql = sqlSource("").getBoundSql(ids(1, 2, 3));
+    assertEquals(3, boundSql.getParameterMappings().size());
+  }
+
+  @Test
+  void shouldUseTheDefaultOfTheConfiguration() {
+    configuration.setDefaultForEachPadding(new PowerOfTwoPadding());
+    assertEquals(4, sqlSource("").getBoundSql(ids(1, 2, 3)).getParameterMappings().size());
+    assertEquals(3, sqlSource(" padding=\"NO_PADDING\"").getBoundSql(ids(1, 2, 3)).getParameterMappings().size());
+  }
+
+  @Test
+  void shouldUseACustomPadding() {
+    SqlSource sqlSource = sqlSource(" padding=\"" + TenPadding.class.getName() + "\"");
+    assertEquals(10, sqlSource.getBoundSql(ids(1, 2, 3)).getParameterMappings().size());
+  }
+
+  @Test
+  void shouldRepeatTheLastEntryOfAMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("a", 1);
+    map.put("b", 2);
+    map.put("c", 3);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("map", map);
+    SqlNode forEach = new ForEachSqlNode(configuration, new StaticTextSqlNode("#{k}"), "map", "k", "v", "(", ")", ",",
+        new PowerOfTwoPadding());
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    forEach.apply(context);
+    assertEquals("(#{__frch_k_0},#{__frch_k_1},#{__frch_k_2},#{__frch_k_3})", normalize(context.getSql()));
+    assertEquals("c", context.getBindings().get("__frch_k_3"));
+    assertEquals(3, context.getBindings().get("__frch_v_3"));
+  }
+
+  @Test
+  void shouldRepeatTheIndexOfTheLastElement() {
+    Map<String, Object> parameter = new HashMap<>(ids(7, 8, 9));
+    SqlNode forEach = new ForEachSqlNode(configuration, new StaticTextSqlNode("#{i}"), "ids", "i", "id", "(", ")", ",",
+        new PowerOfTwoPadding());
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    forEach.apply(context);
+    assertEquals("(#{__frch_i_0},#{__frch_i_1},#{__frch_i_2},#{__frch_i_3})", normalize(context.getSql()));
+    assertEquals(2, context.getBindings().get("__frch_i_2"));
+    assertEquals(2, context.getBindings().get("__frch_i_3"));
+    assertEquals(9, context.getBindings().get("__frch_id_3"));
+  }
+
+  @Test
+  void shouldNotPadAnEmptyCollection() {
+    BoundSql boundSql = sqlSource(" padding=\"POWER_OF_TWO\"").getBoundSql(ids());
+    assertEquals("select * from author where id in", normalize(boundSql.getSql()));
+  }
+
+  public static class TenPadding implements ForEachPadding {
+    @Override
+    public int getPaddedSize(int size) {
+      return (size + 9) / 10 * 10;
+    }
+  }
+
+  private SqlSource sqlSource(String attributes) {
+    return new XMLLanguageDriver().createSqlSource(configuration, String.format(SCRIPT, attributes), Map.class);
+  }
+
+  private static Map<String, Object> ids(Integer... ids) {
+    List<Integer> list = ids.length == 0 ? Collections.emptyList() : Arrays.asList(ids);
+    return Collections.singletonMap("ids", list);
+  }
+
+  private static String normalize(String sql) {
+    return sql.replaceAll("\\s+", " ").replace("( ", "(").replace(" )", ")").replace(" ,", ",").replace(", ", ",");
+  }
+
+}
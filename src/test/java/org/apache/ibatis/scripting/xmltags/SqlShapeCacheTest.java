@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.jupiter.api.Test;
+
+class SqlShapeCacheTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldReuseTheMappingsOfTheSameShape() {
+    DynamicSqlSource source = new DynamicSqlSource(configuration, inList());
+    BoundSql first = source.getBoundSql(params(1, 2));
+    BoundSql second = source.getBoundSql(params(3, 4));
+    assertEquals("select * from author where id in ( ? , ? )", second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(3, second.getAdditionalParameter("__frch_item_0"));
+    assertEquals(1, source.getShapeCache().getHitCount());
+    assertEquals(1, source.getShapeCache().getMissCount());
+  }
+
+  @Test
+  void shouldParseEachShape() {
+    DynamicSqlSource source = new DynamicSqlSource(configuration, inList());
+    source.getBoundSql(params(1, 2));
+    BoundSql boundSql = source.getBoundSql(params(1, 2, 3));
+    assertEquals(3, boundSql.getParameterMappings().size());
+    assertEquals(2, source.getShapeCache().getMissCount());
+    assertEquals(2, source.getShapeCache().getSize());
+  }
+
+  @Test
+  void shouldNotReuseMappingsResolvedFromOtherTypes() {
+    DynamicSqlSource source = new DynamicSqlSource(configuration, inList());
+    source.getBoundSql(params(1, 2));
+    List<ParameterMapping> mappings = source.getBoundSql(params("a", "b")).getParameterMappings();
+    assertTrue(mappings.get(0).getTypeHandler() instanceof StringTypeHandler);
+    mappings = source.getBoundSql(params(1, 2)).getParameterMappings();
+    assertTrue(mappings.get(0).getTypeHandler() instanceof IntegerTypeHandler);
+    assertEquals(0, source.getShapeCache().getHitCount());
+  }
+
+  @Test
+  void shouldNotReuseMappingsOfNestedPropertiesResolvedFromOtherTypes() {
+    SqlNode byItemId = context -> {
+      context.bind("item", ((Map<?, ?>) context.getBindings().get("_parameter")).get("item"));
+      context.appendSql("select * from author where id = #{item.id}");
+      return true;
+    };
+    DynamicSqlSource source = new DynamicSqlSource(configuration, byItemId);
+    Map<String, Object> params = new HashMap<>();
+    params.put("item", Collections.singletonMap("id", 1));
+    assertTrue(source.getBoundSql(params).getParameterMappings().get(0).getTypeHandler() instanceof IntegerTypeHandler);
+    params.put("item", Collections.singletonMap("id", "a"));
+    assertTrue(source.getBoundSql(params).getParameterMappings().get(0).getTypeHandler() instanceof StringTypeHandler);
+    params.put("item", Collections.singletonMap("id", "b"));
+    assertTrue(source.getBoundSql(params).getParameterMappings().get(0).getTypeHandler() instanceof StringTypeHandler);
+    assertEquals(1, source.getShapeCache().getHitCount());
+    assertEquals(2, source.getShapeCache().getMissCount());
+  }
+
+  @Test
+  void shouldNotReuseMappingsOfAnotherParameterType() {
+    SqlNode byId = new StaticTextSqlNode("select * from author where id = #{id}");
+    DynamicSqlSource source = new DynamicSqlSource(configuration, byId);
+    Author author = new Author(1);
+    assertTrue(source.getBoundSql(author).getParameterMappings().get(0).getTypeHandler() instanceof IntegerTypeHandler);
+    Map<String, Object> map = new HashMap<>();
+    map.put("id", 1);
+    assertEquals(Object.class, source.getBoundSql(map).getParameterMappings().get(0).getJavaType());
+    assertTrue(source.getBoundSql(author).getParameterMappings().get(0).getTypeHandler() instanceof IntegerTypeHandler);
+  }
+
+  @Test
+  void shouldEmptyTheCacheWhenFull() {
+    configuration.setSqlShapeCacheSize(2);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, inList());
+    source.getBoundSql(params(1));
+    source.getBoundSql(params(1, 2));
+    source.getBoundSql(params(1, 2, 3));
+    assertEquals(1, source.getShapeCache().getSize());
+  }
+
+  @Test
+  void shouldBeDisabledWithASizeOfZero() {
+    configuration.setSqlShapeCacheSize(0);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, inList());
+    assertEquals(2, source.getBoundSql(params(1, 2)).getParameterMappings().size());
+    assertNull(source.getShapeCache());
+  }
+
+  private static Map<String, Object> params(Object... ids) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("ids", Arrays.asList(ids));
+    return params;
+  }
+
+  // renders like a foreach over ids, without OGNL
+  private static SqlNode inList() {
+    return context -> {
+      @SuppressWarnings("unchecked")
+      List<Object> ids = (List<Object>) ((Map<String, Object>) context.getBindings().get("_parameter")).get("ids");
+      context.appendSql("select * from author where id in (");
+      for (int i = 0; i < ids.size(); i++) {
+        context.bind("__frch_item_" + i, ids.get(i));
+        context.appendSql((i > 0 ? ", " : "") + "#{__frch_item_" + i + "}");
+      }
+      context.appendSql(")");
+      return true;
+    };
+  }
+
+}
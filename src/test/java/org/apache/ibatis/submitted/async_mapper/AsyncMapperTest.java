@@ -0,0 +1,230 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static ExecutorService executorService;
+  private static final AtomicInteger submitted = new AtomicInteger();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+    // a single worker makes context leaks between tasks observable
+    executorService = Executors.newSingleThreadExecutor();
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(command -> {
+      submitted.incrementAndGet();
+      executorService.execute(command);
+    });
+  }
+
+  @AfterAll
+  static void tearDown() throws Exception {
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  @BeforeEach
+  void resetDatabase() throws Exception {
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldSelectOnConfiguredExecutor() throws Exception {
+    int before = submitted.get();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = mapper.getUser(1).get();
+      assertEquals("User1", user.getName());
+      assertNull(mapper.getUser(99).get());
+    }
+    assertEquals(before + 2, submitted.get());
+  }
+
+  @Test
+  void shouldMapValueTypeOfFuture() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsers().toCompletableFuture().get();
+      assertEquals(2, users.size());
+      assertEquals("User2", users.get(1).getName());
+
+      Map<Integer, User> userMap = mapper.getUserMap().get();
+      assertEquals("User1", userMap.get(1).getName());
+
+      Optional<User> user = mapper.findUser(2).get();
+      assertEquals("User2", user.get().getName());
+      assertFalse(mapper.findUser(99).get().isPresent());
+
+      assertEquals(Integer.valueOf(2), mapper.countUsers().get());
+    }
+  }
+
+  @Test
+  void shouldMapParameterizedValueTypeOfFutureLikeSynchronousMethod() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertEquals(Map.class, configuration.getMappedStatement(Mapper.class.getName() + ".getUserAsMap")
+        .getResultMaps().get(0).getType());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUserAsMap(2).get();
+      assertEquals(2, user.get("ID"));
+      assertEquals("User2", user.get("NAME"));
+    }
+  }
+
+  @Test
+  void shouldCommitOwnTransaction() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(Integer.valueOf(1), mapper.insertUser(new User(3, "User3")).get());
+      assertNull(mapper.insertUserNoResult(new User(4, "User4")).get());
+      // the caller's session is not used, closing it without commit must not roll the inserts back
+      sqlSession.rollback(true);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Integer.valueOf(4), sqlSession.getMapper(Mapper.class).countUsers().get());
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionallyWithErrorContext() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      ExecutionException e = assertThrows(ExecutionException.class, () -> mapper.insertUser(new User(1, "Duplicate")).get());
+      assertTrue(e.getCause() instanceof PersistenceException);
+      assertTrue(e.getCause().getMessage().contains("### The error may involve " + Mapper.class.getName() + ".insertUser"));
+
+      // the worker must not carry the failed statement's context into the next task
+      String workerContext = executorService.submit(() -> ErrorContext.instance().toString()).get();
+      assertEquals("", workerContext);
+      assertEquals("", ErrorContext.instance().toString());
+
+      assertEquals(Integer.valueOf(2), mapper.countUsers().get());
+    }
+  }
+
+  @Test
+  void shouldOpenSessionWithCallerSettings() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // a batch executor reports no update count until the batch is flushed on commit
+      assertEquals(Integer.valueOf(BatchExecutor.BATCH_UPDATE_RETURN_VALUE), mapper.insertUser(new User(3, "User3")).get());
+      assertEquals(Integer.valueOf(3), mapper.countUsers().get());
+    }
+  }
+
+  @Test
+  void shouldOpenSessionFromSqlSessionManager() throws Exception {
+    SqlSessionManager manager = SqlSessionManager.newInstance(sqlSessionFactory);
+    assertEquals("User1", manager.getMapper(Mapper.class).getUser(1).get().getName());
+  }
+
+  @Test
+  void shouldOpenSessionFromConfiguredFactoryForOtherSessions() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      SqlSession wrapper = (SqlSession) Proxy.newProxyInstance(SqlSession.class.getClassLoader(),
+          new Class<?>[] { SqlSession.class }, (proxy, method, args) -> method.invoke(sqlSession, args));
+      Mapper mapper = sqlSession.getConfiguration().getMapper(Mapper.class, wrapper);
+      ExecutionException e = assertThrows(ExecutionException.class, () -> mapper.getUser(1).get());
+      assertTrue(e.getCause() instanceof BindingException);
+
+      sqlSessionFactory.getConfiguration().setAsyncSqlSessionFactory(sqlSessionFactory);
+      try {
+        assertEquals("User1", mapper.getUser(1).get().getName());
+      } finally {
+        sqlSessionFactory.getConfiguration().setAsyncSqlSessionFactory(null);
+      }
+    }
+  }
+
+  @Test
+  void shouldRestoreErrorContextOfExecutingThread() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setAsyncExecutor(Runnable::run);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ErrorContext.instance().activity("calling an async mapper method");
+      sqlSession.getMapper(Mapper.class).countUsers().get();
+      assertTrue(ErrorContext.instance().toString().endsWith("### The error occurred while calling an async mapper method"));
+    } finally {
+      ErrorContext.instance().reset();
+      configuration.setAsyncExecutor(command -> {
+        submitted.incrementAndGet();
+        executorService.execute(command);
+      });
+    }
+  }
+
+  @Test
+  void shouldUseDedicatedExecutorByDefault() throws Exception {
+    Executor executor = new Configuration().getAsyncExecutor();
+    assertNotSame(ForkJoinPool.commonPool(), executor);
+    Thread worker = CompletableFuture.supplyAsync(Thread::currentThread, executor).get();
+    assertTrue(worker.isDaemon());
+    assertTrue(worker.getName().startsWith("mybatis-async-"));
+  }
+
+  @Test
+  void shouldRejectAsyncCursor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThrows(BindingException.class, mapper::getUserCursor);
+    }
+  }
+
+}
@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchAutoFlushTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+  }
+
+  @BeforeEach
+  void resetDatabase() throws Exception {
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+  }
+
+  @AfterEach
+  void resetConfiguration() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setDefaultBatchSize(4);
+    configuration.setMaxBatchParameterCount(null);
+    configuration.setBatchResultHandler(null);
+  }
+
+  @Test
+  void shouldParseBatchSizes() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertEquals(Integer.valueOf(4), configuration.getDefaultBatchSize());
+    assertEquals(Integer.valueOf(3), configuration.getMappedStatement(Mapper.class.getName() + ".insertUser").getBatchSize());
+    assertEquals(Integer.valueOf(2), configuration.getMappedStatement(Mapper.class.getName() + ".renameUser").getBatchSize());
+    assertEquals(null, configuration.getMappedStatement(Mapper.class.getName() + ".insertUserWithDefaultBatchSize").getBatchSize());
+  }
+
+  @Test
+  void shouldFlushWhenStatementBatchSizeIsReached() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 7; i++) {
+        mapper.insertUser(i, "User" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertParameterCounts(results, 3, 3, 1);
+      assertEquals(7, totalUpdateCount(results));
+      sqlSession.commit();
+      assertEquals(7, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldFlushWhenDefaultBatchSizeIsReached() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 10; i++) {
+        mapper.insertUserWithDefaultBatchSize(i, "User" + i);
+      }
+      assertParameterCounts(sqlSession.flushStatements(), 4, 4, 2);
+    }
+  }
+
+  @Test
+  void shouldNotFlushWithoutLimit() {
+    sqlSessionFactory.getConfiguration().setDefaultBatchSize(null);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 10; i++) {
+        mapper.insertUserWithDefaultBatchSize(i, "User" + i);
+      }
+      assertParameterCounts(sqlSession.flushStatements(), 10);
+    }
+  }
+
+  @Test
+  void shouldFlushWhenParameterCountIsReached() {
+    sqlSessionFactory.getConfiguration().setDefaultBatchSize(null);
+    // each insert binds two parameters
+    sqlSessionFactory.getConfiguration().setMaxBatchParameterCount(6);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 8; i++) {
+        mapper.insertUserWithDefaultBatchSize(i, "User" + i);
+      }
+      assertParameterCounts(sqlSession.flushStatements(), 3, 3, 2);
+    }
+  }
+
+  @Test
+  void shouldKeepStatementOrderWhenFlushing() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUserWithDefaultBatchSize(1, "User1");
+      mapper.insertUserWithDefaultBatchSize(2, "User2");
+      mapper.renameUser(1, "Renamed1");
+      // reaches the batch size of renameUser and flushes the pending inserts first
+      mapper.renameUser(2, "Renamed2");
+      mapper.insertUserWithDefaultBatchSize(3, "User3");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertParameterCounts(results, 2, 2, 1);
+      assertEquals(Mapper.class.getName() + ".renameUser", results.get(1).getMappedStatement().getId());
+      sqlSession.commit();
+      assertEquals("Renamed1", mapper.getName(1));
+      assertEquals("Renamed2", mapper.getName(2));
+      assertEquals("User3", mapper.getName(3));
+    }
+  }
+
+  @Test
+  void shouldPassResultsToHandler() {
+    List<BatchResult> handled = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchResultHandler(handled::add);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 7; i++) {
+        mapper.insertUser(i, "User" + i);
+      }
+      assertParameterCounts(handled, 3, 3);
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      assertParameterCounts(handled, 3, 3, 1);
+      assertEquals(7, totalUpdateCount(handled));
+      sqlSession.commit();
+      assertEquals(7, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldDiscardFlushedResultsOnRollback() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 4; i++) {
+        mapper.insertUser(i, "User" + i);
+      }
+      sqlSession.rollback(true);
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      assertEquals(0, mapper.countUsers());
+    }
+  }
+
+  private static void assertParameterCounts(List<BatchResult> results, int... expected) {
+    assertEquals(expected.length, results.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], results.get(i).getParameterObjects().size());
+    }
+  }
+
+  private static int totalUpdateCount(List<BatchResult> results) {
+    int total = 0;
+    for (BatchResult result : results) {
+      for (int count : result.getUpdateCounts()) {
+        total += count;
+      }
+    }
+    return total;
+  }
+
+}
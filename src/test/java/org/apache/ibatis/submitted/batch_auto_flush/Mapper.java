@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Options(batchSize = 3)
+  @Insert("insert into users (id, name) values (#{id}, #{name})")
+  void insertUser(@Param("id") int id, @Param("name") String name);
+
+  @Insert("insert into users (id, name) values (#{id}, #{name})")
+  void insertUserWithDefaultBatchSize(@Param("id") int id, @Param("name") String name);
+
+  void renameUser(@Param("id") int id, @Param("name") String name);
+
+  @Select("select count(*) from users")
+  int countUsers();
+
+  @Select("select name from users where id = #{id}")
+  String getName(int id);
+
+}
@@ -0,0 +1,229 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetSettings() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(false);
+    sqlSessionFactory.getConfiguration().setReturnInstanceForEmptyRow(false);
+    sqlSessionFactory.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.NONE);
+    sqlSessionFactory.getConfiguration().getCompiledRowMappers().clear();
+  }
+
+  @Test
+  void shouldMapAutoMappedColumns() {
+    assertTrue(sqlSessionFactory.getConfiguration().isCompiledRowMappingEnabled());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 2; i++) {
+        List<User> users = mapper.getUsersAutoMapped();
+        assertEquals(3, users.size());
+        assertEquals(Integer.valueOf(1), users.get(0).getId());
+        assertEquals("User1", users.get(0).getName());
+        assertEquals("one", users.get(0).getNickName());
+        assertEquals(10, users.get(0).getAge());
+        assertNull(users.get(1).getNickName());
+        assertEquals(0, users.get(1).getAge());
+        sqlSession.clearCache();
+      }
+    }
+    assertFalse(sqlSessionFactory.getConfiguration().getCompiledRowMappers().isEmpty());
+    assertFalse(compiledRowMappersOf("getUsersAutoMapped").isEmpty());
+  }
+
+  @Test
+  void shouldMapPropertyMappings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersWithResultMap();
+      assertEquals(3, users.size());
+      assertEquals(Integer.valueOf(2), users.get(1).getId());
+      assertEquals("User2", users.get(1).getName());
+      assertEquals("one", users.get(0).getNickName());
+      assertNull(users.get(2).getName());
+    }
+  }
+
+  @Test
+  void shouldReturnNullForEmptyRow() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getEmptyUsers();
+      assertEquals(1, users.size());
+      assertNull(users.get(0));
+    }
+  }
+
+  @Test
+  void shouldReturnInstanceForEmptyRow() {
+    sqlSessionFactory.getConfiguration().setReturnInstanceForEmptyRow(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getEmptyUsers();
+      assertEquals(1, users.size());
+      assertNull(users.get(0).getName());
+    }
+  }
+
+  @Test
+  void shouldNotCompileResultMapWithDiscriminator() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersWithDiscriminator();
+      assertEquals(3, users.size());
+      assertTrue(users.get(0) instanceof Admin);
+      assertEquals("User1", users.get(0).getName());
+      assertEquals(User.class, users.get(1).getClass());
+      assertEquals("User2", users.get(1).getName());
+    }
+    assertNotCompiled("getUsersWithDiscriminator");
+  }
+
+  @Test
+  void shouldNotCompileResultMapWithNestedQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersWithNestedQuery();
+      assertEquals(1, users.size());
+      assertEquals("User1", users.get(0).getName());
+      assertNotNull(users.get(0).getManager());
+      assertEquals("one", users.get(0).getManager().getNickName());
+    }
+    assertNotCompiled("getUsersWithNestedQuery");
+  }
+
+  @Test
+  void shouldNotCompileResultMapWithConstructorMappings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersWithConstructor();
+      assertEquals(3, users.size());
+      assertEquals(Integer.valueOf(1), users.get(0).getId());
+      assertEquals("User1", users.get(0).getName());
+      assertEquals("one", users.get(0).getNickName());
+      assertEquals(10, users.get(0).getAge());
+    }
+    assertNotCompiled("getUsersWithConstructor");
+  }
+
+  @Test
+  void shouldNotCompileMapResultType() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Map<String, Object>> users = mapper.getUsersAsMaps();
+      assertEquals(3, users.size());
+      assertEquals(1, users.get(0).get("ID"));
+      assertEquals("User1", users.get(0).get("NAME"));
+    }
+    assertNotCompiled("getUsersAsMaps");
+  }
+
+  @Test
+  void shouldNotCompileWhenUnknownColumnsAreReported() {
+    sqlSessionFactory.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.WARNING);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersAutoMapped();
+      assertEquals(3, users.size());
+      assertEquals("User1", users.get(0).getName());
+      assertEquals("one", users.get(0).getNickName());
+    }
+    assertNotCompiled("getUsersAutoMapped");
+  }
+
+  @Test
+  void shouldNotCompileResultTypeWithoutDefaultConstructor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<ImmutableUser> users = mapper.getImmutableUsers();
+      assertEquals(3, users.size());
+      assertEquals(Integer.valueOf(2), users.get(1).getId());
+      assertEquals("User2", users.get(1).getName());
+    }
+    assertNotCompiled("getImmutableUsers");
+  }
+
+  @Test
+  void shouldBoundCompiledRowMappers() {
+    Map<String, CompiledRowMapper> compiledRowMappers = sqlSessionFactory.getConfiguration().getCompiledRowMappers();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // each extra column name is a new layout of the same result map
+      for (int i = 0; i < 4096; i++) {
+        assertEquals("User1", mapper.getUsersWithExtraColumn(i).get(0).getName());
+      }
+      assertEquals(4096, compiledRowMappers.size());
+      assertEquals("User1", mapper.getUsersWithExtraColumn(4096).get(0).getName());
+      assertEquals(1, compiledRowMappers.size());
+    }
+  }
+
+  private static List<CompiledRowMapper> compiledRowMappersOf(String statementName) {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    String resultMapId = configuration.getMappedStatement(Mapper.class.getName() + "." + statementName).getResultMaps()
+        .get(0).getId();
+    // keys are the result map id followed by the column layout
+    return configuration.getCompiledRowMappers().entrySet().stream()
+        .filter(entry -> entry.getKey().startsWith(resultMapId + ":"))
+        .map(Map.Entry::getValue)
+        .filter(rowMapper -> rowMapper.getMappingCount() > 0)
+        .collect(Collectors.toList());
+  }
+
+  private static void assertNotCompiled(String statementName) {
+    // a layout that cannot be compiled is remembered as a row mapper without mappings
+    assertTrue(compiledRowMappersOf(statementName).isEmpty());
+  }
+
+}
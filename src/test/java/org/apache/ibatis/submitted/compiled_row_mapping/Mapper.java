@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Arg;
+import org.apache.ibatis.annotations.Case;
+import org.apache.ibatis.annotations.ConstructorArgs;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.TypeDiscriminator;
+
+public interface Mapper {
+
+  @Select("select id, name, nick_name, age from users order by id")
+  List<User> getUsersAutoMapped();
+
+  @Results(id = "userRM", value = {
+    @Result(property = "id", column = "user_id", id = true),
+    @Result(property = "name", column = "user_name")
+  })
+  @Select("select id user_id, name user_name, nick_name, age from users order by id")
+  List<User> getUsersWithResultMap();
+
+  @Select("select name from users where name is null")
+  List<User> getEmptyUsers();
+
+  @Select("select id, name, nick_name, age from users where id = #{id}")
+  User getUser(Integer id);
+
+  @TypeDiscriminator(column = "id", javaType = int.class, cases = {
+    @Case(value = "1", type = Admin.class)
+  })
+  @Select("select id, name, nick_name, age from users order by id")
+  List<User> getUsersWithDiscriminator();
+
+  @Results({
+    @Result(property = "id", column = "id", id = true),
+    @Result(property = "manager", column = "id", one = @One(select = "getUser"))
+  })
+  @Select("select id, name, nick_name, age from users where id = 1")
+  List<User> getUsersWithNestedQuery();
+
+  @ConstructorArgs({
+    @Arg(column = "id", javaType = Integer.class, id = true),
+    @Arg(column = "name", javaType = String.class)
+  })
+  @Select("select id, name, nick_name, age from users order by id")
+  List<User> getUsersWithConstructor();
+
+  @Select("select id, name from users order by id")
+  List<Map<String, Object>> getUsersAsMaps();
+
+  @Select("select id, name from users order by id")
+  List<ImmutableUser> getImmutableUsers();
+
+  @Select("select id, name, 0 as extra_${n} from users where id = 1")
+  List<User> getUsersWithExtraColumn(@Param("n") int n);
+
+}
@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.virtual_threads;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.FetchType;
+
+@CacheNamespace(eviction = RemoteCacheDecorator.class)
+public interface Mapper {
+
+  @Select("select id, name from users where id = #{id}")
+  User getUser(Integer id);
+
+  @Results(id = "userWithManager", value = {
+    @Result(property = "id", column = "id", id = true),
+    @Result(property = "manager", column = "manager_id", one = @One(select = "getUser", fetchType = FetchType.LAZY))
+  })
+  @Options(useCache = false)
+  @Select("select id, name, manager_id from users where id = #{id}")
+  User getUserWithManager(Integer id);
+
+  @Options(useCache = false)
+  @Select("select id, name from users order by id")
+  List<User> getUsers();
+
+  @Update("update users set name = #{name} where id = #{id}")
+  int updateName(User user);
+
+}
@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.virtual_threads;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Simulates a cache that performs I/O on each access. It sits below the {@code SynchronizedCache} that guards every
+ * second level cache.
+ */
+public class RemoteCacheDecorator implements Cache {
+
+  private final Cache delegate;
+
+  public RemoteCacheDecorator(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    roundTrip();
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    roundTrip();
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    roundTrip();
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    roundTrip();
+    delegate.clear();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  private void roundTrip() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
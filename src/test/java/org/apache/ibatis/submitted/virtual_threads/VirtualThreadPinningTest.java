@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.virtual_threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.VirtualThreadExtension;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs sessions of every executor type on virtual threads and checks with JFR that no virtual thread blocks while
+ * pinned to its carrier by a monitor held in MyBatis code. The workload contends for a small connection pool, reads
+ * through a second level cache whose delegate blocks, and triggers lazy loading. Skipped when the JVM does not support
+ * virtual threads.
+ */
+class VirtualThreadPinningTest {
+
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final int TASKS = 64;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    assumeTrue(VirtualThreadExtension.isSupported(), "Virtual threads are not supported by this JVM");
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/virtual_threads/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/virtual_threads/CreateDB.sql");
+  }
+
+  @Test
+  void shouldNotPinCarrierThreads() throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+      runWorkload();
+      recording.stop();
+      Path dump = Files.createTempFile("virtual_threads", ".jfr");
+      try {
+        recording.dump(dump);
+        events = RecordingFile.readAllEvents(dump);
+      } finally {
+        Files.deleteIfExists(dump);
+      }
+    }
+
+    // the JDBC driver may pin on its own monitors, only MyBatis code is checked here
+    List<String> pinnedStacks = events.stream()
+        .filter(event -> PINNED_EVENT.equals(event.getEventType().getName()))
+        .filter(event -> event.getStackTrace() != null)
+        .filter(event -> !hasFrameFrom(event, "org.hsqldb."))
+        .map(VirtualThreadPinningTest::describe)
+        .collect(Collectors.toList());
+    assertTrue(pinnedStacks.isEmpty(), () -> "Virtual threads were pinned at:\n" + String.join("\n\n", pinnedStacks));
+  }
+
+  private void runWorkload() throws Exception {
+    ExecutorService executor = newVirtualThreadExecutor();
+    List<Future<?>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < TASKS; i++) {
+        final int task = i;
+        results.add(executor.submit(() -> runSession(task)));
+      }
+      for (Future<?> result : results) {
+        result.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  private void runSession(int task) {
+    ExecutorType executorType = ExecutorType.values()[task % ExecutorType.values().length];
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(executorType)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUser(1).getName());
+
+      User user = mapper.getUserWithManager(2 + task % 3);
+      assertNotNull(user.getManager().getName());
+
+      assertEquals(4, mapper.getUsers().size());
+
+      User renamed = new User();
+      renamed.setId(user.getId());
+      renamed.setName("Renamed");
+      mapper.updateName(renamed);
+      sqlSession.rollback(true);
+    }
+  }
+
+  private static boolean hasFrameFrom(RecordedEvent event, String packagePrefix) {
+    for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+      if (frame.getMethod().getType().getName().startsWith(packagePrefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String describe(RecordedEvent event) {
+    return event.getStackTrace().getFrames().stream()
+        .map(frame -> "  at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+            + " line " + frame.getLineNumber())
+        .collect(Collectors.joining("\n"));
+  }
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      // Executors.newVirtualThreadPerTaskExecutor() is only available since Java 21
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+}